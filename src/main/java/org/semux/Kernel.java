@@ -20,6 +20,7 @@ import org.bitlet.weupnp.GatewayDiscover;
 import org.semux.api.http.SemuxApiService;
 import org.semux.config.Config;
 import org.semux.config.Constants;
+import org.semux.consensus.ProposalStats;
 import org.semux.consensus.SemuxBft;
 import org.semux.consensus.SemuxSync;
 import org.semux.core.Blockchain;
@@ -33,8 +34,10 @@ import org.semux.crypto.Key;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
 import org.semux.db.LeveldbDatabase;
-import org.semux.db.LeveldbDatabase.LevelDbFactory;
+import org.semux.db.SnapshotArchive;
 import org.semux.net.ChannelManager;
+import org.semux.net.GossipFilter;
+import org.semux.net.MessageWorkers;
 import org.semux.net.NodeManager;
 import org.semux.net.PeerClient;
 import org.semux.net.PeerServer;
@@ -71,6 +74,9 @@ public class Kernel {
     protected State state = State.STOPPED;
 
     protected ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    protected GossipFilter gossipFilter = new GossipFilter();
+    protected ProposalStats proposalStats = new ProposalStats();
+    protected MessageWorkers workers;
     protected Config config = null;
 
     protected Wallet wallet;
@@ -105,6 +111,8 @@ public class Kernel {
         this.config = config;
         this.wallet = wallet;
         this.coinbase = coinbase;
+
+        this.workers = new MessageWorkers(config);
     }
 
     /**
@@ -128,7 +136,7 @@ public class Kernel {
 
         relocateDatabaseIfNeeded();
 
-        dbFactory = new LevelDbFactory(config.databaseDir());
+        dbFactory = config.dbEngine().createFactory(config.databaseDir(), config);
         chain = new BlockchainImpl(config, dbFactory);
         long number = chain.getLatestBlockNumber();
         logger.info("Latest block number = {}", number);
@@ -337,6 +345,7 @@ public class Kernel {
         // stop API and p2p
         api.stop();
         p2p.stop();
+        workers.stop();
 
         // stop pending manager and node manager
         pendingMgr.stop();
@@ -359,6 +368,23 @@ public class Kernel {
         state = State.STOPPED;
     }
 
+    /**
+     * Exports a consistent snapshot of all the databases while the node is
+     * running. The kernel can't be stopped until the export completes.
+     *
+     * @param dir
+     *            the directory of the snapshot
+     * @return the statistics of each database
+     * @throws IOException
+     */
+    public synchronized Map<DatabaseName, SnapshotArchive.Stats> exportSnapshot(File dir) throws IOException {
+        if (state != State.RUNNING) {
+            throw new IOException("Kernel is not running");
+        }
+
+        return new SnapshotArchive(dir).export(dbFactory, stateLock.readLock());
+    }
+
     /**
      * Returns the kernel state.
      *
@@ -449,6 +475,33 @@ public class Kernel {
         return stateLock;
     }
 
+    /**
+     * Returns the filter of the gossip messages already seen.
+     *
+     * @return
+     */
+    public GossipFilter getGossipFilter() {
+        return gossipFilter;
+    }
+
+    /**
+     * Returns the stats of the received block proposals.
+     *
+     * @return
+     */
+    public ProposalStats getProposalStats() {
+        return proposalStats;
+    }
+
+    /**
+     * Returns the workers which handle expensive messages.
+     *
+     * @return
+     */
+    public MessageWorkers getMessageWorkers() {
+        return workers;
+    }
+
     /**
      * Returns the syncing manager.
      * 
@@ -49,9 +49,18 @@ public class ApiHandlerImpl implements ApiHandler {
             case GET_INFO:
                 return getInfo();
 
+            case GET_DATABASE_STATS:
+                return getDatabaseStats();
+
+            case EXPORT_SNAPSHOT:
+                return exportSnapshot();
+
             case GET_PEERS:
                 return getPeers();
 
+            case GET_NETWORK_STATS:
+                return getNetworkStats();
+
             case ADD_NODE:
                 return addNode(params);
 
@@ -73,6 +82,9 @@ public class ApiHandlerImpl implements ApiHandler {
             case GET_PENDING_TRANSACTIONS:
                 return getPendingTransactions();
 
+            case GET_PENDING_STATS:
+                return getPendingStats();
+
             case GET_ACCOUNT_TRANSACTIONS:
                 return getAccountTransactions(params);
 
@@ -158,6 +170,24 @@ public class ApiHandlerImpl implements ApiHandler {
         return semuxApi.getInfo();
     }
 
+    /**
+     * GET /get_database_stats
+     *
+     * @return
+     */
+    private ApiHandlerResponse getDatabaseStats() {
+        return semuxApi.getDatabaseStats();
+    }
+
+    /**
+     * GET /export_snapshot
+     *
+     * @return
+     */
+    private ApiHandlerResponse exportSnapshot() {
+        return semuxApi.exportSnapshot();
+    }
+
     /**
      * GET /get_peers
      *
@@ -167,6 +197,15 @@ public class ApiHandlerImpl implements ApiHandler {
         return semuxApi.getPeers();
     }
 
+    /**
+     * GET /get_network_stats
+     *
+     * @return
+     */
+    private ApiHandlerResponse getNetworkStats() {
+        return semuxApi.getNetworkStats();
+    }
+
     /**
      * GET /add_node?node
      *
@@ -205,6 +244,15 @@ public class ApiHandlerImpl implements ApiHandler {
         return semuxApi.getPendingTransactions();
     }
 
+    /**
+     * GET /get_pending_stats
+     *
+     * @return
+     */
+    private ApiHandlerResponse getPendingStats() {
+        return semuxApi.getPendingStats();
+    }
+
     /**
      * GET /get_account_transactions?address&from&to
      *
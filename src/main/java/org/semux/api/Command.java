@@ -24,6 +24,16 @@ public enum Command {
      */
     VERIFY_MESSAGE,
 
+    /**
+     * Get the tuning profile and runtime stats of databases.
+     */
+    GET_DATABASE_STATS,
+
+    /**
+     * Export a consistent snapshot of the databases.
+     */
+    EXPORT_SNAPSHOT,
+
     // =======================
     // network
     // =======================
@@ -32,6 +42,11 @@ public enum Command {
      */
     GET_PEERS,
 
+    /**
+     * Get the runtime stats of the network.
+     */
+    GET_NETWORK_STATS,
+
     /**
      * Add a new node to connect.
      */
@@ -73,6 +88,11 @@ public enum Command {
      */
     GET_PENDING_TRANSACTIONS,
 
+    /**
+     * Get the runtime stats of the pending manager.
+     */
+    GET_PENDING_STATS,
+
     /**
      * Get transactions by account.
      */
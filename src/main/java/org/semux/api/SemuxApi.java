@@ -16,15 +16,19 @@ import javax.ws.rs.QueryParam;
 import org.semux.api.response.AddNodeResponse;
 import org.semux.api.response.CreateAccountResponse;
 import org.semux.api.response.DoTransactionResponse;
+import org.semux.api.response.ExportSnapshotResponse;
 import org.semux.api.response.GetAccountResponse;
 import org.semux.api.response.GetAccountTransactionsResponse;
 import org.semux.api.response.GetBlockResponse;
+import org.semux.api.response.GetDatabaseStatsResponse;
 import org.semux.api.response.GetDelegateResponse;
 import org.semux.api.response.GetDelegatesResponse;
 import org.semux.api.response.GetInfoResponse;
+import org.semux.api.response.GetNetworkStatsResponse;
 import org.semux.api.response.GetLatestBlockNumberResponse;
 import org.semux.api.response.GetLatestBlockResponse;
 import org.semux.api.response.GetPeersResponse;
+import org.semux.api.response.GetPendingStatsResponse;
 import org.semux.api.response.GetPendingTransactionsResponse;
 import org.semux.api.response.GetTransactionLimitsResponse;
 import org.semux.api.response.GetTransactionResponse;
@@ -58,12 +62,30 @@ public interface SemuxApi {
     @Produces(JSON_MIME)
     ApiHandlerResponse getInfo();
 
+    @GET
+    @Path("get_database_stats")
+    @ApiOperation(value = "Get database stats", notes = "Returns the tuning profile and runtime stats of databases.", response = GetDatabaseStatsResponse.class)
+    @Produces(JSON_MIME)
+    ApiHandlerResponse getDatabaseStats();
+
+    @GET
+    @Path("export_snapshot")
+    @ApiOperation(value = "Export snapshot", notes = "Exports a consistent snapshot of all databases into a new directory under the data directory, while the node keeps running, and returns the path of the directory.", response = ExportSnapshotResponse.class)
+    @Produces(JSON_MIME)
+    ApiHandlerResponse exportSnapshot();
+
     @GET
     @Path("get_peers")
     @ApiOperation(value = "Get peers", notes = "Returns connected peers.", response = GetPeersResponse.class)
     @Produces(JSON_MIME)
     ApiHandlerResponse getPeers();
 
+    @GET
+    @Path("get_network_stats")
+    @ApiOperation(value = "Get network stats", notes = "Returns the runtime stats of the network: the duplicate ratio of gossip messages, the queue depth and latency of message workers, and the restoration hit rate and latency of block proposals.", response = GetNetworkStatsResponse.class)
+    @Produces(JSON_MIME)
+    ApiHandlerResponse getNetworkStats();
+
     @GET
     @Path("add_node")
     @ApiOperation(value = "Add node", notes = "Adds a node to node manager.", response = AddNodeResponse.class)
@@ -115,6 +137,12 @@ public interface SemuxApi {
     @Produces(JSON_MIME)
     ApiHandlerResponse getPendingTransactions();
 
+    @GET
+    @Path("get_pending_stats")
+    @ApiOperation(value = "Get pending stats", notes = "Returns the runtime stats of the pending manager: the size of the incoming transaction queue, the number of transactions received, rejected and accepted since start-up, and the stats of the last re-evaluation of the pool after a new block.", response = GetPendingStatsResponse.class)
+    @Produces(JSON_MIME)
+    ApiHandlerResponse getPendingStats();
+
     @GET
     @Path("get_account_transactions")
     @ApiOperation(value = "Get account transactions", notes = "Returns transactions from/to an account.", response = GetAccountTransactionsResponse.class)
@@ -9,9 +9,12 @@ package org.semux.api;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -20,15 +23,19 @@ import org.semux.Kernel;
 import org.semux.api.response.AddNodeResponse;
 import org.semux.api.response.CreateAccountResponse;
 import org.semux.api.response.DoTransactionResponse;
+import org.semux.api.response.ExportSnapshotResponse;
 import org.semux.api.response.GetAccountResponse;
 import org.semux.api.response.GetAccountTransactionsResponse;
 import org.semux.api.response.GetBlockResponse;
+import org.semux.api.response.GetDatabaseStatsResponse;
 import org.semux.api.response.GetDelegateResponse;
 import org.semux.api.response.GetDelegatesResponse;
 import org.semux.api.response.GetInfoResponse;
+import org.semux.api.response.GetNetworkStatsResponse;
 import org.semux.api.response.GetLatestBlockNumberResponse;
 import org.semux.api.response.GetLatestBlockResponse;
 import org.semux.api.response.GetPeersResponse;
+import org.semux.api.response.GetPendingStatsResponse;
 import org.semux.api.response.GetPendingTransactionsResponse;
 import org.semux.api.response.GetTransactionLimitsResponse;
 import org.semux.api.response.GetTransactionResponse;
@@ -54,6 +61,7 @@ import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.cache.PublicKeyCache;
+import org.semux.db.DatabaseName;
 import org.semux.net.NodeManager;
 import org.semux.net.filter.SemuxIpFilter;
 
@@ -78,6 +86,32 @@ public class SemuxApiImpl implements SemuxApi {
         return new GetInfoResponse(true, new Types.InfoType(kernel));
     }
 
+    @Override
+    public ApiHandlerResponse getDatabaseStats() {
+        List<Types.DatabaseStatsType> databases = new ArrayList<>();
+        for (DatabaseName name : DatabaseName.values()) {
+            databases.add(new Types.DatabaseStatsType(name, kernel.getDbFactory().getDB(name),
+                    kernel.getConfig().dbProfile(name)));
+        }
+        return new GetDatabaseStatsResponse(true, databases);
+    }
+
+    @Override
+    public ApiHandlerResponse exportSnapshot() {
+        File dir = new File(kernel.getConfig().dataDir(), "snapshots" + File.separator + System.currentTimeMillis());
+        try {
+            kernel.exportSnapshot(dir);
+            return new ExportSnapshotResponse(true, dir.getAbsolutePath());
+        } catch (IOException e) {
+            return failure("Failed to export snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ApiHandlerResponse getNetworkStats() {
+        return new GetNetworkStatsResponse(true, new Types.NetworkStatsType(kernel));
+    }
+
     @Override
     public ApiHandlerResponse getPeers() {
         return new GetPeersResponse(true,
@@ -198,6 +232,11 @@ public class SemuxApiImpl implements SemuxApi {
                         .collect(Collectors.toList()));
     }
 
+    @Override
+    public ApiHandlerResponse getPendingStats() {
+        return new GetPendingStatsResponse(true, new Types.PendingStatsType(kernel.getPendingManager()));
+    }
+
     @Override
     public ApiHandlerResponse getAccountTransactions(String address, String from, String to) {
         byte[] addressBytes;
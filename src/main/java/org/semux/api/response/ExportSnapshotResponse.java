@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.response;
+
+import org.semux.api.ApiHandlerResponse;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ExportSnapshotResponse extends ApiHandlerResponse {
+
+    @JsonProperty("result")
+    public final String path;
+
+    public ExportSnapshotResponse(
+            @JsonProperty("success") Boolean success,
+            @JsonProperty("result") String path) {
+        super(success, null);
+        this.path = path;
+    }
+}
@@ -10,14 +10,22 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.semux.Kernel;
+import org.semux.consensus.ProposalStats;
 import org.semux.core.Amount;
 import org.semux.core.Block;
 import org.semux.core.BlockchainImpl;
+import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.state.Account;
 import org.semux.core.state.Delegate;
 import org.semux.crypto.Hex;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.DatabaseProfile;
+import org.semux.net.GossipFilter;
+import org.semux.net.MessageWorkers;
 import org.semux.net.Peer;
+import org.semux.net.msg.MessageCode;
 import org.semux.util.TimeUtil;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -292,6 +300,304 @@ public class Types {
         }
     }
 
+    public static class DatabaseStatsType {
+
+        @JsonProperty("name")
+        public final String name;
+
+        @JsonProperty("approximateSize")
+        public final Long approximateSize;
+
+        @JsonProperty("blockSize")
+        public final Integer blockSize;
+
+        @JsonProperty("cacheSize")
+        public final Long cacheSize;
+
+        @JsonProperty("writeBufferSize")
+        public final Integer writeBufferSize;
+
+        @JsonProperty("compression")
+        public final Boolean compression;
+
+        @JsonProperty("verifyChecksums")
+        public final Boolean verifyChecksums;
+
+        @JsonProperty("stats")
+        public final String stats;
+
+        public DatabaseStatsType(
+                @JsonProperty("name") String name,
+                @JsonProperty("approximateSize") Long approximateSize,
+                @JsonProperty("blockSize") Integer blockSize,
+                @JsonProperty("cacheSize") Long cacheSize,
+                @JsonProperty("writeBufferSize") Integer writeBufferSize,
+                @JsonProperty("compression") Boolean compression,
+                @JsonProperty("verifyChecksums") Boolean verifyChecksums,
+                @JsonProperty("stats") String stats) {
+            this.name = name;
+            this.approximateSize = approximateSize;
+            this.blockSize = blockSize;
+            this.cacheSize = cacheSize;
+            this.writeBufferSize = writeBufferSize;
+            this.compression = compression;
+            this.verifyChecksums = verifyChecksums;
+            this.stats = stats;
+        }
+
+        public DatabaseStatsType(DatabaseName name, Database db, DatabaseProfile profile) {
+            this(name.name().toLowerCase(),
+                    db.getApproximateSize(),
+                    profile.getBlockSize(),
+                    profile.getCacheSize(),
+                    profile.getWriteBufferSize(),
+                    profile.isCompression(),
+                    profile.isVerifyChecksums(),
+                    db.getStats());
+        }
+    }
+
+    public static class NetworkStatsType {
+
+        @JsonProperty("gossip")
+        public final List<GossipStatsType> gossip;
+
+        @JsonProperty("workers")
+        public final List<WorkerStatsType> workers;
+
+        @JsonProperty("proposals")
+        public final ProposalStatsType proposals;
+
+        public NetworkStatsType(
+                @JsonProperty("gossip") List<GossipStatsType> gossip,
+                @JsonProperty("workers") List<WorkerStatsType> workers,
+                @JsonProperty("proposals") ProposalStatsType proposals) {
+            this.gossip = gossip;
+            this.workers = workers;
+            this.proposals = proposals;
+        }
+
+        public NetworkStatsType(Kernel kernel) {
+            this(kernel.getGossipFilter().getCodes().stream()
+                    .map(code -> new GossipStatsType(code, kernel.getGossipFilter()))
+                    .collect(Collectors.toList()),
+                    kernel.getMessageWorkers().getCodes().stream()
+                            .map(code -> new WorkerStatsType(code, kernel.getMessageWorkers()))
+                            .collect(Collectors.toList()),
+                    new ProposalStatsType(kernel.getProposalStats()));
+        }
+    }
+
+    public static class GossipStatsType {
+
+        @JsonProperty("type")
+        public final String type;
+
+        @JsonProperty("received")
+        public final Long received;
+
+        @JsonProperty("duplicates")
+        public final Long duplicates;
+
+        @JsonProperty("duplicateRatio")
+        public final Double duplicateRatio;
+
+        public GossipStatsType(
+                @JsonProperty("type") String type,
+                @JsonProperty("received") Long received,
+                @JsonProperty("duplicates") Long duplicates,
+                @JsonProperty("duplicateRatio") Double duplicateRatio) {
+            this.type = type;
+            this.received = received;
+            this.duplicates = duplicates;
+            this.duplicateRatio = duplicateRatio;
+        }
+
+        public GossipStatsType(MessageCode code, GossipFilter filter) {
+            this(code.name().toLowerCase(),
+                    filter.getReceived(code),
+                    filter.getDuplicates(code),
+                    filter.getDuplicateRatio(code));
+        }
+    }
+
+    public static class ProposalStatsType {
+
+        @JsonProperty("received")
+        public final Long received;
+
+        @JsonProperty("compact")
+        public final Long compact;
+
+        @JsonProperty("hitRate")
+        public final Double hitRate;
+
+        @JsonProperty("transactions")
+        public final Long transactions;
+
+        @JsonProperty("missingTransactions")
+        public final Long missingTransactions;
+
+        @JsonProperty("averageLatency")
+        public final Long averageLatency;
+
+        @JsonProperty("maxLatency")
+        public final Long maxLatency;
+
+        public ProposalStatsType(
+                @JsonProperty("received") Long received,
+                @JsonProperty("compact") Long compact,
+                @JsonProperty("hitRate") Double hitRate,
+                @JsonProperty("transactions") Long transactions,
+                @JsonProperty("missingTransactions") Long missingTransactions,
+                @JsonProperty("averageLatency") Long averageLatency,
+                @JsonProperty("maxLatency") Long maxLatency) {
+            this.received = received;
+            this.compact = compact;
+            this.hitRate = hitRate;
+            this.transactions = transactions;
+            this.missingTransactions = missingTransactions;
+            this.averageLatency = averageLatency;
+            this.maxLatency = maxLatency;
+        }
+
+        public ProposalStatsType(ProposalStats stats) {
+            this(stats.getReceived(),
+                    stats.getCompact(),
+                    stats.getHitRate(),
+                    stats.getTransactions(),
+                    stats.getMissingTransactions(),
+                    stats.getAverageLatency(),
+                    stats.getMaxLatency());
+        }
+    }
+
+    public static class WorkerStatsType {
+
+        @JsonProperty("type")
+        public final String type;
+
+        @JsonProperty("queued")
+        public final Integer queued;
+
+        @JsonProperty("handled")
+        public final Long handled;
+
+        @JsonProperty("rejected")
+        public final Long rejected;
+
+        @JsonProperty("averageLatency")
+        public final Long averageLatency;
+
+        @JsonProperty("maxLatency")
+        public final Long maxLatency;
+
+        public WorkerStatsType(
+                @JsonProperty("type") String type,
+                @JsonProperty("queued") Integer queued,
+                @JsonProperty("handled") Long handled,
+                @JsonProperty("rejected") Long rejected,
+                @JsonProperty("averageLatency") Long averageLatency,
+                @JsonProperty("maxLatency") Long maxLatency) {
+            this.type = type;
+            this.queued = queued;
+            this.handled = handled;
+            this.rejected = rejected;
+            this.averageLatency = averageLatency;
+            this.maxLatency = maxLatency;
+        }
+
+        public WorkerStatsType(MessageCode code, MessageWorkers workers) {
+            this(code.name().toLowerCase(),
+                    workers.getQueued(code),
+                    workers.getHandled(code),
+                    workers.getRejected(code),
+                    workers.getAverageLatency(code),
+                    workers.getMaxLatency(code));
+        }
+    }
+
+    public static class PendingStatsType {
+
+        @JsonProperty("queueSize")
+        public final Integer queueSize;
+
+        @JsonProperty("received")
+        public final Long received;
+
+        @JsonProperty("rejected")
+        public final Long rejected;
+
+        @JsonProperty("accepted")
+        public final Long accepted;
+
+        @JsonProperty("lastReevaluation")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final ReevaluationStatsType lastReevaluation;
+
+        public PendingStatsType(
+                @JsonProperty("queueSize") Integer queueSize,
+                @JsonProperty("received") Long received,
+                @JsonProperty("rejected") Long rejected,
+                @JsonProperty("accepted") Long accepted,
+                @JsonProperty("lastReevaluation") ReevaluationStatsType lastReevaluation) {
+            this.queueSize = queueSize;
+            this.received = received;
+            this.rejected = rejected;
+            this.accepted = accepted;
+            this.lastReevaluation = lastReevaluation;
+        }
+
+        public PendingStatsType(PendingManager pendingMgr) {
+            this(pendingMgr.getQueueSize(),
+                    pendingMgr.getReceivedCount(),
+                    pendingMgr.getRejectedCount(),
+                    pendingMgr.getAcceptedCount(),
+                    pendingMgr.getLastReevaluation() == null ? null
+                            : new ReevaluationStatsType(pendingMgr.getLastReevaluation()));
+        }
+    }
+
+    public static class ReevaluationStatsType {
+
+        @JsonProperty("full")
+        public final Boolean full;
+
+        @JsonProperty("time")
+        public final Long time;
+
+        @JsonProperty("included")
+        public final Integer included;
+
+        @JsonProperty("reexecuted")
+        public final Integer reexecuted;
+
+        @JsonProperty("kept")
+        public final Integer kept;
+
+        @JsonProperty("dropped")
+        public final Integer dropped;
+
+        public ReevaluationStatsType(
+                @JsonProperty("full") Boolean full,
+                @JsonProperty("time") Long time,
+                @JsonProperty("included") Integer included,
+                @JsonProperty("reexecuted") Integer reexecuted,
+                @JsonProperty("kept") Integer kept,
+                @JsonProperty("dropped") Integer dropped) {
+            this.full = full;
+            this.time = time;
+            this.included = included;
+            this.reexecuted = reexecuted;
+            this.kept = kept;
+            this.dropped = dropped;
+        }
+
+        public ReevaluationStatsType(PendingManager.ReevaluationStats stats) {
+            this(stats.full, stats.time, stats.included, stats.reexecuted, stats.kept, stats.dropped);
+        }
+    }
+
     public static class TransactionLimitsType {
 
         @JsonProperty("maxTransactionDataSize")
@@ -7,6 +7,7 @@
 package org.semux.cli;
 
 import java.io.File;
+import java.io.IOException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.List;
 
@@ -23,6 +24,8 @@ import org.semux.core.Wallet;
 import org.semux.core.exception.WalletLockedException;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseFactory;
+import org.semux.db.SnapshotArchive;
 import org.semux.exception.LauncherException;
 import org.semux.message.CliMessages;
 import org.semux.net.filter.exception.IpFilterJsonParseException;
@@ -109,6 +112,20 @@ public class SemuxCli extends Launcher {
                 .hasArg(true).optionalArg(false).argName("key").type(String.class)
                 .build();
         addOption(importPrivateKeyOption);
+
+        Option exportSnapshotOption = Option.builder()
+                .longOpt(SemuxOption.EXPORT_SNAPSHOT.toString())
+                .desc(CliMessages.get("ExportSnapshot"))
+                .hasArg(true).optionalArg(false).argName("path").type(String.class)
+                .build();
+        addOption(exportSnapshotOption);
+
+        Option importSnapshotOption = Option.builder()
+                .longOpt(SemuxOption.IMPORT_SNAPSHOT.toString())
+                .desc(CliMessages.get("ImportSnapshot"))
+                .hasArg(true).optionalArg(false).argName("path").type(String.class)
+                .build();
+        addOption(importSnapshotOption);
     }
 
     public void start(String[] args) throws ParseException {
@@ -140,6 +157,10 @@ public class SemuxCli extends Launcher {
             dumpPrivateKey(cmd.getOptionValue(SemuxOption.DUMP_PRIVATE_KEY.toString()).trim());
         } else if (cmd.hasOption(SemuxOption.IMPORT_PRIVATE_KEY.toString())) {
             importPrivateKey(cmd.getOptionValue(SemuxOption.IMPORT_PRIVATE_KEY.toString()).trim());
+        } else if (cmd.hasOption(SemuxOption.EXPORT_SNAPSHOT.toString())) {
+            exportSnapshot(cmd.getOptionValue(SemuxOption.EXPORT_SNAPSHOT.toString()).trim());
+        } else if (cmd.hasOption(SemuxOption.IMPORT_SNAPSHOT.toString())) {
+            importSnapshot(cmd.getOptionValue(SemuxOption.IMPORT_SNAPSHOT.toString()).trim());
         } else {
             start();
         }
@@ -308,6 +329,34 @@ public class SemuxCli extends Launcher {
         }
     }
 
+    protected void exportSnapshot(String path) {
+        Config config = getConfig();
+        DatabaseFactory dbFactory = config.dbEngine().createFactory(config.databaseDir(), config);
+        try {
+            new SnapshotArchive(new File(path)).export(dbFactory);
+            logger.info(CliMessages.get("SnapshotExported", path));
+        } catch (IOException e) {
+            logger.error(CliMessages.get("SnapshotFailed", e.getMessage()));
+            SystemUtil.exit(SystemUtil.Code.FAILED_TO_EXPORT_SNAPSHOT);
+        } finally {
+            dbFactory.close();
+        }
+    }
+
+    protected void importSnapshot(String path) {
+        Config config = getConfig();
+        DatabaseFactory dbFactory = config.dbEngine().createFactory(config.databaseDir(), config);
+        try {
+            new SnapshotArchive(new File(path)).restore(dbFactory);
+            logger.info(CliMessages.get("SnapshotImported", path));
+        } catch (IOException e) {
+            logger.error(CliMessages.get("SnapshotFailed", e.getMessage()));
+            SystemUtil.exit(SystemUtil.Code.FAILED_TO_IMPORT_SNAPSHOT);
+        } finally {
+            dbFactory.close();
+        }
+    }
+
     protected Wallet loadAndUnlockWallet() {
         if (getPassword() == null) {
             setPassword(ConsoleUtil.readPassword());
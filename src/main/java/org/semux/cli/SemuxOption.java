@@ -29,6 +29,10 @@ public enum SemuxOption {
 
     IMPORT_PRIVATE_KEY("importprivatekey"),
 
+    EXPORT_SNAPSHOT("exportsnapshot"),
+
+    IMPORT_SNAPSHOT("importsnapshot"),
+
     NETWORK("network");
 
     private final String name;
@@ -15,19 +15,26 @@ import java.io.FileInputStream;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.semux.Network;
 import org.semux.config.exception.ConfigException;
 import org.semux.core.Amount;
 import org.semux.core.TransactionType;
 import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.db.DatabaseEngine;
+import org.semux.db.DatabaseName;
+import org.semux.db.DatabaseProfile;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
 import org.semux.util.BigIntegerUtil;
@@ -75,17 +82,43 @@ public abstract class AbstractConfig implements Config {
     protected int netMaxFrameBodySize = 128 * 1024;
     protected int netMaxPacketSize = 8 * 1024 * 1024;
     protected int netRelayRedundancy = 16;
+    protected int netWorkerQueueSize = 1024;
+    protected int netMaxPendingMessagesPerChannel = 32;
     protected int netHandshakeExpiry = 5 * 60 * 1000;
     protected int netChannelIdleTimeout = 2 * 60 * 1000;
     protected Set<MessageCode> netPrioritizedMessages = new HashSet<>(Arrays.asList(
             MessageCode.BFT_NEW_HEIGHT,
             MessageCode.BFT_NEW_VIEW,
             MessageCode.BFT_PROPOSAL,
-            MessageCode.BFT_VOTE));
+            MessageCode.BFT_VOTE,
+            MessageCode.BFT_COMPACT_PROPOSAL,
+            MessageCode.BFT_GET_PROPOSAL_TXS,
+            MessageCode.BFT_PROPOSAL_TXS));
     protected List<String> netDnsSeedsMainNet = Collections
             .unmodifiableList(Arrays.asList("mainnet.semux.org", "mainnet.semux.net"));
     protected List<String> netDnsSeedsTestNet = Collections.singletonList("testnet.semux.org");
 
+    // =========================
+    // Transaction pool
+    // =========================
+    protected int txPoolBatchSize = 512;
+    protected int txPoolMaxAcceptRate = 4096;
+
+    // =========================
+    // Sync
+    // =========================
+    protected boolean syncFastSyncEnabled = false;
+    protected int syncFastSyncChunkSize = 64;
+    protected int syncFastSyncParallelism = 8;
+    protected int syncFastSyncMinPeers = 3;
+    protected List<String> syncFastSyncTrustedValidators = Collections.emptyList();
+
+    // =========================
+    // Database
+    // =========================
+    protected DatabaseEngine dbEngine = DatabaseEngine.LEVELDB;
+    protected Map<DatabaseName, DatabaseProfile> dbProfiles = new EnumMap<>(DatabaseName.class);
+
     // =========================
     // API
     // =========================
@@ -137,6 +170,10 @@ public abstract class AbstractConfig implements Config {
         this.network = network;
         this.networkVersion = networkVersion;
 
+        for (DatabaseName name : DatabaseName.values()) {
+            dbProfiles.put(name, DatabaseProfile.of(name));
+        }
+
         init();
         validate();
     }
@@ -348,6 +385,16 @@ public abstract class AbstractConfig implements Config {
         return netRelayRedundancy;
     }
 
+    @Override
+    public int netWorkerQueueSize() {
+        return netWorkerQueueSize;
+    }
+
+    @Override
+    public int netMaxPendingMessagesPerChannel() {
+        return netMaxPendingMessagesPerChannel;
+    }
+
     @Override
     public int netHandshakeExpiry() {
         return netHandshakeExpiry;
@@ -373,6 +420,51 @@ public abstract class AbstractConfig implements Config {
         return netDnsSeedsTestNet;
     }
 
+    @Override
+    public int txPoolBatchSize() {
+        return txPoolBatchSize;
+    }
+
+    @Override
+    public int txPoolMaxAcceptRate() {
+        return txPoolMaxAcceptRate;
+    }
+
+    @Override
+    public boolean syncFastSyncEnabled() {
+        return syncFastSyncEnabled;
+    }
+
+    @Override
+    public int syncFastSyncChunkSize() {
+        return syncFastSyncChunkSize;
+    }
+
+    @Override
+    public int syncFastSyncParallelism() {
+        return syncFastSyncParallelism;
+    }
+
+    @Override
+    public int syncFastSyncMinPeers() {
+        return syncFastSyncMinPeers;
+    }
+
+    @Override
+    public List<String> syncFastSyncTrustedValidators() {
+        return syncFastSyncTrustedValidators;
+    }
+
+    @Override
+    public DatabaseEngine dbEngine() {
+        return dbEngine;
+    }
+
+    @Override
+    public DatabaseProfile dbProfile(DatabaseName name) {
+        return dbProfiles.get(name);
+    }
+
     @Override
     public boolean apiEnabled() {
         return apiEnabled;
@@ -522,6 +614,12 @@ public abstract class AbstractConfig implements Config {
                 case "net.relayRedundancy":
                     netRelayRedundancy = Integer.parseInt(props.getProperty(name).trim());
                     break;
+                case "net.workerQueueSize":
+                    netWorkerQueueSize = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "net.maxPendingMessagesPerChannel":
+                    netMaxPendingMessagesPerChannel = Integer.parseInt(props.getProperty(name).trim());
+                    break;
                 case "net.channelIdleTimeout":
                     netChannelIdleTimeout = Integer.parseInt(props.getProperty(name).trim());
                     break;
@@ -532,6 +630,37 @@ public abstract class AbstractConfig implements Config {
                     netDnsSeedsTestNet = Arrays.asList(props.getProperty(name).trim().split(","));
                     break;
 
+                case "txpool.batchSize":
+                    txPoolBatchSize = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "txpool.maxAcceptRate":
+                    txPoolMaxAcceptRate = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+
+                case "sync.fastSync.enabled":
+                    syncFastSyncEnabled = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+                case "sync.fastSync.chunkSize":
+                    syncFastSyncChunkSize = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "sync.fastSync.parallelism":
+                    syncFastSyncParallelism = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "sync.fastSync.minPeers":
+                    syncFastSyncMinPeers = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "sync.fastSync.trustedValidators":
+                    syncFastSyncTrustedValidators = Arrays.stream(props.getProperty(name).split(","))
+                            .map(String::trim)
+                            .filter(s -> !s.isEmpty())
+                            .map(s -> Hex.encode(Hex.decode0x(s)))
+                            .collect(Collectors.toList());
+                    break;
+
+                case "db.engine":
+                    dbEngine = DatabaseEngine.valueOf(props.getProperty(name).trim().toUpperCase(Locale.ROOT));
+                    break;
+
                 case "api.enabled":
                     apiEnabled = Boolean.parseBoolean(props.getProperty(name).trim());
                     break;
@@ -564,7 +693,9 @@ public abstract class AbstractConfig implements Config {
                     break;
                 }
                 default:
-                    logger.error("Unsupported option: {} = {}", name, props.getProperty(name));
+                    if (!name.startsWith("db.") || !setDbOption(name, props.getProperty(name).trim())) {
+                        logger.error("Unsupported option: {} = {}", name, props.getProperty(name));
+                    }
                     break;
                 }
             }
@@ -573,6 +704,51 @@ public abstract class AbstractConfig implements Config {
         }
     }
 
+    /**
+     * Parses a database option in the format of <code>db.[name].[option]</code>,
+     * e.g. <code>db.account.cacheSize</code>.
+     *
+     * @param key
+     * @param value
+     * @return whether the option is supported
+     */
+    private boolean setDbOption(String key, String value) {
+        String[] tokens = key.split("\\.");
+        if (tokens.length != 3) {
+            return false;
+        }
+
+        DatabaseProfile profile = null;
+        for (DatabaseName name : DatabaseName.values()) {
+            if (name.name().equalsIgnoreCase(tokens[1])) {
+                profile = dbProfiles.get(name);
+            }
+        }
+        if (profile == null) {
+            return false;
+        }
+
+        switch (tokens[2]) {
+        case "blockSize":
+            profile.setBlockSize(Integer.parseInt(value));
+            return true;
+        case "cacheSize":
+            profile.setCacheSize(Long.parseLong(value));
+            return true;
+        case "writeBufferSize":
+            profile.setWriteBufferSize(Integer.parseInt(value));
+            return true;
+        case "compression":
+            profile.setCompression(Boolean.parseBoolean(value));
+            return true;
+        case "verifyChecksums":
+            profile.setVerifyChecksums(Boolean.parseBoolean(value));
+            return true;
+        default:
+            return false;
+        }
+    }
+
     private void validate() {
         if (apiEnabled &&
                 ("YOUR_API_USERNAME".equals(apiUsername) || "YOUR_API_PASSWORD".equals(apiPassword))) {
@@ -15,6 +15,9 @@ import java.util.Set;
 import org.semux.Network;
 import org.semux.core.Amount;
 import org.semux.core.TransactionType;
+import org.semux.db.DatabaseEngine;
+import org.semux.db.DatabaseName;
+import org.semux.db.DatabaseProfile;
 import org.semux.net.CapabilitySet;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
@@ -244,6 +247,22 @@ public interface Config {
      */
     int netRelayRedundancy();
 
+    /**
+     * Returns the max number of messages waiting for each pool of message
+     * workers.
+     *
+     * @return
+     */
+    int netWorkerQueueSize();
+
+    /**
+     * Returns the max number of messages of a channel waiting for or being
+     * handled by message workers, before reading from the channel is paused.
+     *
+     * @return
+     */
+    int netMaxPendingMessagesPerChannel();
+
     /**
      * Returns the handshake expire time in milliseconds.
      *
@@ -279,6 +298,84 @@ public interface Config {
      */
     List<String> netDnsSeedsTestNet();
 
+    // =========================
+    // Transaction pool
+    // =========================
+    /**
+     * Returns the max number of queued transactions processed by the pending
+     * manager in one batch.
+     *
+     * @return
+     */
+    int txPoolBatchSize();
+
+    /**
+     * Returns the max number of transactions accepted into the pending pool per
+     * second, or 0 if unlimited.
+     *
+     * @return
+     */
+    int txPoolMaxAcceptRate();
+
+    // =========================
+    // Sync
+    // =========================
+    /**
+     * Returns whether a new node restores the state of a recent checkpoint from
+     * its peers, instead of replaying all blocks.
+     *
+     * @return
+     */
+    boolean syncFastSyncEnabled();
+
+    /**
+     * Returns the number of state tree buckets per state chunk.
+     *
+     * @return
+     */
+    int syncFastSyncChunkSize();
+
+    /**
+     * Returns the max number of state chunks downloaded in parallel.
+     *
+     * @return
+     */
+    int syncFastSyncParallelism();
+
+    /**
+     * Returns the number of peers which have to report the same checkpoint
+     * before it is trusted.
+     *
+     * @return
+     */
+    int syncFastSyncMinPeers();
+
+    /**
+     * Returns the addresses of the validators trusted to sign the checkpoint
+     * block. When empty, the validators of the local chain are trusted.
+     *
+     * @return
+     */
+    List<String> syncFastSyncTrustedValidators();
+
+    // =========================
+    // Database
+    // =========================
+    /**
+     * Returns the storage engine of the databases.
+     *
+     * @return
+     */
+    DatabaseEngine dbEngine();
+
+    /**
+     * Returns the tuning profile of the specified database.
+     *
+     * @param name
+     * @return
+     */
+    DatabaseProfile dbProfile(DatabaseName name);
+
     // =========================
     // API
     // =========================
@@ -6,7 +6,11 @@
  */
 package org.semux.config;
 
+import static org.semux.net.Capability.BATCH_SYNC;
+import static org.semux.net.Capability.COMPACT_PROPOSAL;
+import static org.semux.net.Capability.FAST_SYNC;
 import static org.semux.net.Capability.SEM;
+import static org.semux.net.Capability.TX_INV;
 
 import org.semux.Network;
 import org.semux.net.CapabilitySet;
@@ -19,6 +23,6 @@ public class MainnetConfig extends AbstractConfig {
 
     @Override
     public CapabilitySet capabilitySet() {
-        return CapabilitySet.of(SEM);
+        return CapabilitySet.of(SEM, BATCH_SYNC, FAST_SYNC, TX_INV, COMPACT_PROPOSAL);
     }
 }
\ No newline at end of file
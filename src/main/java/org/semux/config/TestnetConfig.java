@@ -6,7 +6,11 @@
  */
 package org.semux.config;
 
+import static org.semux.net.Capability.BATCH_SYNC;
+import static org.semux.net.Capability.COMPACT_PROPOSAL;
+import static org.semux.net.Capability.FAST_SYNC;
 import static org.semux.net.Capability.SEM_TESTNET;
+import static org.semux.net.Capability.TX_INV;
 
 import org.semux.Network;
 import org.semux.net.CapabilitySet;
@@ -21,6 +25,6 @@ public class TestnetConfig extends AbstractConfig {
 
     @Override
     public CapabilitySet capabilitySet() {
-        return CapabilitySet.of(SEM_TESTNET);
+        return CapabilitySet.of(SEM_TESTNET, BATCH_SYNC, FAST_SYNC, TX_INV, COMPACT_PROPOSAL);
     }
 }
@@ -42,6 +42,20 @@ public class Proposal {
         this.encoded = enc.toBytes();
     }
 
+    /**
+     * Creates a proposal with the signature of its proposer, when restoring the
+     * transactions of a compact proposal.
+     *
+     * @param proof
+     * @param blockHeader
+     * @param transactions
+     * @param signature
+     */
+    public Proposal(Proof proof, BlockHeader blockHeader, List<Transaction> transactions, Signature signature) {
+        this(proof, blockHeader, transactions);
+        this.signature = signature;
+    }
+
     public Proposal(byte[] encoded, byte[] signature) {
         SimpleDecoder dec = new SimpleDecoder(encoded);
         this.proof = Proof.fromBytes(dec.readBytes());
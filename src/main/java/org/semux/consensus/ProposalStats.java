@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stats of the received block proposals: how often compact proposals are
+ * restored from the local transactions, and how long proposals take to reach
+ * this node.
+ */
+public class ProposalStats {
+
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong compact = new AtomicLong(0);
+    private final AtomicLong restored = new AtomicLong(0);
+    private final AtomicLong transactions = new AtomicLong(0);
+    private final AtomicLong missingTransactions = new AtomicLong(0);
+
+    private final AtomicLong totalLatency = new AtomicLong(0);
+    private final AtomicLong maxLatency = new AtomicLong(0);
+
+    /**
+     * Records a compact proposal.
+     *
+     * @param size
+     *            the number of transactions
+     * @param missing
+     *            the number of transactions not found locally
+     */
+    public void onCompactProposal(int size, int missing) {
+        compact.incrementAndGet();
+        if (missing == 0) {
+            restored.incrementAndGet();
+        }
+        transactions.addAndGet(size);
+        missingTransactions.addAndGet(missing);
+    }
+
+    /**
+     * Records a complete proposal, either full or restored.
+     *
+     * @param latency
+     *            the time since the proposed block was created, in milliseconds
+     */
+    public void onProposal(long latency) {
+        received.incrementAndGet();
+
+        latency = Math.max(0, latency);
+        totalLatency.addAndGet(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Returns the number of complete proposals received.
+     *
+     * @return
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Returns the number of compact proposals received.
+     *
+     * @return
+     */
+    public long getCompact() {
+        return compact.get();
+    }
+
+    /**
+     * Returns the ratio of compact proposals restored without fetching any
+     * transaction.
+     *
+     * @return
+     */
+    public double getHitRate() {
+        long n = compact.get();
+        return (n == 0) ? 0 : (double) restored.get() / n;
+    }
+
+    /**
+     * Returns the number of transactions in the compact proposals.
+     *
+     * @return
+     */
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    /**
+     * Returns the number of transactions fetched for the compact proposals.
+     *
+     * @return
+     */
+    public long getMissingTransactions() {
+        return missingTransactions.get();
+    }
+
+    /**
+     * Returns the average time from the creation of the proposed block to the
+     * reception of the complete proposal, in milliseconds. It includes the clock
+     * drift between the proposer and this node.
+     *
+     * @return
+     */
+    public long getAverageLatency() {
+        long n = received.get();
+        return (n == 0) ? 0 : totalLatency.get() / n;
+    }
+
+    /**
+     * Returns the max time from the creation of the proposed block to the
+     * reception of the complete proposal, in milliseconds.
+     *
+     * @return
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+}
@@ -11,6 +11,10 @@ import static org.semux.core.Amount.ZERO;
 import static org.semux.core.Amount.sum;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -43,14 +47,20 @@ import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.net.Channel;
+import org.semux.net.Capability;
 import org.semux.net.ChannelManager;
+import org.semux.net.GossipFilter;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.net.msg.ReasonCode;
+import org.semux.net.msg.consensus.CompactProposalMessage;
+import org.semux.net.msg.consensus.GetProposalTxsMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
 import org.semux.net.msg.consensus.NewViewMessage;
 import org.semux.net.msg.consensus.ProposalMessage;
+import org.semux.net.msg.consensus.ProposalTxsMessage;
 import org.semux.net.msg.consensus.VoteMessage;
 import org.semux.util.ArrayUtil;
 import org.semux.util.ByteArray;
@@ -100,6 +110,8 @@ public class SemuxBft implements Consensus {
     protected ChannelManager channelMgr;
     protected PendingManager pendingMgr;
     protected SyncManager sync;
+    protected GossipFilter gossipFilter;
+    protected ProposalStats proposalStats;
 
     protected Key coinbase;
 
@@ -120,7 +132,20 @@ public class SemuxBft implements Consensus {
 
     protected Cache<ByteArray, Block> validBlocks = Caffeine.newBuilder().maximumSize(8).build();
 
+    /**
+     * Proposals relayed by this node, indexed by block hash, which peers may
+     * fetch the transactions of.
+     */
+    protected Cache<ByteArray, Proposal> relayedProposals = Caffeine.newBuilder().maximumSize(8).build();
+
+    /**
+     * Compact proposals waiting for their missing transactions, indexed by block
+     * hash.
+     */
+    protected Cache<ByteArray, PartialProposal> partialProposals = Caffeine.newBuilder().maximumSize(16).build();
+
     protected List<String> validators;
+    protected Set<ByteArray> validatorAddresses;
     protected List<Channel> activeValidators;
     protected long lastUpdate;
 
@@ -139,6 +164,8 @@ public class SemuxBft implements Consensus {
         this.channelMgr = kernel.getChannelManager();
         this.pendingMgr = kernel.getPendingManager();
         this.sync = kernel.getSyncManager();
+        this.gossipFilter = kernel.getGossipFilter();
+        this.proposalStats = kernel.getProposalStats();
         this.coinbase = kernel.getCoinbase();
 
         this.accountState = chain.getAccountState();
@@ -636,13 +663,50 @@ public class SemuxBft implements Consensus {
             ProposalMessage m = (ProposalMessage) msg;
             Proposal p = m.getProposal();
 
-            if (p.getHeight() == height) {
-                if (p.validate()) {
-                    events.add(new Event(Event.Type.PROPOSAL, m.getProposal()));
-                } else {
-                    logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
-                    channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
-                }
+            // copies relayed by other peers are verified only once
+            if (p.getHeight() == height && gossipFilter.add(m)) {
+                onProposalReceived(channel, p);
+            }
+            break;
+        }
+        case BFT_COMPACT_PROPOSAL: {
+            CompactProposalMessage m = (CompactProposalMessage) msg;
+
+            if (m.getHeight() == height) {
+                onCompactProposal(channel, m);
+            }
+            break;
+        }
+        case BFT_GET_PROPOSAL_TXS: {
+            GetProposalTxsMessage m = (GetProposalTxsMessage) msg;
+            Proposal p = relayedProposals.getIfPresent(ByteArray.of(m.getBlockHash()));
+
+            // always reply, the request is kept by the queue of the peer until then
+            List<Transaction> txs = Collections.emptyList();
+            if (p != null && m.validate(p.getTransactions().size())) {
+                txs = m.getIndices().stream()
+                        .map(p.getTransactions()::get)
+                        .collect(Collectors.toList());
+            }
+            channel.getMessageQueue().sendMessage(new ProposalTxsMessage(m.getBlockHash(), txs));
+            break;
+        }
+        case BFT_PROPOSAL_TXS: {
+            ProposalTxsMessage m = (ProposalTxsMessage) msg;
+            ByteArray key = ByteArray.of(m.getBlockHash());
+            PartialProposal pp = partialProposals.getIfPresent(key);
+
+            if (pp == null) {
+                break;
+            }
+            if (!pp.fill(m.getTransactions(), config.network())) {
+                // keep what was restored so far, and ask someone else for the rest
+                logger.debug("Invalid proposal transactions from {}", channel.getRemotePeer().getPeerId());
+                channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+                pp.removeSource(channel);
+                retryMissingTransactions(pp);
+            } else if (pp.isComplete() && partialProposals.asMap().remove(key, pp)) {
+                onProposalRestored(channel, pp.getMessage(), pp.getTransactions());
             }
             break;
         }
@@ -650,7 +714,7 @@ public class SemuxBft implements Consensus {
             VoteMessage m = (VoteMessage) msg;
             Vote vote = m.getVote();
 
-            if (vote.getHeight() == height) {
+            if (vote.getHeight() == height && gossipFilter.add(m)) {
                 if (vote.revalidate()) {
                     events.add(new Event(Event.Type.VOTE, vote));
                 } else {
@@ -666,6 +730,113 @@ public class SemuxBft implements Consensus {
         }
     }
 
+    /**
+     * Verifies a complete proposal and queues it for the event loop.
+     *
+     * @param channel
+     * @param p
+     */
+    protected void onProposalReceived(Channel channel, Proposal p) {
+        if (p.validate()) {
+            proposalStats.onProposal(System.currentTimeMillis() - p.getBlockHeader().getTimestamp());
+            events.add(new Event(Event.Type.PROPOSAL, p));
+        } else {
+            logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
+            channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+        }
+    }
+
+    /**
+     * Restores the transactions of a compact proposal from the pending manager,
+     * and requests the missing ones from the sender.
+     *
+     * @param channel
+     * @param m
+     */
+    protected void onCompactProposal(Channel channel, CompactProposalMessage m) {
+        ByteArray key = ByteArray.of(m.getBlockHeader().getHash());
+
+        if (!gossipFilter.add(m)) {
+            // ask this peer instead if the previous one didn't answer in time
+            PartialProposal pp = partialProposals.getIfPresent(key);
+            if (pp != null) {
+                pp.addSource(channel);
+                if (pp.isStale()) {
+                    requestMissingTransactions(channel, pp);
+                }
+            }
+            return;
+        }
+
+        if (!m.validate()) {
+            logger.debug("Invalid compact proposal from {}", channel.getRemotePeer().getPeerId());
+            channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+            return;
+        }
+
+        PartialProposal pp = new PartialProposal(m, pendingMgr);
+        pp.addSource(channel);
+        proposalStats.onCompactProposal(m.getHashes().size(), pp.getMissing().size());
+
+        if (pp.getMissing().isEmpty()) {
+            onProposalRestored(channel, m, pp.getTransactions());
+        } else {
+            // never replace a proposal being restored
+            PartialProposal existing = partialProposals.asMap().putIfAbsent(key, pp);
+            if (existing != null) {
+                existing.addSource(channel);
+                return;
+            }
+
+            logger.trace("Fetching {} of {} proposed transactions", pp.getMissing().size(), m.getHashes().size());
+            requestMissingTransactions(channel, pp);
+        }
+    }
+
+    /**
+     * Verifies a restored proposal, unless the full proposal has been received
+     * from another peer.
+     *
+     * @param channel
+     * @param m
+     * @param txs
+     */
+    protected void onProposalRestored(Channel channel, CompactProposalMessage m, List<Transaction> txs) {
+        Proposal p = m.toProposal(txs);
+        if (gossipFilter.add(new ProposalMessage(p))) {
+            onProposalReceived(channel, p);
+        }
+    }
+
+    private void requestMissingTransactions(Channel channel, PartialProposal pp) {
+        pp.setRequested(System.currentTimeMillis());
+        channel.getMessageQueue().sendMessage(
+                new GetProposalTxsMessage(pp.getMessage().getBlockHeader().getHash(), pp.getMissing()));
+    }
+
+    /**
+     * Requests the missing transactions from another peer which has announced the
+     * proposal, or else from any validator which may have relayed it.
+     *
+     * @param pp
+     */
+    private void retryMissingTransactions(PartialProposal pp) {
+        Optional<Channel> next = pp.getSources().stream().filter(Channel::isActive).findFirst();
+        if (!next.isPresent() && activeValidators != null) {
+            next = activeValidators.stream()
+                    .filter(c -> c.isActive() && c.getRemotePeer().getCapabilities()
+                            .isSupported(Capability.COMPACT_PROPOSAL))
+                    .findAny();
+        }
+
+        if (next.isPresent()) {
+            requestMissingTransactions(next.get(), pp);
+        } else {
+            // let the next announcement of the proposal trigger a request
+            pp.setRequested(0);
+        }
+    }
+
     /**
      * Attempt to activate pending forks at current height.
      */
@@ -685,6 +856,7 @@ public class SemuxBft implements Consensus {
      */
     protected void updateValidators() {
         validators = chain.getValidators();
+        validatorAddresses = validators.stream().map(v -> ByteArray.of(Hex.decode0x(v))).collect(Collectors.toSet());
         activeValidators = channelMgr.getActiveChannels(validators);
         lastUpdate = System.currentTimeMillis();
     }
@@ -695,7 +867,7 @@ public class SemuxBft implements Consensus {
      * @return
      */
     protected boolean isValidator() {
-        return validators.contains(coinbase.toAddressString());
+        return validatorAddresses.contains(ByteArray.of(coinbase.toAddress()));
     }
 
     /**
@@ -732,7 +904,7 @@ public class SemuxBft implements Consensus {
      * @return
      */
     protected boolean isFromValidator(Signature sig) {
-        return validators.contains(Hex.encode(Hash.h160(sig.getPublicKey())));
+        return validatorAddresses.contains(ByteArray.of(Hash.h160(sig.getPublicKey())));
     }
 
     /**
@@ -864,7 +1036,8 @@ public class SemuxBft implements Consensus {
         }
 
         long t2 = System.currentTimeMillis();
-        logger.debug("Block validation: # txs = {}, time = {} ms", transactions.size(), t2 - t1);
+        logger.debug("Block validation: # txs = {}, time = {} ms, signature cache hit rate = {}",
+                transactions.size(), t2 - t1, SignatureCache.stats().hitRate());
 
         Block block = new Block(header, transactions, results);
         validBlocks.put(ByteArray.of(block.getHash()), block);
@@ -945,12 +1118,19 @@ public class SemuxBft implements Consensus {
         WriteLock lock = kernel.getStateLock().writeLock();
         lock.lock();
         try {
-            // [7] flush state to disk
-            chain.getAccountState().commit();
-            chain.getDelegateState().commit();
-
-            // [8] add block to chain
-            chain.addBlock(block);
+            // [7] flush state and block to disk in one write session
+            chain.startBatch();
+            try {
+                chain.getAccountState().commit();
+                chain.getDelegateState().commit();
+
+                // [8] add block to chain
+                chain.addBlock(block);
+            } catch (RuntimeException e) {
+                chain.rollbackBatch();
+                throw e;
+            }
+            chain.commitBatch();
         } finally {
             lock.unlock();
         }
@@ -1035,6 +1215,14 @@ public class SemuxBft implements Consensus {
                 try {
                     Message msg = queue.take();
 
+                    // send proposals by transaction hashes to the peers supporting it
+                    Message compact = null;
+                    if (msg instanceof ProposalMessage) {
+                        Proposal p = ((ProposalMessage) msg).getProposal();
+                        relayedProposals.put(ByteArray.of(p.getBlockHeader().getHash()), p);
+                        compact = new CompactProposalMessage(p);
+                    }
+
                     // thread-safety via volatile
                     List<Channel> channels = activeValidators;
                     if (channels != null) {
@@ -1042,7 +1230,9 @@ public class SemuxBft implements Consensus {
                         for (int i = 0; i < indices.length && i < config.netRelayRedundancy(); i++) {
                             Channel c = channels.get(indices[i]);
                             if (c.isActive()) {
-                                c.getMessageQueue().sendMessage(msg);
+                                boolean isCompact = compact != null && c.getRemotePeer().getCapabilities()
+                                        .isSupported(Capability.COMPACT_PROPOSAL);
+                                c.getMessageQueue().sendMessage(isCompact ? compact : msg);
                             }
                         }
                     }
@@ -1080,6 +1270,102 @@ public class SemuxBft implements Consensus {
         }
     }
 
+    /**
+     * A compact proposal and the transactions restored so far.
+     */
+    protected static class PartialProposal {
+
+        /**
+         * How long to wait for the missing transactions before asking another peer,
+         * in milliseconds.
+         */
+        private static final long REQUEST_TIMEOUT = 500L;
+
+        private final CompactProposalMessage msg;
+        private final Transaction[] transactions;
+        private final Map<ByteArray, Integer> missing = new HashMap<>();
+        private final Set<Channel> sources = new LinkedHashSet<>();
+
+        private long requested;
+
+        public PartialProposal(CompactProposalMessage msg, PendingManager pendingMgr) {
+            this.msg = msg;
+
+            List<byte[]> hashes = msg.getHashes();
+            this.transactions = new Transaction[hashes.size()];
+            for (int i = 0; i < hashes.size(); i++) {
+                transactions[i] = pendingMgr.getProcessedTransaction(hashes.get(i));
+                if (transactions[i] == null) {
+                    missing.put(ByteArray.of(hashes.get(i)), i);
+                }
+            }
+        }
+
+        /**
+         * Adds fetched transactions. The hash of a transaction comes from the wire,
+         * so it is recomputed and the signature is verified before the transaction
+         * takes a place in the proposal.
+         *
+         * @param txs
+         * @param network
+         * @return false if any of the transactions is invalid, otherwise true
+         */
+        public synchronized boolean fill(List<Transaction> txs, Network network) {
+            boolean valid = true;
+            for (Transaction tx : txs) {
+                ByteArray key = ByteArray.of(tx.getHash());
+                if (!missing.containsKey(key)) {
+                    continue;
+                }
+
+                if (tx.validate(network)) {
+                    transactions[missing.remove(key)] = tx;
+                } else {
+                    valid = false;
+                }
+            }
+            return valid;
+        }
+
+        public synchronized boolean isComplete() {
+            return missing.isEmpty();
+        }
+
+        public CompactProposalMessage getMessage() {
+            return msg;
+        }
+
+        public synchronized List<Integer> getMissing() {
+            List<Integer> indices = new ArrayList<>(missing.values());
+            indices.sort(null);
+            return indices;
+        }
+
+        public synchronized List<Transaction> getTransactions() {
+            return new ArrayList<>(Arrays.asList(transactions));
+        }
+
+        public synchronized void addSource(Channel channel) {
+            sources.add(channel);
+        }
+
+        public synchronized void removeSource(Channel channel) {
+            sources.remove(channel);
+        }
+
+        public synchronized List<Channel> getSources() {
+            return new ArrayList<>(sources);
+        }
+
+        public synchronized void setRequested(long timestamp) {
+            this.requested = timestamp;
+        }
+
+        public synchronized boolean isStale() {
+            return !missing.isEmpty() && requested + REQUEST_TIMEOUT < System.currentTimeMillis();
+        }
+    }
+
     public static class Event {
         public enum Type {
             /**
@@ -15,6 +15,9 @@ import java.math.MathContext;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,7 +28,11 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -51,12 +58,16 @@ import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.net.Capability;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
+import org.semux.net.Peer;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.ReasonCode;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
 import org.semux.util.ByteArray;
 import org.semux.util.TimeUtil;
 import org.slf4j.Logger;
@@ -87,13 +98,37 @@ public class SemuxSync implements SyncManager {
     private static final ScheduledExecutorService timer1 = Executors.newSingleThreadScheduledExecutor(factory);
     private static final ScheduledExecutorService timer2 = Executors.newSingleThreadScheduledExecutor(factory);
 
+    /**
+     * Workers which verify the signatures of downloaded blocks ahead of
+     * {@link #process()}.
+     */
+    private static final ExecutorService verifier = Executors
+            .newFixedThreadPool(Runtime.getRuntime().availableProcessors(), factory);
+
     private static final long MAX_DOWNLOAD_TIME = 10L * 1000L; // 10 seconds
 
     private static final int MAX_UNFINISHED_JOBS = 16;
 
+    /**
+     * The initial and the max number of blocks requested from a peer at once.
+     */
+    private static final int INITIAL_BATCH_SIZE = 16;
+    private static final int MAX_BATCH_SIZE = GetBlocksMessage.MAX_COUNT;
+
+    /**
+     * The response time below which the batch size of a peer keeps growing.
+     */
+    private static final long TARGET_BATCH_TIME = 2L * 1000L; // 2 seconds
+
     private static final int MAX_QUEUED_BLOCKS = 8192;
     private static final int MAX_PENDING_BLOCKS = 512;
 
+    /**
+     * The max number of downloaded blocks whose signatures are verified ahead of
+     * processing.
+     */
+    private static final int MAX_VERIFIED_BLOCKS = 64;
+
     private static final Random random = new Random();
 
     private Kernel kernel;
@@ -101,6 +136,7 @@ public class SemuxSync implements SyncManager {
 
     private Blockchain chain;
     private ChannelManager channelMgr;
+    private StateSync stateSync;
 
     // task queues
     private AtomicLong latestQueuedTask = new AtomicLong();
@@ -108,6 +144,9 @@ public class SemuxSync implements SyncManager {
     private Map<Long, Long> toComplete = new HashMap<>();
     private TreeSet<Pair<Block, Channel>> toProcess = new TreeSet<>(
             Comparator.comparingLong(o -> o.getKey().getNumber()));
+    private Map<Long, Pair<Block, Future<Boolean>>> toVerify = new HashMap<>();
+    private Map<Long, DownloadRequest> inFlight = new HashMap<>();
+    private Map<String, PeerStats> peerStats = new HashMap<>();
     private final Object lock = new Object();
 
     // current and target heights
@@ -124,6 +163,7 @@ public class SemuxSync implements SyncManager {
 
         this.chain = kernel.getBlockchain();
         this.channelMgr = kernel.getChannelManager();
+        this.stateSync = new StateSync(kernel);
     }
 
     @Override
@@ -133,11 +173,21 @@ public class SemuxSync implements SyncManager {
 
             logger.info("Syncing started, best known block = {}", targetHeight - 1);
 
+            // [0] restore the state of a recent checkpoint instead of replaying all blocks
+            if (stateSync.isNeeded(targetHeight) && !stateSync.sync() && stateSync.isPartial()) {
+                logger.info("The state is partially restored, will retry later");
+                isRunning.set(false);
+                return;
+            }
+
             // [1] set up queues
             synchronized (lock) {
                 toDownload.clear();
                 toComplete.clear();
                 toProcess.clear();
+                clearToVerify();
+                inFlight.clear();
+                peerStats.clear();
 
                 begin.set(chain.getLatestBlockNumber() + 1);
                 current.set(chain.getLatestBlockNumber() + 1);
@@ -166,6 +216,9 @@ public class SemuxSync implements SyncManager {
             // [4] cancel tasks
             download.cancel(true);
             process.cancel(false);
+            synchronized (lock) {
+                clearToVerify();
+            }
 
             Instant end = Instant.now();
             logger.info("Syncing finished, took {}", TimeUtil.formatDuration(Duration.between(beginningInstant, end)));
@@ -174,6 +227,7 @@ public class SemuxSync implements SyncManager {
 
     @Override
     public void stop() {
+        stateSync.stop();
         if (isRunning.compareAndSet(true, false)) {
             synchronized (isRunning) {
                 isRunning.notifyAll();
@@ -191,17 +245,29 @@ public class SemuxSync implements SyncManager {
         if (!isRunning()) {
             return;
         }
+        if (stateSync.isRunning()) {
+            stateSync.onMessage(channel, msg);
+            return;
+        }
 
         switch (msg.getCode()) {
         case BLOCK: {
             BlockMessage blockMsg = (BlockMessage) msg;
             Block block = blockMsg.getBlock();
             synchronized (lock) {
-                if (toDownload.remove(block.getNumber())) {
-                    growToDownloadQueue();
+                addToProcess(block, channel);
+                onResponse(channel, 1);
+            }
+            break;
+        }
+        case BLOCKS: {
+            BlocksMessage blocksMsg = (BlocksMessage) msg;
+            List<Block> blocks = blocksMsg.getBlocks();
+            synchronized (lock) {
+                for (Block block : blocks) {
+                    addToProcess(block, channel);
                 }
-                toComplete.remove(block.getNumber());
-                toProcess.add(Pair.of(block, channel));
+                onResponse(channel, blocks.size());
             }
             break;
         }
@@ -234,8 +300,19 @@ public class SemuxSync implements SyncManager {
                 }
             }
 
+            // penalize the peers which failed to respond in time
+            Iterator<DownloadRequest> requests = inFlight.values().iterator();
+            while (requests.hasNext()) {
+                DownloadRequest req = requests.next();
+
+                if (req.timestamp + MAX_DOWNLOAD_TIME < now) {
+                    getPeerStats(req.peerId).onTimeout();
+                    requests.remove();
+                }
+            }
+
             // quit if too many unfinished jobs
-            if (toComplete.size() > MAX_UNFINISHED_JOBS) {
+            if (inFlight.size() > MAX_UNFINISHED_JOBS) {
                 logger.trace("Max unfinished jobs reached");
                 return;
             }
@@ -252,8 +329,9 @@ public class SemuxSync implements SyncManager {
                 return;
             }
 
-            // get idle channels
+            // get idle channels, which may still have a request in flight
             List<Channel> channels = channelMgr.getIdleChannels().stream()
+                    .filter(channel -> !inFlight.containsKey(channel.getId()))
                     .filter(channel -> channel.getRemotePeer().getLatestBlockNumber() >= task)
                     .collect(Collectors.toList());
             logger.trace("Idle peers = {}", channels.size());
@@ -263,20 +341,115 @@ public class SemuxSync implements SyncManager {
                 return;
             }
 
-            // pick a random channel
-            Channel c = channels.get(random.nextInt(channels.size()));
+            // pick a channel, preferring the fast ones
+            Channel c = pickChannel(channels);
+            Peer peer = c.getRemotePeer();
+
+            // request the blocks
+            int count = 1;
+            if (peer.getCapabilities().isSupported(Capability.BATCH_SYNC)) {
+                int batchSize = getPeerStats(peer.getPeerId()).batchSize;
+                while (count < batchSize
+                        && task + count <= peer.getLatestBlockNumber()
+                        && toDownload.contains(task + count)) {
+                    count++;
+                }
 
-            // request the block
-            if (c.getRemotePeer().getLatestBlockNumber() >= task) {
+                logger.debug("Request blocks #{} - #{} from channel = {}", task, task + count - 1, c.getId());
+                c.getMessageQueue().sendMessage(new GetBlocksMessage(task, count));
+            } else {
                 logger.debug("Request block #{} from channel = {}", task, c.getId());
                 c.getMessageQueue().sendMessage(new GetBlockMessage(task));
+            }
 
-                if (toDownload.remove(task)) {
-                    growToDownloadQueue();
-                }
-                toComplete.put(task, System.currentTimeMillis());
+            for (long i = task; i < task + count; i++) {
+                toDownload.remove(i);
+                toComplete.put(i, now);
+            }
+            growToDownloadQueue();
+            inFlight.put(c.getId(), new DownloadRequest(peer.getPeerId(), task, count, now));
+        }
+    }
+
+    /**
+     * Adds a downloaded block to the process queue. The caller must hold
+     * {@link #lock}.
+     *
+     * @param block
+     * @param channel
+     */
+    private void addToProcess(Block block, Channel channel) {
+        if (toDownload.remove(block.getNumber())) {
+            growToDownloadQueue();
+        }
+        toComplete.remove(block.getNumber());
+        toProcess.add(Pair.of(block, channel));
+    }
+
+    /**
+     * Completes the in-flight request of a channel, re-queues the blocks which
+     * were not delivered, and updates the statistics of the peer. The caller must
+     * hold {@link #lock}.
+     *
+     * @param channel
+     * @param received
+     *            the number of received blocks
+     */
+    private void onResponse(Channel channel, int received) {
+        DownloadRequest req = inFlight.remove(channel.getId());
+        if (req == null) {
+            return;
+        }
+
+        for (long i = req.from; i < req.from + req.count; i++) {
+            if (toComplete.remove(i) != null) {
+                toDownload.add(i);
             }
         }
+
+        getPeerStats(req.peerId).onResponse(received, req.count, System.currentTimeMillis() - req.timestamp);
+    }
+
+    /**
+     * Picks a channel randomly, weighted by the measured throughput of the peers.
+     * Peers without measurements are given the best throughput so that they get
+     * explored. The caller must hold {@link #lock}.
+     *
+     * @param channels
+     * @return
+     */
+    private Channel pickChannel(List<Channel> channels) {
+        double best = peerStats.values().stream().mapToDouble(s -> s.throughput).max().orElse(1.0);
+        best = Math.max(best, 1.0);
+
+        double[] weights = new double[channels.size()];
+        double total = 0;
+        for (int i = 0; i < channels.size(); i++) {
+            PeerStats stats = peerStats.get(channels.get(i).getRemotePeer().getPeerId());
+            double w = (stats == null || stats.throughput < 0) ? best : stats.throughput;
+            weights[i] = Math.max(w, best / 100.0);
+            total += weights[i];
+        }
+
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < channels.size(); i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return channels.get(i);
+            }
+        }
+        return channels.get(channels.size() - 1);
+    }
+
+    /**
+     * Returns the download statistics of a peer. The caller must hold
+     * {@link #lock}.
+     *
+     * @param peerId
+     * @return
+     */
+    private PeerStats getPeerStats(String peerId) {
+        return peerStats.computeIfAbsent(peerId, k -> new PeerStats());
     }
 
     /**
@@ -302,6 +475,104 @@ public class SemuxSync implements SyncManager {
         }
     }
 
+    /**
+     * Submits the signature verification of the next
+     * ${@value MAX_VERIFIED_BLOCKS} downloaded blocks to the verifier pool, and
+     * discards the verification of blocks that are already imported.
+     *
+     * @param latest
+     *            the latest block number
+     */
+    private void growToVerifyQueue(long latest) {
+        toVerify.entrySet().removeIf(e -> {
+            if (e.getKey() <= latest) {
+                e.getValue().getValue().cancel(false);
+                return true;
+            }
+            return false;
+        });
+
+        for (Pair<Block, Channel> p : toProcess) {
+            Block block = p.getKey();
+            if (block.getNumber() > latest + MAX_VERIFIED_BLOCKS) {
+                break;
+            }
+
+            Pair<Block, Future<Boolean>> v = toVerify.get(block.getNumber());
+            if (v == null || v.getKey() != block) {
+                toVerify.put(block.getNumber(), Pair.of(block, verifier.submit(() -> verifySignatures(block))));
+            }
+        }
+    }
+
+    /**
+     * Cancels all the pending signature verifications.
+     */
+    private void clearToVerify() {
+        for (Pair<Block, Future<Boolean>> v : toVerify.values()) {
+            v.getValue().cancel(false);
+        }
+        toVerify.clear();
+    }
+
+    /**
+     * Returns the result of the signature verification of the given block, which
+     * was submitted by {@link #growToVerifyQueue(long)}.
+     *
+     * @param block
+     * @return the verification result, or null if the block has not been submitted
+     *         for verification
+     */
+    protected Boolean getVerifiedSignatures(Block block) {
+        Future<Boolean> future;
+        synchronized (lock) {
+            Pair<Block, Future<Boolean>> v = toVerify.get(block.getNumber());
+            if (v == null || v.getKey() != block) {
+                return null;
+            }
+            future = v.getValue();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Failed to verify block signatures", e);
+            return null;
+        } catch (CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Verifies the signatures of the transactions and the votes of a block, which
+     * don't depend on the chain state. Blocks are already verified in parallel by
+     * the verifier pool, so the signatures of one block are verified sequentially
+     * rather than with {@link Key#verifyBatch(List)}.
+     *
+     * @param block
+     * @return
+     */
+    protected boolean verifySignatures(Block block) {
+        List<Pair<byte[], Key.Signature>> signatures = new ArrayList<>();
+        for (Transaction tx : block.getTransactions()) {
+            if (!tx.validate(config.network(), false)) {
+                return false;
+            }
+            signatures.add(Pair.of(tx.getHash(), tx.getSignature()));
+        }
+
+        byte[] encoded = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash()).getEncoded();
+        for (Key.Signature sig : block.getVotes()) {
+            signatures.add(Pair.of(encoded, sig));
+        }
+
+        return signatures.stream().allMatch(p -> Key.verify(p.getLeft(), p.getRight()));
+    }
+
     private void process() {
         if (!isRunning()) {
             return;
@@ -329,6 +600,8 @@ public class SemuxSync implements SyncManager {
                     break;
                 }
             }
+
+            growToVerifyQueue(latest);
         }
 
         if (pair != null) {
@@ -380,8 +653,14 @@ public class SemuxSync implements SyncManager {
             return false;
         }
 
-        // [2] check transactions and results
-        if (!Block.validateTransactions(header, transactions, config.network())
+        // [2] check transactions and results, skipping the signatures if verified
+        Boolean verified = getVerifiedSignatures(block);
+        if (verified != null && !verified) {
+            logger.debug("Invalid block signatures");
+            return false;
+        }
+        Collection<Transaction> unvalidated = (verified != null) ? Collections.emptyList() : transactions;
+        if (!Block.validateTransactions(header, unvalidated, transactions, config.network())
                 || transactions.stream().mapToInt(Transaction::size).sum() > config.maxBlockTransactionsSize()) {
             logger.debug("Invalid block transactions");
             return false;
@@ -416,10 +695,16 @@ public class SemuxSync implements SyncManager {
         Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
                 block.getHash());
         byte[] encoded = vote.getEncoded();
+        boolean verified = Boolean.TRUE.equals(getVerifiedSignatures(block));
 
         // check validity of votes
-        if (!block.getVotes().stream()
-                .allMatch(sig -> Key.verify(encoded, sig) && validators.contains(Hex.encode(sig.getAddress())))) {
+        if (!verified && !Key.verifyBatch(block.getVotes().stream()
+                .map(sig -> Pair.of(encoded, sig))
+                .collect(Collectors.toList()))) {
+            logger.debug("Block votes are invalid");
+            return false;
+        }
+        if (!block.getVotes().stream().allMatch(sig -> validators.contains(Hex.encode(sig.getAddress())))) {
             logger.debug("Block votes are invalid");
             return false;
         }
@@ -451,12 +736,19 @@ public class SemuxSync implements SyncManager {
         WriteLock writeLock = kernel.getStateLock().writeLock();
         writeLock.lock();
         try {
-            // [7] flush state to disk
-            chain.getAccountState().commit();
-            chain.getDelegateState().commit();
-
-            // [8] add block to chain
-            chain.addBlock(block);
+            // [7] flush state and block to disk in one write session
+            chain.startBatch();
+            try {
+                chain.getAccountState().commit();
+                chain.getDelegateState().commit();
+
+                // [8] add block to chain
+                chain.addBlock(block);
+            } catch (RuntimeException e) {
+                chain.rollbackBatch();
+                throw e;
+            }
+            chain.commitBatch();
         } finally {
             writeLock.unlock();
         }
@@ -474,6 +766,64 @@ public class SemuxSync implements SyncManager {
                 Duration.between(beginningInstant != null ? beginningInstant : Instant.now(), Instant.now()));
     }
 
+    /**
+     * A block download request which has not been answered.
+     */
+    private static class DownloadRequest {
+        final String peerId;
+        final long from;
+        final int count;
+        final long timestamp;
+
+        DownloadRequest(String peerId, long from, int count, long timestamp) {
+            this.peerId = peerId;
+            this.from = from;
+            this.count = count;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Download statistics of a peer, which adapt the batch size to the measured
+     * response time.
+     */
+    private static class PeerStats {
+        private static final double ALPHA = 0.3;
+
+        int batchSize = INITIAL_BATCH_SIZE;
+
+        /**
+         * Moving average of response time, in milliseconds, or -1 if unknown.
+         */
+        double latency = -1;
+
+        /**
+         * Moving average of blocks per second, or -1 if unknown.
+         */
+        double throughput = -1;
+
+        void onResponse(int received, int requested, long duration) {
+            duration = Math.max(duration, 1);
+            double speed = received * 1000.0 / duration;
+            latency = (latency < 0) ? duration : ALPHA * duration + (1 - ALPHA) * latency;
+            throughput = (throughput < 0) ? speed : ALPHA * speed + (1 - ALPHA) * throughput;
+
+            if (received < requested) {
+                // the peer can't serve more than this, e.g. limited by packet size
+                batchSize = Math.max(received, 1);
+            } else if (duration < TARGET_BATCH_TIME) {
+                batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+            } else if (duration > 2 * TARGET_BATCH_TIME) {
+                batchSize = Math.max(batchSize / 2, 1);
+            }
+        }
+
+        void onTimeout() {
+            batchSize = Math.max(batchSize / 4, 1);
+            throughput = (throughput < 0) ? 0 : throughput / 2;
+        }
+    }
+
     public static class SemuxSyncProgress implements SyncManager.Progress {
 
         final long beginHeight;
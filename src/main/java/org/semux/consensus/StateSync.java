@@ -0,0 +1,573 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.Kernel;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.core.Block;
+import org.semux.core.Blockchain;
+import org.semux.core.Checkpoint;
+import org.semux.core.exception.BlockchainException;
+import org.semux.core.state.StateTree;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.net.Capability;
+import org.semux.net.Channel;
+import org.semux.net.ChannelManager;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetStateChunkMessage;
+import org.semux.net.msg.consensus.GetStateManifestMessage;
+import org.semux.net.msg.consensus.StateChunkMessage;
+import org.semux.net.msg.consensus.StateManifestMessage;
+import org.semux.util.ByteArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restores the state of a recent checkpoint from the network, so that a new
+ * node only has to sync the blocks after the checkpoint.
+ * <p>
+ * The checkpoint is the latest block of the peers. Since block headers do not
+ * commit to the state root, a checkpoint is trusted once
+ * {@link Config#syncFastSyncMinPeers()} peers report the same manifest, and its
+ * block carries the votes of two thirds of the validators this node already
+ * trusts: {@link Config#syncFastSyncTrustedValidators()}, or the validators of
+ * the local chain. The validator set of the manifest is only used once checked
+ * against the restored delegates. The state is
+ * downloaded in chunks, each verified against its root in the manifest. The
+ * chunks changed by the blocks added in the meantime are fetched again for a
+ * newer manifest, until the local state tree matches one.
+ * <p>
+ * No chunk is downloaded before the block of the checkpoint has been verified.
+ * The original entries of the imported chunks are kept, and restored when the
+ * sync fails, so that the node can replay the blocks from genesis instead. A
+ * node which stopped in the middle of a sync keeps a partial state, and retries
+ * the fast sync first.
+ */
+public class StateSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateSync.class);
+
+    private static final long MANIFEST_TIMEOUT = 10L * 1000L; // 10 seconds
+    private static final long CHUNK_TIMEOUT = 30L * 1000L; // 30 seconds
+
+    private static final int MAX_ROUNDS = 16;
+
+    /**
+     * The min distance to the best known block, below which replaying blocks is
+     * fast enough.
+     */
+    private static final long MIN_DISTANCE = Constants.BLOCKS_PER_DAY;
+
+    private Kernel kernel;
+    private Config config;
+
+    private Blockchain chain;
+    private ChannelManager channelMgr;
+
+    private final int level;
+
+    // responses of the current request, by peer id
+    private final Map<String, Checkpoint> manifests = new HashMap<>();
+    private final BlockingQueue<Pair<Channel, Message>> responses = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+
+    // peers which served invalid data
+    private final Set<String> badPeers = new HashSet<>();
+
+    // validators which have to sign the checkpoint block
+    private final Set<String> trustedValidators;
+
+    private volatile boolean isRunning;
+
+    public StateSync(Kernel kernel) {
+        this.kernel = kernel;
+        this.config = kernel.getConfig();
+
+        this.chain = kernel.getBlockchain();
+        this.channelMgr = kernel.getChannelManager();
+
+        int size = Integer.highestOneBit(Math.max(config.syncFastSyncChunkSize(), 1));
+        this.level = Math.min(Math.max(StateTree.DEPTH - Integer.numberOfTrailingZeros(size),
+                GetStateChunkMessage.MIN_LEVEL), GetStateChunkMessage.MAX_LEVEL);
+
+        List<String> trusted = config.syncFastSyncTrustedValidators();
+        this.trustedValidators = new HashSet<>(trusted.isEmpty() ? chain.getValidators() : trusted);
+    }
+
+    /**
+     * Returns whether the state should be restored from a checkpoint.
+     *
+     * @param targetHeight
+     *            the best known block number plus one
+     * @return
+     */
+    public boolean isNeeded(long targetHeight) {
+        return isPartial() || (config.syncFastSyncEnabled()
+                && chain.getLatestBlockNumber() == chain.getGenesis().getNumber()
+                && targetHeight > chain.getLatestBlockNumber() + MIN_DISTANCE);
+    }
+
+    /**
+     * Returns whether the state has been partially restored, and no longer
+     * matches the latest block.
+     *
+     * @return
+     */
+    public boolean isPartial() {
+        byte[] root = chain.getStateTree().getRoot(chain.getLatestBlockNumber());
+        return root != null && !Arrays.equals(root, chain.getStateTree().getRoot());
+    }
+
+    /**
+     * Restores the state of a checkpoint, and continues the chain from it. This
+     * method blocks until done.
+     *
+     * @return whether the checkpoint has been imported
+     */
+    public boolean sync() {
+        isRunning = true;
+        boolean imported = false;
+        try {
+            for (int round = 0; round < MAX_ROUNDS && isRunning; round++) {
+                // [1] agree on a checkpoint
+                Checkpoint checkpoint = requestManifest();
+                if (checkpoint == null) {
+                    logger.info("No checkpoint is reported by {} peers", config.syncFastSyncMinPeers());
+                    return false;
+                }
+                if (config.forkUniformDistributionEnabled()
+                        && !checkpoint.getActivatedForks().containsKey(ValidatorActivatedFork.UNIFORM_DISTRIBUTION)
+                        && checkpoint.getNumber() <= ValidatorActivatedFork.UNIFORM_DISTRIBUTION.activationDeadline) {
+                    logger.info("Checkpoint #{} is before the activation of forks", checkpoint.getNumber());
+                    return false;
+                }
+
+                // [2] check the checkpoint block, before touching the state
+                Block block = requestBlock(checkpoint);
+                if (block == null) {
+                    logger.info("No valid block of checkpoint #{}", checkpoint.getNumber());
+                    return false;
+                }
+
+                // [3] download the chunks which differ from the local state
+                List<Integer> missing = new ArrayList<>();
+                List<byte[]> local = chain.getStateTree().getNodes(level);
+                for (int i = 0; i < local.size(); i++) {
+                    if (!Arrays.equals(local.get(i), checkpoint.getChunks().get(i))) {
+                        missing.add(i);
+                    }
+                }
+                logger.info("Restoring state of checkpoint #{}, # chunks = {}/{}", checkpoint.getNumber(),
+                        missing.size(), local.size());
+                if (!missing.isEmpty()) {
+                    download(checkpoint, missing);
+                    continue;
+                }
+
+                // [4] continue the chain from the checkpoint block
+                if (importCheckpoint(checkpoint, block)) {
+                    imported = true;
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            // the databases may be closing if stopped
+            if (!imported && isRunning) {
+                rollback();
+            }
+            isRunning = false;
+        }
+    }
+
+    /**
+     * Stops the state sync.
+     */
+    public void stop() {
+        isRunning = false;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Handles a state sync response.
+     *
+     * @param channel
+     * @param msg
+     */
+    public void onMessage(Channel channel, Message msg) {
+        if (!isRunning) {
+            return;
+        }
+
+        switch (msg.getCode()) {
+        case STATE_MANIFEST: {
+            Checkpoint checkpoint = ((StateManifestMessage) msg).getCheckpoint();
+            if (checkpoint.getLevel() == level && checkpoint.validate()) {
+                synchronized (lock) {
+                    manifests.put(channel.getRemotePeer().getPeerId(), checkpoint);
+                    lock.notifyAll();
+                }
+            }
+            break;
+        }
+        case STATE_CHUNK:
+        case BLOCK: {
+            responses.add(Pair.of(channel, msg));
+            break;
+        }
+        default: {
+            break;
+        }
+        }
+    }
+
+    /**
+     * Requests the manifest from all peers, and returns the latest checkpoint
+     * reported by enough of them.
+     *
+     * @return the checkpoint, or null
+     */
+    protected Checkpoint requestManifest() {
+        List<Channel> channels = getChannels(null);
+        synchronized (lock) {
+            manifests.clear();
+        }
+        for (Channel c : channels) {
+            c.getMessageQueue().sendMessage(new GetStateManifestMessage(level));
+        }
+
+        long deadline = System.currentTimeMillis() + MANIFEST_TIMEOUT;
+        synchronized (lock) {
+            long now;
+            while (isRunning && manifests.size() < channels.size() && (now = System.currentTimeMillis()) < deadline) {
+                try {
+                    lock.wait(deadline - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+
+            Map<ByteArray, List<String>> votes = new HashMap<>();
+            Map<ByteArray, Checkpoint> checkpoints = new HashMap<>();
+            for (Entry<String, Checkpoint> e : manifests.entrySet()) {
+                ByteArray hash = ByteArray.of(e.getValue().getHash());
+                votes.computeIfAbsent(hash, k -> new ArrayList<>()).add(e.getKey());
+                checkpoints.put(hash, e.getValue());
+            }
+
+            ByteArray best = null;
+            for (Entry<ByteArray, List<String>> e : votes.entrySet()) {
+                if (e.getValue().size() >= config.syncFastSyncMinPeers() && (best == null
+                        || checkpoints.get(e.getKey()).getNumber() > checkpoints.get(best).getNumber())) {
+                    best = e.getKey();
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+
+            // only the peers which reported the checkpoint are asked for chunks
+            manifests.keySet().retainAll(votes.get(best));
+            return checkpoints.get(best);
+        }
+    }
+
+    /**
+     * Downloads and imports the given chunks of a checkpoint, until all of them
+     * have been tried or no peer is left.
+     *
+     * @param checkpoint
+     * @param missing
+     */
+    protected void download(Checkpoint checkpoint, List<Integer> missing) {
+        Set<String> sources;
+        synchronized (lock) {
+            sources = new HashSet<>(manifests.keySet());
+        }
+
+        Deque<Integer> toDownload = new ArrayDeque<>(missing);
+        Map<String, ChunkRequest> inFlight = new HashMap<>();
+        responses.clear();
+
+        int imported = 0;
+        int stale = 0;
+        while (isRunning && (!toDownload.isEmpty() || !inFlight.isEmpty())) {
+            // give up the requests which have expired
+            long now = System.currentTimeMillis();
+            Iterator<Entry<String, ChunkRequest>> itr = inFlight.entrySet().iterator();
+            while (itr.hasNext()) {
+                Entry<String, ChunkRequest> e = itr.next();
+                if (e.getValue().timestamp + CHUNK_TIMEOUT < now) {
+                    toDownload.add(e.getValue().index);
+                    sources.remove(e.getKey());
+                    itr.remove();
+                }
+            }
+
+            // request chunks from the idle sources
+            List<Channel> channels = getChannels(sources);
+            if (channels.isEmpty() && inFlight.isEmpty()) {
+                logger.info("No peer is left to download the state from");
+                return;
+            }
+            for (Channel c : channels) {
+                String peerId = c.getRemotePeer().getPeerId();
+                if (toDownload.isEmpty() || inFlight.size() >= config.syncFastSyncParallelism()) {
+                    break;
+                }
+                if (!inFlight.containsKey(peerId)) {
+                    int index = toDownload.poll();
+                    c.getMessageQueue().sendMessage(new GetStateChunkMessage(level, index));
+                    inFlight.put(peerId, new ChunkRequest(index, now));
+                }
+            }
+
+            // import the responses
+            Pair<Channel, Message> response;
+            try {
+                response = responses.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (response == null || !(response.getRight() instanceof StateChunkMessage)) {
+                continue;
+            }
+
+            String peerId = response.getLeft().getRemotePeer().getPeerId();
+            StateChunkMessage chunk = (StateChunkMessage) response.getRight();
+            ChunkRequest req = inFlight.get(peerId);
+            if (req == null || req.index != chunk.getIndex() || level != chunk.getLevel()) {
+                continue;
+            }
+            inFlight.remove(peerId);
+
+            byte[] root = StateTree.hashChunk(level, chunk.getIndex(), chunk.getLeaves());
+            if (root != null && Arrays.equals(root, checkpoint.getChunks().get(chunk.getIndex()))) {
+                importChunk(chunk);
+                imported++;
+            } else if (chunk.getNumber() == checkpoint.getNumber()) {
+                logger.info("Invalid state chunk from peer {}", peerId);
+                badPeers.add(peerId);
+                sources.remove(peerId);
+                toDownload.add(chunk.getIndex());
+            } else {
+                // changed since the checkpoint, to be fetched for a newer one
+                stale++;
+            }
+        }
+
+        logger.info("Imported {} state chunks, {} changed since checkpoint #{}", imported, stale,
+                checkpoint.getNumber());
+    }
+
+    /**
+     * Requests the block of a checkpoint, and checks that it is signed by the
+     * trusted validators.
+     *
+     * @param checkpoint
+     * @return the block, or null
+     */
+    protected Block requestBlock(Checkpoint checkpoint) {
+        Set<String> sources;
+        synchronized (lock) {
+            sources = new HashSet<>(manifests.keySet());
+        }
+        List<Channel> channels = getChannels(sources);
+        if (channels.isEmpty()) {
+            return null;
+        }
+
+        responses.clear();
+        channels.get(0).getMessageQueue().sendMessage(new GetBlockMessage(checkpoint.getNumber()));
+
+        long deadline = System.currentTimeMillis() + MANIFEST_TIMEOUT;
+        long now;
+        while (isRunning && (now = System.currentTimeMillis()) < deadline) {
+            Pair<Channel, Message> response;
+            try {
+                response = responses.poll(deadline - now, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (response == null || !(response.getRight() instanceof BlockMessage)) {
+                continue;
+            }
+
+            Block block = ((BlockMessage) response.getRight()).getBlock();
+            if (validateCheckpointBlock(checkpoint, block)) {
+                return block;
+            }
+
+            String peerId = response.getLeft().getRemotePeer().getPeerId();
+            logger.info("Invalid checkpoint block from peer {}", peerId);
+            // the peers which reported the checkpoint have vouched for its block
+            if (Arrays.equals(block.getHash(), checkpoint.getBlockHash())) {
+                badPeers.addAll(sources);
+            } else {
+                badPeers.add(peerId);
+            }
+            return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks that a block is the block of a checkpoint, and that two thirds of the
+     * trusted validators have voted for it. The validators of the checkpoint come
+     * from the peers, so they can't vouch for the block on their own.
+     *
+     * @param checkpoint
+     * @param block
+     * @return
+     */
+    protected boolean validateCheckpointBlock(Checkpoint checkpoint, Block block) {
+        if (block.getNumber() != checkpoint.getNumber()
+                || !Arrays.equals(block.getHash(), checkpoint.getBlockHash())
+                || !block.getHeader().validate()
+                || !validateBlockVotes(block, checkpoint.getValidators())) {
+            return false;
+        }
+
+        long trusted = block.getVotes().stream()
+                .map(sig -> Hex.encode(sig.getAddress()))
+                .filter(trustedValidators::contains)
+                .distinct()
+                .count();
+        return !trustedValidators.isEmpty() && trusted >= Math.ceil(trustedValidators.size() * 2.0 / 3.0);
+    }
+
+    /**
+     * Checks that two thirds of the validators have voted for a block.
+     *
+     * @param block
+     * @param validators
+     * @return
+     */
+    protected boolean validateBlockVotes(Block block, List<String> validators) {
+        Set<String> set = new HashSet<>(validators);
+        int twoThirds = (int) Math.ceil(set.size() * 2.0 / 3.0);
+
+        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash());
+        byte[] encoded = vote.getEncoded();
+
+        return block.getVotes().stream().allMatch(sig -> set.contains(Hex.encode(sig.getAddress())))
+                && block.getVotes().stream().map(sig -> new ByteArray(sig.getA())).distinct().count() >= twoThirds
+                && Key.verifyBatch(block.getVotes().stream().map(sig -> Pair.of(encoded, sig))
+                        .collect(Collectors.toList()));
+    }
+
+    private void importChunk(StateChunkMessage chunk) {
+        WriteLock writeLock = kernel.getStateLock().writeLock();
+        writeLock.lock();
+        try {
+            chain.startBatch();
+            try {
+                chain.importStateChunk(chunk.getLevel(), chunk.getIndex(), chunk.getLeaves());
+            } catch (RuntimeException e) {
+                chain.rollbackBatch();
+                throw e;
+            }
+            chain.commitBatch();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rollback() {
+        WriteLock writeLock = kernel.getStateLock().writeLock();
+        writeLock.lock();
+        try {
+            chain.startBatch();
+            try {
+                chain.rollbackStateChunks();
+            } catch (RuntimeException e) {
+                chain.rollbackBatch();
+                throw e;
+            }
+            chain.commitBatch();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean importCheckpoint(Checkpoint checkpoint, Block block) {
+        WriteLock writeLock = kernel.getStateLock().writeLock();
+        writeLock.lock();
+        try {
+            chain.startBatch();
+            try {
+                chain.importCheckpoint(checkpoint, block);
+            } catch (BlockchainException e) {
+                chain.rollbackBatch();
+                logger.warn("Failed to import checkpoint #{}: {}", checkpoint.getNumber(), e.getMessage());
+                return false;
+            }
+            chain.commitBatch();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the channels of the peers which support fast sync.
+     *
+     * @param peerIds
+     *            the peers to choose from, or null for all
+     * @return
+     */
+    private List<Channel> getChannels(Set<String> peerIds) {
+        return channelMgr.getActiveChannels().stream()
+                .filter(c -> c.getRemotePeer().getCapabilities().isSupported(Capability.FAST_SYNC))
+                .filter(c -> !badPeers.contains(c.getRemotePeer().getPeerId()))
+                .filter(c -> peerIds == null || peerIds.contains(c.getRemotePeer().getPeerId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A chunk request which has not been answered.
+     */
+    private static class ChunkRequest {
+        final int index;
+        final long timestamp;
+
+        ChunkRequest(int index, long timestamp) {
+            this.index = index;
+            this.timestamp = timestamp;
+        }
+    }
+}
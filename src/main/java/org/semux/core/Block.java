@@ -10,10 +10,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Network;
 import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
 import org.semux.util.MerkleUtil;
 import org.semux.util.SimpleDecoder;
@@ -156,8 +158,11 @@ public class Block {
      */
     public static boolean validateTransactions(BlockHeader header, Collection<Transaction> unvalidatedTransactions,
             List<Transaction> allTransactions, Network network) {
-        // validate transactions
-        boolean valid = unvalidatedTransactions.parallelStream().allMatch((tx) -> tx.validate(network));
+        // validate transactions, verifying all signatures in one batch
+        boolean valid = unvalidatedTransactions.parallelStream().allMatch((tx) -> tx.validate(network, false))
+                && Key.verifyBatch(unvalidatedTransactions.stream()
+                        .map(tx -> Pair.of(tx.getHash(), tx.getSignature()))
+                        .collect(Collectors.toList()));
         if (!valid) {
             return false;
         }
@@ -13,6 +13,7 @@ import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.BlockchainImpl.ValidatorStats;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
+import org.semux.core.state.StateTree;
 
 public interface Blockchain {
 
@@ -153,6 +154,27 @@ public interface Blockchain {
      */
     void addBlock(Block block);
 
+    /**
+     * Starts a block-scoped write session. All the database updates made by state
+     * commits and {@link #addBlock(Block)} are buffered until
+     * {@link #commitBatch()}, and then written as one batch per database.
+     */
+    void startBatch();
+
+    /**
+     * Flushes all the updates since {@link #startBatch()} to disk. The batches
+     * are written one database after another, so there is no atomicity across
+     * databases: a crash in between leaves some of them updated. The index
+     * database, which holds the latest block number, is written last.
+     */
+    void commitBatch();
+
+    /**
+     * Discards all the updates since {@link #startBatch()}, and restores the
+     * latest block and the activated forks.
+     */
+    void rollbackBatch();
+
     /**
      * Returns account state.
      * 
@@ -167,6 +189,73 @@ public interface Blockchain {
      */
     DelegateState getDelegateState();
 
+    /**
+     * Returns the state tree, which commits to the account and delegate states
+     * after each block.
+     * 
+     * @return
+     */
+    StateTree getStateTree();
+
+    /**
+     * Returns a checkpoint of the latest block, with the roots of the state
+     * chunks at a level of the state tree.
+     * 
+     * @param level
+     *            the level of the state chunks
+     * @return
+     */
+    Checkpoint getCheckpoint(int level);
+
+    /**
+     * Returns the state entries of a chunk.
+     * 
+     * @param level
+     *            the level of the chunk
+     * @param index
+     *            the index of the chunk at that level
+     * @return
+     */
+    List<StateTree.Leaf> getStateChunk(int level, int index);
+
+    /**
+     * Replaces the state entries of a chunk, which is for restoring the state of
+     * a checkpoint. The state no longer matches the latest block until
+     * {@link #importCheckpoint(Checkpoint, Block)}, or until the original entries
+     * are restored by {@link #rollbackStateChunks()}.
+     * 
+     * @param level
+     *            the level of the chunk
+     * @param index
+     *            the index of the chunk at that level
+     * @param leaves
+     *            the state entries of the chunk
+     * @return the new root of the state tree
+     */
+    byte[] importStateChunk(int level, int index, List<StateTree.Leaf> leaves);
+
+    /**
+     * Restores the original entries of the chunks replaced by
+     * {@link #importStateChunk(int, int, List)} since the last imported
+     * checkpoint, so that the state matches the latest block again.
+     * 
+     * @return whether any chunk has been restored
+     */
+    boolean rollbackStateChunks();
+
+    /**
+     * Continues this chain from a checkpoint, once its state has been restored
+     * by {@link #importStateChunk(int, int, List)}. The blocks before the
+     * checkpoint are not available afterwards.
+     * 
+     * @param checkpoint
+     * @param block
+     *            the block of the checkpoint
+     * @throws org.semux.core.exception.BlockchainException
+     *             if the block or the state does not match the checkpoint
+     */
+    void importCheckpoint(Checkpoint checkpoint, Block block);
+
     /**
      * Returns the validator set based on current state.
      * 
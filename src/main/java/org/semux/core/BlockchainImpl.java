@@ -11,7 +11,9 @@ import static org.semux.consensus.ValidatorActivatedFork.UNIFORM_DISTRIBUTION;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -29,12 +31,15 @@ import org.semux.core.state.AccountStateImpl;
 import org.semux.core.state.Delegate;
 import org.semux.core.state.DelegateState;
 import org.semux.core.state.DelegateStateImpl;
+import org.semux.core.state.StateTree;
 import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
 import org.semux.db.Database;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
 import org.semux.db.Migration;
 import org.semux.db.TempDatabaseFactory;
+import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.FileUtil;
 import org.semux.util.SimpleDecoder;
@@ -44,6 +49,7 @@ import org.slf4j.LoggerFactory;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 /**
  * Blockchain implementation.
@@ -86,6 +92,7 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_TRANSACTION_HASH = 0x04;
     protected static final byte TYPE_ACCOUNT_TRANSACTION = 0x05;
     protected static final byte TYPE_ACTIVATED_FORKS = 0x06;
+    protected static final byte TYPE_STATE_JOURNAL = 0x07;
     protected static final byte TYPE_DATABASE_VERSION = (byte) 0xff;
 
     protected static final byte TYPE_BLOCK_HEADER = 0x00;
@@ -93,28 +100,78 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_BLOCK_RESULTS = 0x02;
     protected static final byte TYPE_BLOCK_VOTES = 0x03;
 
+    /**
+     * The maximum total size of cached blocks, in bytes.
+     */
+    protected static final long BLOCK_CACHE_SIZE = 64L * 1024L * 1024L;
+
+    /**
+     * The maximum number of cached block headers and block hashes.
+     */
+    protected static final int BLOCK_HEADER_CACHE_SIZE = 4 * 1024;
+
     protected enum StatsType {
         FORGED, HIT, MISSED
     }
 
     private final Config config;
 
+    private DatabaseFactory dbFactory;
     private Database indexDB;
     private Database blockDB;
 
-    private AccountState accountState;
-    private DelegateState delegateState;
+    private AccountStateImpl accountState;
+    private DelegateStateImpl delegateState;
+    private StateTree stateTree;
+
+    /**
+     * Materialized validator set, which mirrors <code>[1] => [validators]</code>
+     * of the index DB.
+     */
+    private volatile List<String> validators = Collections.emptyList();
 
     private Genesis genesis;
     private Block latestBlock;
 
     private final List<BlockchainListener> listeners = new ArrayList<>();
 
+    /**
+     * Cache of recently added or read blocks, <code>number -> block</code>,
+     * bounded by the estimated size of the blocks.
+     */
+    private final Cache<Long, Block> blockCache = Caffeine.newBuilder()
+            .maximumWeight(BLOCK_CACHE_SIZE)
+            .weigher((Long number, Block block) -> estimateSize(block))
+            .recordStats()
+            .build();
+
+    /**
+     * Cache of recently added or read block headers, <code>number -> header</code>.
+     */
+    private final Cache<Long, BlockHeader> blockHeaderCache = Caffeine.newBuilder()
+            .maximumSize(BLOCK_HEADER_CACHE_SIZE)
+            .recordStats()
+            .build();
+
+    /**
+     * Cache of recently added or read block hashes, <code>hash -> number</code>.
+     */
+    private final Cache<ByteArray, Long> blockNumberCache = Caffeine.newBuilder()
+            .maximumSize(BLOCK_HEADER_CACHE_SIZE)
+            .build();
+
     /**
      * Activated forks at current height.
      */
     private Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks = new ConcurrentHashMap<>();
 
+    /**
+     * The latest block and the activated forks when the write session started,
+     * restored by {@link #rollbackBatch()}.
+     */
+    private Block batchLatestBlock;
+    private Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> batchActivatedForks;
+
     /**
      * Cache of <code>(fork, height) -> activated blocks</code>. As there's only one
      * fork in this version, 2 slots are reserved for current height and current
@@ -137,12 +194,15 @@ public class BlockchainImpl implements Blockchain {
     }
 
     private synchronized void openDb(DatabaseFactory factory) {
+        this.dbFactory = factory;
+        invalidateBlockCaches();
         this.indexDB = factory.getDB(DatabaseName.INDEX);
         this.blockDB = factory.getDB(DatabaseName.BLOCK);
 
-        this.accountState = new AccountStateImpl(factory.getDB(DatabaseName.ACCOUNT));
+        this.stateTree = new StateTree(factory.getDB(DatabaseName.STATE));
+        this.accountState = new AccountStateImpl(factory.getDB(DatabaseName.ACCOUNT), stateTree);
         this.delegateState = new DelegateStateImpl(this, factory.getDB(DatabaseName.DELEGATE),
-                factory.getDB(DatabaseName.VOTE));
+                factory.getDB(DatabaseName.VOTE), stateTree);
 
         this.genesis = Genesis.load(config.network());
 
@@ -156,6 +216,7 @@ public class BlockchainImpl implements Blockchain {
 
         // load version 0 index
         latestBlock = getBlock(Bytes.toLong(number));
+        validators = loadValidators();
 
         // checks if the database needs to be upgraded
         if (getDatabaseVersion() == 0) {
@@ -165,9 +226,17 @@ public class BlockchainImpl implements Blockchain {
 
         // load version 1 index
         activatedForks = getActivatedForks();
+
+        // build the state tree of a database created before it
+        if (stateTree.getRoot(latestBlock.getNumber()) == null) {
+            stateTree.rebuild(factory.getDB(DatabaseName.ACCOUNT), factory.getDB(DatabaseName.DELEGATE),
+                    factory.getDB(DatabaseName.VOTE), latestBlock.getNumber());
+        }
     }
 
     private void initializeDb() {
+        startBatch();
+
         // initialize database version
         indexDB.put(getDatabaseVersionKey(), Bytes.of(DATABASE_VERSION));
 
@@ -188,6 +257,8 @@ public class BlockchainImpl implements Blockchain {
 
         // add block
         addBlock(genesis);
+
+        commitBatch();
     }
 
     /**
@@ -213,6 +284,177 @@ public class BlockchainImpl implements Blockchain {
         return delegateState;
     }
 
+    @Override
+    public StateTree getStateTree() {
+        return stateTree;
+    }
+
+    @Override
+    public synchronized Checkpoint getCheckpoint(int level) {
+        List<byte[]> chunks = stateTree.getNodes(level);
+
+        Map<String, ValidatorStats> stats = new HashMap<>();
+        indexDB.scan(Bytes.of(TYPE_VALIDATOR_STATS), (key, value) -> {
+            byte[] address = new byte[key.remaining() - 1];
+            key.position(key.position() + 1);
+            key.get(address);
+            byte[] bytes = new byte[value.remaining()];
+            value.get(bytes);
+            stats.put(Hex.encode(address), ValidatorStats.fromBytes(bytes));
+            return true;
+        });
+
+        return new Checkpoint(latestBlock.getNumber(), latestBlock.getHash(), StateTree.hashLevel(chunks), level,
+                chunks, validators, stats, activatedForks);
+    }
+
+    @Override
+    public List<StateTree.Leaf> getStateChunk(int level, int index) {
+        List<StateTree.Leaf> leaves = new ArrayList<>();
+        for (Pair<DatabaseName, byte[]> key : stateTree.getKeys(level, index)) {
+            byte[] value = dbFactory.getDB(key.getLeft()).get(key.getRight());
+            if (value != null) {
+                leaves.add(new StateTree.Leaf(key.getLeft(), key.getRight(), value));
+            }
+        }
+        return leaves;
+    }
+
+    @Override
+    public synchronized byte[] importStateChunk(int level, int index, List<StateTree.Leaf> leaves) {
+        // keep the original entries of the chunk, until the checkpoint is imported
+        byte[] journalKey = Bytes.merge(Bytes.of(TYPE_STATE_JOURNAL), Bytes.of(level), Bytes.of(index));
+        if (indexDB.get(journalKey) == null) {
+            SimpleEncoder enc = new SimpleEncoder();
+            List<StateTree.Leaf> original = getStateChunk(level, index);
+            enc.writeInt(original.size());
+            for (StateTree.Leaf leaf : original) {
+                enc.writeBytes(leaf.toBytes());
+            }
+            indexDB.put(journalKey, enc.toBytes());
+        }
+
+        return replaceStateChunk(level, index, leaves);
+    }
+
+    @Override
+    public synchronized boolean rollbackStateChunks() {
+        List<byte[]> keys = getStateJournalKeys();
+
+        // restore the chunks in the reverse order of their keys
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            SimpleDecoder keyDec = new SimpleDecoder(keys.get(i), 1);
+            int level = keyDec.readInt();
+            int index = keyDec.readInt();
+
+            SimpleDecoder dec = new SimpleDecoder(indexDB.get(keys.get(i)));
+            int n = dec.readInt();
+            List<StateTree.Leaf> leaves = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                leaves.add(StateTree.Leaf.fromBytes(dec.readBytes()));
+            }
+            replaceStateChunk(level, index, leaves);
+            indexDB.delete(keys.get(i));
+        }
+
+        if (!keys.isEmpty()) {
+            logger.info("Rolled back {} imported state chunks", keys.size());
+        }
+        return !keys.isEmpty();
+    }
+
+    /**
+     * Returns the keys of the original entries of the imported state chunks.
+     *
+     * @return
+     */
+    private List<byte[]> getStateJournalKeys() {
+        List<byte[]> keys = new ArrayList<>();
+        indexDB.scan(Bytes.of(TYPE_STATE_JOURNAL), (key, value) -> {
+            byte[] bytes = new byte[key.remaining()];
+            key.get(bytes);
+            keys.add(bytes);
+            return true;
+        });
+        return keys;
+    }
+
+    /**
+     * Replaces the state entries of a chunk.
+     *
+     * @param level
+     * @param index
+     * @param leaves
+     * @return the new root of the state tree
+     */
+    private byte[] replaceStateChunk(int level, int index, List<StateTree.Leaf> leaves) {
+        for (Pair<DatabaseName, byte[]> key : stateTree.getKeys(level, index)) {
+            dbFactory.getDB(key.getLeft()).delete(key.getRight());
+            stateTree.update(key.getLeft(), key.getRight(), null);
+        }
+        for (StateTree.Leaf leaf : leaves) {
+            dbFactory.getDB(leaf.getDb()).put(leaf.getKey(), leaf.getValue());
+            stateTree.update(leaf.getDb(), leaf.getKey(), leaf.getValue());
+        }
+
+        // the states may have cached the replaced entries
+        accountState.invalidateCache();
+        delegateState.invalidateRanking();
+
+        return stateTree.commit();
+    }
+
+    @Override
+    public synchronized void importCheckpoint(Checkpoint checkpoint, Block block) {
+        long number = block.getNumber();
+        if (number != checkpoint.getNumber() || !Arrays.equals(block.getHash(), checkpoint.getBlockHash())) {
+            throw new BlockchainException("The block does not match the checkpoint");
+        }
+        if (!Arrays.equals(stateTree.getRoot(), checkpoint.getStateRoot())) {
+            throw new BlockchainException("The state does not match the checkpoint");
+        }
+        if (!validateValidators(checkpoint.getValidators(), number)) {
+            throw new BlockchainException("The validators do not match the restored delegates");
+        }
+
+        // [1] update block
+        blockDB.put(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)), block.toBytesHeader());
+        blockDB.put(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)), block.toBytesTransactions());
+        blockDB.put(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)), block.toBytesResults());
+        blockDB.put(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)), block.toBytesVotes());
+
+        indexDB.put(Bytes.merge(TYPE_BLOCK_HASH, block.getHash()), Bytes.of(number));
+
+        // [2] update validator set, statistics and forks
+        saveValidators(checkpoint.getValidators());
+        for (Entry<String, ValidatorStats> e : checkpoint.getValidatorStats().entrySet()) {
+            indexDB.put(Bytes.merge(TYPE_VALIDATOR_STATS, Hex.decode0x(e.getKey())), e.getValue().toBytes());
+        }
+        activatedForks = new ConcurrentHashMap<>(checkpoint.getActivatedForks());
+        setActivatedForks(activatedForks);
+
+        // [3] update state root, which no longer has to be rolled back
+        stateTree.commit(number);
+        for (byte[] key : getStateJournalKeys()) {
+            indexDB.delete(key);
+        }
+
+        // [4] update latest_block
+        latestBlock = block;
+        indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
+
+        invalidateBlockCaches();
+        blockCache.put(number, block);
+        blockHeaderCache.put(number, block.getHeader());
+        blockNumberCache.put(ByteArray.of(block.getHash()), number);
+
+        logger.info("Imported checkpoint: number = {}, state root = {}", number,
+                Hex.encode(checkpoint.getStateRoot()));
+        for (BlockchainListener listener : listeners) {
+            listener.onBlockAdded(block);
+        }
+    }
+
     @Override
     public Block getLatestBlock() {
         return latestBlock;
@@ -230,18 +472,28 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public long getBlockNumber(byte[] hash) {
-        byte[] number = indexDB.get(Bytes.merge(TYPE_BLOCK_HASH, hash));
-        return (number == null) ? -1 : Bytes.toLong(number);
+        Long number = blockNumberCache.get(ByteArray.of(hash), k -> {
+            byte[] bytes = indexDB.get(Bytes.merge(TYPE_BLOCK_HASH, hash));
+            return (bytes == null) ? null : Bytes.toLong(bytes);
+        });
+        return (number == null) ? -1 : number;
     }
 
     @Override
     public Block getBlock(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
-        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
-        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
-        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)));
+        return blockCache.get(number, k -> {
+            byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
+            if (header == null) {
+                return null;
+            }
+            byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
+            byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
+            byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)));
 
-        return (header == null) ? null : Block.fromBytes(header, transactions, results, votes);
+            Block block = Block.fromBytes(header, transactions, results, votes);
+            blockHeaderCache.put(number, block.getHeader());
+            return block;
+        });
     }
 
     @Override
@@ -252,8 +504,10 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public BlockHeader getBlockHeader(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
-        return (header == null) ? null : BlockHeader.fromBytes(header);
+        return blockHeaderCache.get(number, k -> {
+            byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
+            return (header == null) ? null : BlockHeader.fromBytes(header);
+        });
     }
 
     @Override
@@ -264,7 +518,8 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public boolean hasBlock(long number) {
-        return blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number))) != null;
+        return blockHeaderCache.getIfPresent(number) != null
+                || blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number))) != null;
     }
 
     @Override
@@ -389,7 +644,6 @@ public class BlockchainImpl implements Blockchain {
             addTransactionToAccount(tx, block.getCoinbase());
 
             // [5] update validator statistics
-            List<String> validators = getValidators();
             String primary = config.getPrimaryValidator(validators, number, 0,
                     activatedForks.containsKey(UNIFORM_DISTRIBUTION));
             adjustValidatorStats(block.getCoinbase(), StatsType.FORGED, 1);
@@ -405,15 +659,103 @@ public class BlockchainImpl implements Blockchain {
             updateValidators(block.getNumber());
         }
 
-        // [7] update latest_block
+        // [7] update state root
+        stateTree.commit(number);
+
+        // [8] update latest_block
         latestBlock = block;
         indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
 
+        blockCache.put(number, block);
+        blockHeaderCache.put(number, block.getHeader());
+        blockNumberCache.put(ByteArray.of(hash), number);
+
         for (BlockchainListener listener : listeners) {
             listener.onBlockAdded(block);
         }
     }
 
+    @Override
+    public synchronized void startBatch() {
+        for (DatabaseName name : DatabaseName.values()) {
+            dbFactory.getDB(name).startBatch();
+        }
+
+        batchLatestBlock = latestBlock;
+        batchActivatedForks = new ConcurrentHashMap<>(activatedForks);
+    }
+
+    @Override
+    public synchronized void commitBatch() {
+        // the index goes last, so that the latest block number never points to a
+        // block which has not been written
+        for (DatabaseName name : DatabaseName.values()) {
+            if (name != DatabaseName.INDEX) {
+                dbFactory.getDB(name).commitBatch();
+            }
+        }
+        dbFactory.getDB(DatabaseName.INDEX).commitBatch();
+    }
+
+    @Override
+    public synchronized void rollbackBatch() {
+        for (DatabaseName name : DatabaseName.values()) {
+            dbFactory.getDB(name).rollbackBatch();
+        }
+
+        // blocks and states added during the session are no longer valid
+        latestBlock = batchLatestBlock;
+        activatedForks = batchActivatedForks;
+        invalidateBlockCaches();
+        accountState.invalidateCache();
+        delegateState.invalidateRanking();
+        stateTree.load();
+        validators = loadValidators();
+    }
+
+    /**
+     * Returns the hit/miss statistics of the block cache.
+     *
+     * @return
+     */
+    public CacheStats getBlockCacheStats() {
+        return blockCache.stats();
+    }
+
+    /**
+     * Returns the hit/miss statistics of the block header cache.
+     *
+     * @return
+     */
+    public CacheStats getBlockHeaderCacheStats() {
+        return blockHeaderCache.stats();
+    }
+
+    /**
+     * Discards all the cached blocks, block headers and block hashes.
+     */
+    protected void invalidateBlockCaches() {
+        blockCache.invalidateAll();
+        blockHeaderCache.invalidateAll();
+        blockNumberCache.invalidateAll();
+    }
+
+    /**
+     * Estimates the in-memory size of a decoded block, in bytes.
+     *
+     * @param block
+     * @return
+     */
+    protected static int estimateSize(Block block) {
+        int size = 256 + block.getData().length;
+        for (Transaction tx : block.getTransactions()) {
+            size += 192 + tx.getData().length;
+        }
+        size += block.getVotes().size() * Key.Signature.LENGTH;
+
+        return size;
+    }
+
     /**
      * Attempt to activate pending forks at current height.
      */
@@ -451,10 +793,22 @@ public class BlockchainImpl implements Blockchain {
         List<Transaction> list = new ArrayList<>();
 
         int total = getTransactionCount(address);
-        for (int i = from; i < total && i < to; i++) {
-            byte[] key = getNthTransactionIndexKey(address, i);
-            byte[] value = indexDB.get(key);
-            list.add(getTransaction(value));
+        int start = Math.max(from, 0);
+        int end = Math.min(to, total);
+        if (start >= end) {
+            return list;
+        }
+
+        // the index keys of an account are contiguous, in big-endian order
+        List<byte[]> hashes = new ArrayList<>(end - start);
+        indexDB.scan(getNthTransactionIndexKey(address, start), getNthTransactionIndexKey(address, end),
+                end - start, false, (key, value) -> {
+                    byte[] hash = new byte[value.remaining()];
+                    value.get(hash);
+                    return hashes.add(hash);
+                });
+        for (byte[] hash : hashes) {
+            list.add(getTransaction(hash));
         }
 
         return list;
@@ -462,18 +816,27 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public List<String> getValidators() {
-        List<String> validators = new ArrayList<>();
+        return validators;
+    }
+
+    /**
+     * Reads the validator set from database.
+     *
+     * @return
+     */
+    protected List<String> loadValidators() {
+        List<String> list = new ArrayList<>();
 
         byte[] v = indexDB.get(Bytes.of(TYPE_VALIDATORS));
         if (v != null) {
             SimpleDecoder dec = new SimpleDecoder(v);
             int n = dec.readInt();
             for (int i = 0; i < n; i++) {
-                validators.add(dec.readString());
+                list.add(dec.readString());
             }
         }
 
-        return validators;
+        return Collections.unmodifiableList(list);
     }
 
     @Override
@@ -490,21 +853,52 @@ public class BlockchainImpl implements Blockchain {
      * @param number
      */
     protected void updateValidators(long number) {
-        List<String> validators = new ArrayList<>();
+        List<String> list = new ArrayList<>();
 
-        List<Delegate> delegates = delegateState.getDelegates();
-        int max = Math.min(delegates.size(), config.getNumberOfValidators(number));
-        for (int i = 0; i < max; i++) {
-            Delegate d = delegates.get(i);
-            validators.add(Hex.encode(d.getAddress()));
+        List<Delegate> delegates = delegateState.getDelegates(config.getNumberOfValidators(number));
+        for (Delegate d : delegates) {
+            list.add(Hex.encode(d.getAddress()));
         }
 
+        saveValidators(list);
+    }
+
+    /**
+     * Checks a validator set against the delegate state: the validators have to
+     * be distinct registered delegates, no more than allowed at the given block.
+     *
+     * @param list
+     * @param number
+     * @return
+     */
+    protected boolean validateValidators(List<String> list, long number) {
+        if (list.isEmpty() || list.size() > config.getNumberOfValidators(number)
+                || new HashSet<>(list).size() != list.size()) {
+            return false;
+        }
+
+        for (String v : list) {
+            if (delegateState.getDelegateByAddress(Hex.decode0x(v)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the validator set.
+     *
+     * @param list
+     */
+    protected void saveValidators(List<String> list) {
         SimpleEncoder enc = new SimpleEncoder();
-        enc.writeInt(validators.size());
-        for (String v : validators) {
+        enc.writeInt(list.size());
+        for (String v : list) {
             enc.writeString(v);
         }
         indexDB.put(Bytes.of(TYPE_VALIDATORS), enc.toBytes());
+
+        validators = Collections.unmodifiableList(list);
     }
 
     /**
@@ -802,12 +1196,12 @@ public class BlockchainImpl implements Blockchain {
                 getAccountState().adjustAvailable(block.getCoinbase(), reward);
             }
 
-            // [2] commit the updates
+            // [2] commit the updates and add block to chain
+            startBatch();
             getAccountState().commit();
             getDelegateState().commit();
-
-            // [3] add block to chain
             addBlock(block);
+            commitBatch();
         }
     }
 
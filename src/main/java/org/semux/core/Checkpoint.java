@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.semux.consensus.ValidatorActivatedFork;
+import org.semux.core.BlockchainImpl.ValidatorStats;
+import org.semux.core.state.StateTree;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Summary of the blockchain at a block, from which a node can continue without
+ * the previous blocks: the state root with the roots of its chunks, and the
+ * validator data which is not part of the state tree.
+ */
+public class Checkpoint {
+
+    private final long number;
+    private final byte[] blockHash;
+    private final byte[] stateRoot;
+    private final int level;
+    private final List<byte[]> chunks;
+    private final List<String> validators;
+    private final SortedMap<String, ValidatorStats> validatorStats;
+    private final SortedMap<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks;
+
+    /**
+     * Creates a checkpoint.
+     *
+     * @param number
+     *            the block number
+     * @param blockHash
+     *            the block hash
+     * @param stateRoot
+     *            the root of the state tree after the block
+     * @param level
+     *            the level of the chunks in the state tree
+     * @param chunks
+     *            the roots of the chunks
+     * @param validators
+     *            the validator set for the next block
+     * @param validatorStats
+     *            the statistics of all validators, by address
+     * @param activatedForks
+     *            the activated forks
+     */
+    public Checkpoint(long number, byte[] blockHash, byte[] stateRoot, int level, List<byte[]> chunks,
+            List<String> validators, Map<String, ValidatorStats> validatorStats,
+            Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks) {
+        this.number = number;
+        this.blockHash = blockHash;
+        this.stateRoot = stateRoot;
+        this.level = level;
+        this.chunks = Collections.unmodifiableList(chunks);
+        this.validators = Collections.unmodifiableList(validators);
+        this.validatorStats = Collections.unmodifiableSortedMap(new TreeMap<>(validatorStats));
+        this.activatedForks = Collections.unmodifiableSortedMap(new TreeMap<>(activatedForks));
+    }
+
+    /**
+     * Validates that the chunk roots add up to the state root.
+     *
+     * @return
+     */
+    public boolean validate() {
+        return number >= 0
+                && blockHash.length == Hash.HASH_LEN
+                && level >= 0 && level <= StateTree.DEPTH
+                && chunks.size() == 1 << level
+                && Arrays.equals(stateRoot, StateTree.hashLevel(chunks));
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public byte[] getStateRoot() {
+        return stateRoot;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public List<byte[]> getChunks() {
+        return chunks;
+    }
+
+    public List<String> getValidators() {
+        return validators;
+    }
+
+    public SortedMap<String, ValidatorStats> getValidatorStats() {
+        return validatorStats;
+    }
+
+    public SortedMap<ValidatorActivatedFork, ValidatorActivatedFork.Activation> getActivatedForks() {
+        return activatedForks;
+    }
+
+    /**
+     * Returns the hash of this checkpoint, which covers all its fields.
+     *
+     * @return
+     */
+    public byte[] getHash() {
+        return Hash.h256(toBytes());
+    }
+
+    /**
+     * Serializes this checkpoint into byte array.
+     *
+     * @return
+     */
+    public byte[] toBytes() {
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(number);
+        enc.writeBytes(blockHash);
+        enc.writeBytes(stateRoot);
+        enc.writeInt(level);
+        enc.writeInt(chunks.size());
+        for (byte[] chunk : chunks) {
+            enc.writeBytes(chunk);
+        }
+        enc.writeInt(validators.size());
+        for (String v : validators) {
+            enc.writeString(v);
+        }
+        enc.writeInt(validatorStats.size());
+        for (Entry<String, ValidatorStats> e : validatorStats.entrySet()) {
+            enc.writeBytes(Hex.decode0x(e.getKey()));
+            enc.writeBytes(e.getValue().toBytes());
+        }
+        enc.writeInt(activatedForks.size());
+        for (ValidatorActivatedFork.Activation activation : activatedForks.values()) {
+            enc.writeBytes(activation.toBytes());
+        }
+
+        return enc.toBytes();
+    }
+
+    /**
+     * Parses a checkpoint from byte array.
+     *
+     * @param bytes
+     * @return
+     */
+    public static Checkpoint fromBytes(byte[] bytes) {
+        SimpleDecoder dec = new SimpleDecoder(bytes);
+        long number = dec.readLong();
+        byte[] blockHash = dec.readBytes();
+        byte[] stateRoot = dec.readBytes();
+        int level = dec.readInt();
+        int n = dec.readInt();
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            chunks.add(dec.readBytes());
+        }
+        n = dec.readInt();
+        List<String> validators = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            validators.add(dec.readString());
+        }
+        n = dec.readInt();
+        Map<String, ValidatorStats> validatorStats = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            String address = Hex.encode(dec.readBytes());
+            validatorStats.put(address, ValidatorStats.fromBytes(dec.readBytes()));
+        }
+        n = dec.readInt();
+        Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            ValidatorActivatedFork.Activation activation = ValidatorActivatedFork.Activation
+                    .fromBytes(dec.readBytes());
+            activatedForks.put(activation.fork, activation);
+        }
+
+        return new Checkpoint(number, blockHash, stateRoot, level, chunks, validators, validatorStats,
+                activatedForks);
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint [number=" + number + ", blockHash=" + Hex.encode(blockHash) + ", stateRoot="
+                + Hex.encode(stateRoot) + ", # chunks=" + chunks.size() + "]";
+    }
+}
@@ -7,19 +7,32 @@
 package org.semux.core;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import org.bouncycastle.util.Arrays;
 import org.semux.Kernel;
+import org.semux.Network;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
+import org.semux.net.Capability;
 import org.semux.net.Channel;
 import org.semux.net.msg.p2p.TransactionMessage;
 import org.semux.util.ArrayUtil;
@@ -35,8 +48,14 @@ import com.github.benmanes.caffeine.cache.Caffeine;
  * Pending manager maintains all unconfirmed transactions, either from kernel or
  * network. All transactions are evaluated and propagated to peers if success.
  *
- * TODO: sort transaction queue by fee, and other metrics
+ * Queued transactions are processed in batches by a background worker, which is
+ * woken up when new transactions arrive. The signatures of a batch are verified
+ * in parallel before the pending state is locked.
  *
+ * The pool indexes transactions by sender, in nonce order. When the pool is
+ * full, the cheapest transactions at the end of their sender's queue are evicted
+ * in favor of transactions paying more. Block proposals take the most valuable
+ * transactions first, see {@link #getPendingTransactions(int)}.
  */
 public class PendingManager implements Runnable, BlockchainListener {
 
@@ -58,13 +77,27 @@ public class PendingManager implements Runnable, BlockchainListener {
     private static final int TRANSACTIONS_MAX_SIZE = 16 * 1024;
     private static final int DELAYED_MAX_SIZE = 32 * 1024;
     private static final int PROCESSED_MAX_SIZE = 32 * 1024;
+    private static final int REQUESTED_MAX_SIZE = 32 * 1024;
+
+    /**
+     * How long a requested transaction is not requested again from other peers.
+     */
+    private static final long REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Orders pending transactions by fee, lowest first, then by hash.
+     */
+    private static final Comparator<PendingTransaction> FEE_ORDER = (a, b) -> {
+        int c = a.transaction.getFee().compareTo(b.transaction.getFee());
+        return (c != 0) ? c : Arrays.compareUnsigned(a.transaction.getHash(), b.transaction.getHash());
+    };
 
     private Kernel kernel;
     private AccountState pendingAS;
     private DelegateState pendingDS;
 
     /**
-     * Transaction queue.
+     * Transaction queue, guarded by its own monitor.
      */
     private LinkedList<Transaction> queue = new LinkedList<>();
 
@@ -73,14 +106,57 @@ public class PendingManager implements Runnable, BlockchainListener {
      */
     private List<PendingTransaction> transactions = new ArrayList<>();
 
+    /**
+     * Pending transactions of each sender, in nonce order.
+     */
+    private Map<ByteArray, LinkedList<PendingTransaction>> senders = new HashMap<>();
+
+    /**
+     * The last pending transaction of each sender, ordered by fee. These are the
+     * candidates for eviction, as no other transaction of the same sender depends
+     * on them.
+     */
+    private TreeSet<PendingTransaction> tails = new TreeSet<>(FEE_ORDER);
+
+    /**
+     * Pending nonces of the accounts with transactions in the pool.
+     */
+    private Map<ByteArray, Long> nonces = new HashMap<>();
+
+    /**
+     * Immutable view of the pool and the pending nonces for readers, published
+     * after each modification.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private volatile ReevaluationStats lastReevaluation;
+
     /**
      * Transaction cache.
      */
     private Cache<ByteArray, Transaction> delayed = Caffeine.newBuilder().maximumSize(DELAYED_MAX_SIZE).build();
     private Cache<ByteArray, Transaction> processed = Caffeine.newBuilder().maximumSize(PROCESSED_MAX_SIZE).build();
+    private Cache<ByteArray, Boolean> requested = Caffeine.newBuilder().maximumSize(REQUESTED_MAX_SIZE)
+            .expireAfterWrite(REQUEST_TIMEOUT, TimeUnit.MILLISECONDS).build();
+
+    private TransactionExecutor executor;
 
     private ScheduledExecutorService exec;
     private ScheduledFuture<?> validateFuture;
+    private AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * Accept rate budget, only accessed by the background worker.
+     */
+    private long budgetWindow;
+    private int budgetUsed;
+
+    /**
+     * Intake statistics.
+     */
+    private AtomicLong receivedCount = new AtomicLong(0);
+    private AtomicLong rejectedCount = new AtomicLong(0);
+    private AtomicLong acceptedCount = new AtomicLong(0);
 
     private volatile boolean isRunning;
 
@@ -93,6 +169,7 @@ public class PendingManager implements Runnable, BlockchainListener {
         this.pendingAS = kernel.getBlockchain().getAccountState().track();
         this.pendingDS = kernel.getBlockchain().getDelegateState().track();
 
+        this.executor = new TransactionExecutor(kernel.getConfig());
         this.exec = Executors.newSingleThreadScheduledExecutor(factory);
     }
 
@@ -101,17 +178,12 @@ public class PendingManager implements Runnable, BlockchainListener {
      */
     public synchronized void start() {
         if (!isRunning) {
-            /*
-             * NOTE: a rate smaller than the message queue sending rate should be used to
-             * prevent message queues from hitting the NET_MAX_QUEUE_SIZE, especially when
-             * the network load is heavy.
-             */
-            this.validateFuture = exec.scheduleAtFixedRate(this, 2, 2, TimeUnit.MILLISECONDS);
-
             kernel.getBlockchain().addListener(this);
 
             logger.debug("Pending manager started");
             this.isRunning = true;
+
+            wakeUp();
         }
     }
 
@@ -120,7 +192,10 @@ public class PendingManager implements Runnable, BlockchainListener {
      */
     public synchronized void stop() {
         if (isRunning) {
-            validateFuture.cancel(true);
+            if (validateFuture != null) {
+                validateFuture.cancel(false);
+                validateFuture = null;
+            }
 
             logger.debug("Pending manager stopped");
             isRunning = false;
@@ -132,7 +207,7 @@ public class PendingManager implements Runnable, BlockchainListener {
      *
      * @return
      */
-    public synchronized boolean isRunning() {
+    public boolean isRunning() {
         return isRunning;
     }
 
@@ -141,8 +216,49 @@ public class PendingManager implements Runnable, BlockchainListener {
      *
      * @return
      */
-    public synchronized List<Transaction> getQueue() {
-        return new ArrayList<>(queue);
+    public List<Transaction> getQueue() {
+        synchronized (queue) {
+            return new ArrayList<>(queue);
+        }
+    }
+
+    /**
+     * Returns the number of transactions waiting in the queue.
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Returns the number of transactions taken from the queue since start-up.
+     *
+     * @return
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Returns the number of queued transactions rejected for invalid format or
+     * signature since start-up.
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of transactions accepted into the pool since start-up.
+     *
+     * @return
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
     }
 
     /**
@@ -150,11 +266,50 @@ public class PendingManager implements Runnable, BlockchainListener {
      * background worker. Transaction may get rejected if the queue is full.
      *
      * @param tx
+     * @return false if the queue is full, otherwise true
      */
-    public synchronized void addTransaction(Transaction tx) {
-        if (queue.size() < QUEUE_MAX_SIZE && tx.validate(kernel.getConfig().network())) {
+    public boolean addTransaction(Transaction tx) {
+        synchronized (queue) {
+            if (queue.size() >= QUEUE_MAX_SIZE) {
+                return false;
+            }
             queue.add(tx);
         }
+
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * Selects the announced transactions to request: the ones neither processed
+     * nor already requested from another peer. The selected ones are marked as
+     * requested.
+     *
+     * @param hashes
+     *            the announced transaction hashes
+     * @return the hashes to request
+     */
+    public List<byte[]> selectUnknownTransactions(List<byte[]> hashes) {
+        List<byte[]> unknown = new ArrayList<>();
+        for (byte[] hash : hashes) {
+            ByteArray key = ByteArray.of(hash);
+            if (processed.getIfPresent(key) == null
+                    && requested.asMap().putIfAbsent(key, Boolean.TRUE) == null) {
+                unknown.add(hash);
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * Returns a recently processed transaction, which may be requested by the
+     * peers it was announced to.
+     *
+     * @param hash
+     * @return the transaction, or null if not found
+     */
+    public Transaction getProcessedTransaction(byte[] hash) {
+        return processed.getIfPresent(ByteArray.of(hash));
     }
 
     /**
@@ -166,45 +321,96 @@ public class PendingManager implements Runnable, BlockchainListener {
      */
     public synchronized ProcessTransactionResult addTransactionSync(Transaction tx) {
         if (/* queue/transactions limits are ignored */ tx.validate(kernel.getConfig().network())) {
-            return processTransaction(tx, true);
+            ProcessTransactionResult result = processTransaction(tx, true);
+            publishSnapshot();
+            return result;
         } else {
             return new ProcessTransactionResult(0, TransactionResult.Error.INVALID_FORMAT);
         }
     }
 
     /**
-     * Returns the nonce of an account based on the pending state.
+     * Returns the nonce of an account based on the pending state. This method
+     * reads the latest published snapshot and never blocks.
      *
      * @param address
      * @return
      */
-    public synchronized long getNonce(byte[] address) {
-        return pendingAS.getAccount(address).getNonce();
+    public long getNonce(byte[] address) {
+        Long nonce = snapshot.nonces.get(ByteArray.of(address));
+        return (nonce != null) ? nonce : kernel.getBlockchain().getAccountState().getAccount(address).getNonce();
     }
 
     /**
-     * Returns pending transactions, limited by the given total size in bytes.
+     * Returns the most valuable pending transactions, limited by the given total
+     * size in bytes. This method reads the latest published snapshot and never
+     * blocks.
+     *
+     * <p>
+     * Transactions are picked by fee among the next transaction of each sender,
+     * and are re-executed against the current chain state in the returned order.
+     * Transactions failing because they depend on a transaction of another sender
+     * which has not been picked yet are retried, as long as progress is made.
+     * </p>
      *
      * @param byteLimit
-     * @return
+     * @return transactions and their results, in block order
      */
-    public synchronized List<PendingTransaction> getPendingTransactions(int byteLimit) {
+    public List<PendingTransaction> getPendingTransactions(int byteLimit) {
         if (byteLimit < 0) {
             throw new IllegalArgumentException("Limit can't be negative");
         }
 
-        List<PendingTransaction> txs = new ArrayList<>();
-        Iterator<PendingTransaction> it = transactions.iterator();
+        // group by sender, in nonce order
+        Map<ByteArray, LinkedList<PendingTransaction>> queues = new HashMap<>();
+        for (PendingTransaction tx : snapshot.transactions) {
+            queues.computeIfAbsent(ByteArray.of(tx.transaction.getFrom()), k -> new LinkedList<>()).add(tx);
+        }
+
+        // the highest fee first
+        PriorityQueue<LinkedList<PendingTransaction>> heads = new PriorityQueue<>(
+                (a, b) -> FEE_ORDER.compare(b.getFirst(), a.getFirst()));
+        List<LinkedList<PendingTransaction>> deferred = new ArrayList<>(queues.values());
 
+        AccountState as = kernel.getBlockchain().getAccountState().track();
+        DelegateState ds = kernel.getBlockchain().getDelegateState().track();
+
+        List<PendingTransaction> txs = new ArrayList<>();
         int size = 0;
-        while (it.hasNext()) {
-            PendingTransaction tx = it.next();
+        boolean progress = true;
+        while (progress && !deferred.isEmpty()) {
+            progress = false;
+            heads.addAll(deferred);
+            deferred.clear();
+
+            while (!heads.isEmpty()) {
+                LinkedList<PendingTransaction> queue = heads.poll();
+                PendingTransaction tx = queue.getFirst();
+
+                // the rest of this sender's transactions can't be included either
+                int txSize = tx.transaction.size();
+                if (size + txSize > byteLimit) {
+                    continue;
+                }
 
-            size += tx.transaction.size();
-            if (size > byteLimit) {
-                break;
-            } else {
-                txs.add(tx);
+                int asSnapshot = as.snapshot();
+                int dsSnapshot = ds.snapshot();
+                TransactionResult result = executor.execute(tx.transaction, as, ds);
+                if (!result.isSuccess()) {
+                    as.revert(asSnapshot);
+                    ds.revert(dsSnapshot);
+                    deferred.add(queue);
+                    continue;
+                }
+
+                txs.add(new PendingTransaction(tx.transaction, result));
+                size += txSize;
+                progress = true;
+
+                queue.removeFirst();
+                if (!queue.isEmpty()) {
+                    heads.add(queue);
+                }
             }
         }
 
@@ -212,12 +418,13 @@ public class PendingManager implements Runnable, BlockchainListener {
     }
 
     /**
-     * Returns all pending transactions.
+     * Returns all pending transactions, as an immutable list. This method reads
+     * the latest published snapshot and never blocks.
      *
      * @return
      */
-    public synchronized List<PendingTransaction> getPendingTransactions() {
-        return getPendingTransactions(Integer.MAX_VALUE);
+    public List<PendingTransaction> getPendingTransactions() {
+        return snapshot.transactions;
     }
 
     /**
@@ -226,6 +433,19 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @return
      */
     public synchronized List<PendingTransaction> reset() {
+        List<PendingTransaction> txs = resetState();
+        publishSnapshot();
+
+        return txs;
+    }
+
+    /**
+     * Resets the pending state without publishing a new snapshot. The caller must
+     * hold the lock of this pending manager.
+     *
+     * @return all pending transactions
+     */
+    private List<PendingTransaction> resetState() {
         // reset state
         pendingAS = kernel.getBlockchain().getAccountState().track();
         pendingDS = kernel.getBlockchain().getDelegateState().track();
@@ -233,49 +453,282 @@ public class PendingManager implements Runnable, BlockchainListener {
         // clear transaction pool
         List<PendingTransaction> txs = new ArrayList<>(transactions);
         transactions.clear();
+        senders.clear();
+        tails.clear();
+        nonces.clear();
 
         return txs;
     }
 
+    /**
+     * Publishes the current pool and pending nonces to readers. The caller must
+     * hold the lock of this pending manager.
+     */
+    private void publishSnapshot() {
+        snapshot = new Snapshot(Collections.unmodifiableList(new ArrayList<>(transactions)),
+                Collections.unmodifiableMap(new HashMap<>(nonces)));
+    }
+
+    /**
+     * Returns the statistics of the last re-evaluation of the pool, triggered by a
+     * new block.
+     *
+     * @return
+     */
+    public ReevaluationStats getLastReevaluation() {
+        return lastReevaluation;
+    }
+
     @Override
     public synchronized void onBlockAdded(Block block) {
         if (isRunning) {
-            long t1 = System.currentTimeMillis();
+            long t1 = System.nanoTime();
 
-            // clear transaction pool
-            List<PendingTransaction> txs = reset();
+            boolean full = block.getTransactions().stream().anyMatch(tx -> tx.getType() != TransactionType.TRANSFER);
+            ReevaluationStats stats = full ? null : reevaluate(block);
+            if (stats == null) {
+                full = true;
+                stats = reevaluateAll();
+            }
 
-            // update pending state
-            long accepted = 0;
-            for (PendingTransaction tx : txs) {
-                accepted += processTransaction(tx.transaction, false).accepted;
+            long t2 = System.nanoTime();
+            lastReevaluation = new ReevaluationStats(full, (t2 - t1) / 1_000_000L, stats.included,
+                    stats.reexecuted, stats.kept, stats.dropped);
+            logger.debug("Pending tx evaluation: full = {}, # included = {}, # re-executed = {}, # kept = {}, "
+                    + "# dropped = {}, time = {} ms", full, stats.included, stats.reexecuted, stats.kept,
+                    stats.dropped, lastReevaluation.time);
+            publishSnapshot();
+
+            // the pool may have room again
+            wakeUp();
+        }
+    }
+
+    /**
+     * Resets the pending state and re-executes all pending transactions. The
+     * caller must hold the lock of this pending manager.
+     *
+     * @return
+     */
+    private ReevaluationStats reevaluateAll() {
+        List<PendingTransaction> txs = resetState();
+
+        int included = 0;
+        for (PendingTransaction tx : txs) {
+            if (processTransaction(tx.transaction, false).error == TransactionResult.Error.DUPLICATED_HASH) {
+                included++;
             }
+        }
 
-            long t2 = System.currentTimeMillis();
-            logger.debug("Pending tx evaluation: # txs = {} / {},  time = {} ms", accepted, txs.size(), t2 - t1);
+        int kept = transactions.size();
+        return new ReevaluationStats(true, 0, included, txs.size(), kept, Math.max(0, txs.size() - included - kept));
+    }
+
+    /**
+     * Reconciles the pool with a block which only contains transfers. Pending
+     * transactions included in the block are dropped; transactions touching an
+     * account the block touched, directly or through other pending transactions,
+     * are re-executed; all others are kept as they are. The caller must hold the
+     * lock of this pending manager.
+     *
+     * @param block
+     * @return the statistics, or null if the whole pool has to be re-evaluated
+     */
+    private ReevaluationStats reevaluate(Block block) {
+        // accounts touched by the block
+        Set<ByteArray> affected = new HashSet<>();
+        affected.add(ByteArray.of(block.getCoinbase()));
+        Set<ByteArray> included = new HashSet<>();
+        for (Transaction tx : block.getTransactions()) {
+            affected.add(ByteArray.of(tx.getFrom()));
+            affected.add(ByteArray.of(tx.getTo()));
+            included.add(ByteArray.of(tx.getHash()));
         }
+
+        return reexecute(affected, included);
     }
 
-    @Override
-    public synchronized void run() {
-        Transaction tx;
+    /**
+     * Removes the given transactions from the pool, and re-executes the pending
+     * transactions touching one of the affected accounts, directly or through
+     * other pending transactions; all others are kept as they are. The caller must
+     * hold the lock of this pending manager.
+     *
+     * Only the account state can be rolled back per account, so nothing is
+     * changed when a transaction to remove or to re-execute isn't a transfer.
+     *
+     * @param affected
+     *            the accounts whose state has changed
+     * @param removed
+     *            the hashes of the transactions to remove
+     * @return the statistics, or null if the whole pool has to be re-evaluated
+     */
+    private ReevaluationStats reexecute(Set<ByteArray> affected, Set<ByteArray> removed) {
+        long now = System.currentTimeMillis();
+        long drift = kernel.getConfig().maxTransactionTimeDrift();
+
+        // expand to the accounts touched by the dependent pending transactions
+        List<PendingTransaction> txs = new ArrayList<>(transactions);
+        boolean[] dirty = new boolean[txs.size()];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < txs.size(); i++) {
+                if (dirty[i]) {
+                    continue;
+                }
 
-        while (transactions.size() < TRANSACTIONS_MAX_SIZE && (tx = queue.poll()) != null) {
+                Transaction tx = txs.get(i).transaction;
+                ByteArray from = ByteArray.of(tx.getFrom());
+                ByteArray to = ByteArray.of(tx.getTo());
+                if (affected.contains(from) || affected.contains(to)
+                        || tx.getTimestamp() < now - drift || tx.getTimestamp() > now + drift) {
+                    dirty[i] = true;
+                    changed |= affected.add(from);
+                    changed |= affected.add(to);
+                }
+            }
+        }
 
-            // reject already executed transactions
-            ByteArray key = ByteArray.of(tx.getHash());
-            if (processed.getIfPresent(key) != null) {
-                continue;
+        // the delegate state keeps the effects of the pending transactions
+        for (int i = 0; i < txs.size(); i++) {
+            Transaction tx = txs.get(i).transaction;
+            if ((dirty[i] || removed.contains(ByteArray.of(tx.getHash())))
+                    && tx.getType() != TransactionType.TRANSFER) {
+                return null;
             }
+        }
+
+        // discard the cached state of affected accounts
+        for (ByteArray address : affected) {
+            pendingAS.rollback(address.getData());
+        }
 
-            // process the transaction
-            boolean accepted = processTransaction(tx, true).accepted >= 1;
-            processed.put(key, tx);
+        transactions.clear();
+        senders.clear();
+        tails.clear();
+        nonces.clear();
+
+        int numRemoved = 0;
+        int reexecuted = 0;
+        for (int i = 0; i < txs.size(); i++) {
+            PendingTransaction tx = txs.get(i);
+            if (removed.contains(ByteArray.of(tx.transaction.getHash()))) {
+                numRemoved++;
+            } else if (dirty[i]) {
+                reexecuted++;
+                processTransaction(tx.transaction, false);
+            } else {
+                addToPool(tx);
+            }
+        }
 
-            // quit after one accepted transaction
-            if (accepted) {
+        int kept = transactions.size();
+        return new ReevaluationStats(false, 0, numRemoved, reexecuted, kept,
+                Math.max(0, txs.size() - numRemoved - kept));
+    }
+
+    /**
+     * Schedules the background worker, unless it's already scheduled.
+     */
+    protected void wakeUp() {
+        if (isRunning && scheduled.compareAndSet(false, true)) {
+            exec.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        scheduled.set(false);
+        if (!isRunning) {
+            return;
+        }
+
+        long t1 = System.nanoTime();
+
+        // check the accept rate budget
+        int limit = kernel.getConfig().txPoolBatchSize();
+        int maxRate = kernel.getConfig().txPoolMaxAcceptRate();
+        if (maxRate > 0) {
+            long now = System.currentTimeMillis();
+            if (now - budgetWindow >= 1000) {
+                budgetWindow = now;
+                budgetUsed = 0;
+            }
+
+            if (budgetUsed >= maxRate) {
+                // resume once the current window is over
+                synchronized (this) {
+                    if (isRunning && (validateFuture == null || validateFuture.isDone())) {
+                        validateFuture = exec.schedule(this::wakeUp, budgetWindow + 1000 - now,
+                                TimeUnit.MILLISECONDS);
+                    }
+                }
                 return;
             }
+            limit = Math.min(limit, maxRate - budgetUsed);
+        }
+
+        // drain a batch, skipping already executed transactions
+        List<Transaction> batch = new ArrayList<>();
+        boolean hasMore;
+        synchronized (queue) {
+            Transaction tx;
+            while (batch.size() < limit && (tx = queue.poll()) != null) {
+                if (processed.getIfPresent(ByteArray.of(tx.getHash())) == null) {
+                    batch.add(tx);
+                }
+            }
+            hasMore = !queue.isEmpty();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        receivedCount.addAndGet(batch.size());
+
+        // verify the format and signatures in parallel, without holding the lock
+        Network network = kernel.getConfig().network();
+        List<Transaction> verified = batch.parallelStream()
+                .filter(tx -> tx.validate(network))
+                .collect(Collectors.toList());
+        rejectedCount.addAndGet(batch.size() - verified.size());
+
+        // execute the survivors in one pass
+        int accepted = 0;
+        int evicted = 0;
+        synchronized (this) {
+            for (Transaction tx : verified) {
+                ByteArray key = ByteArray.of(tx.getHash());
+                if (processed.getIfPresent(key) != null) {
+                    continue;
+                }
+
+                // a full pool only admits transactions paying more than its cheapest tail
+                boolean full = transactions.size() >= TRANSACTIONS_MAX_SIZE;
+                if (full && (tails.isEmpty() || !tails.first().transaction.getFee().lt(tx.getFee()))) {
+                    continue;
+                }
+
+                accepted += processTransaction(tx, true).accepted;
+                processed.put(key, tx);
+                if (transactions.size() > TRANSACTIONS_MAX_SIZE) {
+                    evicted += evict();
+                }
+            }
+
+            if (accepted > 0 || evicted > 0) {
+                publishSnapshot();
+            }
+        }
+        budgetUsed += accepted;
+        acceptedCount.addAndGet(accepted);
+
+        long t2 = System.nanoTime();
+        logger.trace("Pending tx intake: # txs = {} / {} / {}, queue = {}, time = {} μs", accepted, verified.size(),
+                batch.size(), getQueueSize(), (t2 - t1) / 1000L);
+
+        if (hasMore) {
+            wakeUp();
         }
     }
 
@@ -309,54 +762,135 @@ public class PendingManager implements Runnable, BlockchainListener {
         // Check transaction nonce: pending transactions must be executed sequentially
         // by nonce in ascending order. In case of a nonce jump, the transaction is
         // delayed for the next event loop of PendingManager.
-        while (tx != null && tx.getNonce() == getNonce(tx.getFrom())) {
+        while (tx != null && tx.getNonce() == getPendingNonce(tx.getFrom())) {
 
             // execute transactions
-            AccountState as = pendingAS.track();
-            DelegateState ds = pendingDS.track();
-            TransactionResult result = new TransactionExecutor(kernel.getConfig()).execute(tx, as, ds);
+            int asSnapshot = pendingAS.snapshot();
+            int dsSnapshot = pendingDS.snapshot();
+            TransactionResult result = executor.execute(tx, pendingAS, pendingDS);
 
             if (result.isSuccess()) {
-                // commit state updates
-                as.commit();
-                ds.commit();
-
                 // Add the successfully processed transaction into the pool of transactions
                 // which are ready to be proposed to the network.
                 PendingTransaction pendingTransaction = new PendingTransaction(tx, result);
-                transactions.add(pendingTransaction);
+                addToPool(pendingTransaction);
                 cnt++;
 
-                // relay transaction
+                // relay transaction: announce the hash to the peers supporting inventory,
+                // which fetch the body only if unknown, and push it to the others
                 if (relay) {
+                    processed.put(ByteArray.of(tx.getHash()), tx);
+
                     List<Channel> channels = kernel.getChannelManager().getActiveChannels();
-                    TransactionMessage msg = new TransactionMessage(tx);
+                    TransactionMessage msg = null;
                     int[] indices = ArrayUtil.permutation(channels.size());
                     for (int i = 0; i < indices.length && i < kernel.getConfig().netRelayRedundancy(); i++) {
                         Channel c = channels.get(indices[i]);
-                        if (c.isActive()) {
+                        if (!c.isActive()) {
+                            continue;
+                        }
+                        if (c.getRemotePeer().getCapabilities().isSupported(Capability.TX_INV)) {
+                            c.announceTransaction(tx.getHash());
+                        } else {
+                            if (msg == null) {
+                                msg = new TransactionMessage(tx);
+                            }
                             c.getMessageQueue().sendMessage(msg);
                         }
                     }
                 }
             } else {
-                // exit immediately if invalid
+                // discard state updates, and exit immediately if invalid
+                pendingAS.revert(asSnapshot);
+                pendingDS.revert(dsSnapshot);
                 return new ProcessTransactionResult(cnt, result.getError());
             }
 
-            tx = delayed.getIfPresent(createKey(tx.getFrom(), getNonce(tx.getFrom())));
+            tx = delayed.getIfPresent(createKey(tx.getFrom(), getPendingNonce(tx.getFrom())));
         }
 
         // Delay the transaction for the next event loop of PendingManager. The delayed
         // transaction is expected to be processed once PendingManager has received all
         // of its preceding transactions from the same address.
-        if (tx != null && tx.getNonce() > getNonce(tx.getFrom())) {
+        if (tx != null && tx.getNonce() > getPendingNonce(tx.getFrom())) {
             delayed.put(createKey(tx), tx);
         }
 
         return new ProcessTransactionResult(cnt);
     }
 
+    /**
+     * Adds a transaction to the pool and its indexes. The caller must hold the
+     * lock of this pending manager.
+     *
+     * @param tx
+     */
+    private void addToPool(PendingTransaction tx) {
+        ByteArray sender = ByteArray.of(tx.transaction.getFrom());
+
+        LinkedList<PendingTransaction> queue = senders.computeIfAbsent(sender, k -> new LinkedList<>());
+        if (!queue.isEmpty()) {
+            tails.remove(queue.getLast());
+        }
+        queue.add(tx);
+        tails.add(tx);
+
+        transactions.add(tx);
+        nonces.put(sender, tx.transaction.getNonce() + 1);
+    }
+
+    /**
+     * Evicts the cheapest transactions at the tail of their sender's queue until
+     * the pool is back to its maximum size. Only the evicted transactions and the
+     * pending transactions depending on them are undone. The caller must hold the
+     * lock of this pending manager.
+     *
+     * @return the number of evicted transactions
+     */
+    private int evict() {
+        Set<ByteArray> affected = new HashSet<>();
+        Set<ByteArray> evicted = new HashSet<>();
+        while (transactions.size() - evicted.size() > TRANSACTIONS_MAX_SIZE && !tails.isEmpty()) {
+            PendingTransaction tx = tails.pollFirst();
+
+            ByteArray sender = ByteArray.of(tx.transaction.getFrom());
+            LinkedList<PendingTransaction> queue = senders.get(sender);
+            queue.removeLast();
+            if (queue.isEmpty()) {
+                senders.remove(sender);
+            } else {
+                tails.add(queue.getLast());
+            }
+
+            affected.add(sender);
+            affected.add(ByteArray.of(tx.transaction.getTo()));
+            evicted.add(ByteArray.of(tx.transaction.getHash()));
+        }
+
+        if (!evicted.isEmpty() && reexecute(affected, evicted) == null) {
+            List<PendingTransaction> txs = resetState();
+            for (PendingTransaction tx : txs) {
+                if (!evicted.contains(ByteArray.of(tx.transaction.getHash()))) {
+                    processTransaction(tx.transaction, false);
+                }
+            }
+        }
+        logger.debug("Evicted {} pending transactions, pool size = {}", evicted.size(), transactions.size());
+
+        return evicted.size();
+    }
+
+    /**
+     * Returns the nonce of an account based on the uncommitted pending state. The
+     * caller must hold the lock of this pending manager.
+     *
+     * @param address
+     * @return
+     */
+    private long getPendingNonce(byte[] address) {
+        return pendingAS.getAccount(address).getNonce();
+    }
+
     private ByteArray createKey(Transaction tx) {
         return ByteArray.of(Bytes.merge(tx.getFrom(), Bytes.of(tx.getNonce())));
     }
@@ -365,6 +899,23 @@ public class PendingManager implements Runnable, BlockchainListener {
         return ByteArray.of(Bytes.merge(acc, Bytes.of(nonce)));
     }
 
+    /**
+     * An immutable view of the transaction pool and the pending nonces.
+     */
+    private static class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyMap());
+
+        final List<PendingTransaction> transactions;
+
+        final Map<ByteArray, Long> nonces;
+
+        Snapshot(List<PendingTransaction> transactions, Map<ByteArray, Long> nonces) {
+            this.transactions = transactions;
+            this.nonces = nonces;
+        }
+    }
+
     /**
      * This object represents a transaction and its execution result against a
      * snapshot of local state that is not yet confirmed by the network.
@@ -381,6 +932,52 @@ public class PendingManager implements Runnable, BlockchainListener {
         }
     }
 
+    /**
+     * This object represents the statistics of a re-evaluation of the pool after
+     * a new block.
+     */
+    public static class ReevaluationStats {
+
+        /**
+         * Whether the whole pool was re-executed.
+         */
+        public final boolean full;
+
+        /**
+         * Time spent, in milliseconds.
+         */
+        public final long time;
+
+        /**
+         * Number of pending transactions included in the block.
+         */
+        public final int included;
+
+        /**
+         * Number of pending transactions re-executed.
+         */
+        public final int reexecuted;
+
+        /**
+         * Number of pending transactions remaining in the pool.
+         */
+        public final int kept;
+
+        /**
+         * Number of pending transactions dropped as invalid.
+         */
+        public final int dropped;
+
+        public ReevaluationStats(boolean full, long time, int included, int reexecuted, int kept, int dropped) {
+            this.full = full;
+            this.time = time;
+            this.included = included;
+            this.reexecuted = reexecuted;
+            this.kept = kept;
+            this.dropped = dropped;
+        }
+    }
+
     /**
      * This object represents the number of accepted transactions and the cause of
      * rejection by ${@link PendingManager}.
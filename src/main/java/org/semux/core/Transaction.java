@@ -126,6 +126,20 @@ public class Transaction {
      * @return true if success, otherwise false
      */
     public boolean validate(Network network) {
+        return validate(network, true);
+    }
+
+    /**
+     * Validate transaction format, and optionally the signature, e.g. when the
+     * signatures of many transactions are verified in a batch with
+     * {@link Key#verifyBatch(java.util.List)}.
+     *
+     * @param network
+     * @param verifySignature
+     *            whether to verify the signature
+     * @return true if success, otherwise false
+     */
+    public boolean validate(Network network, boolean verifySignature) {
         return hash != null && hash.length == Hash.HASH_LEN
                 && networkId == network.id()
                 && type != null
@@ -139,7 +153,7 @@ public class Transaction {
                 && signature != null
 
                 && Arrays.equals(Hash.h256(encoded), hash)
-                && Key.verify(hash, signature)
+                && (!verifySignature || Key.verify(hash, signature))
 
                 // The coinbase key is publicly available. People can use it for transactions.
                 // It won't introduce any fundamental loss to the system but could potentially
@@ -96,4 +96,28 @@ public interface AccountState {
      * Reverts all updates since last snapshot.
      */
     void rollback();
+
+    /**
+     * Returns a marker of the updates made so far, which is cheaper than
+     * {@link #track()} for updates that may need to be undone. The marker is
+     * invalidated by {@link #commit()} and {@link #rollback()}.
+     *
+     * @return
+     */
+    int snapshot();
+
+    /**
+     * Reverts the updates made after a marker returned by {@link #snapshot()}.
+     *
+     * @param snapshot
+     */
+    void revert(int snapshot);
+
+    /**
+     * Reverts the updates of an account since last snapshot, so that it's read
+     * from the underlying state again.
+     *
+     * @param address
+     */
+    void rollback(byte[] address);
 }
@@ -8,15 +8,21 @@ package org.semux.core.state;
 
 import static org.semux.core.Amount.sum;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.semux.core.Amount;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 /**
  * Account state implementation.
  * 
@@ -34,13 +40,30 @@ public class AccountStateImpl implements AccountState {
     protected static final byte TYPE_CODE = 1;
     protected static final byte TYPE_STORAGE = 2;
 
+    private static final int CACHE_SIZE = 64 * 1024;
+
     protected Database accountDB;
+    protected StateTree stateTree;
     protected AccountStateImpl prev;
 
     /**
-     * All updates, or deletes if the value is null.
+     * Decoded accounts updated in this state. The account objects are never
+     * modified once put into the map; an update replaces the object, so the
+     * accounts can be shared with readers and the journal.
+     */
+    protected final Map<ByteArray, Account> updates = new ConcurrentHashMap<>();
+
+    /**
+     * Previous values of the updated accounts, in the order of the updates, for
+     * reverting to a snapshot.
+     */
+    private final List<JournalEntry> journal = new ArrayList<>();
+
+    /**
+     * Committed accounts, only used by the state which works directly on the
+     * database. Missing accounts are not cached.
      */
-    protected final Map<ByteArray, byte[]> updates = new ConcurrentHashMap<>();
+    private final Cache<ByteArray, Account> cache;
 
     /**
      * Create an {@link AccountState} that work directly on a database.
@@ -48,7 +71,21 @@ public class AccountStateImpl implements AccountState {
      * @param accountDB
      */
     public AccountStateImpl(Database accountDB) {
+        this(accountDB, null);
+    }
+
+    /**
+     * Create an {@link AccountState} that work directly on a database, and
+     * reports the committed updates to a state tree.
+     * 
+     * @param accountDB
+     * @param stateTree
+     *            the state tree, or null
+     */
+    public AccountStateImpl(Database accountDB, StateTree stateTree) {
         this.accountDB = accountDB;
+        this.stateTree = stateTree;
+        this.cache = Caffeine.newBuilder().maximumSize(CACHE_SIZE).build();
     }
 
     /**
@@ -58,49 +95,50 @@ public class AccountStateImpl implements AccountState {
      */
     public AccountStateImpl(AccountStateImpl prev) {
         this.prev = prev;
+        this.cache = null;
     }
 
     @Override
     public Account getAccount(byte[] address) {
         ByteArray k = getKey(TYPE_ACCOUNT, address);
-        Amount noAmount = Amount.ZERO;
-
-        if (updates.containsKey(k)) {
-            byte[] v = updates.get(k);
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
-        } else if (prev != null) {
-            return prev.getAccount(address);
-        } else {
-            byte[] v = accountDB.get(k.getData());
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
+
+        // look up the states iteratively, from this one to the root
+        AccountStateImpl state = this;
+        Account acc = state.updates.get(k);
+        while (acc == null && state.prev != null) {
+            state = state.prev;
+            acc = state.updates.get(k);
+        }
+        if (acc == null) {
+            Database db = state.accountDB;
+            acc = state.cache.get(k, key -> {
+                byte[] v = db.get(key.getData());
+                return v == null ? null : Account.fromBytes(address, v);
+            });
         }
+
+        return acc == null ? new Account(address, Amount.ZERO, Amount.ZERO, 0) : acc;
     }
 
     @Override
     public void increaseNonce(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setNonce(acc.getNonce() + 1);
-        updates.put(k, acc.toBytes());
+        update(getKey(TYPE_ACCOUNT, address),
+                new Account(address, acc.getAvailable(), acc.getLocked(), acc.getNonce() + 1));
     }
 
     @Override
     public void adjustAvailable(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setAvailable(sum(acc.getAvailable(), delta));
-        updates.put(k, acc.toBytes());
+        update(getKey(TYPE_ACCOUNT, address),
+                new Account(address, sum(acc.getAvailable(), delta), acc.getLocked(), acc.getNonce()));
     }
 
     @Override
     public void adjustLocked(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
         Account acc = getAccount(address);
-        acc.setLocked(sum(acc.getLocked(), delta));
-        updates.put(k, acc.toBytes());
+        update(getKey(TYPE_ACCOUNT, address),
+                new Account(address, acc.getAvailable(), sum(acc.getLocked(), delta), acc.getNonce()));
     }
 
     @Override
@@ -137,26 +175,87 @@ public class AccountStateImpl implements AccountState {
     public void commit() {
         synchronized (updates) {
             if (prev == null) {
-                for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        accountDB.delete(entry.getKey().getData());
-                    } else {
-                        accountDB.put(entry.getKey().getData(), entry.getValue());
+                for (Entry<ByteArray, Account> e : updates.entrySet()) {
+                    byte[] bytes = e.getValue().toBytes();
+                    accountDB.put(e.getKey().getData(), bytes);
+                    cache.put(e.getKey(), e.getValue());
+                    if (stateTree != null) {
+                        stateTree.update(DatabaseName.ACCOUNT, e.getKey().getData(), bytes);
                     }
                 }
             } else {
-                for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
-                    prev.updates.put(e.getKey(), e.getValue());
+                for (Entry<ByteArray, Account> e : updates.entrySet()) {
+                    prev.update(e.getKey(), e.getValue());
                 }
             }
 
             updates.clear();
+            clearJournal();
         }
     }
 
     @Override
     public void rollback() {
         updates.clear();
+        clearJournal();
+    }
+
+    @Override
+    public void rollback(byte[] address) {
+        updates.remove(getKey(TYPE_ACCOUNT, address));
+        clearJournal();
+    }
+
+    /**
+     * Invalidates the committed accounts cached by the root state, after the
+     * account DB has been modified directly.
+     */
+    public void invalidateCache() {
+        AccountStateImpl root = this;
+        while (root.prev != null) {
+            root = root.prev;
+        }
+        root.cache.invalidateAll();
+    }
+
+    @Override
+    public int snapshot() {
+        synchronized (journal) {
+            return journal.size();
+        }
+    }
+
+    @Override
+    public void revert(int snapshot) {
+        synchronized (journal) {
+            for (int i = journal.size() - 1; i >= snapshot; i--) {
+                JournalEntry e = journal.remove(i);
+                if (e.previous == null) {
+                    updates.remove(e.key);
+                } else {
+                    updates.put(e.key, e.previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces an account in this state, and records the previous one in the
+     * journal.
+     *
+     * @param key
+     * @param acc
+     */
+    private void update(ByteArray key, Account acc) {
+        synchronized (journal) {
+            journal.add(new JournalEntry(key, updates.put(key, acc)));
+        }
+    }
+
+    private void clearJournal() {
+        synchronized (journal) {
+            journal.clear();
+        }
     }
 
     protected ByteArray getKey(byte type, byte[] address) {
@@ -171,4 +270,17 @@ public class AccountStateImpl implements AccountState {
 
         return ByteArray.of(buf);
     }
+
+    /**
+     * An update of the journal.
+     */
+    private static class JournalEntry {
+        private final ByteArray key;
+        private final Account previous;
+
+        JournalEntry(ByteArray key, Account previous) {
+            this.key = key;
+            this.previous = previous;
+        }
+    }
 }
@@ -88,12 +88,21 @@ public interface DelegateState {
     Delegate getDelegateByAddress(byte[] address);
 
     /**
-     * Returns all delegates.
+     * Returns all delegates, sorted by votes.
      * 
      * @return
      */
     List<Delegate> getDelegates();
 
+    /**
+     * Returns the top delegates, sorted by votes.
+     *
+     * @param limit
+     *            the maximum number of delegates to return
+     * @return
+     */
+    List<Delegate> getDelegates(int limit);
+
     /**
      * Returns a snapshot and starts tracking updates.
      */
@@ -108,4 +117,20 @@ public interface DelegateState {
      * Reverts all updates since last snapshot.
      */
     void rollback();
+
+    /**
+     * Returns a marker of the updates made so far, which is cheaper than
+     * {@link #track()} for updates that may need to be undone. The marker is
+     * invalidated by {@link #commit()} and {@link #rollback()}.
+     *
+     * @return
+     */
+    int snapshot();
+
+    /**
+     * Reverts the updates made after a marker returned by {@link #snapshot()}.
+     *
+     * @param snapshot
+     */
+    void revert(int snapshot);
 }
@@ -12,16 +12,18 @@ import static org.semux.core.Amount.sum;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
@@ -51,9 +53,18 @@ public class DelegateStateImpl implements DelegateState {
 
     private static final int ADDRESS_LEN = 20;
 
+    /**
+     * Delegates with more votes go first; ties are broken by name.
+     */
+    private static final Comparator<Delegate> RANKING = (d1, d2) -> {
+        int cmp = d2.getVotes().compareTo(d1.getVotes());
+        return (cmp != 0) ? cmp : d1.getNameString().compareTo(d2.getNameString());
+    };
+
     protected Blockchain chain;
     protected Database delegateDB;
     protected Database voteDB;
+    protected StateTree stateTree;
     protected DelegateStateImpl prev;
 
     /**
@@ -66,6 +77,25 @@ public class DelegateStateImpl implements DelegateState {
      */
     protected final Map<ByteArray, byte[]> voteUpdates = new ConcurrentHashMap<>();
 
+    /**
+     * Previous values of the updated entries, in the order of the updates, for
+     * reverting to a snapshot.
+     */
+    private final List<JournalEntry> journal = new ArrayList<>();
+
+    /**
+     * Committed delegates ordered by {@link #RANKING}, lazily loaded from the
+     * delegate DB and maintained on commit. Only used by the root state.
+     */
+    private TreeSet<Delegate> ranking;
+
+    /**
+     * Committed delegates of {@link #ranking}, indexed by address.
+     */
+    private Map<ByteArray, Delegate> rankingIndex;
+
+    private final Object rankingLock = new Object();
+
     /**
      * Create a DelegateState that work directly on a database.
      * 
@@ -73,9 +103,23 @@ public class DelegateStateImpl implements DelegateState {
      * @param voteDB
      */
     public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB) {
+        this(chain, delegateDB, voteDB, null);
+    }
+
+    /**
+     * Create a DelegateState that work directly on a database, and reports the
+     * committed updates to a state tree.
+     * 
+     * @param delegateDB
+     * @param voteDB
+     * @param stateTree
+     *            the state tree, or null
+     */
+    public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB, StateTree stateTree) {
         this.chain = chain;
         this.delegateDB = delegateDB;
         this.voteDB = voteDB;
+        this.stateTree = stateTree;
     }
 
     /**
@@ -94,8 +138,8 @@ public class DelegateStateImpl implements DelegateState {
             return false;
         } else {
             Delegate d = new Delegate(address, name, registeredAt, ZERO);
-            delegateUpdates.put(ByteArray.of(name), address);
-            delegateUpdates.put(ByteArray.of(address), d.toBytes());
+            update(delegateUpdates, ByteArray.of(name), address);
+            update(delegateUpdates, ByteArray.of(address), d.toBytes());
 
             return true;
         }
@@ -115,9 +159,9 @@ public class DelegateStateImpl implements DelegateState {
         if (d == null) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(sum(value, v)));
+            update(voteUpdates, key, encodeAmount(sum(value, v)));
             d.setVotes(sum(d.getVotes(), v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            update(delegateUpdates, ByteArray.of(delegate), d.toBytes());
             return true;
         }
     }
@@ -130,11 +174,11 @@ public class DelegateStateImpl implements DelegateState {
         if (v.gt(value)) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(sub(value, v)));
+            update(voteUpdates, key, encodeAmount(sub(value, v)));
 
             Delegate d = getDelegateByAddress(delegate);
             d.setVotes(sub(d.getVotes(), v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            update(delegateUpdates, ByteArray.of(delegate), d.toBytes());
 
             return true;
         }
@@ -147,48 +191,62 @@ public class DelegateStateImpl implements DelegateState {
 
     @Override
     public Delegate getDelegateByName(byte[] name) {
-        ByteArray k = ByteArray.of(name);
-
-        if (delegateUpdates.containsKey(k)) {
-            byte[] v = delegateUpdates.get(k);
-            return v == null ? null : getDelegateByAddress(v);
-        } else if (prev != null) {
-            return prev.getDelegateByName(name);
-        } else {
-            byte[] v = delegateDB.get(k.getData());
-            return v == null ? null : getDelegateByAddress(v);
-        }
+        byte[] v = getDelegateValue(ByteArray.of(name));
+        return v == null ? null : getDelegateByAddress(v);
     }
 
     @Override
     public Delegate getDelegateByAddress(byte[] address) {
-        ByteArray k = ByteArray.of(address);
-
-        if (delegateUpdates.containsKey(k)) {
-            byte[] v = delegateUpdates.get(k);
-            return v == null ? null : Delegate.fromBytes(k.getData(), v);
-        } else if (prev != null) {
-            return prev.getDelegateByAddress(address);
-        } else {
-            byte[] v = delegateDB.get(k.getData());
-            return v == null ? null : Delegate.fromBytes(k.getData(), v);
-        }
+        byte[] v = getDelegateValue(ByteArray.of(address));
+        return v == null ? null : Delegate.fromBytes(address, v);
     }
 
     @Override
     public List<Delegate> getDelegates() {
+        return getDelegates(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Delegate> getDelegates(int limit) {
         long t1 = System.nanoTime();
 
-        // traverse all cached update, all the way to database.
-        Map<ByteArray, Delegate> map = new HashMap<>();
-        getDelegates(map);
+        // collect all cached updates, all the way to the root state
+        Map<ByteArray, Delegate> updates = new HashMap<>();
+        getDelegates(updates);
 
-        // sort the results
-        List<Delegate> list = new ArrayList<>(map.values());
-        list.sort((d1, d2) -> {
-            int cmp = d2.getVotes().compareTo(d1.getVotes());
-            return (cmp != 0) ? cmp : d1.getNameString().compareTo(d2.getNameString());
-        });
+        List<Delegate> changed = new ArrayList<>();
+        for (Delegate d : updates.values()) {
+            if (d != null) {
+                changed.add(d);
+            }
+        }
+        changed.sort(RANKING);
+
+        // merge the updates into the committed ranking
+        List<Delegate> list = new ArrayList<>();
+        DelegateStateImpl root = getRoot();
+        synchronized (root.rankingLock) {
+            root.loadRanking();
+
+            int i = 0;
+            for (Delegate d : root.ranking) {
+                if (list.size() >= limit) {
+                    break;
+                }
+                if (updates.containsKey(ByteArray.of(d.getAddress()))) {
+                    continue;
+                }
+                while (i < changed.size() && list.size() < limit && RANKING.compare(changed.get(i), d) < 0) {
+                    list.add(changed.get(i++));
+                }
+                if (list.size() < limit) {
+                    list.add(d);
+                }
+            }
+            while (i < changed.size() && list.size() < limit) {
+                list.add(changed.get(i++));
+            }
+        }
 
         long t2 = System.nanoTime();
         logger.trace("Get delegates duration: {} μs", (t2 - t1) / 1000L);
@@ -210,10 +268,14 @@ public class DelegateStateImpl implements DelegateState {
                     } else {
                         delegateDB.put(entry.getKey().getData(), entry.getValue());
                     }
+                    if (stateTree != null) {
+                        stateTree.update(DatabaseName.DELEGATE, entry.getKey().getData(), entry.getValue());
+                    }
                 }
+                updateRanking(delegateUpdates);
             } else {
                 for (Entry<ByteArray, byte[]> e : delegateUpdates.entrySet()) {
-                    prev.delegateUpdates.put(e.getKey(), e.getValue());
+                    prev.update(prev.delegateUpdates, e.getKey(), e.getValue());
                 }
             }
 
@@ -228,25 +290,64 @@ public class DelegateStateImpl implements DelegateState {
                     } else {
                         voteDB.put(entry.getKey().getData(), entry.getValue());
                     }
+                    if (stateTree != null) {
+                        stateTree.update(DatabaseName.VOTE, entry.getKey().getData(), entry.getValue());
+                    }
                 }
             } else {
                 for (Entry<ByteArray, byte[]> e : voteUpdates.entrySet()) {
-                    prev.voteUpdates.put(e.getKey(), e.getValue());
+                    prev.update(prev.voteUpdates, e.getKey(), e.getValue());
                 }
             }
 
             voteUpdates.clear();
         }
+
+        clearJournal();
     }
 
     @Override
     public void rollback() {
         delegateUpdates.clear();
         voteUpdates.clear();
+        clearJournal();
+    }
+
+    @Override
+    public int snapshot() {
+        synchronized (journal) {
+            return journal.size();
+        }
+    }
+
+    @Override
+    public void revert(int snapshot) {
+        synchronized (journal) {
+            for (int i = journal.size() - 1; i >= snapshot; i--) {
+                JournalEntry e = journal.remove(i);
+                if (e.previous == null) {
+                    e.map.remove(e.key);
+                } else {
+                    e.map.put(e.key, e.previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates the committed delegate ranking, which will be reloaded from the
+     * delegate DB when needed.
+     */
+    public void invalidateRanking() {
+        DelegateStateImpl root = getRoot();
+        synchronized (root.rankingLock) {
+            root.ranking = null;
+            root.rankingIndex = null;
+        }
     }
 
     /**
-     * Recursively compute the delegates.
+     * Recursively collects the delegate updates which have not been committed.
      * 
      * @param map
      */
@@ -264,18 +365,72 @@ public class DelegateStateImpl implements DelegateState {
 
         if (prev != null) {
             prev.getDelegates(map);
-        } else {
-            ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
-            while (itr.hasNext()) {
-                Entry<byte[], byte[]> entry = itr.next();
-                ByteArray k = ByteArray.of(entry.getKey());
-                byte[] v = entry.getValue();
-
-                if (k.length() == ADDRESS_LEN && !map.containsKey(k)) {
-                    map.put(k, Delegate.fromBytes(k.getData(), v));
+        }
+    }
+
+    /**
+     * Returns the state which works directly on the database.
+     *
+     * @return
+     */
+    protected DelegateStateImpl getRoot() {
+        DelegateStateImpl root = this;
+        while (root.prev != null) {
+            root = root.prev;
+        }
+        return root;
+    }
+
+    /**
+     * Loads the committed delegate ranking from database if not loaded yet. The
+     * caller must hold {@link #rankingLock}.
+     */
+    private void loadRanking() {
+        if (ranking != null) {
+            return;
+        }
+
+        ranking = new TreeSet<>(RANKING);
+        rankingIndex = new HashMap<>();
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
+        while (itr.hasNext()) {
+            Entry<byte[], byte[]> entry = itr.next();
+            if (entry.getKey().length == ADDRESS_LEN) {
+                Delegate d = Delegate.fromBytes(entry.getKey(), entry.getValue());
+                ranking.add(d);
+                rankingIndex.put(ByteArray.of(entry.getKey()), d);
+            }
+        }
+        itr.close();
+    }
+
+    /**
+     * Applies committed delegate updates to the ranking, if loaded.
+     *
+     * @param updates
+     */
+    private void updateRanking(Map<ByteArray, byte[]> updates) {
+        synchronized (rankingLock) {
+            if (ranking == null) {
+                return;
+            }
+
+            for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
+                if (entry.getKey().length() != ADDRESS_LEN) {
+                    continue;
+                }
+
+                Delegate old = rankingIndex.remove(entry.getKey());
+                if (old != null) {
+                    ranking.remove(old);
+                }
+                if (entry.getValue() != null) {
+                    Delegate d = Delegate.fromBytes(entry.getKey().getData(), entry.getValue());
+                    ranking.add(d);
+                    rankingIndex.put(entry.getKey(), d);
                 }
             }
-            itr.close();
         }
     }
 
@@ -287,16 +442,52 @@ public class DelegateStateImpl implements DelegateState {
      * @return
      */
     protected Amount getVote(ByteArray key) {
-        if (voteUpdates.containsKey(key)) {
-            byte[] bytes = voteUpdates.get(key);
-            return decodeAmount(bytes);
+        DelegateStateImpl state = this;
+        byte[] v = state.voteUpdates.get(key);
+        while (v == null && state.prev != null) {
+            state = state.prev;
+            v = state.voteUpdates.get(key);
         }
 
-        if (prev != null) {
-            return prev.getVote(key);
-        } else {
-            byte[] bytes = voteDB.get(key.getData());
-            return decodeAmount(bytes);
+        return decodeAmount(v == null ? state.voteDB.get(key.getData()) : v);
+    }
+
+    /**
+     * Returns the delegate entry of a name or an address, looking up the states
+     * iteratively from this one to the root.
+     *
+     * @param key
+     * @return
+     */
+    private byte[] getDelegateValue(ByteArray key) {
+        DelegateStateImpl state = this;
+        byte[] v = state.delegateUpdates.get(key);
+        while (v == null && state.prev != null) {
+            state = state.prev;
+            v = state.delegateUpdates.get(key);
+        }
+
+        return v == null ? state.delegateDB.get(key.getData()) : v;
+    }
+
+    /**
+     * Updates an entry of this state, and records the previous value in the
+     * journal.
+     *
+     * @param map
+     *            {@link #delegateUpdates} or {@link #voteUpdates}
+     * @param key
+     * @param value
+     */
+    private void update(Map<ByteArray, byte[]> map, ByteArray key, byte[] value) {
+        synchronized (journal) {
+            journal.add(new JournalEntry(map, key, map.put(key, value)));
+        }
+    }
+
+    private void clearJournal() {
+        synchronized (journal) {
+            journal.clear();
         }
     }
 
@@ -304,19 +495,16 @@ public class DelegateStateImpl implements DelegateState {
     public Map<ByteArray, Amount> getVotes(byte[] delegate) {
         Map<ByteArray, Amount> result = new HashMap<>();
 
-        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.iterator(delegate);
-        while (itr.hasNext()) {
-            Entry<byte[], byte[]> e = itr.next();
-            byte[] d = Arrays.copyOf(e.getKey(), 20);
-            byte[] v = Arrays.copyOfRange(e.getKey(), 20, 40);
-
-            if (!Arrays.equals(delegate, d)) {
-                break;
-            } else if (Bytes.toLong(e.getValue()) != 0) {
-                result.put(ByteArray.of(v), decodeAmount(e.getValue()));
+        voteDB.scan(delegate, (key, value) -> {
+            long nano = value.getLong(value.position());
+            if (nano != 0) {
+                byte[] voter = new byte[key.remaining() - delegate.length];
+                key.position(key.position() + delegate.length);
+                key.get(voter);
+                result.put(ByteArray.of(voter), NANO_SEM.of(nano));
             }
-        }
-        itr.close();
+            return true;
+        });
 
         return result;
     }
@@ -328,4 +516,19 @@ public class DelegateStateImpl implements DelegateState {
     protected Amount decodeAmount(byte[] bs) {
         return bs == null ? ZERO : NANO_SEM.of(Bytes.toLong(bs));
     }
+
+    /**
+     * An update of the journal.
+     */
+    private static class JournalEntry {
+        private final Map<ByteArray, byte[]> map;
+        private final ByteArray key;
+        private final byte[] previous;
+
+        JournalEntry(Map<ByteArray, byte[]> map, ByteArray key, byte[] previous) {
+            this.map = map;
+            this.key = key;
+            this.previous = previous;
+        }
+    }
 }
@@ -0,0 +1,639 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.crypto.Hash;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Authenticated structure over the account, delegate and vote databases, which
+ * commits to the whole state with a single root hash.
+ * <p>
+ * Every entry of the state databases is a leaf, identified by the hash of its
+ * database tag and key. The leaves are grouped into 2^{@value #DEPTH} buckets by
+ * the first bits of their identifiers, and the buckets are the leaves of a
+ * binary Merkle tree of fixed depth:
+ *
+ * <pre>
+ * leaf id     = h256(tag, key)
+ * leaf hash   = h256(leaf id, value)
+ * bucket hash = h256(leaf id 1, leaf hash 1, ..., leaf id n, leaf hash n), in order of ids
+ * node hash   = h256(left, right)
+ * </pre>
+ *
+ * Empty buckets and nodes with two empty children hash to
+ * {@link Bytes#EMPTY_HASH}. The inner nodes are kept in memory, so an update
+ * only rehashes the changed buckets and their paths to the root, once per
+ * block.
+ * <p>
+ * The subtrees at a level of the tree split the state into chunks, which can be
+ * transferred and verified one by one against the root, see
+ * {@link #getNodes(int)}, {@link #getKeys(int, int)} and
+ * {@link #hashChunk(int, int, List)}.
+ *
+ * <pre>
+ * state DB structure:
+ *
+ * [0, leaf_id] => [leaf_hash, tag, key]
+ * [1, bucket] => [bucket_hash]
+ * [2, block_number] => [state_root]
+ * </pre>
+ */
+public class StateTree {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateTree.class);
+
+    /**
+     * Depth of the tree above the buckets.
+     */
+    public static final int DEPTH = 16;
+
+    private static final int BUCKETS = 1 << DEPTH;
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final byte TYPE_LEAF = 0;
+    private static final byte TYPE_BUCKET = 1;
+    private static final byte TYPE_ROOT = 2;
+
+    private final Database stateDB;
+
+    /**
+     * Hashes of the tree, in heap order: the root is at 1, the children of node
+     * i are at 2i and 2i + 1, and the buckets start at {@link #BUCKETS}.
+     */
+    private final byte[][] nodes = new byte[2 * BUCKETS][];
+
+    /**
+     * Leaf records updated since the last commit, or null if removed.
+     */
+    private final Map<ByteArray, byte[]> pending = new HashMap<>();
+
+    /**
+     * Opens the state tree stored in a database.
+     *
+     * @param stateDB
+     */
+    public StateTree(Database stateDB) {
+        this.stateDB = stateDB;
+        load();
+    }
+
+    /**
+     * Records an update of a state database, to be applied on the next
+     * {@link #commit(long)}.
+     *
+     * @param db
+     *            the database
+     * @param key
+     *            the database key
+     * @param value
+     *            the new value, or null if deleted
+     */
+    public synchronized void update(DatabaseName db, byte[] key, byte[] value) {
+        byte[] id = leafId(db, key);
+        pending.put(ByteArray.of(id), value == null ? null : leafRecord(db, key, id, value));
+    }
+
+    /**
+     * Applies the pending updates, rehashes the changed buckets and records the
+     * new root as the state root of a block.
+     *
+     * @param number
+     *            the block number
+     * @return the new root
+     */
+    public synchronized byte[] commit(long number) {
+        byte[] root = commit();
+        stateDB.put(Bytes.merge(TYPE_ROOT, Bytes.of(number)), root);
+        return root;
+    }
+
+    /**
+     * Applies the pending updates without recording a state root, which is for
+     * state that does not belong to a block yet.
+     *
+     * @return the new root
+     */
+    public synchronized byte[] commit() {
+        BitSet dirty = new BitSet(BUCKETS);
+        for (Entry<ByteArray, byte[]> e : pending.entrySet()) {
+            byte[] id = e.getKey().getData();
+            if (e.getValue() == null) {
+                stateDB.delete(Bytes.merge(TYPE_LEAF, id));
+            } else {
+                stateDB.put(Bytes.merge(TYPE_LEAF, id), e.getValue());
+            }
+            dirty.set(bucketOf(id));
+        }
+        pending.clear();
+
+        for (int b = dirty.nextSetBit(0); b >= 0; b = dirty.nextSetBit(b + 1)) {
+            setBucket(b, hashBucket(readBucket(b)));
+        }
+        rehash(dirty);
+
+        return getRoot();
+    }
+
+    /**
+     * Returns the current root, which does not include the pending updates.
+     *
+     * @return
+     */
+    public synchronized byte[] getRoot() {
+        return nodes[1];
+    }
+
+    /**
+     * Returns the state root recorded for a block.
+     *
+     * @param number
+     * @return the root, or null if not recorded
+     */
+    public byte[] getRoot(long number) {
+        return stateDB.get(Bytes.merge(TYPE_ROOT, Bytes.of(number)));
+    }
+
+    /**
+     * Reloads the tree from the database, discarding the pending updates. This
+     * is needed after the database rolls back a write session.
+     */
+    public synchronized void load() {
+        pending.clear();
+        Arrays.fill(nodes, Bytes.EMPTY_HASH);
+
+        stateDB.scan(Bytes.of(TYPE_BUCKET), (key, value) -> {
+            int b = key.getShort(key.position() + 1) & 0xffff;
+            byte[] hash = new byte[value.remaining()];
+            value.get(hash);
+            nodes[BUCKETS + b] = hash;
+            return true;
+        });
+
+        BitSet all = new BitSet(BUCKETS);
+        all.set(0, BUCKETS);
+        rehash(all);
+    }
+
+    /**
+     * Rebuilds the tree from the state databases, and records the root as the
+     * state root of a block. This is for databases created before the state
+     * tree, and expects an empty state tree.
+     *
+     * @param accountDB
+     * @param delegateDB
+     * @param voteDB
+     * @param number
+     *            the latest block number
+     * @return the root
+     */
+    public synchronized byte[] rebuild(Database accountDB, Database delegateDB, Database voteDB, long number) {
+        long t1 = System.currentTimeMillis();
+
+        // write the leaves
+        long n = 0;
+        n += insertLeaves(DatabaseName.ACCOUNT, accountDB);
+        n += insertLeaves(DatabaseName.DELEGATE, delegateDB);
+        n += insertLeaves(DatabaseName.VOTE, voteDB);
+
+        // hash all buckets in one pass over the leaves, which are sorted by id
+        List<byte[]> entries = new ArrayList<>();
+        int[] bucket = { -1 };
+        stateDB.scan(Bytes.of(TYPE_LEAF), (key, value) -> {
+            int b = key.getShort(key.position() + 1) & 0xffff;
+            if (b != bucket[0]) {
+                if (bucket[0] >= 0) {
+                    setBucket(bucket[0], hashBucket(entries));
+                }
+                entries.clear();
+                bucket[0] = b;
+            }
+            entries.add(readEntry(key, value));
+            return true;
+        });
+        if (bucket[0] >= 0) {
+            setBucket(bucket[0], hashBucket(entries));
+        }
+
+        BitSet all = new BitSet(BUCKETS);
+        all.set(0, BUCKETS);
+        rehash(all);
+
+        byte[] root = getRoot();
+        stateDB.put(Bytes.merge(TYPE_ROOT, Bytes.of(number)), root);
+
+        long t2 = System.currentTimeMillis();
+        logger.info("Rebuilt the state tree: # leaves = {}, time = {} ms", n, t2 - t1);
+        return root;
+    }
+
+    /**
+     * Returns the proof of an entry of a state database, or of its absence,
+     * against the current root.
+     *
+     * @param db
+     * @param key
+     * @return
+     */
+    public synchronized Proof getProof(DatabaseName db, byte[] key) {
+        int b = bucketOf(leafId(db, key));
+
+        List<byte[]> siblings = new ArrayList<>(DEPTH);
+        for (int i = BUCKETS + b; i > 1; i >>= 1) {
+            siblings.add(nodes[i ^ 1]);
+        }
+
+        return new Proof(readBucket(b), siblings);
+    }
+
+    /**
+     * Verifies the proof of an entry of a state database.
+     *
+     * @param root
+     *            the state root
+     * @param db
+     *            the database
+     * @param key
+     *            the database key
+     * @param value
+     *            the value to prove, or null to prove the absence of the key
+     * @param proof
+     * @return
+     */
+    public static boolean verify(byte[] root, DatabaseName db, byte[] key, byte[] value, Proof proof) {
+        List<byte[]> bucket = proof.getBucket();
+        List<byte[]> siblings = proof.getSiblings();
+        if (siblings.size() != DEPTH) {
+            return false;
+        }
+
+        byte[] id = leafId(db, key);
+        int b = bucketOf(id);
+        byte[] found = null;
+        ByteArray last = null;
+        for (byte[] entry : bucket) {
+            ByteArray entryId = ByteArray.of(Arrays.copyOf(entry, Hash.HASH_LEN));
+            if (entry.length != 2 * Hash.HASH_LEN || bucketOf(entryId.getData()) != b
+                    || (last != null && last.compareTo(entryId) >= 0)) {
+                return false;
+            }
+            if (Arrays.equals(id, entryId.getData())) {
+                found = Arrays.copyOfRange(entry, Hash.HASH_LEN, entry.length);
+            }
+            last = entryId;
+        }
+        if (value == null ? found != null : (found == null || !Arrays.equals(found, Hash.h256(id, value)))) {
+            return false;
+        }
+
+        byte[] hash = hashBucket(bucket);
+        int i = BUCKETS + b;
+        for (byte[] sibling : siblings) {
+            hash = ((i & 1) == 0) ? hashNode(hash, sibling) : hashNode(sibling, hash);
+            i >>= 1;
+        }
+
+        return Arrays.equals(root, hash);
+    }
+
+    /**
+     * Returns the hashes of the nodes at a level of the tree, which are the roots
+     * of the chunks at that level.
+     *
+     * @param level
+     *            the level, from 0 for the root to {@link #DEPTH} for the
+     *            buckets
+     * @return
+     */
+    public synchronized List<byte[]> getNodes(int level) {
+        checkLevel(level);
+        return new ArrayList<>(Arrays.asList(nodes).subList(1 << level, 2 << level));
+    }
+
+    /**
+     * Returns the keys of the state entries in a chunk, sorted by leaf id.
+     *
+     * @param level
+     *            the level of the chunk
+     * @param index
+     *            the index of the chunk at that level
+     * @return the list of [database, key]
+     */
+    public List<Pair<DatabaseName, byte[]>> getKeys(int level, int index) {
+        checkLevel(level);
+        int from = index << (DEPTH - level);
+        int to = (index + 1) << (DEPTH - level);
+
+        List<Pair<DatabaseName, byte[]>> keys = new ArrayList<>();
+        stateDB.scan(Bytes.merge(TYPE_LEAF, Bytes.of((short) from)),
+                to == BUCKETS ? Bytes.of(TYPE_BUCKET) : Bytes.merge(TYPE_LEAF, Bytes.of((short) to)),
+                Integer.MAX_VALUE, false, (key, value) -> {
+                    value.position(value.position() + Hash.HASH_LEN);
+                    DatabaseName db = dbOf(value.get());
+                    byte[] k = new byte[value.remaining()];
+                    value.get(k);
+                    keys.add(Pair.of(db, k));
+                    return true;
+                });
+        return keys;
+    }
+
+    /**
+     * Computes the root of a full level of the tree.
+     *
+     * @param hashes
+     *            the hashes of the nodes at the level, see {@link #getNodes(int)}
+     * @return the root, or null if the number of hashes is not a power of two
+     */
+    public static byte[] hashLevel(List<byte[]> hashes) {
+        int n = hashes.size();
+        if (n == 0 || n > BUCKETS || (n & (n - 1)) != 0) {
+            return null;
+        }
+
+        byte[][] level = hashes.toArray(new byte[0][]);
+        for (; n > 1; n >>= 1) {
+            for (int i = 0; i < n / 2; i++) {
+                level[i] = hashNode(level[2 * i], level[2 * i + 1]);
+            }
+        }
+        return level[0];
+    }
+
+    /**
+     * Computes the root of a chunk from its state entries.
+     *
+     * @param level
+     *            the level of the chunk
+     * @param index
+     *            the index of the chunk at that level
+     * @param leaves
+     *            the state entries of the chunk
+     * @return the root, or null if an entry does not belong to the chunk or is
+     *         duplicated
+     */
+    public static byte[] hashChunk(int level, int index, List<Leaf> leaves) {
+        checkLevel(level);
+        int size = 1 << (DEPTH - level);
+        int from = index * size;
+
+        // group the entries by bucket, in order of leaf ids
+        List<byte[]> records = new ArrayList<>(leaves.size());
+        for (Leaf leaf : leaves) {
+            byte[] id = leafId(leaf.getDb(), leaf.getKey());
+            int b = bucketOf(id);
+            if (b < from || b >= from + size) {
+                return null;
+            }
+            records.add(Bytes.merge(id, Hash.h256(id, leaf.getValue())));
+        }
+        records.sort((a, b) -> ByteArray.of(Arrays.copyOf(a, Hash.HASH_LEN))
+                .compareTo(ByteArray.of(Arrays.copyOf(b, Hash.HASH_LEN))));
+
+        List<List<byte[]>> buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        byte[] last = null;
+        for (byte[] record : records) {
+            byte[] id = Arrays.copyOf(record, Hash.HASH_LEN);
+            if (Arrays.equals(id, last)) {
+                return null;
+            }
+            buckets.get(bucketOf(id) - from).add(record);
+            last = id;
+        }
+
+        List<byte[]> hashes = new ArrayList<>(size);
+        for (List<byte[]> bucket : buckets) {
+            hashes.add(hashBucket(bucket));
+        }
+        return hashLevel(hashes);
+    }
+
+    private long insertLeaves(DatabaseName db, Database source) {
+        List<Pair<byte[], byte[]>> leaves = new ArrayList<>();
+        long[] n = { 0 };
+        source.scan(null, null, Integer.MAX_VALUE, false, (key, value) -> {
+            byte[] k = new byte[key.remaining()];
+            key.get(k);
+            byte[] v = new byte[value.remaining()];
+            value.get(v);
+
+            byte[] id = leafId(db, k);
+            leaves.add(Pair.of(Bytes.merge(TYPE_LEAF, id), leafRecord(db, k, id, v)));
+            if (leaves.size() >= BATCH_SIZE) {
+                stateDB.updateBatch(leaves);
+                leaves.clear();
+            }
+            n[0]++;
+            return true;
+        });
+        stateDB.updateBatch(leaves);
+
+        return n[0];
+    }
+
+    /**
+     * Reads the entries of a bucket, sorted by leaf id.
+     *
+     * @param b
+     * @return the list of [leaf_id, leaf_hash]
+     */
+    private List<byte[]> readBucket(int b) {
+        List<byte[]> entries = new ArrayList<>();
+        stateDB.scan(Bytes.merge(TYPE_LEAF, Bytes.of((short) b)), (key, value) -> entries.add(readEntry(key, value)));
+        return entries;
+    }
+
+    private static byte[] leafRecord(DatabaseName db, byte[] key, byte[] id, byte[] value) {
+        return Bytes.merge(Hash.h256(id, value), Bytes.merge(tagOf(db), key));
+    }
+
+    private static byte[] readEntry(ByteBuffer key, ByteBuffer value) {
+        byte[] entry = new byte[2 * Hash.HASH_LEN];
+        key.position(key.position() + 1);
+        key.get(entry, 0, Hash.HASH_LEN);
+        value.get(entry, Hash.HASH_LEN, Hash.HASH_LEN);
+        return entry;
+    }
+
+    private void setBucket(int b, byte[] hash) {
+        nodes[BUCKETS + b] = hash;
+        if (hash == Bytes.EMPTY_HASH) {
+            stateDB.delete(Bytes.merge(TYPE_BUCKET, Bytes.of((short) b)));
+        } else {
+            stateDB.put(Bytes.merge(TYPE_BUCKET, Bytes.of((short) b)), hash);
+        }
+    }
+
+    /**
+     * Recomputes the paths from the given buckets to the root, level by level.
+     *
+     * @param buckets
+     */
+    private void rehash(BitSet buckets) {
+        BitSet level = buckets;
+        int offset = BUCKETS;
+        while (offset > 1) {
+            BitSet parents = new BitSet(offset / 2);
+            for (int i = level.nextSetBit(0); i >= 0; i = level.nextSetBit(i + 1)) {
+                parents.set(i >> 1);
+            }
+
+            offset >>= 1;
+            for (int i = parents.nextSetBit(0); i >= 0; i = parents.nextSetBit(i + 1)) {
+                int node = offset + i;
+                nodes[node] = hashNode(nodes[2 * node], nodes[2 * node + 1]);
+            }
+            level = parents;
+        }
+    }
+
+    private static byte[] hashBucket(List<byte[]> entries) {
+        return entries.isEmpty() ? Bytes.EMPTY_HASH : Hash.h256(entries.toArray(new byte[0][]));
+    }
+
+    private static byte[] hashNode(byte[] left, byte[] right) {
+        if (Arrays.equals(left, Bytes.EMPTY_HASH) && Arrays.equals(right, Bytes.EMPTY_HASH)) {
+            return Bytes.EMPTY_HASH;
+        }
+        return Hash.h256(left, right);
+    }
+
+    private static byte[] leafId(DatabaseName db, byte[] key) {
+        return Hash.h256(Bytes.of(tagOf(db)), key);
+    }
+
+    private static byte tagOf(DatabaseName db) {
+        switch (db) {
+        case ACCOUNT:
+            return 0;
+        case DELEGATE:
+            return 1;
+        case VOTE:
+            return 2;
+        default:
+            throw new IllegalArgumentException("Not a state database: " + db);
+        }
+    }
+
+    private static DatabaseName dbOf(byte tag) {
+        switch (tag) {
+        case 0:
+            return DatabaseName.ACCOUNT;
+        case 1:
+            return DatabaseName.DELEGATE;
+        case 2:
+            return DatabaseName.VOTE;
+        default:
+            throw new IllegalArgumentException("Invalid state database tag: " + tag);
+        }
+    }
+
+    private static void checkLevel(int level) {
+        if (level < 0 || level > DEPTH) {
+            throw new IllegalArgumentException("Invalid level: " + level);
+        }
+    }
+
+    private static int bucketOf(byte[] id) {
+        return ((id[0] & 0xff) << 8) | (id[1] & 0xff);
+    }
+
+    /**
+     * Proof of an entry of the state, or of its absence.
+     */
+    public static class Proof {
+        private final List<byte[]> bucket;
+        private final List<byte[]> siblings;
+
+        public Proof(List<byte[]> bucket, List<byte[]> siblings) {
+            this.bucket = Collections.unmodifiableList(bucket);
+            this.siblings = Collections.unmodifiableList(siblings);
+        }
+
+        /**
+         * Returns the entries of the bucket of the leaf, as [leaf_id, leaf_hash].
+         *
+         * @return
+         */
+        public List<byte[]> getBucket() {
+            return bucket;
+        }
+
+        /**
+         * Returns the sibling hashes on the path from the bucket to the root.
+         *
+         * @return
+         */
+        public List<byte[]> getSiblings() {
+            return siblings;
+        }
+    }
+
+    /**
+     * Entry of a state database.
+     */
+    public static class Leaf {
+        private final DatabaseName db;
+        private final byte[] key;
+        private final byte[] value;
+
+        public Leaf(DatabaseName db, byte[] key, byte[] value) {
+            this.db = db;
+            this.key = key;
+            this.value = value;
+        }
+
+        public DatabaseName getDb() {
+            return db;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public byte[] toBytes() {
+            SimpleEncoder enc = new SimpleEncoder();
+            enc.writeByte(tagOf(db));
+            enc.writeBytes(key);
+            enc.writeBytes(value);
+            return enc.toBytes();
+        }
+
+        public static Leaf fromBytes(byte[] bytes) {
+            SimpleDecoder dec = new SimpleDecoder(bytes);
+            DatabaseName db = dbOf(dec.readByte());
+            byte[] key = dec.readBytes();
+            byte[] value = dec.readBytes();
+            return new Leaf(db, key, value);
+        }
+    }
+}
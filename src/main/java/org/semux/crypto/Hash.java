@@ -6,6 +6,7 @@
  */
 package org.semux.crypto;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.Security;
 
@@ -24,6 +25,22 @@ public class Hash {
 
     public static final int HASH_LEN = 32;
 
+    public static final int H160_LEN = 20;
+
+    /**
+     * Digest instances are reused by each thread, which saves the provider lookup
+     * and the allocations of {@link MessageDigest#getInstance(String)}.
+     */
+    private static final ThreadLocal<MessageDigest> h256Digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(Constants.HASH_ALGORITHM);
+        } catch (Exception e) {
+            throw new CryptoException(e);
+        }
+    });
+    private static final ThreadLocal<RIPEMD160Digest> h160Digest = ThreadLocal.withInitial(RIPEMD160Digest::new);
+    private static final ThreadLocal<byte[]> h160Buffer = ThreadLocal.withInitial(() -> new byte[HASH_LEN]);
+
     /**
      * Generate the 256-bit hash.
      * 
@@ -31,27 +48,56 @@ public class Hash {
      * @return
      */
     public static byte[] h256(byte[] input) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance(Constants.HASH_ALGORITHM);
-            return digest.digest(input);
-        } catch (Exception e) {
-            throw new CryptoException(e);
+        MessageDigest digest = getH256Digest();
+        return digest.digest(input);
+    }
+
+    /**
+     * Generate the 256-bit hash of the concatenation of multiple byte arrays,
+     * without merging them.
+     * 
+     * @param inputs
+     * @return
+     */
+    public static byte[] h256(byte[]... inputs) {
+        MessageDigest digest = getH256Digest();
+        for (byte[] input : inputs) {
+            digest.update(input);
         }
+        return digest.digest();
     }
 
     /**
-     * Merge two byte arrays and compute the 256-bit hash.
+     * Generate the 256-bit hash of two byte arrays, as if they were merged.
      * 
      * @param one
      * @param two
      * @return
      */
     public static byte[] h256(byte[] one, byte[] two) {
-        byte[] all = new byte[one.length + two.length];
-        System.arraycopy(one, 0, all, 0, one.length);
-        System.arraycopy(two, 0, all, one.length, two.length);
+        MessageDigest digest = getH256Digest();
+        digest.update(one);
+        digest.update(two);
+        return digest.digest();
+    }
 
-        return Hash.h256(all);
+    /**
+     * Generate the 256-bit hash into a caller-provided buffer.
+     * 
+     * @param input
+     * @param out
+     *            the output buffer
+     * @param offset
+     *            the offset where the {@link #HASH_LEN} bytes of hash are written
+     */
+    public static void h256(byte[] input, byte[] out, int offset) {
+        MessageDigest digest = getH256Digest();
+        digest.update(input);
+        try {
+            digest.digest(out, offset, HASH_LEN);
+        } catch (DigestException e) {
+            throw new CryptoException(e);
+        }
     }
 
     /**
@@ -61,13 +107,40 @@ public class Hash {
      * @return
      */
     public static byte[] h160(byte[] input) {
-        byte[] h256 = h256(input);
+        byte[] out = new byte[H160_LEN];
+        h160(input, out, 0);
+        return out;
+    }
 
-        RIPEMD160Digest digest = new RIPEMD160Digest();
+    /**
+     * Generate the 160-bit hash into a caller-provided buffer, using h256 and
+     * RIPEMD.
+     * 
+     * @param input
+     * @param out
+     *            the output buffer
+     * @param offset
+     *            the offset where the {@link #H160_LEN} bytes of hash are written
+     */
+    public static void h160(byte[] input, byte[] out, int offset) {
+        byte[] h256 = h160Buffer.get();
+        h256(input, h256, 0);
+
+        RIPEMD160Digest digest = h160Digest.get();
+        digest.reset();
         digest.update(h256, 0, h256.length);
-        byte[] out = new byte[20];
-        digest.doFinal(out, 0);
-        return out;
+        digest.doFinal(out, offset);
+    }
+
+    /**
+     * Returns the digest of the current thread, in its initial state.
+     *
+     * @return
+     */
+    private static MessageDigest getH256Digest() {
+        MessageDigest digest = h256Digest.get();
+        digest.reset(); // in case a previous use has been interrupted
+        return digest;
     }
 
     private Hash() {
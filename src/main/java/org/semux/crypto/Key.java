@@ -14,10 +14,13 @@ import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.crypto.cache.PublicKeyCache;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.util.Bytes;
 import org.semux.util.SystemUtil;
 import org.slf4j.Logger;
@@ -42,6 +45,11 @@ public class Key {
     public static final int PRIVATE_KEY_LEN = 48;
     public static final int ADDRESS_LEN = 20;
 
+    /**
+     * The min number of signatures to verify in parallel.
+     */
+    private static final int MIN_PARALLEL_BATCH = 8;
+
     private static final Logger logger = LoggerFactory.getLogger(Key.class);
 
     private static final KeyPairGenerator gen = new KeyPairGenerator();
@@ -68,6 +76,12 @@ public class Key {
         }
     }
 
+    /**
+     * Signature engines are reused by each thread, along with their SHA-512
+     * digest; initSign() and initVerify() reset them.
+     */
+    private static final ThreadLocal<EdDSAEngine> engines = ThreadLocal.withInitial(EdDSAEngine::new);
+
     protected EdDSAPrivateKey sk;
     protected EdDSAPublicKey pk;
 
@@ -149,7 +163,7 @@ public class Key {
      */
     public Signature sign(byte[] msgHash) {
         try {
-            EdDSAEngine engine = new EdDSAEngine();
+            EdDSAEngine engine = engines.get();
             engine.initSign(sk);
             byte[] sig = engine.signOneShot(msgHash);
 
@@ -170,11 +184,18 @@ public class Key {
      */
     public static boolean verify(byte[] msgHash, Signature signature) {
         if (msgHash != null && signature != null) { // avoid null pointer exception
+            if (SignatureCache.contains(msgHash, signature.getS(), signature.getA())) {
+                return true;
+            }
+
             try {
-                EdDSAEngine engine = new EdDSAEngine();
+                EdDSAEngine engine = engines.get();
                 engine.initVerify(PublicKeyCache.computeIfAbsent(signature.getPublicKey()));
 
-                return engine.verifyOneShot(msgHash, signature.getS());
+                if (engine.verifyOneShot(msgHash, signature.getS())) {
+                    SignatureCache.add(msgHash, signature.getS(), signature.getA());
+                    return true;
+                }
             } catch (Exception e) {
                 // do nothing
             }
@@ -183,6 +204,27 @@ public class Key {
         return false;
     }
 
+    /**
+     * Verifies a batch of signatures. Large batches are verified in parallel, and
+     * signatures verified before are served from the signature cache.
+     * <p>
+     * Each signature is checked with the same rules as
+     * {@link #verify(byte[], Signature)}, so the result never differs from
+     * verifying them one by one. Use {@link #verify(byte[], Signature)} to
+     * identify the invalid ones; the valid ones are cached by then.
+     *
+     * @param signatures
+     *            pairs of message hash and signature
+     * @return True if all signatures are valid, otherwise false
+     */
+    public static boolean verifyBatch(List<Pair<byte[], Signature>> signatures) {
+        if (signatures.size() < MIN_PARALLEL_BATCH) {
+            return signatures.stream().allMatch(p -> verify(p.getLeft(), p.getRight()));
+        }
+
+        return signatures.parallelStream().allMatch(p -> verify(p.getLeft(), p.getRight()));
+    }
+
     /**
      * Verifies a signature.
      * 
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto.cache;
+
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public final class SignatureCache {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024;
+
+    /**
+     * A transaction is verified when it enters the pending pool, again when it is
+     * proposed in a block, and again when the block is synced or applied. Votes
+     * and proposals are also re-broadcast and re-verified. Remembering successful
+     * verifications avoids repeating the expensive EdDSA arithmetic.
+     * <p>
+     * The cache is a concurrent hash map of ByteArray.of(msgHash || S || A) ->
+     * Boolean.TRUE. Only valid signatures are cached.
+     */
+    private static final Cache<ByteArray, Boolean> sigCache = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE).recordStats().build();
+
+    private SignatureCache() {
+    }
+
+    /**
+     * Returns whether the signature of a message hash has been verified.
+     *
+     * @param msgHash
+     *            message hash
+     * @param s
+     *            raw signature
+     * @param a
+     *            raw public key
+     * @return
+     */
+    public static boolean contains(byte[] msgHash, byte[] s, byte[] a) {
+        return sigCache.getIfPresent(createKey(msgHash, s, a)) != null;
+    }
+
+    /**
+     * Marks the signature of a message hash as verified.
+     *
+     * @param msgHash
+     *            message hash
+     * @param s
+     *            raw signature
+     * @param a
+     *            raw public key
+     */
+    public static void add(byte[] msgHash, byte[] s, byte[] a) {
+        sigCache.put(createKey(msgHash, s, a), Boolean.TRUE);
+    }
+
+    /**
+     * Returns the cache statistics, e.g. the hit rate.
+     *
+     * @return
+     */
+    public static CacheStats stats() {
+        return sigCache.stats();
+    }
+
+    /**
+     * Discards all cached verifications.
+     */
+    public static void invalidateAll() {
+        sigCache.invalidateAll();
+    }
+
+    private static ByteArray createKey(byte[] msgHash, byte[] s, byte[] a) {
+        return ByteArray.of(Bytes.merge(msgHash, s, a));
+    }
+}
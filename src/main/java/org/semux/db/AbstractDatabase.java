@@ -0,0 +1,409 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.bouncycastle.util.Arrays;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.ClosableIterator;
+import org.semux.util.FileUtil;
+
+/**
+ * Base class of the storage engines, which implements the write sessions on
+ * top of the primitive operations of an engine.
+ */
+public abstract class AbstractDatabase implements Database {
+
+    /**
+     * Marker of a deleted key in the pending batch, compared by identity.
+     */
+    private static final byte[] DELETED = new byte[0];
+
+    protected final File file;
+
+    /**
+     * Updates of the current write session, sorted in the same order as the
+     * database keys, or null if there is no write session.
+     */
+    private volatile NavigableMap<byte[], byte[]> batch;
+
+    protected AbstractDatabase(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the value stored in the engine.
+     *
+     * @param key
+     * @return
+     */
+    protected abstract byte[] doGet(byte[] key);
+
+    /**
+     * Writes a list of key value pairs to the engine atomically.
+     *
+     * @param pairs
+     *            key value pairs; pair with null value, will be deleted
+     */
+    protected abstract void doUpdate(List<Pair<byte[], byte[]>> pairs);
+
+    /**
+     * Returns an iterator of the entries stored in the engine, starting from the
+     * given key.
+     *
+     * @param prefix
+     *            the first key, or null to start from the beginning
+     * @return
+     */
+    protected abstract ClosableIterator<Entry<byte[], byte[]>> doIterator(byte[] prefix);
+
+    /**
+     * Visits the entries stored in the engine in the key range
+     * <code>[from, to)</code>, until the visitor stops.
+     *
+     * @param from
+     *            the lower bound, or null
+     * @param to
+     *            the upper bound, or null
+     * @param reverse
+     * @param visitor
+     */
+    protected abstract void doScan(byte[] from, byte[] to, boolean reverse, ScanVisitor visitor);
+
+    /**
+     * Stores a key value pair in the engine.
+     *
+     * @param key
+     * @param value
+     */
+    protected void doPut(byte[] key, byte[] value) {
+        doUpdate(Collections.singletonList(Pair.of(key, value)));
+    }
+
+    /**
+     * Deletes a key from the engine.
+     *
+     * @param key
+     */
+    protected void doDelete(byte[] key) {
+        doUpdate(Collections.singletonList(Pair.of(key, null)));
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b != null) {
+            byte[] v = b.get(key);
+            if (v != null) {
+                return v == DELETED ? null : v;
+            }
+        }
+
+        return doGet(key);
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b != null) {
+            b.put(key, value);
+        } else {
+            doPut(key, value);
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b != null) {
+            b.put(key, DELETED);
+        } else {
+            doDelete(key);
+        }
+    }
+
+    @Override
+    public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b != null) {
+            for (Pair<byte[], byte[]> p : pairs) {
+                b.put(p.getLeft(), p.getRight() == null ? DELETED : p.getRight());
+            }
+        } else {
+            doUpdate(pairs);
+        }
+    }
+
+    @Override
+    public synchronized void startBatch() {
+        if (batch != null) {
+            throw new DatabaseException("Write session already started: " + file);
+        }
+        batch = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+    }
+
+    @Override
+    public synchronized void commitBatch() {
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b == null) {
+            throw new DatabaseException("Write session not started: " + file);
+        }
+
+        if (!b.isEmpty()) {
+            List<Pair<byte[], byte[]>> pairs = new ArrayList<>(b.size());
+            for (Entry<byte[], byte[]> e : b.entrySet()) {
+                pairs.add(Pair.of(e.getKey(), e.getValue() == DELETED ? null : e.getValue()));
+            }
+            doUpdate(pairs);
+        }
+
+        // readers switch to the database only after the batch has been written
+        batch = null;
+    }
+
+    @Override
+    public synchronized void rollbackBatch() {
+        batch = null;
+    }
+
+    @Override
+    public void destroy() {
+        close();
+        FileUtil.recursiveDelete(file);
+    }
+
+    @Override
+    public Path getDataDir() {
+        return file.toPath();
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+        return iterator(null);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        ClosableIterator<Entry<byte[], byte[]>> dbIterator = doIterator(prefix);
+
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b == null) {
+            return dbIterator;
+        }
+
+        NavigableMap<byte[], byte[]> pending = (prefix == null) ? b : b.tailMap(prefix, true);
+        return new BatchIterator(dbIterator, pending.entrySet().iterator());
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> snapshotIterator() {
+        throw new DatabaseException("Snapshots are not supported by database: " + file);
+    }
+
+    @Override
+    public int scan(byte[] from, byte[] to, int limit, boolean reverse, ScanVisitor visitor) {
+        if (limit <= 0 || (from != null && to != null && Arrays.compareUnsigned(from, to) >= 0)) {
+            return 0;
+        }
+
+        Iterator<Entry<byte[], byte[]>> pending = Collections.emptyIterator();
+        NavigableMap<byte[], byte[]> b = batch;
+        if (b != null) {
+            NavigableMap<byte[], byte[]> range = (from == null) ? b : b.tailMap(from, true);
+            range = (to == null) ? range : range.headMap(to, false);
+            pending = (reverse ? range.descendingMap() : range).entrySet().iterator();
+        }
+
+        MergingVisitor merger = new MergingVisitor(pending, limit, reverse, visitor);
+        doScan(from, to, reverse, merger);
+        merger.finish();
+
+        return merger.count;
+    }
+
+    @Override
+    public int scan(byte[] prefix, ScanVisitor visitor) {
+        // the smallest key greater than all the keys with the prefix
+        byte[] to = null;
+        for (int i = prefix.length - 1; i >= 0 && to == null; i--) {
+            if (prefix[i] != (byte) 0xff) {
+                to = Arrays.copyOf(prefix, i + 1);
+                to[i]++;
+            }
+        }
+
+        return scan(prefix, to, Integer.MAX_VALUE, false, visitor);
+    }
+
+    /**
+     * Compares a key with a key buffer, in unsigned lexicographical order.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    private static int compare(byte[] a, ByteBuffer b) {
+        int n = Math.min(a.length, b.remaining());
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xff) - (b.get(b.position() + i) & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.remaining();
+    }
+
+    /**
+     * Visitor which merges the pending updates of a write session into the
+     * entries visited by the engine, and enforces the limit of a scan.
+     */
+    private static class MergingVisitor implements ScanVisitor {
+
+        private final Iterator<Entry<byte[], byte[]>> pending;
+        private final int limit;
+        private final boolean reverse;
+        private final ScanVisitor visitor;
+
+        private Entry<byte[], byte[]> next;
+        private int count;
+        private boolean stopped;
+
+        MergingVisitor(Iterator<Entry<byte[], byte[]>> pending, int limit, boolean reverse, ScanVisitor visitor) {
+            this.pending = pending;
+            this.limit = limit;
+            this.reverse = reverse;
+            this.visitor = visitor;
+            this.next = pending.hasNext() ? pending.next() : null;
+        }
+
+        @Override
+        public boolean visit(ByteBuffer key, ByteBuffer value) {
+            while (next != null) {
+                int cmp = compare(next.getKey(), key) * (reverse ? -1 : 1);
+                if (cmp > 0) {
+                    break;
+                }
+
+                if (!emitPending()) {
+                    return false;
+                }
+                if (cmp == 0) {
+                    // overridden by the pending update
+                    return true;
+                }
+            }
+
+            return deliver(key, value);
+        }
+
+        /**
+         * Visits the remaining pending updates, after the engine is done.
+         */
+        void finish() {
+            while (next != null && emitPending()) {
+                // keep going
+            }
+        }
+
+        private boolean emitPending() {
+            Entry<byte[], byte[]> e = next;
+            next = pending.hasNext() ? pending.next() : null;
+
+            return e.getValue() == DELETED || deliver(ByteBuffer.wrap(e.getKey()), ByteBuffer.wrap(e.getValue()));
+        }
+
+        private boolean deliver(ByteBuffer key, ByteBuffer value) {
+            if (stopped) {
+                return false;
+            }
+
+            count++;
+            if (!visitor.visit(key, value) || count >= limit) {
+                stopped = true;
+            }
+            return !stopped;
+        }
+    }
+
+    /**
+     * Iterator which merges the pending updates of a write session into the
+     * entries of the underlying database. Pending updates take precedence.
+     */
+    private static class BatchIterator implements ClosableIterator<Entry<byte[], byte[]>> {
+
+        private final ClosableIterator<Entry<byte[], byte[]>> dbIterator;
+        private final Iterator<Entry<byte[], byte[]>> batchIterator;
+
+        private Entry<byte[], byte[]> dbNext;
+        private Entry<byte[], byte[]> batchNext;
+        private Entry<byte[], byte[]> next;
+
+        BatchIterator(ClosableIterator<Entry<byte[], byte[]>> dbIterator,
+                Iterator<Entry<byte[], byte[]>> batchIterator) {
+            this.dbIterator = dbIterator;
+            this.batchIterator = batchIterator;
+            this.dbNext = dbIterator.hasNext() ? dbIterator.next() : null;
+            this.batchNext = batchIterator.hasNext() ? batchIterator.next() : null;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && (dbNext != null || batchNext != null)) {
+                int cmp = (dbNext == null) ? 1
+                        : (batchNext == null) ? -1 : Arrays.compareUnsigned(dbNext.getKey(), batchNext.getKey());
+
+                if (cmp < 0) {
+                    next = dbNext;
+                    dbNext = dbIterator.hasNext() ? dbIterator.next() : null;
+                } else {
+                    if (cmp == 0) {
+                        dbNext = dbIterator.hasNext() ? dbIterator.next() : null;
+                    }
+                    if (batchNext.getValue() != DELETED) {
+                        next = new SimpleImmutableEntry<>(batchNext.getKey(), batchNext.getValue());
+                    }
+                    batchNext = batchIterator.hasNext() ? batchIterator.next() : null;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<byte[], byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            Entry<byte[], byte[]> e = next;
+            advance();
+            return e;
+        }
+
+        @Override
+        public void close() {
+            dbIterator.close();
+        }
+    }
+}
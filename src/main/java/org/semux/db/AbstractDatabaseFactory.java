@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class of the factories which keep one database per
+ * {@link DatabaseName} under a data directory.
+ */
+public abstract class AbstractDatabaseFactory implements DatabaseFactory {
+
+    private EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
+
+    protected File dataDir;
+    private AtomicBoolean open;
+
+    protected AbstractDatabaseFactory(File dataDir) {
+        this.dataDir = dataDir;
+        this.open = new AtomicBoolean(false);
+    }
+
+    /**
+     * Opens the specified database.
+     *
+     * @param name
+     * @return
+     */
+    protected abstract Database createDatabase(DatabaseName name);
+
+    @Override
+    public void open() {
+        if (open.compareAndSet(false, true)) {
+            for (DatabaseName name : DatabaseName.values()) {
+                databases.put(name, createDatabase(name));
+            }
+        }
+    }
+
+    @Override
+    public Database getDB(DatabaseName name) {
+        open();
+        return databases.get(name);
+    }
+
+    @Override
+    public void close() {
+        if (open.compareAndSet(true, false)) {
+            for (Database db : databases.values()) {
+                db.close();
+            }
+        }
+    }
+
+    @Override
+    public Path getDataDir() {
+        return dataDir.toPath();
+    }
+}
@@ -54,6 +54,25 @@ public interface Database {
      */
     void updateBatch(List<Pair<byte[], byte[]>> pairs);
 
+    /**
+     * Starts a write session. All the subsequent updates are buffered in memory,
+     * visible to readers of this database, and written atomically when
+     * {@link #commitBatch()} is called.
+     */
+    void startBatch();
+
+    /**
+     * Writes all the updates since {@link #startBatch()} as one atomic batch and
+     * closes the write session.
+     */
+    void commitBatch();
+
+    /**
+     * Discards all the updates since {@link #startBatch()} and closes the write
+     * session.
+     */
+    void rollbackBatch();
+
     /**
      * Returns all the keys.<br>
      * <br>
@@ -72,6 +91,47 @@ public interface Database {
      */
     ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix);
 
+    /**
+     * Returns all the entries as of now, which later writes don't change. The
+     * updates of an uncommitted write session are not included.<br>
+     * <br>
+     * NOTE: be sure to close the iterator after iteration.
+     *
+     * @return
+     * @throws org.semux.db.exception.DatabaseException
+     *             if the engine doesn't support snapshots
+     */
+    ClosableIterator<Entry<byte[], byte[]>> snapshotIterator();
+
+    /**
+     * Visits the entries in the key range <code>[from, to)</code>, in ascending
+     * order of keys, or descending order if reverse. Unlike {@link #iterator()},
+     * no entry object is created and the engine may hand out views of its
+     * memory.
+     *
+     * @param from
+     *            the lower bound, inclusive, or null to start from the first key
+     * @param to
+     *            the upper bound, exclusive, or null to scan to the last key
+     * @param limit
+     *            the max number of entries to visit
+     * @param reverse
+     *            whether to scan in descending order
+     * @param visitor
+     * @return the number of entries visited
+     */
+    int scan(byte[] from, byte[] to, int limit, boolean reverse, ScanVisitor visitor);
+
+    /**
+     * Visits all the entries whose key starts with the given prefix, in
+     * ascending order of keys.
+     *
+     * @param prefix
+     * @param visitor
+     * @return the number of entries visited
+     */
+    int scan(byte[] prefix, ScanVisitor visitor);
+
     /**
      * Closes the database.
      */
@@ -89,4 +149,19 @@ public interface Database {
      * @return
      */
     Path getDataDir();
+
+    /**
+     * Returns the internal statistics reported by the storage engine, e.g.
+     * compactions and number of files per level.
+     *
+     * @return a human readable report, or null if not available
+     */
+    String getStats();
+
+    /**
+     * Returns the approximate size of this database on disk.
+     *
+     * @return size in bytes
+     */
+    long getApproximateSize();
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+
+import org.semux.config.Config;
+import org.semux.db.LeveldbDatabase.LevelDbFactory;
+import org.semux.db.LogStoreDatabase.LogStoreFactory;
+
+public enum DatabaseEngine {
+
+    /**
+     * LevelDB, through JNI.
+     */
+    LEVELDB,
+
+    /**
+     * Pure Java log-structured store with memory-mapped reads.
+     */
+    LOGSTORE;
+
+    /**
+     * Creates a factory of the databases of this engine.
+     *
+     * @param dataDir
+     * @param config
+     * @return
+     */
+    public DatabaseFactory createFactory(File dataDir, Config config) {
+        switch (this) {
+        case LOGSTORE:
+            return new LogStoreFactory(dataDir);
+        case LEVELDB:
+        default:
+            return new LevelDbFactory(dataDir, config);
+        }
+    }
+}
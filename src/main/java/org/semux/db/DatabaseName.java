@@ -31,5 +31,10 @@ public enum DatabaseName {
     /**
      * Delegate vote data.
      */
-    VOTE
+    VOTE,
+
+    /**
+     * State tree over the account, delegate and vote data.
+     */
+    STATE
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+/**
+ * Tuning options of a database. BLOCK is append-mostly and read sequentially,
+ * while the other databases serve small random point lookups, so they are
+ * tuned separately.
+ */
+public class DatabaseProfile {
+
+    private int blockSize;
+    private long cacheSize;
+    private int writeBufferSize;
+    private boolean compression;
+    private boolean verifyChecksums;
+
+    public DatabaseProfile(int blockSize, long cacheSize, int writeBufferSize, boolean compression,
+            boolean verifyChecksums) {
+        this.blockSize = blockSize;
+        this.cacheSize = cacheSize;
+        this.writeBufferSize = writeBufferSize;
+        this.compression = compression;
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * Returns the default profile of the specified database.
+     *
+     * @param name
+     * @return
+     */
+    public static DatabaseProfile of(DatabaseName name) {
+        switch (name) {
+        case BLOCK:
+            return new DatabaseProfile(4 * 1024 * 1024, 64L * 1024L * 1024L, 8 * 1024 * 1024, false, true);
+        case ACCOUNT:
+            return new DatabaseProfile(4 * 1024, 64L * 1024L * 1024L, 8 * 1024 * 1024, true, false);
+        default:
+            return new DatabaseProfile(4 * 1024, 16L * 1024L * 1024L, 4 * 1024 * 1024, true, false);
+        }
+    }
+
+    /**
+     * Returns the approximate size of user data packed per block, in bytes.
+     *
+     * @return
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the size of the block cache, in bytes.
+     *
+     * @return
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the amount of data to build up in memory before converting to a
+     * sorted on-disk file, in bytes.
+     *
+     * @return
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * Returns whether blocks are compressed with snappy.
+     *
+     * @return
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Returns whether checksums are verified on every read, in addition to the
+     * paranoid checks done when opening and compacting.
+     *
+     * @return
+     */
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseProfile [blockSize=" + blockSize + ", cacheSize=" + cacheSize + ", writeBufferSize="
+                + writeBufferSize + ", compression=" + compression + ", verifyChecksums=" + verifyChecksums + "]";
+    }
+}
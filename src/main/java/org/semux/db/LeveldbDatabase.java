@@ -10,37 +10,53 @@ import static org.fusesource.leveldbjni.JniDBFactory.factory;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.bouncycastle.util.Arrays;
 import org.fusesource.leveldbjni.JniDBFactory;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
+import org.semux.config.Config;
 import org.semux.db.exception.DatabaseException;
 import org.semux.util.ClosableIterator;
-import org.semux.util.FileUtil;
 import org.semux.util.SystemUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LeveldbDatabase implements Database {
+public class LeveldbDatabase extends AbstractDatabase {
 
     private static final Logger logger = LoggerFactory.getLogger(LeveldbDatabase.class);
 
-    private File file;
+    /**
+     * Upper bound of all the keys, used to estimate the size of the database.
+     */
+    private static final byte[] LAST_KEY = new byte[256];
+    static {
+        Arrays.fill(LAST_KEY, (byte) 0xff);
+    }
+
+    private DatabaseProfile profile;
     private DB db;
     private boolean isOpened;
 
     public LeveldbDatabase(File file) {
-        this.file = file;
+        this(file, DatabaseProfile.of(DatabaseName.BLOCK));
+    }
+
+    public LeveldbDatabase(File file, DatabaseProfile profile) {
+        super(file);
+        this.profile = profile;
 
         File dir = file.getParentFile();
         if (!dir.exists() && !dir.mkdirs()) {
@@ -51,19 +67,19 @@ public class LeveldbDatabase implements Database {
     }
 
     /**
-     * Creates the default options.
+     * Creates the options from the database profile.
      *
      * @return
      */
     protected Options createOptions() {
         Options options = new Options();
         options.createIfMissing(true);
-        options.compressionType(CompressionType.NONE);
-        options.blockSize(4 * 1024 * 1024);
-        options.writeBufferSize(8 * 1024 * 1024);
-        options.cacheSize(64L * 1024L * 1024L);
+        options.compressionType(profile.isCompression() ? CompressionType.SNAPPY : CompressionType.NONE);
+        options.blockSize(profile.getBlockSize());
+        options.writeBufferSize(profile.getWriteBufferSize());
+        options.cacheSize(profile.getCacheSize());
         options.paranoidChecks(true);
-        options.verifyChecksums(true);
+        options.verifyChecksums(profile.isVerifyChecksums());
         options.maxOpenFiles(128);
 
         return options;
@@ -115,31 +131,31 @@ public class LeveldbDatabase implements Database {
     }
 
     @Override
-    public byte[] get(byte[] key) {
+    protected byte[] doGet(byte[] key) {
         return db.get(key);
     }
 
     @Override
-    public void put(byte[] key, byte[] value) {
+    protected void doPut(byte[] key, byte[] value) {
         db.put(key, value);
     }
 
     @Override
-    public void delete(byte[] key) {
+    protected void doDelete(byte[] key) {
         db.delete(key);
     }
 
     @Override
-    public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
-        try (WriteBatch batch = db.createWriteBatch()) {
+    protected void doUpdate(List<Pair<byte[], byte[]>> pairs) {
+        try (WriteBatch wb = db.createWriteBatch()) {
             for (Pair<byte[], byte[]> p : pairs) {
                 if (p.getValue() == null) {
-                    batch.delete(p.getLeft());
+                    wb.delete(p.getLeft());
                 } else {
-                    batch.put(p.getLeft(), p.getRight());
+                    wb.put(p.getLeft(), p.getRight());
                 }
             }
-            db.write(batch);
+            db.write(wb);
         } catch (IOException e) {
             logger.error("Failed to update batch", e);
             SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
@@ -159,24 +175,17 @@ public class LeveldbDatabase implements Database {
     }
 
     @Override
-    public void destroy() {
-        close();
-        FileUtil.recursiveDelete(file);
+    public String getStats() {
+        return db.getProperty("leveldb.stats");
     }
 
     @Override
-    public Path getDataDir() {
-        return file.toPath();
+    public long getApproximateSize() {
+        return db.getApproximateSizes(new Range(new byte[0], LAST_KEY))[0];
     }
 
     @Override
-    public ClosableIterator<Entry<byte[], byte[]>> iterator() {
-        return iterator(null);
-    }
-
-    @Override
-    public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
-
+    protected ClosableIterator<Entry<byte[], byte[]>> doIterator(byte[] prefix) {
         return new ClosableIterator<Entry<byte[], byte[]>>() {
             DBIterator itr = db.iterator();
 
@@ -210,48 +219,110 @@ public class LeveldbDatabase implements Database {
         }.initialize();
     }
 
-    public static class LevelDbFactory implements DatabaseFactory {
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> snapshotIterator() {
+        Snapshot snapshot = db.getSnapshot();
+        DBIterator itr = db.iterator(new ReadOptions().snapshot(snapshot).fillCache(false));
+        itr.seekToFirst();
 
-        private EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
+        return new ClosableIterator<Entry<byte[], byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
 
-        private File dataDir;
-        private AtomicBoolean open;
+            @Override
+            public Entry<byte[], byte[]> next() {
+                return itr.next();
+            }
 
-        public LevelDbFactory(File dataDir) {
-            this.dataDir = dataDir;
-            this.open = new AtomicBoolean(false);
+            @Override
+            public void close() {
+                try {
+                    itr.close();
+                    snapshot.close();
+                } catch (IOException e) {
+                    throw new DatabaseException(e);
+                }
+            }
+        };
+    }
 
-            open();
-        }
+    @Override
+    protected void doScan(byte[] from, byte[] to, boolean reverse, ScanVisitor visitor) {
+        // the JNI binding copies each entry into arrays, which are wrapped as is
+        try (DBIterator itr = db.iterator()) {
+            if (!reverse) {
+                if (from != null) {
+                    itr.seek(from);
+                } else {
+                    itr.seekToFirst();
+                }
 
-        @Override
-        public void open() {
-            if (open.compareAndSet(false, true)) {
-                for (DatabaseName name : DatabaseName.values()) {
-                    File file = Paths.get(dataDir.getAbsolutePath(), name.toString().toLowerCase()).toFile();
-                    databases.put(name, new LeveldbDatabase(file));
+                while (itr.hasNext()) {
+                    Entry<byte[], byte[]> e = itr.next();
+                    if (to != null && Arrays.compareUnsigned(e.getKey(), to) >= 0) {
+                        break;
+                    }
+                    if (!visitor.visit(ByteBuffer.wrap(e.getKey()), ByteBuffer.wrap(e.getValue()))) {
+                        break;
+                    }
+                }
+            } else {
+                // position at the first key >= to, or the last key
+                if (to != null) {
+                    itr.seek(to);
+                }
+                if (to == null || !itr.hasNext()) {
+                    itr.seekToLast();
+                }
+                if (!itr.hasNext()) {
+                    return;
+                }
+
+                Entry<byte[], byte[]> e = itr.peekNext();
+                while (true) {
+                    if (from != null && Arrays.compareUnsigned(e.getKey(), from) < 0) {
+                        break;
+                    }
+                    if ((to == null || Arrays.compareUnsigned(e.getKey(), to) < 0)
+                            && !visitor.visit(ByteBuffer.wrap(e.getKey()), ByteBuffer.wrap(e.getValue()))) {
+                        break;
+                    }
+                    if (!itr.hasPrev()) {
+                        break;
+                    }
+                    e = itr.prev();
                 }
             }
+        } catch (IOException e) {
+            throw new DatabaseException(e);
         }
+    }
 
-        @Override
-        public Database getDB(DatabaseName name) {
-            open();
-            return databases.get(name);
+    public static class LevelDbFactory extends AbstractDatabaseFactory {
+
+        private Function<DatabaseName, DatabaseProfile> profiles;
+
+        public LevelDbFactory(File dataDir) {
+            this(dataDir, DatabaseProfile::of);
         }
 
-        @Override
-        public void close() {
-            if (open.compareAndSet(true, false)) {
-                for (Database db : databases.values()) {
-                    db.close();
-                }
-            }
+        public LevelDbFactory(File dataDir, Config config) {
+            this(dataDir, config::dbProfile);
+        }
+
+        private LevelDbFactory(File dataDir, Function<DatabaseName, DatabaseProfile> profiles) {
+            super(dataDir);
+            this.profiles = profiles;
+
+            open();
         }
 
         @Override
-        public Path getDataDir() {
-            return dataDir.toPath();
+        protected Database createDatabase(DatabaseName name) {
+            File file = Paths.get(dataDir.getAbsolutePath(), name.toString().toLowerCase()).toFile();
+            return new LeveldbDatabase(file, profiles.apply(name));
         }
     }
 }
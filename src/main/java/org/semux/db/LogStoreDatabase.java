@@ -0,0 +1,522 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.bouncycastle.util.Arrays;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.ClosableIterator;
+import org.semux.util.SystemUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pure Java storage engine, which appends all the updates to memory-mapped
+ * segment files and keeps a sorted index of all the keys in memory.
+ * <p>
+ * Reads are served from the mapped segments without any JNI call, and writes
+ * never wait for a background compaction. Each write is appended as one group
+ * of entries protected by a checksum, so that a batch is either fully replayed
+ * or discarded when the database is reopened. Segments whose data is mostly
+ * overwritten are compacted by copying the remaining live entries to the end
+ * of the log.
+ * </p>
+ * <p>
+ * NOTE: the whole key set is kept in memory.
+ * </p>
+ */
+public class LogStoreDatabase extends AbstractDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogStoreDatabase.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * A group starts with the length of its entries and their checksum.
+     */
+    private static final int GROUP_HEADER_LEN = 8;
+
+    /**
+     * An entry starts with the length of its key and value.
+     */
+    private static final int ENTRY_HEADER_LEN = 8;
+
+    /**
+     * Value length of a deleted key.
+     */
+    private static final int TOMBSTONE = -1;
+
+    /**
+     * Segments with less live data than this ratio are compacted.
+     */
+    private static final double MIN_LIVE_RATIO = 0.5;
+
+    private final int segmentSize;
+
+    private final NavigableMap<byte[], Pointer> index = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private volatile boolean isOpened;
+    private boolean isCompacting;
+
+    public LogStoreDatabase(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    protected LogStoreDatabase(File file, int segmentSize) {
+        super(file);
+        this.segmentSize = segmentSize;
+
+        if (!file.exists() && !file.mkdirs()) {
+            logger.error("Failed to create directory: {}", file);
+        }
+
+        open();
+    }
+
+    /**
+     * Opens the database and replays all the segments.
+     */
+    protected synchronized void open() {
+        File[] files = file.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        List<Integer> ids = new ArrayList<>();
+        for (File f : files == null ? new File[0] : files) {
+            String name = f.getName();
+            ids.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        }
+        ids.sort(Integer::compare);
+
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                Segment seg = new Segment(ids.get(i), segmentFile(ids.get(i)), 0);
+                replay(seg);
+
+                if (seg.position == 0 && i < ids.size() - 1) {
+                    // segment emptied by a compaction
+                    if (!seg.file.delete()) {
+                        logger.warn("Failed to delete segment: {}", seg.file);
+                    }
+                } else {
+                    segments.put(seg.id, seg);
+                }
+            }
+            isOpened = true;
+        } catch (IOException e) {
+            logger.error("Failed to open database", e);
+            SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_OPEN_DB);
+        }
+    }
+
+    private File segmentFile(int id) {
+        return new File(file, String.format("%08d", id) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Applies all the valid groups of a segment to the index, and discards the
+     * ones after a torn or corrupted write.
+     *
+     * @param seg
+     */
+    private void replay(Segment seg) {
+        ByteBuffer buf = seg.buffer.duplicate();
+        int pos = 0;
+        while (pos + GROUP_HEADER_LEN <= buf.capacity()) {
+            int length = buf.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+
+            int body = pos + GROUP_HEADER_LEN;
+            if (length < 0 || length > buf.capacity() - body || buf.getInt(pos + 4) != checksum(buf, body, length)) {
+                logger.warn("Discarding corrupted writes of {} from offset {}", seg.file, pos);
+                for (int i = pos; i < buf.capacity(); i++) {
+                    buf.put(i, (byte) 0);
+                }
+                break;
+            }
+
+            visitEntries(seg, body, length, (key, offset, len) -> {
+                if (len == TOMBSTONE) {
+                    unlink(key, index.remove(key));
+                } else {
+                    seg.liveBytes += ENTRY_HEADER_LEN + key.length + len;
+                    unlink(key, index.put(key, new Pointer(seg, offset, len)));
+                }
+            });
+            pos = body + length;
+        }
+        seg.position = pos;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer buf = buffer.duplicate();
+        buf.limit(offset + length);
+        buf.position(offset);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf);
+        return (int) crc.getValue();
+    }
+
+    private static void visitEntries(Segment seg, int offset, int length, EntryVisitor visitor) {
+        ByteBuffer buf = seg.buffer.duplicate();
+        int pos = offset;
+        while (pos < offset + length) {
+            int keyLength = buf.getInt(pos);
+            int valueLength = buf.getInt(pos + 4);
+            byte[] key = seg.read(pos + ENTRY_HEADER_LEN, keyLength);
+
+            int valueOffset = pos + ENTRY_HEADER_LEN + keyLength;
+            visitor.visit(key, valueOffset, valueLength);
+            pos = valueOffset + Math.max(valueLength, 0);
+        }
+    }
+
+    /**
+     * Accounts for an entry which is no longer referenced by the index.
+     *
+     * @param key
+     * @param p
+     */
+    private static void unlink(byte[] key, Pointer p) {
+        if (p != null) {
+            p.segment.liveBytes -= ENTRY_HEADER_LEN + key.length + p.length;
+        }
+    }
+
+    @Override
+    protected byte[] doGet(byte[] key) {
+        checkOpen();
+
+        Pointer p = index.get(key);
+        return p == null ? null : p.segment.read(p.offset, p.length);
+    }
+
+    @Override
+    protected synchronized void doUpdate(List<Pair<byte[], byte[]>> pairs) {
+        checkOpen();
+        if (pairs.isEmpty()) {
+            // an empty group would mark the end of the log
+            return;
+        }
+
+        int length = 0;
+        for (Pair<byte[], byte[]> p : pairs) {
+            length += ENTRY_HEADER_LEN + p.getLeft().length + (p.getRight() == null ? 0 : p.getRight().length);
+        }
+
+        Segment seg;
+        try {
+            seg = allocate(GROUP_HEADER_LEN + length);
+        } catch (IOException e) {
+            logger.error("Failed to update batch", e);
+            SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
+            return;
+        }
+        boolean rolled = seg.position == 0 && segments.size() > 1;
+
+        // append the group
+        int start = seg.position;
+        int body = start + GROUP_HEADER_LEN;
+        ByteBuffer buf = seg.buffer.duplicate();
+        buf.position(body);
+        for (Pair<byte[], byte[]> p : pairs) {
+            buf.putInt(p.getLeft().length);
+            buf.putInt(p.getRight() == null ? TOMBSTONE : p.getRight().length);
+            buf.put(p.getLeft());
+            if (p.getRight() != null) {
+                buf.put(p.getRight());
+            }
+        }
+        buf.putInt(start + 4, checksum(buf, body, length));
+        buf.putInt(start, length);
+        seg.position = body + length;
+
+        // publish to readers
+        int pos = body;
+        for (Pair<byte[], byte[]> p : pairs) {
+            byte[] key = p.getLeft();
+            byte[] value = p.getRight();
+            pos += ENTRY_HEADER_LEN + key.length;
+
+            if (value == null) {
+                unlink(key, index.remove(key));
+            } else {
+                seg.liveBytes += ENTRY_HEADER_LEN + key.length + value.length;
+                unlink(key, index.put(key, new Pointer(seg, pos, value.length)));
+                pos += value.length;
+            }
+        }
+
+        if (rolled && !isCompacting) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the segment to append a group of the given size, creating a new one
+     * if the last segment is full.
+     *
+     * @param size
+     * @return
+     * @throws IOException
+     */
+    private Segment allocate(int size) throws IOException {
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last != null && last.position + size <= last.capacity()) {
+            return last;
+        }
+
+        int id = (last == null) ? 0 : last.id + 1;
+        Segment seg = new Segment(id, segmentFile(id), Math.max(segmentSize, size));
+        segments.put(id, seg);
+        return seg;
+    }
+
+    /**
+     * Compacts all the sealed segments which are mostly overwritten.
+     */
+    private void compact() {
+        isCompacting = true;
+        try {
+            Segment last = segments.lastEntry().getValue();
+            for (Segment seg : new ArrayList<>(segments.values())) {
+                if (seg != last && seg.liveBytes < seg.position * MIN_LIVE_RATIO) {
+                    compact(seg);
+                }
+            }
+        } finally {
+            isCompacting = false;
+        }
+    }
+
+    private void compact(Segment seg) {
+        // deletes have to be kept as long as an older segment may hold the key
+        boolean isOldest = seg == segments.firstEntry().getValue();
+
+        List<Pair<byte[], byte[]>> live = new ArrayList<>();
+        EntryVisitor visitor = (key, offset, length) -> {
+            if (length == TOMBSTONE) {
+                if (!isOldest && !index.containsKey(key)) {
+                    live.add(Pair.of(key, null));
+                }
+            } else {
+                Pointer p = index.get(key);
+                if (p != null && p.segment == seg && p.offset == offset) {
+                    live.add(Pair.of(key, seg.read(offset, length)));
+                }
+            }
+        };
+        for (int pos = 0; pos < seg.position;) {
+            int length = seg.buffer.getInt(pos);
+            visitEntries(seg, pos + GROUP_HEADER_LEN, length, visitor);
+            pos += GROUP_HEADER_LEN + length;
+        }
+
+        if (!live.isEmpty()) {
+            doUpdate(live);
+        }
+        segments.lastEntry().getValue().buffer.force();
+
+        // mark as empty, in case the file can not be deleted while mapped
+        segments.remove(seg.id);
+        seg.buffer.putInt(0, 0);
+        seg.buffer.force();
+        if (!seg.file.delete()) {
+            logger.warn("Failed to delete segment: {}", seg.file);
+        }
+
+        logger.debug("Compacted segment {}: live entries = {}", seg.file, live.size());
+    }
+
+    @Override
+    protected ClosableIterator<Entry<byte[], byte[]>> doIterator(byte[] prefix) {
+        checkOpen();
+
+        NavigableMap<byte[], Pointer> map = (prefix == null) ? index : index.tailMap(prefix, true);
+        Iterator<Entry<byte[], Pointer>> itr = map.entrySet().iterator();
+
+        return new ClosableIterator<Entry<byte[], byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
+
+            @Override
+            public Entry<byte[], byte[]> next() {
+                Entry<byte[], Pointer> e = itr.next();
+                Pointer p = e.getValue();
+                return new SimpleImmutableEntry<>(e.getKey(), p.segment.read(p.offset, p.length));
+            }
+
+            @Override
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+    @Override
+    protected void doScan(byte[] from, byte[] to, boolean reverse, ScanVisitor visitor) {
+        checkOpen();
+
+        NavigableMap<byte[], Pointer> map = (from == null) ? index : index.tailMap(from, true);
+        map = (to == null) ? map : map.headMap(to, false);
+        for (Entry<byte[], Pointer> e : (reverse ? map.descendingMap() : map).entrySet()) {
+            Pointer p = e.getValue();
+            if (!visitor.visit(ByteBuffer.wrap(e.getKey()).asReadOnlyBuffer(), p.segment.slice(p.offset, p.length))) {
+                break;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (!isOpened) {
+            throw new DatabaseException("Database is closed: " + file);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isOpened) {
+            for (Segment seg : segments.values()) {
+                seg.buffer.force();
+            }
+            isOpened = false;
+
+            index.clear();
+            segments.clear();
+        }
+    }
+
+    @Override
+    public synchronized String getStats() {
+        long live = 0;
+        long total = 0;
+        for (Segment seg : segments.values()) {
+            live += seg.liveBytes;
+            total += seg.position;
+        }
+
+        return "segments: " + segments.size() + ", keys: " + index.size() + ", live bytes: " + live
+                + ", total bytes: " + total;
+    }
+
+    @Override
+    public synchronized long getApproximateSize() {
+        long size = 0;
+        for (Segment seg : segments.values()) {
+            size += seg.position;
+        }
+        return size;
+    }
+
+    /**
+     * A memory-mapped segment file. The position and live bytes are guarded by
+     * the database.
+     */
+    private static class Segment {
+        private final int id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        private int position;
+        private long liveBytes;
+
+        /**
+         * Maps a segment file.
+         *
+         * @param id
+         * @param file
+         * @param capacity
+         *            the size of a new segment, or 0 to map the existing file
+         * @throws IOException
+         */
+        Segment(int id, File file, int capacity) throws IOException {
+            this.id = id;
+            this.file = file;
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long size = (capacity > 0) ? capacity : raf.length();
+                this.buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        byte[] read(int offset, int length) {
+            byte[] bytes = new byte[length];
+            ByteBuffer buf = buffer.duplicate();
+            buf.position(offset);
+            buf.get(bytes);
+            return bytes;
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            ByteBuffer buf = buffer.duplicate();
+            buf.limit(offset + length);
+            buf.position(offset);
+            return buf.slice().asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Location of a value.
+     */
+    private static class Pointer {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Pointer(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        void visit(byte[] key, int valueOffset, int valueLength);
+    }
+
+    public static class LogStoreFactory extends AbstractDatabaseFactory {
+
+        public LogStoreFactory(File dataDir) {
+            super(dataDir);
+
+            open();
+        }
+
+        @Override
+        protected Database createDatabase(DatabaseName name) {
+            File file = Paths.get(dataDir.getAbsolutePath(), name.toString().toLowerCase() + "-logstore").toFile();
+            return new LogStoreDatabase(file);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Visitor of the entries of a range scan.
+ */
+@FunctionalInterface
+public interface ScanVisitor {
+
+    /**
+     * Visits an entry. The buffers may be views of the storage engine memory;
+     * they are only valid during this call and must not be modified. Copy the
+     * bytes out if they are needed afterwards.
+     *
+     * @param key
+     * @param value
+     * @return whether to continue the scan
+     */
+    boolean visit(ByteBuffer key, ByteBuffer value);
+}
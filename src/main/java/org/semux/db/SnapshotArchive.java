@@ -0,0 +1,499 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ClosableIterator;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A directory holding a copy of all the databases, one file per database, used
+ * to provision a node without syncing from its peers.
+ * <p>
+ * Each file starts with a header, followed by chunks of entries in ascending
+ * order of keys and a trailer with the total number of entries. A chunk is
+ * deflated and carries the CRC32 of its content, which is checked before the
+ * entries of the chunk are written.
+ */
+public class SnapshotArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotArchive.class);
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "snapshot-" + cnt.getAndIncrement());
+        }
+    };
+
+    private static final int MAGIC = 0x534e4150; // "SNAP"
+
+    private static final int VERSION = 1;
+
+    /**
+     * The size of a chunk before compression.
+     */
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The max size of a chunk accepted on import, which may exceed
+     * {@link #CHUNK_SIZE} by the size of its last entry.
+     */
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The number of entries deleted at once when cleaning up a failed import.
+     */
+    private static final int CLEAR_BATCH_SIZE = 16 * 1024;
+
+    private static final String SUFFIX = ".snapshot";
+
+    private final File dir;
+
+    /**
+     * Creates an archive in the given directory.
+     *
+     * @param dir
+     */
+    public SnapshotArchive(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Exports all the databases of a stopped node into this archive, one thread
+     * per database.
+     *
+     * @param dbFactory
+     * @return the statistics of each database
+     * @throws IOException
+     */
+    public Map<DatabaseName, Stats> export(DatabaseFactory dbFactory) throws IOException {
+        Files.createDirectories(dir.toPath());
+
+        Map<DatabaseName, ClosableIterator<Entry<byte[], byte[]>>> iterators = new EnumMap<>(DatabaseName.class);
+        for (DatabaseName name : DatabaseName.values()) {
+            iterators.put(name, dbFactory.getDB(name).iterator());
+        }
+        return export(iterators);
+    }
+
+    /**
+     * Exports all the databases of a running node into this archive, one thread
+     * per database.
+     * <p>
+     * A snapshot of every database is taken while holding the given lock, which
+     * the writers hold while they apply a block, so the archive holds the state of
+     * a single block while the node keeps importing new ones.
+     *
+     * @param dbFactory
+     * @param lock
+     *            the lock which excludes the writers of the databases
+     * @return the statistics of each database
+     * @throws IOException
+     */
+    public Map<DatabaseName, Stats> export(DatabaseFactory dbFactory, Lock lock) throws IOException {
+        Files.createDirectories(dir.toPath());
+
+        Map<DatabaseName, ClosableIterator<Entry<byte[], byte[]>>> iterators = new EnumMap<>(DatabaseName.class);
+        lock.lock();
+        try {
+            for (DatabaseName name : DatabaseName.values()) {
+                iterators.put(name, dbFactory.getDB(name).snapshotIterator());
+            }
+        } catch (RuntimeException e) {
+            for (ClosableIterator<Entry<byte[], byte[]>> itr : iterators.values()) {
+                itr.close();
+            }
+            throw new IOException("Failed to take a snapshot of the databases", e);
+        } finally {
+            lock.unlock();
+        }
+        return export(iterators);
+    }
+
+    private Map<DatabaseName, Stats> export(Map<DatabaseName, ClosableIterator<Entry<byte[], byte[]>>> iterators)
+            throws IOException {
+        try {
+            Map<DatabaseName, Callable<Stats>> tasks = new EnumMap<>(DatabaseName.class);
+            for (Entry<DatabaseName, ClosableIterator<Entry<byte[], byte[]>>> e : iterators.entrySet()) {
+                tasks.put(e.getKey(), () -> export(e.getKey(), e.getValue()));
+            }
+            return run(tasks);
+        } finally {
+            for (ClosableIterator<Entry<byte[], byte[]>> itr : iterators.values()) {
+                itr.close();
+            }
+        }
+    }
+
+    /**
+     * Imports this archive into empty databases, one thread per database. If any
+     * database fails, the entries already imported into all of them are deleted,
+     * so the import can be retried.
+     *
+     * @param dbFactory
+     * @return the statistics of each database
+     * @throws IOException
+     *             if the archive is incomplete or corrupted, or a database is not
+     *             empty
+     */
+    public Map<DatabaseName, Stats> restore(DatabaseFactory dbFactory) throws IOException {
+        for (DatabaseName name : DatabaseName.values()) {
+            if (!fileOf(name).exists()) {
+                throw new IOException("Snapshot of database " + name + " is missing in " + dir);
+            }
+            ClosableIterator<Entry<byte[], byte[]>> itr = dbFactory.getDB(name).iterator();
+            try {
+                if (itr.hasNext()) {
+                    throw new IOException("Database " + name + " is not empty");
+                }
+            } finally {
+                itr.close();
+            }
+        }
+
+        Map<DatabaseName, Callable<Stats>> tasks = new EnumMap<>(DatabaseName.class);
+        for (DatabaseName name : DatabaseName.values()) {
+            tasks.put(name, () -> restore(name, dbFactory.getDB(name)));
+        }
+        try {
+            return run(tasks);
+        } catch (IOException e) {
+            logger.info("Deleting the partially imported databases");
+            for (DatabaseName name : DatabaseName.values()) {
+                clear(dbFactory.getDB(name));
+            }
+            throw e;
+        }
+    }
+
+    protected Stats export(DatabaseName name, ClosableIterator<Entry<byte[], byte[]>> itr) throws IOException {
+        long t1 = System.nanoTime();
+        File file = fileOf(name);
+        File tmp = new File(dir, file.getName() + ".tmp");
+
+        long entries = 0;
+        long bytes = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(name.name());
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                SimpleEncoder enc = new SimpleEncoder();
+                int n = 0;
+                while (itr.hasNext()) {
+                    Entry<byte[], byte[]> e = itr.next();
+                    enc.writeBytes(e.getKey());
+                    enc.writeBytes(e.getValue());
+                    n++;
+                    bytes += e.getKey().length + e.getValue().length;
+
+                    if (enc.getWriteIndex() >= CHUNK_SIZE) {
+                        checkInterrupted();
+                        writeChunk(out, deflater, n, enc.toBytes());
+                        entries += n;
+                        enc = new SimpleEncoder();
+                        n = 0;
+                    }
+                }
+                if (n > 0) {
+                    writeChunk(out, deflater, n, enc.toBytes());
+                    entries += n;
+                }
+            } finally {
+                deflater.end();
+            }
+
+            out.writeInt(0);
+            out.writeLong(entries);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        Stats stats = new Stats(entries, bytes, file.length(), (System.nanoTime() - t1) / 1_000_000L);
+        logger.info("Exported database {}: {}", name, stats);
+        return stats;
+    }
+
+    protected Stats restore(DatabaseName name, Database db) throws IOException {
+        long t1 = System.nanoTime();
+        File file = fileOf(name);
+
+        long entries = 0;
+        long bytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !name.name().equals(in.readUTF())) {
+                throw new IOException("Invalid snapshot header: " + file);
+            }
+
+            Inflater inflater = new Inflater();
+            try {
+                byte[] last = null;
+                int n;
+                while ((n = in.readInt()) > 0) {
+                    checkInterrupted();
+                    SimpleDecoder dec = new SimpleDecoder(readChunk(in, inflater, file));
+
+                    // keys are written in ascending order, which keeps the batches sorted
+                    List<Pair<byte[], byte[]>> pairs = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        byte[] key = dec.readBytes();
+                        byte[] value = dec.readBytes();
+                        if (last != null && compare(last, key) >= 0) {
+                            throw new IOException("Unordered keys in snapshot: " + file);
+                        }
+                        pairs.add(Pair.of(key, value));
+                        last = key;
+                        bytes += key.length + value.length;
+                    }
+                    db.updateBatch(pairs);
+                    entries += n;
+                }
+            } finally {
+                inflater.end();
+            }
+
+            if (in.readLong() != entries) {
+                throw new IOException("Truncated snapshot: " + file);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated snapshot: " + file, e);
+        }
+
+        Stats stats = new Stats(entries, bytes, file.length(), (System.nanoTime() - t1) / 1_000_000L);
+        logger.info("Imported database {}: {}", name, stats);
+        return stats;
+    }
+
+    private static void writeChunk(DataOutputStream out, Deflater deflater, int n, byte[] raw) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buf = new byte[raw.length + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            length += deflater.deflate(buf, length, buf.length - length);
+        }
+
+        out.writeInt(n);
+        out.writeInt(raw.length);
+        out.writeInt(length);
+        out.writeLong(crc.getValue());
+        out.write(buf, 0, length);
+    }
+
+    private static byte[] readChunk(DataInputStream in, Inflater inflater, File file) throws IOException {
+        int rawLength = in.readInt();
+        int length = in.readInt();
+        long checksum = in.readLong();
+        if (rawLength < 0 || rawLength > MAX_CHUNK_SIZE || length < 0 || length > MAX_CHUNK_SIZE) {
+            throw new IOException("Invalid chunk length in snapshot: " + file);
+        }
+        byte[] buf = new byte[length];
+        in.readFully(buf);
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(buf);
+        try {
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, offset, rawLength - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset != rawLength) {
+                throw new IOException("Invalid chunk in snapshot: " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid chunk in snapshot: " + file, e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch in snapshot: " + file);
+        }
+        return raw;
+    }
+
+    /**
+     * Deletes all the entries of a database.
+     *
+     * @param db
+     */
+    private static void clear(Database db) {
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+        try {
+            List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+            while (itr.hasNext()) {
+                pairs.add(Pair.of(itr.next().getKey(), null));
+                if (pairs.size() >= CLEAR_BATCH_SIZE) {
+                    db.updateBatch(pairs);
+                    pairs = new ArrayList<>();
+                }
+            }
+            if (!pairs.isEmpty()) {
+                db.updateBatch(pairs);
+            }
+        } finally {
+            itr.close();
+        }
+    }
+
+    /**
+     * Stops a task once another one has failed.
+     *
+     * @throws InterruptedIOException
+     */
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Snapshot task cancelled");
+        }
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private Map<DatabaseName, Stats> run(Map<DatabaseName, Callable<Stats>> tasks) throws IOException {
+        ExecutorService exec = Executors.newFixedThreadPool(tasks.size(), factory);
+        try {
+            Map<DatabaseName, Future<Stats>> futures = new EnumMap<>(DatabaseName.class);
+            for (Entry<DatabaseName, Callable<Stats>> e : tasks.entrySet()) {
+                futures.put(e.getKey(), exec.submit(e.getValue()));
+            }
+
+            Map<DatabaseName, Stats> result = new EnumMap<>(DatabaseName.class);
+            for (Entry<DatabaseName, Future<Stats>> e : futures.entrySet()) {
+                result.put(e.getKey(), e.getValue().get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            // the other tasks stop at their next chunk, before the caller cleans up
+            exec.shutdownNow();
+            try {
+                exec.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private File fileOf(DatabaseName name) {
+        return new File(dir, name.toString().toLowerCase() + SUFFIX);
+    }
+
+    /**
+     * Statistics of the export or import of a database.
+     */
+    public static class Stats {
+        private final long entries;
+        private final long bytes;
+        private final long compressedBytes;
+        private final long millis;
+
+        public Stats(long entries, long bytes, long compressedBytes, long millis) {
+            this.entries = entries;
+            this.bytes = bytes;
+            this.compressedBytes = compressedBytes;
+            this.millis = millis;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Returns the throughput of the uncompressed data, in MB/s.
+         *
+         * @return
+         */
+        public double getThroughput() {
+            return bytes / 1024.0 / 1024.0 / Math.max(millis, 1) * 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d entries, %d bytes (%d compressed) in %d ms, %.1f MB/s", entries, bytes,
+                    compressedBytes, millis, getThroughput());
+        }
+    }
+}
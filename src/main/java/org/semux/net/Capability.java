@@ -24,11 +24,37 @@ public enum Capability {
     /**
      * A mandatory capability of Semux testnet.
      */
-    SEM_TESTNET;
+    SEM_TESTNET,
 
-    // TODO: BATCH_SYNC
+    /**
+     * Supports ${@link org.semux.net.msg.MessageCode#GET_BLOCKS} and
+     * ${@link org.semux.net.msg.MessageCode#BLOCKS}, which transfer a range of
+     * blocks in one round trip.
+     */
+    BATCH_SYNC,
+
+    /**
+     * Supports ${@link org.semux.net.msg.MessageCode#GET_STATE_MANIFEST} and
+     * ${@link org.semux.net.msg.MessageCode#GET_STATE_CHUNK}, which transfer the
+     * state of the latest block in verifiable chunks.
+     */
+    FAST_SYNC,
 
-    // TODO: FAST_SYNC
+    /**
+     * Supports ${@link org.semux.net.msg.MessageCode#TX_INV},
+     * ${@link org.semux.net.msg.MessageCode#GET_TXS} and
+     * ${@link org.semux.net.msg.MessageCode#TXS}, which relay transactions by
+     * announcing their hashes and fetching the unknown ones.
+     */
+    TX_INV,
+
+    /**
+     * Supports ${@link org.semux.net.msg.MessageCode#BFT_COMPACT_PROPOSAL},
+     * ${@link org.semux.net.msg.MessageCode#BFT_GET_PROPOSAL_TXS} and
+     * ${@link org.semux.net.msg.MessageCode#BFT_PROPOSAL_TXS}, which relay block
+     * proposals by transaction hashes and fetch the missing transactions.
+     */
+    COMPACT_PROPOSAL;
 
     // TODO: DAPP
 
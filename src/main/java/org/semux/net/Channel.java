@@ -7,11 +7,17 @@
 package org.semux.net;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.semux.Kernel;
 import org.semux.net.msg.MessageQueue;
+import org.semux.util.ByteArray;
 
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -19,6 +25,11 @@ import io.netty.handler.timeout.ReadTimeoutHandler;
 public class Channel {
     private static final AtomicLong cnt = new AtomicLong(0);
 
+    /**
+     * The max number of transaction hashes waiting to be announced.
+     */
+    private static final int MAX_INVENTORY = 8 * 1024;
+
     private long id;
 
     private boolean isInbound;
@@ -29,6 +40,8 @@ public class Channel {
 
     private boolean isActive;
 
+    private final Set<ByteArray> inventory = new LinkedHashSet<>();
+
     /**
      * Creates a new channel instance.
      * 
@@ -82,6 +95,38 @@ public class Channel {
         return msgQueue;
     }
 
+    /**
+     * Queues the hash of a transaction to announce to the remote peer. The hash is
+     * dropped if too many are waiting.
+     *
+     * @param hash
+     * @return true if the hash is queued, otherwise false
+     */
+    public boolean announceTransaction(byte[] hash) {
+        synchronized (inventory) {
+            return inventory.size() < MAX_INVENTORY && inventory.add(ByteArray.of(hash));
+        }
+    }
+
+    /**
+     * Removes and returns the oldest transaction hashes waiting to be announced.
+     *
+     * @param max
+     *            the max number of hashes
+     * @return
+     */
+    public List<byte[]> pollInventory(int max) {
+        List<byte[]> hashes = new ArrayList<>();
+        synchronized (inventory) {
+            Iterator<ByteArray> itr = inventory.iterator();
+            while (hashes.size() < max && itr.hasNext()) {
+                hashes.add(itr.next().getData());
+                itr.remove();
+            }
+        }
+        return hashes;
+    }
+
     /**
      * Returns whether this is an inbound channel.
      * 
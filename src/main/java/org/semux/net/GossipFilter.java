@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.semux.crypto.Hash;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Filter of the gossip messages already seen, shared by all channels, which
+ * lets the copies relayed by other peers skip signature verification.
+ * <p>
+ * Messages are keyed by the hash of their encoding, signatures included, so a
+ * forged copy can't hide the genuine message.
+ */
+public class GossipFilter {
+
+    private static final int MAX_SIZE = 64 * 1024;
+
+    private final Cache<ByteArray, Boolean> seen = Caffeine.newBuilder().maximumSize(MAX_SIZE).build();
+
+    private final Map<MessageCode, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Records a message.
+     *
+     * @param msg
+     * @return true if it's the first copy of this message, otherwise false
+     */
+    public boolean add(Message msg) {
+        Counter counter = counters.computeIfAbsent(msg.getCode(), k -> new Counter());
+        counter.received.incrementAndGet();
+
+        ByteArray key = ByteArray.of(Hash.h256(Bytes.merge(msg.getCode().toByte(), msg.getEncoded())));
+        if (seen.asMap().putIfAbsent(key, Boolean.TRUE) == null) {
+            return true;
+        }
+
+        counter.duplicates.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Forgets a message, so that its next copy is handled again.
+     *
+     * @param msg
+     */
+    public void remove(Message msg) {
+        seen.invalidate(ByteArray.of(Hash.h256(Bytes.merge(msg.getCode().toByte(), msg.getEncoded()))));
+    }
+
+    /**
+     * Returns the types of the messages recorded so far.
+     *
+     * @return
+     */
+    public SortedSet<MessageCode> getCodes() {
+        return new TreeSet<>(counters.keySet());
+    }
+
+    /**
+     * Returns the number of received messages of the given type.
+     *
+     * @param code
+     * @return
+     */
+    public long getReceived(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.received.get();
+    }
+
+    /**
+     * Returns the number of duplicates among the received messages of the given
+     * type.
+     *
+     * @param code
+     * @return
+     */
+    public long getDuplicates(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.duplicates.get();
+    }
+
+    /**
+     * Returns the ratio of duplicates among the received messages of the given
+     * type.
+     *
+     * @param code
+     * @return
+     */
+    public double getDuplicateRatio(MessageCode code) {
+        long received = getReceived(code);
+        return (received == 0) ? 0 : (double) getDuplicates(code) / received;
+    }
+
+    private static class Counter {
+        private final AtomicLong received = new AtomicLong(0);
+        private final AtomicLong duplicates = new AtomicLong(0);
+    }
+}
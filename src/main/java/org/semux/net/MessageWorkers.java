@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.semux.config.Config;
+import org.semux.net.msg.MessageCode;
+
+/**
+ * Bounded pools of workers which handle the messages too expensive for the
+ * network threads: block and state requests, which read the database, and
+ * consensus messages, which verify signatures. Each kind has its own pool, so
+ * that serving sync requests doesn't delay consensus.
+ */
+public class MessageWorkers {
+
+    public enum Pool {
+        /**
+         * Block and state requests.
+         */
+        STORAGE,
+
+        /**
+         * Proposals and votes.
+         */
+        CONSENSUS
+    }
+
+    private final Map<Pool, ThreadPoolExecutor> executors = new EnumMap<>(Pool.class);
+
+    private final Map<MessageCode, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the message workers.
+     *
+     * @param config
+     */
+    public MessageWorkers(Config config) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (Pool pool : Pool.values()) {
+            int threads = (pool == Pool.STORAGE) ? Math.max(2, processors / 2) : processors;
+            executors.put(pool, new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(config.netWorkerQueueSize()), newFactory(pool)));
+        }
+    }
+
+    private static ThreadFactory newFactory(Pool pool) {
+        return new ThreadFactory() {
+            private AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "worker-" + pool.name().toLowerCase() + "-" + cnt.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Submits the handling of a message.
+     *
+     * @param pool
+     *            the pool of workers
+     * @param code
+     *            the message code
+     * @param task
+     *            the handling of the message
+     * @return true if the task is accepted, false if the pool is saturated or
+     *         shut down
+     */
+    public boolean submit(Pool pool, MessageCode code, Runnable task) {
+        Counter counter = counters.computeIfAbsent(code, k -> new Counter());
+        long submitted = System.nanoTime();
+
+        counter.queued.incrementAndGet();
+        try {
+            executors.get(pool).execute(() -> {
+                counter.queued.decrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    long latency = System.nanoTime() - submitted;
+                    counter.handled.incrementAndGet();
+                    counter.totalLatency.addAndGet(latency);
+                    counter.maxLatency.accumulateAndGet(latency, Math::max);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            counter.queued.decrementAndGet();
+            counter.rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Stops all workers and waits for the messages being handled. Messages
+     * waiting in the queues are discarded.
+     */
+    public void stop() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+
+        try {
+            for (ThreadPoolExecutor executor : executors.values()) {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the types of the messages submitted so far.
+     *
+     * @return
+     */
+    public SortedSet<MessageCode> getCodes() {
+        return new TreeSet<>(counters.keySet());
+    }
+
+    /**
+     * Returns the number of messages of the given type waiting for a worker.
+     *
+     * @param code
+     * @return
+     */
+    public int getQueued(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.queued.get();
+    }
+
+    /**
+     * Returns the number of messages of the given type handled by workers.
+     *
+     * @param code
+     * @return
+     */
+    public long getHandled(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.handled.get();
+    }
+
+    /**
+     * Returns the number of submissions of the given type rejected because the
+     * pool was saturated. A rejected message may be submitted again later.
+     *
+     * @param code
+     * @return
+     */
+    public long getRejected(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.rejected.get();
+    }
+
+    /**
+     * Returns the average time from submission to the end of handling of the
+     * messages of the given type, in microseconds.
+     *
+     * @param code
+     * @return
+     */
+    public long getAverageLatency(MessageCode code) {
+        Counter counter = counters.get(code);
+        long handled = (counter == null) ? 0 : counter.handled.get();
+        return (handled == 0) ? 0 : counter.totalLatency.get() / handled / 1000L;
+    }
+
+    /**
+     * Returns the max time from submission to the end of handling of the
+     * messages of the given type, in microseconds.
+     *
+     * @param code
+     * @return
+     */
+    public long getMaxLatency(MessageCode code) {
+        Counter counter = counters.get(code);
+        return (counter == null) ? 0 : counter.maxLatency.get() / 1000L;
+    }
+
+    private static class Counter {
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final AtomicLong handled = new AtomicLong(0);
+        private final AtomicLong rejected = new AtomicLong(0);
+        private final AtomicLong totalLatency = new AtomicLong(0);
+        private final AtomicLong maxLatency = new AtomicLong(0);
+    }
+}
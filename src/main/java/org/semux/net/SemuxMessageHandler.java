@@ -8,6 +8,7 @@ package org.semux.net;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,7 +53,36 @@ public class SemuxMessageHandler extends MessageToMessageCodec<Frame, Message> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Message msg, List<Object> out) throws Exception {
-        byte[] data = msg.getEncoded();
+        // a relayed message is compressed and split only once, for all channels
+        List<byte[]> bodies = msg.getFrameBodies();
+        if (bodies == null) {
+            bodies = encodeBodies(msg.getEncoded());
+            if (bodies == null) {
+                return;
+            }
+            msg.setFrameBodies(bodies);
+        }
+
+        byte packetType = msg.getCode().toByte();
+        int packetId = count.incrementAndGet();
+        int packetSize = 0;
+        for (byte[] body : bodies) {
+            packetSize += body.length;
+        }
+
+        for (byte[] body : bodies) {
+            out.add(new Frame(Frame.VERSION, COMPRESS_TYPE, packetType, packetId, packetSize, body.length, body));
+        }
+    }
+
+    /**
+     * Compresses the encoded data of a message and splits it into frame bodies.
+     *
+     * @param data
+     * @return the frame bodies, or null if the data can't be sent
+     * @throws IOException
+     */
+    protected List<byte[]> encodeBodies(byte[] data) throws IOException {
         byte[] dataCompressed = data;
 
         switch (COMPRESS_TYPE) {
@@ -63,26 +93,24 @@ public class SemuxMessageHandler extends MessageToMessageCodec<Frame, Message> {
             break;
         default:
             logger.error("Unsupported compress type: " + COMPRESS_TYPE);
-            return;
+            return null;
         }
 
-        byte packetType = msg.getCode().toByte();
-        int packetId = count.incrementAndGet();
-        int packetSize = dataCompressed.length;
-
         if (data.length > config.netMaxPacketSize() || dataCompressed.length > config.netMaxPacketSize()) {
-            logger.error("Invalid packet size, max = {}, actual = {}", config.netMaxPacketSize(), packetSize);
-            return;
+            logger.error("Invalid packet size, max = {}, actual = {}", config.netMaxPacketSize(),
+                    dataCompressed.length);
+            return null;
         }
 
         int limit = config.netMaxFrameBodySize();
         int total = (dataCompressed.length - 1) / limit + 1;
+        List<byte[]> bodies = new ArrayList<>(total);
         for (int i = 0; i < total; i++) {
-            byte[] body = new byte[(i < total - 1) ? limit : dataCompressed.length % limit];
-            System.arraycopy(dataCompressed, i * limit, body, 0, body.length);
-
-            out.add(new Frame(Frame.VERSION, COMPRESS_TYPE, packetType, packetId, packetSize, body.length, body));
+            bodies.add(Arrays.copyOfRange(dataCompressed, i * limit,
+                    Math.min(dataCompressed.length, (i + 1) * limit)));
         }
+
+        return Collections.unmodifiableList(bodies);
     }
 
     @Override
@@ -9,15 +9,19 @@ package org.semux.net;
 import static org.semux.net.msg.p2p.NodesMessage.MAX_NODES;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import org.semux.Kernel;
@@ -29,6 +33,8 @@ import org.semux.core.Blockchain;
 import org.semux.core.Consensus;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
+import org.semux.core.Transaction;
+import org.semux.core.state.StateTree;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageQueue;
@@ -36,16 +42,25 @@ import org.semux.net.msg.MessageWrapper;
 import org.semux.net.msg.ReasonCode;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
+import org.semux.net.msg.consensus.GetStateChunkMessage;
+import org.semux.net.msg.consensus.GetStateManifestMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
+import org.semux.net.msg.consensus.StateChunkMessage;
+import org.semux.net.msg.consensus.StateManifestMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTxsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TxInvMessage;
+import org.semux.net.msg.p2p.TxsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +75,16 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
 
     private final static Logger logger = LoggerFactory.getLogger(SemuxP2pHandler.class);
 
+    /**
+     * The interval of announcing new transactions, in milliseconds.
+     */
+    private static final long TX_INV_INTERVAL = 200L;
+
+    /**
+     * The interval of submitting deferred messages again, in milliseconds.
+     */
+    private static final long RESUBMIT_INTERVAL = 50L;
+
     private static ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         private AtomicInteger cnt = new AtomicInteger(0);
 
@@ -78,6 +103,8 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
     private ChannelManager channelMgr;
     private NodeManager nodeMgr;
     private PeerClient client;
+    private GossipFilter gossipFilter;
+    private MessageWorkers workers;
 
     private SyncManager sync;
     private Consensus consensus;
@@ -85,8 +112,20 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
     private MessageQueue msgQueue;
     private boolean isHandshakeDone;
 
+    /**
+     * Messages of this channel waiting for or being handled by the workers.
+     */
+    private AtomicInteger pending = new AtomicInteger(0);
+
+    /**
+     * Messages of this channel rejected by the saturated workers, in the order of
+     * arrival. Only accessed from the event loop of the channel.
+     */
+    private final Deque<BooleanSupplier> deferred = new ArrayDeque<>();
+
     private ScheduledFuture<?> getNodes = null;
     private ScheduledFuture<?> pingPong = null;
+    private ScheduledFuture<?> txInv = null;
 
     /**
      * Creates a new P2P handler.
@@ -102,6 +141,8 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         this.channelMgr = kernel.getChannelManager();
         this.nodeMgr = kernel.getNodeManager();
         this.client = kernel.getClient();
+        this.gossipFilter = kernel.getGossipFilter();
+        this.workers = kernel.getMessageWorkers();
 
         this.sync = kernel.getSyncManager();
         this.consensus = kernel.getConsensus();
@@ -139,6 +180,16 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         stopTimers();
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // resume sending once the outbound buffer has been drained
+        if (ctx.channel().isWritable()) {
+            msgQueue.nudge();
+        }
+
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         logger.debug("Exception in P2P handler, cid = {}", channel.getId(), cause);
@@ -249,7 +300,42 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         }
         case TRANSACTION: {
             TransactionMessage transactionMsg = (TransactionMessage) msg;
-            pendingMgr.addTransaction(transactionMsg.getTransaction());
+            if (gossipFilter.add(msg) && !pendingMgr.addTransaction(transactionMsg.getTransaction())) {
+                // the queue is full, let a later copy in
+                gossipFilter.remove(msg);
+            }
+            break;
+        }
+        case TX_INV: {
+            if (isHandshakeDone) {
+                TxInvMessage m = (TxInvMessage) msg;
+                if (m.validate()) {
+                    List<byte[]> unknown = pendingMgr.selectUnknownTransactions(m.getHashes());
+                    if (!unknown.isEmpty()) {
+                        msgQueue.sendMessage(new GetTxsMessage(unknown));
+                    }
+                }
+            }
+            break;
+        }
+        case GET_TXS: {
+            if (isHandshakeDone) {
+                GetTxsMessage m = (GetTxsMessage) msg;
+                // always reply, the request is kept by the queue of the peer until then
+                List<Transaction> txs = m.validate() ? getTransactions(m.getHashes()) : Collections.emptyList();
+                msgQueue.sendMessage(new TxsMessage(txs));
+            }
+            break;
+        }
+        case TXS: {
+            if (isHandshakeDone) {
+                TxsMessage m = (TxsMessage) msg;
+                if (m.validate()) {
+                    for (Transaction tx : m.getTransactions()) {
+                        pendingMgr.addTransaction(tx);
+                    }
+                }
+            }
             break;
         }
 
@@ -257,8 +343,12 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         case GET_BLOCK: {
             if (isHandshakeDone) {
                 GetBlockMessage m = (GetBlockMessage) msg;
-                Block block = chain.getBlock(m.getNumber());
-                channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                dispatch(ctx, MessageWorkers.Pool.STORAGE, msg, () -> {
+                    Block block = chain.getBlock(m.getNumber());
+                    if (block != null) {
+                        channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                    }
+                });
             }
             break;
         }
@@ -271,8 +361,12 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         case GET_BLOCK_HEADER: {
             if (isHandshakeDone) {
                 GetBlockHeaderMessage m = (GetBlockHeaderMessage) msg;
-                BlockHeader header = chain.getBlockHeader(m.getNumber());
-                channel.getMessageQueue().sendMessage(new BlockHeaderMessage(header));
+                dispatch(ctx, MessageWorkers.Pool.STORAGE, msg, () -> {
+                    BlockHeader header = chain.getBlockHeader(m.getNumber());
+                    if (header != null) {
+                        channel.getMessageQueue().sendMessage(new BlockHeaderMessage(header));
+                    }
+                });
             }
             break;
         }
@@ -282,17 +376,73 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             }
             break;
         }
+        case GET_BLOCKS: {
+            if (isHandshakeDone) {
+                GetBlocksMessage m = (GetBlocksMessage) msg;
+                if (m.validate()) {
+                    dispatch(ctx, MessageWorkers.Pool.STORAGE, msg, () -> channel.getMessageQueue()
+                            .sendMessage(new BlocksMessage(getBlocks(m.getFrom(), m.getCount()))));
+                }
+            }
+            break;
+        }
+        case BLOCKS: {
+            if (isHandshakeDone) {
+                sync.onMessage(channel, msg);
+            }
+            break;
+        }
+        case GET_STATE_MANIFEST: {
+            if (isHandshakeDone) {
+                GetStateManifestMessage m = (GetStateManifestMessage) msg;
+                if (m.validate()) {
+                    dispatch(ctx, MessageWorkers.Pool.STORAGE, msg, () -> channel.getMessageQueue()
+                            .sendMessage(new StateManifestMessage(chain.getCheckpoint(m.getLevel()))));
+                }
+            }
+            break;
+        }
+        case GET_STATE_CHUNK: {
+            if (isHandshakeDone) {
+                GetStateChunkMessage m = (GetStateChunkMessage) msg;
+                if (m.validate()) {
+                    dispatch(ctx, MessageWorkers.Pool.STORAGE, msg, () -> {
+                        long number = chain.getLatestBlockNumber();
+                        List<StateTree.Leaf> leaves = chain.getStateChunk(m.getLevel(), m.getIndex());
+                        channel.getMessageQueue()
+                                .sendMessage(new StateChunkMessage(number, m.getLevel(), m.getIndex(), leaves));
+                    });
+                }
+            }
+            break;
+        }
+        case STATE_MANIFEST:
+        case STATE_CHUNK: {
+            if (isHandshakeDone) {
+                sync.onMessage(channel, msg);
+            }
+            break;
+        }
 
         /* consensus */
         case BFT_NEW_HEIGHT:
-        case BFT_NEW_VIEW:
-        case BFT_PROPOSAL:
-        case BFT_VOTE: {
+        case BFT_NEW_VIEW: {
             if (isHandshakeDone) {
                 consensus.onMessage(channel, msg);
             }
             break;
         }
+        case BFT_PROPOSAL:
+        case BFT_VOTE:
+        case BFT_COMPACT_PROPOSAL:
+        case BFT_GET_PROPOSAL_TXS:
+        case BFT_PROPOSAL_TXS: {
+            if (isHandshakeDone) {
+                // signatures are verified by the consensus workers
+                dispatch(ctx, MessageWorkers.Pool.CONSENSUS, msg, () -> consensus.onMessage(channel, msg));
+            }
+            break;
+        }
 
         default: {
             ctx.fireChannelRead(msg);
@@ -301,6 +451,165 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         }
     }
 
+    /**
+     * Hands the handling of a message over to the message workers, and pauses
+     * reading from this channel while too many of its messages are pending. A
+     * message is never dropped: when the workers are saturated, it is deferred and
+     * submitted again later, so that a request is always answered.
+     *
+     * @param ctx
+     * @param pool
+     * @param msg
+     * @param task
+     */
+    private void dispatch(ChannelHandlerContext ctx, MessageWorkers.Pool pool, Message msg, Runnable task) {
+        pending.incrementAndGet();
+        BooleanSupplier submit = () -> workers.submit(pool, msg.getCode(), () -> {
+            try {
+                if (channel.isActive()) {
+                    task.run();
+                }
+            } finally {
+                pending.decrementAndGet();
+                try {
+                    ctx.executor().execute(() -> updateAutoRead(ctx));
+                } catch (RejectedExecutionException e) {
+                    // the event loop is shut down
+                }
+            }
+        });
+
+        // keep the order of the messages of this channel
+        if (!deferred.isEmpty()) {
+            deferred.add(submit);
+        } else if (!submit.getAsBoolean()) {
+            logger.debug("Message workers are saturated, deferred {} from {}", msg.getCode(),
+                    channel.getRemoteIp());
+            deferred.add(submit);
+            scheduleResubmit(ctx);
+        }
+        updateAutoRead(ctx);
+    }
+
+    /**
+     * Submits the deferred messages again, until the workers reject one. Only
+     * called from the event loop of the channel.
+     *
+     * @param ctx
+     */
+    private void resubmit(ChannelHandlerContext ctx) {
+        if (!channel.isActive()) {
+            pending.addAndGet(-deferred.size());
+            deferred.clear();
+            return;
+        }
+
+        while (!deferred.isEmpty()) {
+            if (!deferred.peek().getAsBoolean()) {
+                scheduleResubmit(ctx);
+                break;
+            }
+            deferred.poll();
+        }
+        updateAutoRead(ctx);
+    }
+
+    private void scheduleResubmit(ChannelHandlerContext ctx) {
+        try {
+            ctx.executor().schedule(() -> resubmit(ctx), RESUBMIT_INTERVAL, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the event loop is shut down
+        }
+    }
+
+    /**
+     * Pauses reading from this channel when the number of pending messages
+     * reaches the limit, and resumes it when half of them are done. Only called
+     * from the event loop of the channel.
+     *
+     * @param ctx
+     */
+    private void updateAutoRead(ChannelHandlerContext ctx) {
+        int max = config.netMaxPendingMessagesPerChannel();
+        int n = pending.get();
+        boolean autoRead = ctx.channel().config().isAutoRead();
+
+        if (autoRead && n >= max) {
+            logger.debug("Pausing reads from {}, # pending messages = {}", channel.getRemoteIp(), n);
+            ctx.channel().config().setAutoRead(false);
+        } else if (!autoRead && n <= max / 2) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * Returns consecutive blocks starting from the given number, limited by the
+     * max packet size.
+     *
+     * @param from
+     * @param count
+     * @return
+     */
+    private List<Block> getBlocks(long from, int count) {
+        List<Block> blocks = new ArrayList<>();
+
+        long to = Math.min(from + count - 1, chain.getLatestBlockNumber());
+        int size = 0;
+        for (long i = from; i <= to; i++) {
+            Block block = chain.getBlock(i);
+            if (block == null) {
+                break;
+            }
+
+            // leave room for the encoding overhead
+            size += block.size();
+            if (!blocks.isEmpty() && size > config.netMaxPacketSize() / 2) {
+                break;
+            }
+            blocks.add(block);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Returns the requested transactions still known to the pending manager,
+     * limited by the max packet size.
+     *
+     * @param hashes
+     * @return
+     */
+    private List<Transaction> getTransactions(List<byte[]> hashes) {
+        List<Transaction> txs = new ArrayList<>();
+
+        int size = 0;
+        for (byte[] hash : hashes) {
+            Transaction tx = pendingMgr.getProcessedTransaction(hash);
+            if (tx == null) {
+                continue;
+            }
+
+            // leave room for the encoding overhead
+            size += tx.size();
+            if (!txs.isEmpty() && size > config.netMaxPacketSize() / 2) {
+                break;
+            }
+            txs.add(tx);
+        }
+
+        return txs;
+    }
+
+    /**
+     * Sends the hashes of the transactions queued since the last announcement.
+     */
+    private void announceTransactions() {
+        List<byte[]> hashes;
+        while (!(hashes = channel.pollInventory(TxInvMessage.MAX_HASHES)).isEmpty()) {
+            msgQueue.sendMessage(new TxInvMessage(hashes));
+        }
+    }
+
     /**
      * Checks if a HELLO message is success.
      *
@@ -339,6 +648,10 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             pingPong = exec.scheduleAtFixedRate(() -> msgQueue.sendMessage(new PingMessage()),
                     channel.isInbound() ? 1 : 0, 1, TimeUnit.MINUTES);
 
+            // start announcing transactions in batches
+            txInv = exec.scheduleAtFixedRate(this::announceTransactions,
+                    TX_INV_INTERVAL, TX_INV_INTERVAL, TimeUnit.MILLISECONDS);
+
             // set indicator
             isHandshakeDone = true;
         } else {
@@ -378,6 +691,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             pingPong = null;
         }
 
+        if (txInv != null) {
+            txInv.cancel(false);
+            txInv = null;
+        }
+
         msgQueue.deactivate();
     }
 }
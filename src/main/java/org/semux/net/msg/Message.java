@@ -6,6 +6,8 @@
  */
 package org.semux.net.msg;
 
+import java.util.List;
+
 import org.semux.util.Bytes;
 
 /**
@@ -28,6 +30,12 @@ public abstract class Message {
      */
     protected byte[] encoded;
 
+    /**
+     * The compressed encoded data split into frame bodies, computed by the first
+     * channel this message is sent to and reused by the others.
+     */
+    private volatile List<byte[]> frameBodies;
+
     /**
      * Create a message instance.
      * 
@@ -49,6 +57,25 @@ public abstract class Message {
         return encoded;
     }
 
+    /**
+     * Returns the frame bodies of this message, or null if it has not been sent
+     * yet.
+     *
+     * @return
+     */
+    public List<byte[]> getFrameBodies() {
+        return frameBodies;
+    }
+
+    /**
+     * Sets the frame bodies of this message.
+     *
+     * @param frameBodies
+     */
+    public void setFrameBodies(List<byte[]> frameBodies) {
+        this.frameBodies = frameBodies;
+    }
+
     /**
      * Get the message code
      * 
@@ -52,6 +52,21 @@ public enum MessageCode {
      */
     TRANSACTION(0x07),
 
+    /**
+     * [0x08] Announce the hashes of new transactions.
+     */
+    TX_INV(0x08),
+
+    /**
+     * [0x09] Request the transactions of the given hashes.
+     */
+    GET_TXS(0x09),
+
+    /**
+     * [0x0a] Response to a GET_TXS message.
+     */
+    TXS(0x0a),
+
     // =======================================
     // [0x30, 0x3f] Reserved for sync
     // =======================================
@@ -76,6 +91,36 @@ public enum MessageCode {
      */
     BLOCK_HEADER(0x33),
 
+    /**
+     * [0x34] Request a range of blocks from the peer.
+     */
+    GET_BLOCKS(0x34),
+
+    /**
+     * [0x35] Response containing a range of blocks.
+     */
+    BLOCKS(0x35),
+
+    /**
+     * [0x36] Request the state manifest of the latest block from the peer.
+     */
+    GET_STATE_MANIFEST(0x36),
+
+    /**
+     * [0x37] Response containing a state manifest.
+     */
+    STATE_MANIFEST(0x37),
+
+    /**
+     * [0x38] Request a chunk of the state from the peer.
+     */
+    GET_STATE_CHUNK(0x38),
+
+    /**
+     * [0x39] Response containing a chunk of the state.
+     */
+    STATE_CHUNK(0x39),
+
     // =======================================
     // [0x40, 0x4f] Reserved for BFT
     // =======================================
@@ -98,7 +143,24 @@ public enum MessageCode {
     /**
      * [0x43] BFT vote message.
      */
-    BFT_VOTE(0x43);
+    BFT_VOTE(0x43),
+
+    /**
+     * [0x44] BFT proposal message carrying transaction hashes instead of
+     * transactions.
+     */
+    BFT_COMPACT_PROPOSAL(0x44),
+
+    /**
+     * [0x45] Request the transactions of a compact proposal that are not known
+     * locally.
+     */
+    BFT_GET_PROPOSAL_TXS(0x45),
+
+    /**
+     * [0x46] Response to a BFT_GET_PROPOSAL_TXS message.
+     */
+    BFT_PROPOSAL_TXS(0x46);
 
     private static final MessageCode[] map = new MessageCode[256];
     static {
@@ -9,19 +9,31 @@ package org.semux.net.msg;
 import org.semux.crypto.Hex;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlocksMessage;
+import org.semux.net.msg.consensus.CompactProposalMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetBlocksMessage;
+import org.semux.net.msg.consensus.GetProposalTxsMessage;
+import org.semux.net.msg.consensus.GetStateChunkMessage;
+import org.semux.net.msg.consensus.GetStateManifestMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
 import org.semux.net.msg.consensus.NewViewMessage;
 import org.semux.net.msg.consensus.ProposalMessage;
+import org.semux.net.msg.consensus.ProposalTxsMessage;
+import org.semux.net.msg.consensus.StateChunkMessage;
+import org.semux.net.msg.consensus.StateManifestMessage;
 import org.semux.net.msg.consensus.VoteMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTxsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TxInvMessage;
+import org.semux.net.msg.p2p.TxsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
 import org.semux.util.Bytes;
 import org.semux.util.exception.UnreachableException;
@@ -62,6 +74,12 @@ public class MessageFactory {
                 return new NodesMessage(encoded);
             case TRANSACTION:
                 return new TransactionMessage(encoded);
+            case TX_INV:
+                return new TxInvMessage(encoded);
+            case GET_TXS:
+                return new GetTxsMessage(encoded);
+            case TXS:
+                return new TxsMessage(encoded);
 
             case GET_BLOCK:
                 return new GetBlockMessage(encoded);
@@ -71,6 +89,18 @@ public class MessageFactory {
                 return new GetBlockHeaderMessage(encoded);
             case BLOCK_HEADER:
                 return new BlockHeaderMessage(encoded);
+            case GET_BLOCKS:
+                return new GetBlocksMessage(encoded);
+            case BLOCKS:
+                return new BlocksMessage(encoded);
+            case GET_STATE_MANIFEST:
+                return new GetStateManifestMessage(encoded);
+            case STATE_MANIFEST:
+                return new StateManifestMessage(encoded);
+            case GET_STATE_CHUNK:
+                return new GetStateChunkMessage(encoded);
+            case STATE_CHUNK:
+                return new StateChunkMessage(encoded);
 
             case BFT_NEW_HEIGHT:
                 return new NewHeightMessage(encoded);
@@ -80,6 +110,12 @@ public class MessageFactory {
                 return new ProposalMessage(encoded);
             case BFT_VOTE:
                 return new VoteMessage(encoded);
+            case BFT_COMPACT_PROPOSAL:
+                return new CompactProposalMessage(encoded);
+            case BFT_GET_PROPOSAL_TXS:
+                return new GetProposalTxsMessage(encoded);
+            case BFT_PROPOSAL_TXS:
+                return new ProposalTxsMessage(encoded);
 
             default:
                 throw new UnreachableException();
@@ -8,11 +8,7 @@ package org.semux.net.msg;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.semux.config.Config;
@@ -25,18 +21,28 @@ import io.netty.channel.ChannelHandlerContext;
 
 /**
  * This class contains the logic for sending messages.
+ *
+ * <p>
+ * Sending is event-driven: a drain task is scheduled on the event loop of the
+ * channel whenever the queue becomes non-empty, a request gets answered, or the
+ * channel becomes writable again. Each drain writes all pending responses, up
+ * to {@link #MAX_MESSAGES_PER_DRAIN} messages or {@link #MAX_BYTES_PER_DRAIN}
+ * bytes, plus the head request, and flushes once.
+ * </p>
  */
 public class MessageQueue {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageQueue.class);
 
-    private static final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, new ThreadFactory() {
-        private AtomicInteger cnt = new AtomicInteger(0);
+    /**
+     * The max number of messages written before a flush.
+     */
+    private static final int MAX_MESSAGES_PER_DRAIN = 256;
 
-        public Thread newThread(Runnable r) {
-            return new Thread(r, "msg-" + cnt.getAndIncrement());
-        }
-    });
+    /**
+     * The max number of bytes written before a flush.
+     */
+    private static final int MAX_BYTES_PER_DRAIN = 1024 * 1024;
 
     private Config config;
 
@@ -44,9 +50,19 @@ public class MessageQueue {
     private Queue<MessageWrapper> responses = new ConcurrentLinkedQueue<>();
     private Queue<MessageWrapper> prioritizedResponses = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Number of queued messages, as {@link ConcurrentLinkedQueue#size()} is not a
+     * constant-time operation.
+     */
+    private AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * Whether a drain task has been scheduled and not yet started.
+     */
+    private AtomicBoolean scheduled = new AtomicBoolean(false);
+
     private ChannelHandlerContext ctx;
-    private ScheduledFuture<?> timerTask;
-    private boolean initialized;
+    private volatile boolean initialized;
 
     /**
      * Create a message queue with the specified maximum queue size.
@@ -65,15 +81,9 @@ public class MessageQueue {
     public synchronized void activate(ChannelHandlerContext ctx) {
         if (!initialized) {
             this.ctx = ctx;
-            this.timerTask = timer.scheduleAtFixedRate(() -> {
-                try {
-                    nudgeQueue();
-                } catch (Exception t) {
-                    logger.error("Exception in MessageQueue", t);
-                }
-            }, 1, 1, TimeUnit.MILLISECONDS);
-
             initialized = true;
+
+            nudge();
         }
     }
 
@@ -82,12 +92,26 @@ public class MessageQueue {
      */
     public synchronized void deactivate() {
         if (initialized) {
-            this.timerTask.cancel(false);
-
             initialized = false;
         }
     }
 
+    /**
+     * Schedules a drain of this message queue on the event loop, unless one is
+     * already pending.
+     */
+    public void nudge() {
+        if (initialized && scheduled.compareAndSet(false, true)) {
+            ctx.executor().execute(() -> {
+                try {
+                    drainQueue();
+                } catch (Exception e) {
+                    logger.error("Exception in MessageQueue", e);
+                }
+            });
+        }
+    }
+
     /**
      * Returns if this message queue is idle.
      *
@@ -140,6 +164,9 @@ public class MessageQueue {
                 responses.add(new MessageWrapper(msg));
             }
         }
+        size.incrementAndGet();
+
+        nudge();
         return true;
     }
 
@@ -155,6 +182,7 @@ public class MessageQueue {
 
             if (m.getResponseMessageClass() != null && msg.getClass() == m.getResponseMessageClass()) {
                 mw.answer();
+                nudge();
                 return mw;
             }
         }
@@ -168,38 +196,89 @@ public class MessageQueue {
      * @return
      */
     public int size() {
-        return requests.size() + responses.size() + prioritizedResponses.size();
+        return size.get();
     }
 
-    protected void nudgeQueue() {
+    /**
+     * Writes queued messages to the channel and flushes once.
+     */
+    protected void drainQueue() {
+        scheduled.set(false);
+        if (!initialized) {
+            return;
+        }
+
         removeAnsweredMessage(requests.peek());
 
+        int messages = 0;
+        int bytes = 0;
+        boolean writable = ctx.channel().isWritable();
+
         // send responses
-        MessageWrapper msg = prioritizedResponses.poll();
-        sendToWire(msg == null ? responses.poll() : msg);
+        while (writable && messages < MAX_MESSAGES_PER_DRAIN && bytes < MAX_BYTES_PER_DRAIN) {
+            MessageWrapper msg = prioritizedResponses.poll();
+            if (msg == null) {
+                msg = responses.poll();
+            }
+            if (msg == null) {
+                break;
+            }
+            size.decrementAndGet();
+
+            bytes += sendToWire(msg);
+            messages++;
+            writable = ctx.channel().isWritable();
+        }
+
+        // send requests, one at a time
+        if (writable) {
+            int written = sendToWire(requests.peek());
+            if (written > 0) {
+                bytes += written;
+                messages++;
+            }
+        }
+
+        if (messages > 0) {
+            logger.trace("Flushing {} messages, {} bytes", messages, bytes);
+            ctx.flush();
+        }
 
-        // send requests
-        sendToWire(requests.peek());
+        // yield to other channels if the budget is used up; a non-writable channel
+        // is resumed by the writability change
+        if (writable && (!prioritizedResponses.isEmpty() || !responses.isEmpty())) {
+            nudge();
+        }
     }
 
     protected void removeAnsweredMessage(MessageWrapper mw) {
         if (mw != null && mw.isAnswered()) {
             requests.remove();
+            size.decrementAndGet();
         }
     }
 
-    protected void sendToWire(MessageWrapper mw) {
+    /**
+     * Writes a message to the channel, without flushing.
+     *
+     * @param mw
+     * @return the number of bytes written, or -1 if nothing was written
+     */
+    protected int sendToWire(MessageWrapper mw) {
 
         if (mw != null && mw.getRetries() == 0) {
             Message msg = mw.getMessage();
 
             logger.trace("Wiring message: {}", msg);
-            ctx.writeAndFlush(msg).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            ctx.write(msg).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
 
             if (msg.getResponseMessageClass() != null) {
                 mw.increaseRetries();
                 mw.saveTime();
             }
+            return msg.getEncoded().length;
         }
+
+        return -1;
     }
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.semux.consensus.Proof;
+import org.semux.consensus.Proposal;
+import org.semux.core.BlockHeader;
+import org.semux.core.Transaction;
+import org.semux.crypto.Key.Signature;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.ByteArray;
+import org.semux.util.MerkleTree;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A block proposal where the transactions are replaced by their hashes. The
+ * receiver restores the transactions from its pending manager, fetches the
+ * missing ones from the sender, and verifies the signature of the restored
+ * proposal.
+ */
+public class CompactProposalMessage extends Message {
+
+    private Proof proof;
+    private BlockHeader blockHeader;
+    private List<byte[]> hashes;
+    private Signature signature;
+
+    public CompactProposalMessage(Proposal proposal) {
+        super(MessageCode.BFT_COMPACT_PROPOSAL, null);
+        this.proof = proposal.getProof();
+        this.blockHeader = proposal.getBlockHeader();
+        this.hashes = new ArrayList<>();
+        for (Transaction tx : proposal.getTransactions()) {
+            hashes.add(tx.getHash());
+        }
+        this.signature = proposal.getSignature();
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(proof.toBytes());
+        enc.writeBytes(blockHeader.toBytes());
+        enc.writeInt(hashes.size());
+        for (byte[] hash : hashes) {
+            enc.writeBytes(hash);
+        }
+        enc.writeBytes(signature.toBytes());
+        this.encoded = enc.toBytes();
+    }
+
+    public CompactProposalMessage(byte[] encoded) {
+        super(MessageCode.BFT_COMPACT_PROPOSAL, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.proof = Proof.fromBytes(dec.readBytes());
+        this.blockHeader = BlockHeader.fromBytes(dec.readBytes());
+        this.hashes = new ArrayList<>();
+        int n = dec.readInt();
+        for (int i = 0; i < n; i++) {
+            hashes.add(dec.readBytes());
+        }
+        this.signature = Signature.fromBytes(dec.readBytes());
+    }
+
+    /**
+     * Validates this message, and checks that the hashes are the transactions of
+     * the block. The signature can only be verified once the transactions are
+     * restored.
+     *
+     * @return
+     */
+    public boolean validate() {
+        if (getHeight() <= 0 || getView() < 0 || proof.getHeight() != blockHeader.getNumber()) {
+            return false;
+        }
+
+        Set<ByteArray> set = new HashSet<>();
+        for (byte[] hash : hashes) {
+            if (hash.length != 32 || !set.add(ByteArray.of(hash))) {
+                return false;
+            }
+        }
+        return Arrays.equals(new MerkleTree(hashes).getRootHash(), blockHeader.getTransactionsRoot());
+    }
+
+    /**
+     * Restores the proposal.
+     *
+     * @param transactions
+     *            the transactions, in the order of their hashes
+     * @return
+     */
+    public Proposal toProposal(List<Transaction> transactions) {
+        return new Proposal(proof, blockHeader, transactions, signature);
+    }
+
+    public long getHeight() {
+        return proof.getHeight();
+    }
+
+    public int getView() {
+        return proof.getView();
+    }
+
+    public BlockHeader getBlockHeader() {
+        return blockHeader;
+    }
+
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "BFTCompactProposalMessage [height=" + getHeight() + ", view=" + getView() + ", # txs="
+                + hashes.size() + "]";
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class GetBlocksMessage extends Message {
+
+    /**
+     * The max number of blocks that can be requested at once.
+     */
+    public static final int MAX_COUNT = 256;
+
+    private long from;
+    private int count;
+
+    public GetBlocksMessage(long from, int count) {
+        super(MessageCode.GET_BLOCKS, BlocksMessage.class);
+        this.from = from;
+        this.count = count;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(from);
+        enc.writeInt(count);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetBlocksMessage(byte[] encoded) {
+        super(MessageCode.GET_BLOCKS, BlocksMessage.class);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.from = dec.readLong();
+        this.count = dec.readInt();
+    }
+
+    public boolean validate() {
+        return from >= 0 && count > 0 && count <= MAX_COUNT;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "GetBlocksMessage [from=" + from + ", count=" + count + "]";
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Hex;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class GetProposalTxsMessage extends Message {
+
+    private byte[] blockHash;
+    private List<Integer> indices;
+
+    /**
+     * Create a BFT_GET_PROPOSAL_TXS message.
+     *
+     * @param blockHash
+     *            the hash of the proposed block
+     * @param indices
+     *            the positions of the requested transactions in the block
+     */
+    public GetProposalTxsMessage(byte[] blockHash, List<Integer> indices) {
+        super(MessageCode.BFT_GET_PROPOSAL_TXS, ProposalTxsMessage.class);
+        this.blockHash = blockHash;
+        this.indices = indices;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(blockHash);
+        enc.writeInt(indices.size());
+        for (int index : indices) {
+            enc.writeInt(index);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public GetProposalTxsMessage(byte[] encoded) {
+        super(MessageCode.BFT_GET_PROPOSAL_TXS, ProposalTxsMessage.class);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.blockHash = dec.readBytes();
+        this.indices = new ArrayList<>();
+        int n = dec.readInt();
+        for (int i = 0; i < n; i++) {
+            indices.add(dec.readInt());
+        }
+    }
+
+    /**
+     * Validates this request against the number of transactions in the block.
+     *
+     * @param size
+     * @return
+     */
+    public boolean validate(int size) {
+        if (indices.isEmpty() || indices.size() > size) {
+            return false;
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= size) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public List<Integer> getIndices() {
+        return indices;
+    }
+
+    @Override
+    public String toString() {
+        return "GetProposalTxsMessage [blockHash=" + Hex.encode(blockHash) + ", # txs=" + indices.size() + "]";
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class GetStateChunkMessage extends Message {
+
+    /**
+     * The range of chunk levels, which bounds the size of a chunk and of a state
+     * manifest.
+     */
+    public static final int MIN_LEVEL = 8;
+    public static final int MAX_LEVEL = 12;
+
+    private int level;
+    private int index;
+
+    public GetStateChunkMessage(int level, int index) {
+        super(MessageCode.GET_STATE_CHUNK, StateChunkMessage.class);
+        this.level = level;
+        this.index = index;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(level);
+        enc.writeInt(index);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetStateChunkMessage(byte[] encoded) {
+        super(MessageCode.GET_STATE_CHUNK, StateChunkMessage.class);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.level = dec.readInt();
+        this.index = dec.readInt();
+    }
+
+    public boolean validate() {
+        return level >= MIN_LEVEL && level <= MAX_LEVEL && index >= 0 && index < (1 << level);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "GetStateChunkMessage [level=" + level + ", index=" + index + "]";
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class GetStateManifestMessage extends Message {
+
+    private int level;
+
+    /**
+     * Creates a request of the state manifest of the latest block.
+     *
+     * @param level
+     *            the level of the state chunks
+     */
+    public GetStateManifestMessage(int level) {
+        super(MessageCode.GET_STATE_MANIFEST, StateManifestMessage.class);
+        this.level = level;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(level);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetStateManifestMessage(byte[] encoded) {
+        super(MessageCode.GET_STATE_MANIFEST, StateManifestMessage.class);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.level = dec.readInt();
+    }
+
+    public boolean validate() {
+        return level >= GetStateChunkMessage.MIN_LEVEL && level <= GetStateChunkMessage.MAX_LEVEL;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public String toString() {
+        return "GetStateManifestMessage [level=" + level + "]";
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Transaction;
+import org.semux.crypto.Hex;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class ProposalTxsMessage extends Message {
+
+    private byte[] blockHash;
+    private List<Transaction> transactions;
+
+    /**
+     * Create a BFT_PROPOSAL_TXS message.
+     *
+     * @param blockHash
+     *            the hash of the proposed block
+     * @param transactions
+     *            the requested transactions
+     */
+    public ProposalTxsMessage(byte[] blockHash, List<Transaction> transactions) {
+        super(MessageCode.BFT_PROPOSAL_TXS, null);
+        this.blockHash = blockHash;
+        this.transactions = transactions;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(blockHash);
+        enc.writeInt(transactions.size());
+        for (Transaction tx : transactions) {
+            enc.writeBytes(tx.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public ProposalTxsMessage(byte[] encoded) {
+        super(MessageCode.BFT_PROPOSAL_TXS, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.blockHash = dec.readBytes();
+        this.transactions = new ArrayList<>();
+        int n = dec.readInt();
+        for (int i = 0; i < n; i++) {
+            transactions.add(Transaction.fromBytes(dec.readBytes()));
+        }
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "ProposalTxsMessage [blockHash=" + Hex.encode(blockHash) + ", # txs=" + transactions.size() + "]";
+    }
+}
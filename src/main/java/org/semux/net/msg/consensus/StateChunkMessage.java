@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.state.StateTree;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class StateChunkMessage extends Message {
+
+    private long number;
+    private int level;
+    private int index;
+    private List<StateTree.Leaf> leaves;
+
+    /**
+     * Creates a state chunk.
+     *
+     * @param number
+     *            the latest block number when the chunk was read
+     * @param level
+     * @param index
+     * @param leaves
+     */
+    public StateChunkMessage(long number, int level, int index, List<StateTree.Leaf> leaves) {
+        super(MessageCode.STATE_CHUNK, null);
+        this.number = number;
+        this.level = level;
+        this.index = index;
+        this.leaves = leaves;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(number);
+        enc.writeInt(level);
+        enc.writeInt(index);
+        enc.writeInt(leaves.size());
+        for (StateTree.Leaf leaf : leaves) {
+            enc.writeBytes(leaf.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public StateChunkMessage(byte[] encoded) {
+        super(MessageCode.STATE_CHUNK, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.number = dec.readLong();
+        this.level = dec.readInt();
+        this.index = dec.readInt();
+        int n = dec.readInt();
+        this.leaves = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            leaves.add(StateTree.Leaf.fromBytes(dec.readBytes()));
+        }
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public List<StateTree.Leaf> getLeaves() {
+        return leaves;
+    }
+
+    @Override
+    public String toString() {
+        return "StateChunkMessage [number=" + number + ", level=" + level + ", index=" + index + ", # leaves="
+                + leaves.size() + "]";
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.core.Checkpoint;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+
+public class StateManifestMessage extends Message {
+
+    private Checkpoint checkpoint;
+
+    public StateManifestMessage(Checkpoint checkpoint) {
+        super(MessageCode.STATE_MANIFEST, null);
+        this.checkpoint = checkpoint;
+
+        this.encoded = checkpoint.toBytes();
+    }
+
+    public StateManifestMessage(byte[] encoded) {
+        super(MessageCode.STATE_MANIFEST, null);
+        this.encoded = encoded;
+
+        this.checkpoint = Checkpoint.fromBytes(encoded);
+    }
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    @Override
+    public String toString() {
+        return "StateManifestMessage [checkpoint=" + checkpoint + "]";
+    }
+}
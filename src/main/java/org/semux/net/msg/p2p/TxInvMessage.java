@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class TxInvMessage extends Message {
+
+    /**
+     * The max number of hashes in one message.
+     */
+    public static final int MAX_HASHES = 1024;
+
+    private List<byte[]> hashes;
+
+    /**
+     * Create a TX_INV message.
+     * 
+     * @param hashes
+     *            the hashes of the transactions to announce
+     */
+    public TxInvMessage(List<byte[]> hashes) {
+        super(MessageCode.TX_INV, null);
+
+        this.hashes = hashes;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(hashes.size());
+        for (byte[] hash : hashes) {
+            enc.writeBytes(hash);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a TX_INV message from byte array.
+     * 
+     * @param encoded
+     */
+    public TxInvMessage(byte[] encoded) {
+        super(MessageCode.TX_INV, null);
+
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        this.hashes = new ArrayList<>();
+        for (int i = 0; i < n && i <= MAX_HASHES; i++) {
+            hashes.add(dec.readBytes());
+        }
+    }
+
+    public boolean validate() {
+        if (hashes == null || hashes.isEmpty() || hashes.size() > MAX_HASHES) {
+            return false;
+        }
+        for (byte[] hash : hashes) {
+            if (hash.length != 32) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "TxInvMessage [# hashes=" + hashes.size() + "]";
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Transaction;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+public class TxsMessage extends Message {
+
+    private List<Transaction> transactions;
+
+    /**
+     * Create a TXS message.
+     * 
+     * @param transactions
+     */
+    public TxsMessage(List<Transaction> transactions) {
+        super(MessageCode.TXS, null);
+
+        this.transactions = transactions;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(transactions.size());
+        for (Transaction tx : transactions) {
+            enc.writeBytes(tx.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a TXS message from byte array.
+     * 
+     * @param encoded
+     */
+    public TxsMessage(byte[] encoded) {
+        super(MessageCode.TXS, null);
+
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        this.transactions = new ArrayList<>();
+        for (int i = 0; i < n && i <= GetTxsMessage.MAX_HASHES; i++) {
+            transactions.add(Transaction.fromBytes(dec.readBytes()));
+        }
+    }
+
+    public boolean validate() {
+        return transactions != null && transactions.size() <= GetTxsMessage.MAX_HASHES;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "TxsMessage [# txs=" + transactions.size() + "]";
+    }
+}
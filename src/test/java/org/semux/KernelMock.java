@@ -15,6 +15,7 @@ import org.semux.core.Blockchain;
 import org.semux.core.PendingManager;
 import org.semux.core.Wallet;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseFactory;
 import org.semux.net.ChannelManager;
 import org.semux.net.NodeManager;
 import org.semux.net.PeerClient;
@@ -37,6 +38,15 @@ public class KernelMock extends Kernel {
         super(config, wallet, coinbase);
     }
 
+    /**
+     * Sets the database factory.
+     *
+     * @param dbFactory
+     */
+    public void setDbFactory(DatabaseFactory dbFactory) {
+        this.dbFactory = dbFactory;
+    }
+
     /**
      * Sets the blockchain instance.
      * 
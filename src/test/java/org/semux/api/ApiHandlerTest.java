@@ -41,12 +41,15 @@ import org.semux.api.response.DoTransactionResponse;
 import org.semux.api.response.GetAccountResponse;
 import org.semux.api.response.GetAccountTransactionsResponse;
 import org.semux.api.response.GetBlockResponse;
+import org.semux.api.response.GetDatabaseStatsResponse;
 import org.semux.api.response.GetDelegateResponse;
 import org.semux.api.response.GetDelegatesResponse;
 import org.semux.api.response.GetInfoResponse;
+import org.semux.api.response.GetNetworkStatsResponse;
 import org.semux.api.response.GetLatestBlockNumberResponse;
 import org.semux.api.response.GetLatestBlockResponse;
 import org.semux.api.response.GetPeersResponse;
+import org.semux.api.response.GetPendingStatsResponse;
 import org.semux.api.response.GetPendingTransactionsResponse;
 import org.semux.api.response.GetRootResponse;
 import org.semux.api.response.GetTransactionLimitsResponse;
@@ -69,10 +72,12 @@ import org.semux.core.TransactionType;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseName;
 import org.semux.net.ChannelManager;
 import org.semux.net.Peer;
 import org.semux.net.filter.FilterRule;
 import org.semux.net.filter.SemuxIpFilter;
+import org.semux.net.msg.p2p.TransactionMessage;
 import org.semux.rules.KernelRule;
 import org.semux.util.Bytes;
 
@@ -131,6 +136,35 @@ public class ApiHandlerTest extends ApiHandlerTestBase {
         assertEquals(Integer.valueOf(0), response.info.pendingTransactions);
     }
 
+    @Test
+    public void testGetDatabaseStats() throws IOException {
+        String uri = "/get_database_stats";
+        GetDatabaseStatsResponse response = request(uri, GetDatabaseStatsResponse.class);
+        assertTrue(response.success);
+        assertEquals(DatabaseName.values().length, response.databases.size());
+        assertEquals("index", response.databases.get(0).name);
+        assertNotNull(response.databases.get(0).stats);
+        assertTrue(response.databases.get(0).approximateSize >= 0);
+    }
+
+    @Test
+    public void testGetNetworkStats() throws IOException {
+        TransactionMessage msg = new TransactionMessage(createTransaction());
+        api.getKernel().getGossipFilter().add(msg);
+        api.getKernel().getGossipFilter().add(msg);
+
+        String uri = "/get_network_stats";
+        GetNetworkStatsResponse response = request(uri, GetNetworkStatsResponse.class);
+        assertTrue(response.success);
+        assertEquals(1, response.stats.gossip.size());
+        assertEquals("transaction", response.stats.gossip.get(0).type);
+        assertEquals(Long.valueOf(2), response.stats.gossip.get(0).received);
+        assertEquals(Long.valueOf(1), response.stats.gossip.get(0).duplicates);
+        assertEquals(0.5, response.stats.gossip.get(0).duplicateRatio, 0.0);
+        assertNotNull(response.stats.workers);
+        assertEquals(Long.valueOf(0), response.stats.proposals.compact);
+    }
+
     @Test
     public void testSignatures() throws IOException {
 
@@ -311,6 +345,30 @@ public class ApiHandlerTest extends ApiHandlerTestBase {
         assertThat(response.pendingTransactions, hasSize(1));
     }
 
+    @Test
+    public void testGetPendingStats() throws IOException {
+        PendingManager pendingManager = spy(kernelRule.getKernel().getPendingManager());
+        when(pendingManager.getQueueSize()).thenReturn(1);
+        when(pendingManager.getReceivedCount()).thenReturn(4L);
+        when(pendingManager.getRejectedCount()).thenReturn(1L);
+        when(pendingManager.getAcceptedCount()).thenReturn(3L);
+        when(pendingManager.getLastReevaluation())
+                .thenReturn(new PendingManager.ReevaluationStats(false, 2, 1, 2, 3, 0));
+        kernelRule.getKernel().setPendingManager(pendingManager);
+
+        String uri = "/get_pending_stats";
+        GetPendingStatsResponse response = request(uri, GetPendingStatsResponse.class);
+        assertTrue(response.success);
+        assertEquals(Integer.valueOf(1), response.stats.queueSize);
+        assertEquals(Long.valueOf(4), response.stats.received);
+        assertEquals(Long.valueOf(1), response.stats.rejected);
+        assertEquals(Long.valueOf(3), response.stats.accepted);
+        assertFalse(response.stats.lastReevaluation.full);
+        assertEquals(Integer.valueOf(1), response.stats.lastReevaluation.included);
+        assertEquals(Integer.valueOf(2), response.stats.lastReevaluation.reexecuted);
+        assertEquals(Integer.valueOf(3), response.stats.lastReevaluation.kept);
+    }
+
     @Test
     public void testGetAccountTransactions() throws IOException {
         Transaction tx = createTransaction();
@@ -42,6 +42,7 @@ public class SemuxApiMock {
             dbFactory = new LevelDbFactory(config.databaseDir());
             client = new PeerClient(config.p2pListenIp(), config.p2pListenPort(), kernel.getCoinbase());
 
+            kernel.setDbFactory(dbFactory);
             kernel.setBlockchain(new BlockchainImpl(config, dbFactory));
             kernel.setChannelManager(new ChannelManager(kernel));
             kernel.setPendingManager(new PendingManager(kernel));
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.MainnetConfig;
+import org.semux.core.state.StateTree;
+import org.semux.db.DatabaseName;
+import org.semux.net.SemuxMessageHandler;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.consensus.StateChunkMessage;
+import org.semux.util.Bytes;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class BroadcastPerformance {
+
+    private static final int CHANNELS = 16;
+    private static final int MESSAGES = 200;
+    private static final int MESSAGE_SIZE = 512 * 1024;
+
+    private static Message newMessage(Random random) {
+        // half random and half repeated bytes, to be partially compressible
+        List<StateTree.Leaf> leaves = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_SIZE / 1024; i++) {
+            byte[] value = new byte[1024];
+            random.nextBytes(value);
+            for (int j = 0; j < value.length / 2; j++) {
+                value[j] = 0;
+            }
+            leaves.add(new StateTree.Leaf(DatabaseName.ACCOUNT, Bytes.of(i), value));
+        }
+        return new StateChunkMessage(0, 8, 0, leaves);
+    }
+
+    public static void main(String[] args) {
+        Config config = new MainnetConfig(Constants.DEFAULT_DATA_DIR);
+
+        List<EmbeddedChannel> channels = new ArrayList<>();
+        for (int i = 0; i < CHANNELS; i++) {
+            channels.add(new EmbeddedChannel(new SemuxMessageHandler(config)));
+        }
+
+        Random random = new Random(0);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            messages.add(newMessage(random));
+        }
+
+        for (boolean shared : new boolean[] { false, true }) {
+            long t1 = System.nanoTime();
+            for (Message msg : messages) {
+                for (EmbeddedChannel channel : channels) {
+                    if (!shared) {
+                        msg.setFrameBodies(null);
+                    }
+                    channel.writeOutbound(msg);
+                    channel.outboundMessages().clear();
+                }
+            }
+            long t2 = System.nanoTime();
+
+            System.out.println("======================================");
+            System.out.println(shared ? "ENCODE ONCE" : "ENCODE PER CHANNEL");
+            System.out.println("======================================");
+            System.out.println("# of messages    : " + MESSAGES + " x " + CHANNELS + " channels");
+            System.out.println("Message size     : " + MESSAGE_SIZE + " bytes");
+            System.out.println("Total time used  : " + (t2 - t1) / 1_000_000 + " ms");
+            System.out.println("Average time used: " + (t2 - t1) / MESSAGES / 1_000 + " us per broadcast");
+
+            for (Message msg : messages) {
+                msg.setFrameBodies(null);
+            }
+        }
+    }
+}
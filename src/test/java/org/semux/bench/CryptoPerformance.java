@@ -6,11 +6,21 @@
  */
 package org.semux.bench;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.crypto.Hash;
 import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.crypto.cache.SignatureCache;
+import org.semux.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sun.management.ThreadMXBean;
+
 public class CryptoPerformance {
     private static final Logger logger = LoggerFactory.getLogger(CryptoPerformance.class);
 
@@ -78,10 +88,90 @@ public class CryptoPerformance {
         }
     }
 
+    /**
+     * Measures the throughput and the allocations of the hash functions.
+     */
+    public static void testHashAllocation() {
+        byte[] data = Bytes.random(128);
+        byte[] data2 = Bytes.random(32);
+        byte[] out = new byte[Hash.HASH_LEN];
+        int repeat = REPEAT * 100;
+
+        measure("h256", repeat, () -> Hash.h256(data));
+        measure("h256_merge", repeat, () -> Hash.h256(data, data2));
+        measure("h256_buffer", repeat, () -> Hash.h256(data, out, 0));
+        measure("h160", repeat, () -> Hash.h160(data));
+        measure("h160_buffer", repeat, () -> Hash.h160(data, out, 0));
+    }
+
+    private static void measure(String name, int repeat, Runnable op) {
+        // warm up
+        for (int i = 0; i < repeat; i++) {
+            op.run();
+        }
+
+        ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+
+        long b1 = bean.getThreadAllocatedBytes(id);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            op.run();
+        }
+        long t2 = System.nanoTime();
+        long b2 = bean.getThreadAllocatedBytes(id);
+
+        logger.info("Perf_{}: {} ops/s, {} bytes/op", name, repeat * 1_000_000_000L / (t2 - t1),
+                (b2 - b1) / repeat);
+    }
+
+    public static void testVerifyBatch() {
+        int batchSize = 256;
+
+        List<Pair<byte[], Signature>> signatures = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            Key eckey = new Key();
+            byte[] hash = Hash.h256(Bytes.random(32));
+            signatures.add(Pair.of(hash, eckey.sign(hash)));
+        }
+
+        int repeat = REPEAT / batchSize + 1;
+
+        // one by one
+        long t1 = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            SignatureCache.invalidateAll();
+            for (Pair<byte[], Signature> p : signatures) {
+                Key.verify(p.getLeft(), p.getRight());
+            }
+        }
+        long t2 = System.nanoTime();
+        logger.info("Perf_verify_sequential: {} μs/sig", (t2 - t1) / 1_000 / repeat / batchSize);
+
+        // in a batch
+        t1 = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            SignatureCache.invalidateAll();
+            Key.verifyBatch(signatures);
+        }
+        t2 = System.nanoTime();
+        logger.info("Perf_verify_batch: {} μs/sig", (t2 - t1) / 1_000 / repeat / batchSize);
+
+        // in a batch, all cached
+        t1 = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            Key.verifyBatch(signatures);
+        }
+        t2 = System.nanoTime();
+        logger.info("Perf_verify_batch_cached: {} μs/sig", (t2 - t1) / 1_000 / repeat / batchSize);
+    }
+
     public static void main(String[] args) throws Exception {
         testH256();
         testH160();
         testSign();
         testVerify();
+        testVerifyBatch();
+        testHashAllocation();
     }
 }
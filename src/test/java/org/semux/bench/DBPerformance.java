@@ -7,10 +7,18 @@
 package org.semux.bench;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.config.Constants;
+import org.semux.db.Database;
+import org.semux.db.DatabaseEngine;
 import org.semux.db.LeveldbDatabase;
+import org.semux.db.LogStoreDatabase;
 import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,47 +26,129 @@ public class DBPerformance {
     private static final Logger logger = LoggerFactory.getLogger(DBPerformance.class);
 
     private static final int REPEAT = 100_000;
+    private static final int BATCH_SIZE = 1_000;
 
-    private static LeveldbDatabase getTestDB() {
-        return new LeveldbDatabase(new File(Constants.DEFAULT_DATA_DIR, "test"));
+    private static Database getTestDB(DatabaseEngine engine) {
+        File file = new File(Constants.DEFAULT_DATA_DIR, "test-" + engine.name().toLowerCase());
+        switch (engine) {
+        case LOGSTORE:
+            return new LogStoreDatabase(file);
+        case LEVELDB:
+        default:
+            return new LeveldbDatabase(file);
+        }
+    }
+
+    private static byte[] key(int i) {
+        return Bytes.merge(Bytes.of(i), Bytes.random(28));
     }
 
-    public static void testWrite() {
-        LeveldbDatabase db = getTestDB();
+    public static void testWrite(DatabaseEngine engine) {
+        Database db = getTestDB(engine);
         try {
             long t1 = System.nanoTime();
             for (int i = 0; i < REPEAT; i++) {
-                byte[] key = Bytes.random(256);
-                byte[] value = Bytes.random(256);
-                db.put(key, value);
+                db.put(key(i), Bytes.random(256));
+            }
+            long t2 = System.nanoTime();
+            logger.info("Perf_db_write_{}: {} μs/time", engine, (t2 - t1) / 1_000 / REPEAT);
+        } finally {
+            db.close();
+        }
+    }
+
+    public static void testBatchWrite(DatabaseEngine engine) {
+        Database db = getTestDB(engine);
+        try {
+            long t1 = System.nanoTime();
+            for (int i = 0; i < REPEAT; i += BATCH_SIZE) {
+                List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+                for (int j = 0; j < BATCH_SIZE; j++) {
+                    pairs.add(Pair.of(key(i + j), Bytes.random(256)));
+                }
+                db.updateBatch(pairs);
             }
             long t2 = System.nanoTime();
-            logger.info("Perf_db_write: " + (t2 - t1) / 1_000 / REPEAT + " μs/time");
+            logger.info("Perf_db_batch_write_{}: {} μs/time", engine, (t2 - t1) / 1_000 / REPEAT);
         } finally {
             db.close();
         }
     }
 
-    public static void testRead() {
-        LeveldbDatabase db = getTestDB();
+    public static void testRead(DatabaseEngine engine) {
+        Database db = getTestDB(engine);
         try {
+            List<byte[]> keys = new ArrayList<>();
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            while (itr.hasNext() && keys.size() < REPEAT) {
+                keys.add(itr.next().getKey());
+            }
+            itr.close();
+
             long t1 = System.nanoTime();
             for (int i = 0; i < REPEAT; i++) {
-                byte[] key = Bytes.random(256);
-                db.get(key);
+                db.get(keys.get((i * 7919) % keys.size()));
             }
             long t2 = System.nanoTime();
-            logger.info("Perf_db_read: " + (t2 - t1) / 1_000 / REPEAT + " μs/time");
+            logger.info("Perf_db_read_{}: {} μs/time", engine, (t2 - t1) / 1_000 / REPEAT);
+
+            t1 = System.nanoTime();
+            for (int i = 0; i < REPEAT; i++) {
+                db.get(key(i));
+            }
+            t2 = System.nanoTime();
+            logger.info("Perf_db_read_missing_{}: {} μs/time", engine, (t2 - t1) / 1_000 / REPEAT);
+        } finally {
+            db.close();
+        }
+    }
+
+    public static void testIterate(DatabaseEngine engine) {
+        Database db = getTestDB(engine);
+        try {
+            long t1 = System.nanoTime();
+            int n = 0;
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            while (itr.hasNext()) {
+                itr.next();
+                n++;
+            }
+            itr.close();
+            long t2 = System.nanoTime();
+            logger.info("Perf_db_iterate_{}: {} ns/entry, {} entries", engine, (t2 - t1) / Math.max(n, 1), n);
+        } finally {
+            db.close();
+        }
+    }
+
+    public static void testScan(DatabaseEngine engine) {
+        Database db = getTestDB(engine);
+        try {
+            long t1 = System.nanoTime();
+            long[] bytes = new long[1];
+            int n = db.scan(null, null, Integer.MAX_VALUE, false, (k, v) -> {
+                bytes[0] += k.remaining() + v.remaining();
+                return true;
+            });
+            long t2 = System.nanoTime();
+            logger.info("Perf_db_scan_{}: {} ns/entry, {} entries, {} bytes", engine, (t2 - t1) / Math.max(n, 1), n,
+                    bytes[0]);
         } finally {
             db.close();
         }
     }
 
     public static void main(String[] args) {
-        testWrite();
-        testRead();
+        for (DatabaseEngine engine : DatabaseEngine.values()) {
+            testWrite(engine);
+            testBatchWrite(engine);
+            testRead(engine);
+            testIterate(engine);
+            testScan(engine);
 
-        LeveldbDatabase db = getTestDB();
-        db.destroy();
+            Database db = getTestDB(engine);
+            logger.info("Stats_{}: size = {} bytes\n{}", engine, db.getApproximateSize(), db.getStats());
+            db.destroy();
+        }
     }
 }
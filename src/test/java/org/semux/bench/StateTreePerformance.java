@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.config.Constants;
+import org.semux.core.Amount;
+import org.semux.core.state.Account;
+import org.semux.core.state.StateTree;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbDatabase;
+import org.semux.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StateTreePerformance {
+    private static final Logger logger = LoggerFactory.getLogger(StateTreePerformance.class);
+
+    private static final int ACCOUNTS = 1_000_000;
+    private static final int BLOCKS = 100;
+    private static final int ACCOUNTS_PER_BLOCK = 5_000;
+
+    private static byte[] key(int i) {
+        return Bytes.merge((byte) 0, Bytes.merge(Bytes.of(i), new byte[16]));
+    }
+
+    private static byte[] value(int i, long nonce) {
+        return new Account(key(i), Amount.Unit.NANO_SEM.of(i), Amount.ZERO, nonce).toBytes();
+    }
+
+    public static void main(String[] args) {
+        File dir = new File(Constants.DEFAULT_DATA_DIR, "test-state");
+        Database accountDB = new LeveldbDatabase(new File(dir, "account"));
+        Database emptyDB = new LeveldbDatabase(new File(dir, "empty"));
+        Database stateDB = new LeveldbDatabase(new File(dir, "state"));
+
+        try {
+            List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                pairs.add(Pair.of(key(i), value(i, 0)));
+                if (pairs.size() == 10_000) {
+                    accountDB.updateBatch(pairs);
+                    pairs.clear();
+                }
+            }
+
+            long t1 = System.nanoTime();
+            StateTree tree = new StateTree(stateDB);
+            tree.rebuild(accountDB, emptyDB, emptyDB, 0);
+            long t2 = System.nanoTime();
+            logger.info("Perf_state_tree_rebuild: {} ms, {} accounts", (t2 - t1) / 1_000_000, ACCOUNTS);
+
+            Random random = new Random(0);
+            long total = 0;
+            for (int b = 1; b <= BLOCKS; b++) {
+                stateDB.startBatch();
+                long t3 = System.nanoTime();
+                for (int j = 0; j < ACCOUNTS_PER_BLOCK; j++) {
+                    int i = random.nextInt(ACCOUNTS);
+                    tree.update(DatabaseName.ACCOUNT, key(i), value(i, b));
+                }
+                tree.commit(b);
+                long t4 = System.nanoTime();
+                stateDB.commitBatch();
+                total += t4 - t3;
+            }
+            logger.info("Perf_state_tree_commit: {} ms/block, {} accounts per block", total / 1_000_000 / BLOCKS,
+                    ACCOUNTS_PER_BLOCK);
+
+            t1 = System.nanoTime();
+            tree.load();
+            t2 = System.nanoTime();
+            logger.info("Perf_state_tree_load: {} ms", (t2 - t1) / 1_000_000);
+        } finally {
+            accountDB.destroy();
+            emptyDB.destroy();
+            stateDB.destroy();
+        }
+    }
+}
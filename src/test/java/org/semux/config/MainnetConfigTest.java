@@ -7,6 +7,7 @@
 package org.semux.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 import static org.semux.core.Amount.Unit.SEM;
@@ -14,6 +15,7 @@ import static org.semux.core.Amount.Unit.SEM;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -25,6 +27,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.semux.Network;
 import org.semux.core.Amount;
+import org.semux.db.DatabaseName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +53,22 @@ public class MainnetConfigTest {
         assertEquals(SEM.of(75_000_000), total);
     }
 
+    @Test
+    public void testDatabaseProfile() throws IOException {
+        File dataDir = Files.createTempDirectory("semux").toFile();
+        File file = new File(dataDir, Constants.CONFIG_DIR + File.separator + "semux.properties");
+        FileUtils.writeStringToFile(file, "db.account.cacheSize = 1024\ndb.vote.compression = false\n",
+                Charset.forName("UTF-8"));
+
+        MainnetConfig config = new MainnetConfig(dataDir.getAbsolutePath());
+        assertEquals(1024L, config.dbProfile(DatabaseName.ACCOUNT).getCacheSize());
+        assertFalse(config.dbProfile(DatabaseName.VOTE).isCompression());
+        assertTrue(config.dbProfile(DatabaseName.INDEX).isCompression());
+        assertTrue(config.dbProfile(DatabaseName.BLOCK).isVerifyChecksums());
+
+        FileUtils.deleteDirectory(dataDir);
+    }
+
     @Test
     public void testNumberOfValidators() {
         int last = 0;
@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ProposalStatsTest {
+
+    @Test
+    public void testStats() {
+        ProposalStats stats = new ProposalStats();
+        assertEquals(0.0, stats.getHitRate(), 0.0);
+        assertEquals(0, stats.getAverageLatency());
+
+        stats.onCompactProposal(10, 0);
+        stats.onCompactProposal(10, 2);
+        stats.onProposal(100);
+        stats.onProposal(300);
+        stats.onProposal(-50);
+
+        assertEquals(2, stats.getCompact());
+        assertEquals(0.5, stats.getHitRate(), 0.0);
+        assertEquals(20, stats.getTransactions());
+        assertEquals(2, stats.getMissingTransactions());
+        assertEquals(3, stats.getReceived());
+        assertEquals(133, stats.getAverageLatency());
+        assertEquals(300, stats.getMaxLatency());
+    }
+}
@@ -6,9 +6,11 @@
  */
 package org.semux.consensus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -29,6 +31,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.semux.Network;
 import org.semux.config.Constants;
 import org.semux.config.MainnetConfig;
 import org.semux.core.Block;
@@ -39,9 +42,12 @@ import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
 import org.semux.crypto.Key;
+import org.semux.net.msg.consensus.CompactProposalMessage;
 import org.semux.rules.KernelRule;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -170,6 +176,81 @@ public class SemuxBftTest {
         assertFalse(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx2)).isEmpty());
     }
 
+    @Test
+    public void testPartialProposal() {
+        Key to = new Key();
+        Key from = new Key();
+        long time = System.currentTimeMillis();
+        Transaction tx1 = createTransaction(to, from, time, 0);
+        Transaction tx2 = createTransaction(to, from, time, 1);
+
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        Block block = kernelRule.createBlock(Arrays.asList(tx1, tx2));
+        Proposal proposal = new Proposal(new Proof(block.getNumber(), 0), block.getHeader(), block.getTransactions())
+                .sign(new Key());
+        CompactProposalMessage msg = new CompactProposalMessage(
+                new CompactProposalMessage(proposal).getEncoded());
+
+        // pending manager has only tx1
+        PendingManager pendingMgr = mock(PendingManager.class);
+        when(pendingMgr.getProcessedTransaction(any()))
+                .thenAnswer(inv -> Arrays.equals(inv.getArgument(0), tx1.getHash()) ? tx1 : null);
+
+        SemuxBft.PartialProposal pp = new SemuxBft.PartialProposal(msg, pendingMgr);
+        assertEquals(Collections.singletonList(1), pp.getMissing());
+
+        Network network = kernelRule.getKernel().getConfig().network();
+        assertTrue(pp.fill(Collections.singletonList(tx1), network));
+        assertFalse(pp.isComplete());
+        assertTrue(pp.fill(Collections.singletonList(tx2), network));
+        assertTrue(pp.isComplete());
+        assertTrue(pp.getMissing().isEmpty());
+
+        // the restored proposal carries the signature of the proposer
+        Proposal restored = msg.toProposal(pp.getTransactions());
+        assertTrue(restored.validate());
+        assertArrayEquals(proposal.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    public void testPartialProposalMismatchedBody() {
+        Key to = new Key();
+        Key from = new Key();
+        long time = System.currentTimeMillis();
+        Transaction tx1 = createTransaction(to, from, time, 0);
+        Transaction tx2 = createTransaction(to, from, time, 1);
+
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        Block block = kernelRule.createBlock(Arrays.asList(tx1, tx2));
+        Proposal proposal = new Proposal(new Proof(block.getNumber(), 0), block.getHeader(), block.getTransactions())
+                .sign(new Key());
+        CompactProposalMessage msg = new CompactProposalMessage(new CompactProposalMessage(proposal).getEncoded());
+
+        PendingManager pendingMgr = mock(PendingManager.class);
+        SemuxBft.PartialProposal pp = new SemuxBft.PartialProposal(msg, pendingMgr);
+        assertEquals(Arrays.asList(0, 1), pp.getMissing());
+
+        // another body under the hash of tx2, as decoded from the wire
+        Transaction other = createTransaction(to, from, time, 2);
+        SimpleDecoder dec = new SimpleDecoder(other.toBytes());
+        dec.readBytes();
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(tx2.getHash());
+        enc.writeBytes(dec.readBytes());
+        enc.writeBytes(dec.readBytes());
+        Transaction forged = Transaction.fromBytes(enc.toBytes());
+
+        Network network = kernelRule.getKernel().getConfig().network();
+        assertFalse(pp.fill(Arrays.asList(tx1, forged), network));
+        assertFalse(pp.isComplete());
+        assertEquals(Collections.singletonList(1), pp.getMissing());
+
+        // the partial proposal can still be completed by another peer
+        assertTrue(pp.fill(Collections.singletonList(tx2), network));
+        assertTrue(pp.isComplete());
+        assertTrue(msg.toProposal(pp.getTransactions()).validate());
+    }
+
     private Transaction createTransaction(Key to, Key from, long time, long nonce) {
         return new Transaction(
                 kernelRule.getKernel().getConfig().network(),
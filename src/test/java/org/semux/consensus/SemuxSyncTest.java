@@ -6,22 +6,33 @@
  */
 package org.semux.consensus;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.semux.core.Amount.Unit.SEM;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.powermock.reflect.Whitebox;
 import org.semux.core.Block;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Transaction;
@@ -30,6 +41,12 @@ import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.net.Capability;
+import org.semux.net.CapabilitySet;
+import org.semux.net.Channel;
+import org.semux.net.ChannelManager;
+import org.semux.net.Peer;
+import org.semux.net.msg.MessageQueue;
 import org.semux.rules.KernelRule;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
@@ -132,4 +149,101 @@ public class SemuxSyncTest {
         votes.add(new Key().sign(encoded));
         assertFalse(sync.validateBlockVotes(block));
     }
+
+    @Test
+    public void testReusePreVerifiedSignatures() {
+        Key key1 = new Key();
+        Key key2 = new Key();
+        List<String> validators = Arrays.asList(Hex.encode(key1.toAddress()), Hex.encode(key2.toAddress()));
+
+        BlockchainImpl chain = spy(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        doReturn(validators).when(chain).getValidators();
+        kernelRule.getKernel().setBlockchain(chain);
+        SemuxSync sync = spy(new SemuxSync(kernelRule.getKernel()));
+
+        // votes of the validators, but not on this block
+        Block block = kernelRule.createBlock(Collections.emptyList());
+        byte[] encoded = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber() + 1, block.getView(),
+                block.getHash()).getEncoded();
+        block.setVotes(Arrays.asList(key1.sign(encoded), key2.sign(encoded)));
+        assertFalse(sync.validateBlockVotes(block));
+
+        // the signatures are not verified again once the verifier pool has approved them
+        doReturn(true).when(sync).getVerifiedSignatures(block);
+        assertTrue(sync.validateBlockVotes(block));
+        AccountState as = chain.getAccountState().track();
+        DelegateState ds = chain.getDelegateState().track();
+        assertTrue(sync.validateBlock(block, as, ds));
+    }
+
+    @Test
+    public void testVerifySignaturesInPipeline() throws Exception {
+        Key key1 = new Key();
+        Key key2 = new Key();
+        List<String> validators = Arrays.asList(Hex.encode(key1.toAddress()), Hex.encode(key2.toAddress()));
+
+        BlockchainImpl chain = spy(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        doReturn(validators).when(chain).getValidators();
+        kernelRule.getKernel().setBlockchain(chain);
+        SemuxSync sync = spy(new SemuxSync(kernelRule.getKernel()));
+        doReturn(true).when(sync).validateBlockVotes(any()); // only the pipeline checks the votes here
+
+        Block good = kernelRule.createBlock(Collections.emptyList());
+        byte[] encoded = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, good.getNumber(), good.getView(),
+                good.getHash()).getEncoded();
+        good.setVotes(Arrays.asList(key1.sign(encoded), key2.sign(encoded)));
+
+        Block bad = kernelRule.createBlock(Collections.emptyList());
+        bad.setVotes(Arrays.asList(key1.sign(encoded), key2.sign(encoded)));
+
+        // a block is submitted once it is downloaded, and not before
+        assertNull(sync.getVerifiedSignatures(good));
+        TreeSet<Pair<Block, Channel>> toProcess = Whitebox.getInternalState(sync, "toProcess");
+        toProcess.add(Pair.of(good, null));
+        Whitebox.invokeMethod(sync, "growToVerifyQueue", 0L);
+        assertEquals(Boolean.TRUE, sync.getVerifiedSignatures(good));
+
+        // another block downloaded for the same height fails in the pipeline
+        toProcess.clear();
+        toProcess.add(Pair.of(bad, null));
+        Whitebox.invokeMethod(sync, "growToVerifyQueue", 0L);
+        assertNull(sync.getVerifiedSignatures(good));
+        assertEquals(Boolean.FALSE, sync.getVerifiedSignatures(bad));
+
+        AccountState as = chain.getAccountState().track();
+        DelegateState ds = chain.getDelegateState().track();
+        assertFalse(sync.validateBlock(bad, as, ds));
+        verify(sync, times(2)).verifySignatures(any());
+    }
+
+    @Test
+    public void testSkipChannelsInFlight() throws Exception {
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+
+        // a single idle peer
+        MessageQueue queue = mock(MessageQueue.class);
+        Channel channel = mock(Channel.class);
+        when(channel.getId()).thenReturn(1L);
+        when(channel.getMessageQueue()).thenReturn(queue);
+        when(channel.getRemotePeer()).thenReturn(new Peer("127.0.0.1", 5161, (short) 0, "client", "peer", 100,
+                CapabilitySet.of(Capability.SEM, Capability.BATCH_SYNC)));
+        ChannelManager channelMgr = mock(ChannelManager.class);
+        when(channelMgr.getIdleChannels()).thenReturn(Collections.singletonList(channel));
+        kernelRule.getKernel().setChannelManager(channelMgr);
+
+        SemuxSync sync = new SemuxSync(kernelRule.getKernel());
+        AtomicBoolean isRunning = Whitebox.getInternalState(sync, "isRunning");
+        isRunning.set(true);
+        TreeSet<Long> toDownload = Whitebox.getInternalState(sync, "toDownload");
+        for (long i = 1; i <= 100; i++) {
+            toDownload.add(i);
+        }
+
+        // the peer is not asked again before it has answered
+        Whitebox.invokeMethod(sync, "download");
+        Whitebox.invokeMethod(sync, "download");
+        verify(queue, times(1)).sendMessage(any());
+        Map<Long, ?> inFlight = Whitebox.getInternalState(sync, "inFlight");
+        assertEquals(1, inFlight.size());
+    }
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.core.Block;
+import org.semux.core.Blockchain;
+import org.semux.core.BlockchainImpl;
+import org.semux.core.Checkpoint;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.rules.KernelRule;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class StateSyncTest {
+
+    @Rule
+    public KernelRule kernelRule = new KernelRule(51610, 51710);
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBRule = new TemporaryDatabaseRule();
+
+    private Key[] trusted = { new Key(), new Key(), new Key() };
+
+    @Before
+    public void setUp() {
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        when(kernelRule.getKernel().getConfig().syncFastSyncTrustedValidators())
+                .thenReturn(toValidators(trusted));
+    }
+
+    @Test
+    public void testForgedValidators() {
+        StateSync sync = new StateSync(kernelRule.getKernel());
+
+        // a peer makes up both the validator set and the votes
+        Key[] forged = { new Key(), new Key(), new Key() };
+        Block block = createBlock(forged);
+        Checkpoint checkpoint = createCheckpoint(block, toValidators(forged));
+
+        assertFalse(sync.validateCheckpointBlock(checkpoint, block));
+    }
+
+    @Test
+    public void testForgedManifest() {
+        StateSync sync = new StateSync(kernelRule.getKernel());
+
+        // the trusted validators have signed the block, but the manifest names another
+        Block block = createBlock(trusted);
+        Checkpoint checkpoint = createCheckpoint(createBlock(trusted), toValidators(trusted));
+
+        assertFalse(sync.validateCheckpointBlock(checkpoint, block));
+    }
+
+    @Test
+    public void testTrustedValidators() {
+        StateSync sync = new StateSync(kernelRule.getKernel());
+
+        Block block = createBlock(trusted[0], trusted[1]);
+        assertTrue(sync.validateCheckpointBlock(createCheckpoint(block, toValidators(trusted)), block));
+
+        // a single trusted vote is not enough, even if the manifest only names it
+        Key forged = new Key();
+        block = createBlock(trusted[0], forged);
+        assertFalse(sync.validateCheckpointBlock(createCheckpoint(block, toValidators(trusted[0], forged)), block));
+    }
+
+    @Test
+    public void testUnverifiedCheckpoint() {
+        Blockchain chain = kernelRule.getKernel().getBlockchain();
+        byte[] root = chain.getStateTree().getRoot();
+        when(kernelRule.getKernel().getConfig().forkUniformDistributionEnabled()).thenReturn(false);
+
+        // a previous sync has stopped after importing a chunk
+        chain.importStateChunk(0, 0, Collections.emptyList());
+        StateSync sync = spy(new StateSync(kernelRule.getKernel()));
+        assertTrue(sync.isPartial());
+
+        // the peers agree on a manifest, whose block is not signed by the trusted
+        // validators
+        Key[] forged = { new Key(), new Key(), new Key() };
+        Block block = createBlock(forged);
+        Checkpoint checkpoint = createCheckpoint(block, toValidators(forged));
+        doReturn(checkpoint).when(sync).requestManifest();
+        doAnswer(invocation -> sync.validateCheckpointBlock(checkpoint, block) ? block : null)
+                .when(sync).requestBlock(checkpoint);
+
+        assertFalse(sync.sync());
+        verify(sync, never()).download(any(), any());
+
+        // the imported chunk has been rolled back
+        assertFalse(sync.isPartial());
+        assertArrayEquals(root, chain.getStateTree().getRoot());
+    }
+
+    private Block createBlock(Key... signers) {
+        Block block = kernelRule.createBlock(Collections.emptyList());
+
+        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash());
+        block.setVotes(Arrays.stream(signers).map(key -> key.sign(vote.getEncoded())).collect(Collectors.toList()));
+
+        return block;
+    }
+
+    private Checkpoint createCheckpoint(Block block, List<String> validators) {
+        return new Checkpoint(block.getNumber(), block.getHash(), Bytes.EMPTY_HASH, 0,
+                Collections.singletonList(Bytes.EMPTY_HASH), validators, Collections.emptyMap(),
+                Collections.emptyMap());
+    }
+
+    private List<String> toValidators(Key... keys) {
+        return Arrays.stream(keys).map(key -> Hex.encode(key.toAddress())).collect(Collectors.toList());
+    }
+}
@@ -12,7 +12,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 
 import java.util.Arrays;
@@ -29,6 +31,8 @@ import org.semux.config.Constants;
 import org.semux.config.DevnetConfig;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.BlockchainImpl.StatsType;
+import org.semux.core.exception.BlockchainException;
+import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
@@ -39,6 +43,9 @@ public class BlockchainImplTest {
     @Rule
     public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
 
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory2 = new TemporaryDatabaseRule();
+
     private Config config;
     private BlockchainImpl chain;
 
@@ -78,6 +85,133 @@ public class BlockchainImplTest {
         assertTrue(chain.getLatestBlock().getNumber() == newBlock.getNumber());
     }
 
+    @Test
+    public void testStateRoot() {
+        byte[] genesisRoot = chain.getStateTree().getRoot(0);
+        assertNotNull(genesisRoot);
+        assertArrayEquals(genesisRoot, chain.getStateTree().getRoot());
+
+        chain.getAccountState().adjustAvailable(key.toAddress(), NANO_SEM.of(1));
+        chain.getAccountState().commit();
+        chain.addBlock(createBlock(1));
+
+        byte[] root = chain.getStateTree().getRoot(1);
+        assertNotNull(root);
+        assertFalse(Arrays.equals(genesisRoot, root));
+
+        // reopening the chain keeps the state root
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertArrayEquals(root, chain.getStateTree().getRoot());
+    }
+
+    @Test
+    public void testCheckpoint() {
+        chain.getAccountState().adjustAvailable(key.toAddress(), NANO_SEM.of(1));
+        chain.getAccountState().commit();
+        Block block = createBlock(1);
+        chain.addBlock(block);
+
+        int level = 8;
+        Checkpoint checkpoint = chain.getCheckpoint(level);
+        assertTrue(checkpoint.validate());
+        assertEquals(1, checkpoint.getNumber());
+        assertArrayEquals(block.getHash(), checkpoint.getBlockHash());
+        assertArrayEquals(chain.getStateTree().getRoot(1), checkpoint.getStateRoot());
+
+        // the state of another chain does not match the checkpoint yet
+        BlockchainImpl chain2 = new BlockchainImpl(config, temporaryDBFactory2);
+        assertEquals(Amount.ZERO, chain2.getAccountState().getAccount(key.toAddress()).getAvailable());
+        try {
+            chain2.importCheckpoint(checkpoint, block);
+            fail("The state does not match the checkpoint");
+        } catch (BlockchainException e) {
+            assertEquals(0, chain2.getLatestBlockNumber());
+        }
+
+        // restore the chunks which differ
+        List<byte[]> chunks = chain2.getStateTree().getNodes(level);
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!Arrays.equals(chunks.get(i), checkpoint.getChunks().get(i))) {
+                chain2.importStateChunk(level, i, chain.getStateChunk(level, i));
+            }
+        }
+
+        // the validators of a checkpoint have to be registered delegates
+        Checkpoint forged = new Checkpoint(checkpoint.getNumber(), checkpoint.getBlockHash(),
+                checkpoint.getStateRoot(), checkpoint.getLevel(), checkpoint.getChunks(),
+                Collections.singletonList(Hex.encode(Bytes.random(20))), checkpoint.getValidatorStats(),
+                checkpoint.getActivatedForks());
+        try {
+            chain2.importCheckpoint(forged, block);
+            fail("The validators are not delegates");
+        } catch (BlockchainException e) {
+            assertEquals(0, chain2.getLatestBlockNumber());
+        }
+
+        chain2.importCheckpoint(checkpoint, block);
+        assertFalse(chain2.rollbackStateChunks());
+
+        assertEquals(1, chain2.getLatestBlockNumber());
+        assertArrayEquals(block.getHash(), chain2.getBlock(1).getHash());
+        assertEquals(NANO_SEM.of(1), chain2.getAccountState().getAccount(key.toAddress()).getAvailable());
+        assertEquals(chain.getValidators(), chain2.getValidators());
+        assertEquals(chain.getValidatorStats(coinbase).getBlocksForged(),
+                chain2.getValidatorStats(coinbase).getBlocksForged());
+        assertArrayEquals(checkpoint.getHash(), chain2.getCheckpoint(level).getHash());
+
+        // the chain continues from the checkpoint
+        chain2.addBlock(createBlock(2));
+        assertEquals(2, chain2.getLatestBlockNumber());
+    }
+
+    @Test
+    public void testRollbackStateChunks() {
+        chain.getAccountState().adjustAvailable(key.toAddress(), NANO_SEM.of(1));
+        chain.getAccountState().commit();
+        chain.addBlock(createBlock(1));
+
+        int level = 8;
+        BlockchainImpl chain2 = new BlockchainImpl(config, temporaryDBFactory2);
+        byte[] root = chain2.getStateTree().getRoot();
+        assertFalse(chain2.rollbackStateChunks());
+
+        // import the chunks twice, the original entries are kept once
+        List<byte[]> chunks = chain2.getStateTree().getNodes(level);
+        List<byte[]> target = chain.getStateTree().getNodes(level);
+        for (int n = 0; n < 2; n++) {
+            for (int i = 0; i < chunks.size(); i++) {
+                if (!Arrays.equals(chunks.get(i), target.get(i))) {
+                    chain2.importStateChunk(level, i, chain.getStateChunk(level, i));
+                }
+            }
+        }
+        assertArrayEquals(chain.getStateTree().getRoot(), chain2.getStateTree().getRoot());
+        assertEquals(NANO_SEM.of(1), chain2.getAccountState().getAccount(key.toAddress()).getAvailable());
+
+        assertTrue(chain2.rollbackStateChunks());
+        assertArrayEquals(root, chain2.getStateTree().getRoot());
+        assertEquals(Amount.ZERO, chain2.getAccountState().getAccount(key.toAddress()).getAvailable());
+        assertFalse(chain2.rollbackStateChunks());
+    }
+
+    @Test
+    public void testRollbackBatch() {
+        Block genesis = chain.getLatestBlock();
+
+        chain.startBatch();
+        chain.addBlock(createBlock(1));
+        assertEquals(1, chain.getLatestBlockNumber());
+        chain.rollbackBatch();
+
+        assertEquals(genesis.getNumber(), chain.getLatestBlockNumber());
+        assertArrayEquals(genesis.getHash(), chain.getLatestBlockHash());
+        assertNull(chain.getBlock(1));
+
+        // the chain continues from the restored block
+        chain.addBlock(createBlock(1));
+        assertEquals(1, chain.getLatestBlockNumber());
+    }
+
     @Test
     public void testGetLatestBlockHash() {
         Block newBlock = createBlock(1);
@@ -100,6 +234,25 @@ public class BlockchainImplTest {
         assertTrue(chain.getBlock(newBlock.getHash()).getNumber() == number);
     }
 
+    @Test
+    public void testBlockCache() {
+        Block newBlock = createBlock(1);
+        chain.addBlock(newBlock);
+
+        long hits = chain.getBlockCacheStats().hitCount();
+        assertSame(newBlock, chain.getBlock(1));
+        assertSame(newBlock, chain.getBlock(newBlock.getHash()));
+        assertEquals(hits + 2, chain.getBlockCacheStats().hitCount());
+
+        hits = chain.getBlockHeaderCacheStats().hitCount();
+        assertSame(newBlock.getHeader(), chain.getBlockHeader(1));
+        assertEquals(hits + 1, chain.getBlockHeaderCacheStats().hitCount());
+
+        long misses = chain.getBlockCacheStats().missCount();
+        assertNull(chain.getBlock(2));
+        assertEquals(misses + 1, chain.getBlockCacheStats().missCount());
+    }
+
     @Test
     public void testHasBlock() {
         assertFalse(chain.hasBlock(-1));
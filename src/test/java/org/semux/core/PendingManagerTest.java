@@ -8,7 +8,10 @@ package org.semux.core;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.semux.core.Amount.Unit.MILLI_SEM;
@@ -29,6 +32,7 @@ import org.mockito.Mockito;
 import org.semux.KernelMock;
 import org.semux.Network;
 import org.semux.core.state.AccountState;
+import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.db.LeveldbDatabase.LevelDbFactory;
 import org.semux.net.ChannelManager;
@@ -81,12 +85,33 @@ public class PendingManagerTest {
         long nonce = accountState.getAccount(from).getNonce();
 
         Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
-        pendingMgr.addTransaction(tx);
+        assertTrue(pendingMgr.addTransaction(tx));
 
         Thread.sleep(100);
         assertEquals(1, pendingMgr.getPendingTransactions().size());
     }
 
+    @Test
+    public void testSelectUnknownTransactions() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+
+        Thread.sleep(100);
+        assertNotNull(pendingMgr.getProcessedTransaction(tx.getHash()));
+
+        byte[] unknown = Bytes.random(32);
+        List<byte[]> selected = pendingMgr.selectUnknownTransactions(Arrays.asList(tx.getHash(), unknown));
+        assertEquals(1, selected.size());
+        assertArrayEquals(unknown, selected.get(0));
+
+        // already requested
+        assertTrue(pendingMgr.selectUnknownTransactions(Arrays.asList(unknown)).isEmpty());
+        assertNull(pendingMgr.getProcessedTransaction(unknown));
+    }
+
     @Test
     public void testAddTransaction() throws InterruptedException {
         long now = System.currentTimeMillis();
@@ -102,6 +127,73 @@ public class PendingManagerTest {
         assertEquals(1, pendingMgr.getPendingTransactions().size());
     }
 
+    @Test
+    public void testGetNonce() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+        assertEquals(nonce, pendingMgr.getNonce(from));
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+
+        Thread.sleep(100);
+        assertEquals(nonce + 1, pendingMgr.getNonce(from));
+
+        pendingMgr.reset();
+        assertEquals(nonce, pendingMgr.getNonce(from));
+        assertEquals(0, pendingMgr.getPendingTransactions().size());
+    }
+
+    @Test
+    public void testFeePriority() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        accountState.adjustAvailable(key2.toAddress(), SEM.of(1));
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+        Transaction tx2 = new Transaction(network, type, to, value, fee, nonce + 1, now, Bytes.EMPTY_BYTES)
+                .sign(key);
+        pendingMgr.addTransaction(tx2);
+        Transaction tx3 = new Transaction(network, type, to, value, Amount.sum(fee, fee), 0, now,
+                Bytes.EMPTY_BYTES).sign(key2);
+        pendingMgr.addTransaction(tx3);
+
+        Thread.sleep(100);
+        assertEquals(3, pendingMgr.getPendingTransactions().size());
+
+        // the highest fee first, and nonce order within a sender
+        List<PendingManager.PendingTransaction> txs = pendingMgr.getPendingTransactions(Integer.MAX_VALUE);
+        assertEquals(3, txs.size());
+        assertArrayEquals(tx3.getHash(), txs.get(0).transaction.getHash());
+        assertArrayEquals(tx.getHash(), txs.get(1).transaction.getHash());
+        assertArrayEquals(tx2.getHash(), txs.get(2).transaction.getHash());
+
+        // the size limit
+        txs = pendingMgr.getPendingTransactions(tx3.size());
+        assertEquals(1, txs.size());
+        assertArrayEquals(tx3.getHash(), txs.get(0).transaction.getHash());
+    }
+
+    @Test
+    public void testIntakeStats() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+        Transaction tx2 = new Transaction(network, type, to, value, fee, nonce + 1, 0, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx2);
+
+        Thread.sleep(100);
+        assertEquals(0, pendingMgr.getQueueSize());
+        assertEquals(2, pendingMgr.getReceivedCount());
+        assertEquals(1, pendingMgr.getRejectedCount());
+        assertEquals(1, pendingMgr.getAcceptedCount());
+    }
+
     @Test
     public void testAddTransactionSyncErrorInvalidFormat() {
         Transaction tx = new Transaction(network, type, to, value, fee, 0, 0, Bytes.EMPTY_BYTES).sign(key);
@@ -235,6 +327,70 @@ public class PendingManagerTest {
         assertArrayEquals(tx3.getHash(), pendingMgr.getPendingTransactions().get(0).transaction.getHash());
     }
 
+    @Test
+    public void testIncrementalReevaluation() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        accountState.adjustAvailable(key2.toAddress(), SEM.of(1));
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+        Transaction tx2 = new Transaction(network, type, new Key().toAddress(), value, fee, 0, now,
+                Bytes.EMPTY_BYTES).sign(key2);
+        pendingMgr.addTransaction(tx2);
+
+        Thread.sleep(100);
+        assertEquals(2, pendingMgr.getPendingTransactions().size());
+
+        BlockHeader header = new BlockHeader(1, Bytes.random(20), Bytes.random(32), now, Bytes.random(32),
+                Bytes.random(32), Bytes.random(32), Bytes.EMPTY_BYTES);
+        Block block = new Block(header, Arrays.asList(tx), Arrays.asList(new TransactionResult(true)));
+        kernel.getBlockchain().getAccountState().increaseNonce(from);
+        pendingMgr.onBlockAdded(block);
+
+        PendingManager.ReevaluationStats stats = pendingMgr.getLastReevaluation();
+        assertFalse(stats.full);
+        assertEquals(1, stats.included);
+        assertEquals(0, stats.reexecuted);
+        assertEquals(1, stats.kept);
+        assertEquals(0, stats.dropped);
+        assertArrayEquals(tx2.getHash(), pendingMgr.getPendingTransactions().get(0).transaction.getHash());
+    }
+
+    @Test
+    public void testReevaluationWithPendingDelegate() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        accountState.adjustAvailable(key2.toAddress(), SEM.of(2000));
+
+        Transaction tx = new Transaction(network, TransactionType.DELEGATE, Bytes.EMPTY_ADDRESS, SEM.of(1000), fee,
+                0, now, Bytes.of(Hex.encode(Bytes.random(4)))).sign(key2);
+        pendingMgr.addTransaction(tx);
+
+        Thread.sleep(100);
+        assertEquals(1, pendingMgr.getPendingTransactions().size());
+
+        // a transfer-only block which touches the delegate
+        Transaction tx2 = new Transaction(network, type, key2.toAddress(), value, fee, nonce, now,
+                Bytes.EMPTY_BYTES).sign(key);
+        BlockHeader header = new BlockHeader(1, Bytes.random(20), Bytes.random(32), now, Bytes.random(32),
+                Bytes.random(32), Bytes.random(32), Bytes.EMPTY_BYTES);
+        Block block = new Block(header, Arrays.asList(tx2), Arrays.asList(new TransactionResult(true)));
+        kernel.getBlockchain().getAccountState().increaseNonce(from);
+        pendingMgr.onBlockAdded(block);
+
+        // the registration is still pending, and not seen as a duplicate
+        PendingManager.ReevaluationStats stats = pendingMgr.getLastReevaluation();
+        assertTrue(stats.full);
+        assertEquals(1, stats.kept);
+        assertEquals(0, stats.dropped);
+        assertArrayEquals(tx.getHash(), pendingMgr.getPendingTransactions().get(0).transaction.getHash());
+    }
+
     @After
     public void stop() {
         pendingMgr.stop();
@@ -115,4 +115,59 @@ public class AccountStateTest {
         state.rollback();
         assertEquals(0, state2.getAccount(address).getNonce());
     }
+
+    @Test
+    public void testSnapshot() {
+        byte[] address = Bytes.random(20);
+        AccountState state2 = state.track();
+        state2.adjustAvailable(address, NANO_SEM.of(20));
+
+        int snapshot = state2.snapshot();
+        state2.adjustAvailable(address, NANO_SEM.of(5));
+        state2.adjustLocked(address, NANO_SEM.of(5));
+        state2.increaseNonce(address);
+        assertEquals(NANO_SEM.of(25), state2.getAccount(address).getAvailable());
+
+        state2.revert(snapshot);
+        Account acc = state2.getAccount(address);
+        assertEquals(NANO_SEM.of(20), acc.getAvailable());
+        assertEquals(ZERO, acc.getLocked());
+        assertEquals(0, acc.getNonce());
+
+        state2.revert(0);
+        assertEquals(ZERO, state2.getAccount(address).getAvailable());
+    }
+
+    @Test
+    public void testRevertCommittedTrack() {
+        byte[] address = Bytes.random(20);
+        AccountState state2 = state.track();
+        int snapshot = state2.snapshot();
+
+        AccountState state3 = state2.track();
+        state3.adjustAvailable(address, NANO_SEM.of(20));
+        state3.commit();
+        assertEquals(NANO_SEM.of(20), state2.getAccount(address).getAvailable());
+
+        state2.revert(snapshot);
+        assertEquals(ZERO, state2.getAccount(address).getAvailable());
+    }
+
+    @Test
+    public void testCommit() {
+        byte[] address = Bytes.random(20);
+        state.adjustAvailable(address, NANO_SEM.of(20));
+        state.increaseNonce(address);
+        Account acc = state.getAccount(address);
+        state.commit();
+
+        // the updated account is not modified by further updates
+        state.adjustAvailable(address, NANO_SEM.of(5));
+        assertEquals(NANO_SEM.of(20), acc.getAvailable());
+        state.rollback();
+
+        acc = state.getAccount(address);
+        assertEquals(NANO_SEM.of(20), acc.getAvailable());
+        assertEquals(1, acc.getNonce());
+    }
 }
@@ -10,6 +10,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 import static org.semux.core.Amount.Unit.NANO_SEM;
@@ -112,6 +113,35 @@ public class DelegateStateTest {
         assertEquals(NANO_SEM.of(200 - 1), list.get(0).getVotes());
     }
 
+    @Test
+    public void testRankingAfterCommit() {
+        byte[] voter = new Key().toAddress();
+        byte[] d1 = new Key().toAddress();
+        byte[] d2 = new Key().toAddress();
+
+        assertTrue(ds.register(d1, Bytes.of("ranking1")));
+        assertTrue(ds.register(d2, Bytes.of("ranking2")));
+        assertTrue(ds.vote(voter, d1, NANO_SEM.of(10)));
+        ds.commit();
+
+        List<Delegate> list = ds.getDelegates(2);
+        assertEquals(2, list.size());
+        assertArrayEquals(d1, list.get(0).getAddress());
+
+        // uncommitted updates are merged into the committed ranking
+        DelegateState track = ds.track();
+        assertTrue(track.vote(voter, d2, NANO_SEM.of(20)));
+        list = track.getDelegates(2);
+        assertArrayEquals(d2, list.get(0).getAddress());
+        assertArrayEquals(d1, list.get(1).getAddress());
+        assertArrayEquals(d1, ds.getDelegates(1).get(0).getAddress());
+
+        track.commit();
+        ds.commit();
+        assertArrayEquals(d2, ds.getDelegates(1).get(0).getAddress());
+        assertEquals(delegates.size() + 2, ds.getDelegates().size());
+    }
+
     @Test
     public void testUnvote() {
         byte[] voter = new Key().toAddress();
@@ -161,4 +191,28 @@ public class DelegateStateTest {
     public void rollback() {
         ds.rollback();
     }
+
+    @Test
+    public void testSnapshot() {
+        byte[] delegate = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+
+        DelegateState ds2 = ds.track();
+        assertTrue(ds2.register(delegate, Bytes.of("snapshot")));
+        assertTrue(ds2.vote(voter, delegate, NANO_SEM.of(10)));
+
+        int snapshot = ds2.snapshot();
+        assertTrue(ds2.vote(voter, delegate, NANO_SEM.of(5)));
+        assertEquals(NANO_SEM.of(15), ds2.getVote(voter, delegate));
+        assertEquals(NANO_SEM.of(15), ds2.getDelegateByAddress(delegate).getVotes());
+
+        ds2.revert(snapshot);
+        assertEquals(NANO_SEM.of(10), ds2.getVote(voter, delegate));
+        assertEquals(NANO_SEM.of(10), ds2.getDelegateByAddress(delegate).getVotes());
+
+        ds2.revert(0);
+        assertNull(ds2.getDelegateByAddress(delegate));
+        assertNull(ds2.getDelegateByName(Bytes.of("snapshot")));
+        assertEquals(ZERO, ds2.getVote(voter, delegate));
+    }
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.db.LeveldbDatabase;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class StateTreeTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private StateTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new StateTree(temporaryDBFactory.getDB(DatabaseName.STATE));
+    }
+
+    private StateTree newTree() throws IOException {
+        return new StateTree(new LeveldbDatabase(temporaryDBFactory.newFolder()));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.getRoot());
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.commit(0));
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.getRoot(0));
+        assertNull(tree.getRoot(1));
+    }
+
+    @Test
+    public void testCommit() throws IOException {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add(i);
+            tree.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("value" + i));
+        }
+        tree.update(DatabaseName.VOTE, Bytes.of(0), Bytes.of("vote"));
+        byte[] root = tree.commit(1);
+        assertFalse(Arrays.equals(Bytes.EMPTY_HASH, root));
+        assertArrayEquals(root, tree.getRoot(1));
+
+        // the root does not depend on the order of the updates or commits
+        Collections.shuffle(keys);
+        StateTree tree2 = newTree();
+        tree2.update(DatabaseName.VOTE, Bytes.of(0), Bytes.of("vote"));
+        tree2.commit(0);
+        for (int i : keys) {
+            tree2.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("value" + i));
+        }
+        assertArrayEquals(root, tree2.commit(1));
+
+        // the database is part of the leaf
+        StateTree tree3 = newTree();
+        for (int i : keys) {
+            tree3.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("value" + i));
+        }
+        tree3.update(DatabaseName.DELEGATE, Bytes.of(0), Bytes.of("vote"));
+        assertFalse(Arrays.equals(root, tree3.commit(1)));
+    }
+
+    @Test
+    public void testDelete() {
+        tree.update(DatabaseName.ACCOUNT, Bytes.of("a"), Bytes.of("1"));
+        byte[] root = tree.commit(1);
+
+        tree.update(DatabaseName.ACCOUNT, Bytes.of("b"), Bytes.of("2"));
+        assertFalse(Arrays.equals(root, tree.commit(2)));
+
+        tree.update(DatabaseName.ACCOUNT, Bytes.of("b"), null);
+        assertArrayEquals(root, tree.commit(3));
+
+        tree.update(DatabaseName.ACCOUNT, Bytes.of("a"), null);
+        assertArrayEquals(Bytes.EMPTY_HASH, tree.commit(4));
+    }
+
+    @Test
+    public void testLoad() {
+        for (int i = 0; i < 100; i++) {
+            tree.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of(i));
+        }
+        byte[] root = tree.commit(1);
+
+        // pending updates are discarded
+        tree.update(DatabaseName.ACCOUNT, Bytes.of(100), Bytes.of(100));
+        tree.load();
+        assertArrayEquals(root, tree.getRoot());
+        assertArrayEquals(root, tree.commit(2));
+
+        assertArrayEquals(root, new StateTree(temporaryDBFactory.getDB(DatabaseName.STATE)).getRoot());
+    }
+
+    @Test
+    public void testRebuild() throws IOException {
+        Database accountDB = temporaryDBFactory.getDB(DatabaseName.ACCOUNT);
+        Database delegateDB = temporaryDBFactory.getDB(DatabaseName.DELEGATE);
+        Database voteDB = temporaryDBFactory.getDB(DatabaseName.VOTE);
+        for (int i = 0; i < 1000; i++) {
+            accountDB.put(Bytes.of(i), Bytes.of("account" + i));
+            tree.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("account" + i));
+            if (i % 10 == 0) {
+                delegateDB.put(Bytes.of(i), Bytes.of("delegate" + i));
+                tree.update(DatabaseName.DELEGATE, Bytes.of(i), Bytes.of("delegate" + i));
+                voteDB.put(Bytes.of(i), Bytes.of(i));
+                tree.update(DatabaseName.VOTE, Bytes.of(i), Bytes.of(i));
+            }
+        }
+        byte[] root = tree.commit(5);
+
+        StateTree tree2 = newTree();
+        assertArrayEquals(root, tree2.rebuild(accountDB, delegateDB, voteDB, 5));
+        assertArrayEquals(root, tree2.getRoot(5));
+    }
+
+    @Test
+    public void testProof() {
+        for (int i = 0; i < 1000; i++) {
+            tree.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("value" + i));
+        }
+        byte[] root = tree.commit(1);
+
+        StateTree.Proof proof = tree.getProof(DatabaseName.ACCOUNT, Bytes.of(7));
+        assertEquals(StateTree.DEPTH, proof.getSiblings().size());
+        assertTrue(StateTree.verify(root, DatabaseName.ACCOUNT, Bytes.of(7), Bytes.of("value7"), proof));
+        assertFalse(StateTree.verify(root, DatabaseName.ACCOUNT, Bytes.of(7), Bytes.of("value8"), proof));
+        assertFalse(StateTree.verify(root, DatabaseName.ACCOUNT, Bytes.of(7), null, proof));
+        assertFalse(StateTree.verify(root, DatabaseName.VOTE, Bytes.of(7), Bytes.of("value7"), proof));
+
+        // absence
+        proof = tree.getProof(DatabaseName.ACCOUNT, Bytes.of(1000));
+        assertTrue(StateTree.verify(root, DatabaseName.ACCOUNT, Bytes.of(1000), null, proof));
+        assertFalse(StateTree.verify(root, DatabaseName.ACCOUNT, Bytes.of(1000), Bytes.of("value"), proof));
+
+        // against another root
+        tree.update(DatabaseName.ACCOUNT, Bytes.of(1000), Bytes.of("value"));
+        assertFalse(StateTree.verify(tree.commit(2), DatabaseName.ACCOUNT, Bytes.of(1000), null, proof));
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        Database accountDB = temporaryDBFactory.getDB(DatabaseName.ACCOUNT);
+        for (int i = 0; i < 1000; i++) {
+            accountDB.put(Bytes.of(i), Bytes.of("account" + i));
+            tree.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of("account" + i));
+        }
+        tree.update(DatabaseName.VOTE, Bytes.of(0), Bytes.of(0));
+        byte[] root = tree.commit(1);
+
+        int level = 8;
+        List<byte[]> chunks = tree.getNodes(level);
+        assertEquals(1 << level, chunks.size());
+        assertArrayEquals(root, StateTree.hashLevel(chunks));
+        assertArrayEquals(root, StateTree.hashLevel(tree.getNodes(0)));
+
+        // restore the chunks into a tree with other state
+        StateTree tree2 = newTree();
+        tree2.update(DatabaseName.ACCOUNT, Bytes.of(5000), Bytes.of("stale"));
+        tree2.commit(0);
+
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            List<StateTree.Leaf> leaves = new ArrayList<>();
+            for (Pair<DatabaseName, byte[]> key : tree.getKeys(level, i)) {
+                byte[] value = key.getLeft() == DatabaseName.ACCOUNT ? accountDB.get(key.getRight()) : Bytes.of(0);
+                leaves.add(new StateTree.Leaf(key.getLeft(), key.getRight(), value));
+            }
+            total += leaves.size();
+            assertArrayEquals(chunks.get(i), StateTree.hashChunk(level, i, leaves));
+
+            if (!leaves.isEmpty()) {
+                // entries of another chunk, or duplicated
+                assertNull(StateTree.hashChunk(level, (i + 1) % chunks.size(), leaves));
+                List<StateTree.Leaf> duplicated = new ArrayList<>(leaves);
+                duplicated.add(leaves.get(0));
+                assertNull(StateTree.hashChunk(level, i, duplicated));
+            }
+
+            for (Pair<DatabaseName, byte[]> key : tree2.getKeys(level, i)) {
+                tree2.update(key.getLeft(), key.getRight(), null);
+            }
+            for (StateTree.Leaf leaf : leaves) {
+                tree2.update(leaf.getDb(), leaf.getKey(), leaf.getValue());
+            }
+            tree2.commit();
+            assertArrayEquals(chunks.get(i), tree2.getNodes(level).get(i));
+        }
+        assertEquals(1001, total);
+        assertArrayEquals(root, tree2.getRoot());
+        assertNull(tree2.getRoot(1));
+    }
+}
@@ -8,6 +8,8 @@ package org.semux.crypto;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 import org.semux.util.Bytes;
 import org.slf4j.Logger;
@@ -46,6 +48,34 @@ public class HashTest {
         assertEquals(msgBlake2b, Hex.encode(hash));
     }
 
+    @Test
+    public void testH256MultiPart() {
+        byte[] raw1 = Bytes.of(msg.substring(0, 1));
+        byte[] raw2 = Bytes.of(msg.substring(1, 2));
+        byte[] raw3 = Bytes.of(msg.substring(2));
+        byte[] hash = Hash.h256(raw1, raw2, raw3);
+
+        assertEquals(msgBlake2b, Hex.encode(hash));
+    }
+
+    @Test
+    public void testH256Buffer() {
+        byte[] out = new byte[Hash.HASH_LEN + 2];
+        Hash.h256(Bytes.of(msg), out, 1);
+
+        assertEquals(msgBlake2b, Hex.encode(Arrays.copyOfRange(out, 1, 1 + Hash.HASH_LEN)));
+        assertEquals(0, out[0]);
+        assertEquals(0, out[out.length - 1]);
+    }
+
+    @Test
+    public void testH160Buffer() {
+        byte[] out = new byte[Hash.H160_LEN];
+        Hash.h160(Bytes.of(msg), out, 0);
+
+        assertEquals(msgH160, Hex.encode(out));
+    }
+
     @Test
     public void testH160() {
         byte[] raw = Bytes.of(msg);
@@ -15,7 +15,10 @@ import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.bouncycastle.util.Arrays;
 import org.junit.Assert;
 import org.junit.Test;
@@ -113,6 +116,23 @@ public class KeyTest {
         assertArrayEquals(key.getPublicKey(), sig.getPublicKey());
     }
 
+    @Test
+    public void testVerifyBatch() {
+        List<Pair<byte[], Signature>> signatures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Key key = new Key();
+            byte[] hash = Hash.h256(Bytes.random(32));
+            signatures.add(Pair.of(hash, key.sign(hash)));
+        }
+        assertTrue(Key.verifyBatch(signatures));
+        assertTrue(Key.verifyBatch(signatures.subList(0, 2)));
+        assertTrue(Key.verifyBatch(new ArrayList<>()));
+
+        Key key = new Key();
+        signatures.add(Pair.of(Hash.h256(Bytes.random(32)), key.sign(Hash.h256(Bytes.random(32)))));
+        assertFalse(Key.verifyBatch(signatures));
+    }
+
     @Test
     public void testInvalidSignature() throws SignatureException {
         byte[] data = Bytes.of("test");
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto.cache;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
+
+public class SignatureCacheTest {
+
+    @Test
+    public void testCache() {
+        Key key = new Key();
+        byte[] msgHash = Bytes.random(32);
+        Signature sig = key.sign(msgHash);
+
+        SignatureCache.invalidateAll();
+        assertFalse(SignatureCache.contains(msgHash, sig.getS(), sig.getA()));
+
+        long hits = SignatureCache.stats().hitCount();
+        assertTrue(Key.verify(msgHash, sig));
+        assertTrue(SignatureCache.contains(msgHash, sig.getS(), sig.getA()));
+        assertTrue(Key.verify(msgHash, sig));
+        assertTrue(SignatureCache.stats().hitCount() > hits);
+    }
+
+    @Test
+    public void testInvalidSignatureNotCached() {
+        Key key = new Key();
+        byte[] msgHash = Bytes.random(32);
+        Signature sig = key.sign(Bytes.random(32));
+
+        assertFalse(Key.verify(msgHash, sig));
+        assertFalse(SignatureCache.contains(msgHash, sig.getS(), sig.getA()));
+    }
+}
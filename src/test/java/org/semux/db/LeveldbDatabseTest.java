@@ -7,6 +7,7 @@
 package org.semux.db;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -26,6 +27,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.semux.config.Constants;
 import org.semux.db.LeveldbDatabase.LevelDbFactory;
+import org.semux.db.exception.DatabaseException;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
 
@@ -95,6 +97,128 @@ public class LeveldbDatabseTest {
         itr.close();
     }
 
+    @Test
+    public void testBatchCommit() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+
+        db.startBatch();
+        db.delete(Bytes.of("a"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+
+        // pending updates are visible within the session
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("c")));
+
+        db.commitBatch();
+
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+        assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("c")));
+    }
+
+    @Test
+    public void testBatchRollback() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+
+        db.startBatch();
+        db.put(Bytes.of("a"), Bytes.of("2"));
+        db.put(Bytes.of("b"), Bytes.of("3"));
+        db.rollbackBatch();
+
+        assertArrayEquals(Bytes.of("1"), db.get(Bytes.of("a")));
+        assertNull(db.get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testBatchIterator() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.put(Bytes.of("d"), Bytes.of("4"));
+
+        db.startBatch();
+        db.delete(Bytes.of("b"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("d"), Bytes.of("5"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator(Bytes.of("a1"));
+        assertTrue(itr.hasNext());
+        Entry<byte[], byte[]> e = itr.next();
+        assertArrayEquals(Bytes.of("c"), e.getKey());
+        assertArrayEquals(Bytes.of("3"), e.getValue());
+        assertTrue(itr.hasNext());
+        e = itr.next();
+        assertArrayEquals(Bytes.of("d"), e.getKey());
+        assertArrayEquals(Bytes.of("5"), e.getValue());
+        assertFalse(itr.hasNext());
+        itr.close();
+
+        db.commitBatch();
+    }
+
+    private static List<String> scan(Database db, byte[] from, byte[] to, int limit, boolean reverse) {
+        List<String> keys = new ArrayList<>();
+        db.scan(from, to, limit, reverse, (k, v) -> {
+            byte[] bytes = new byte[k.remaining()];
+            k.get(bytes);
+            return keys.add(Bytes.toString(bytes));
+        });
+        return keys;
+    }
+
+    @Test
+    public void testScan() {
+        for (String k : new String[] { "a", "b", "c", "d", "e" }) {
+            db.put(Bytes.of(k), Bytes.of(k));
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), scan(db, null, null, 10, false));
+        assertEquals(Arrays.asList("b", "c"), scan(db, Bytes.of("b"), Bytes.of("d"), 10, false));
+        assertEquals(Arrays.asList("b", "c"), scan(db, Bytes.of("a1"), Bytes.of("c1"), 10, false));
+        assertEquals(Arrays.asList("c", "b"), scan(db, Bytes.of("b"), Bytes.of("d"), 10, true));
+        assertEquals(Arrays.asList("e", "d"), scan(db, null, null, 2, true));
+        assertEquals(Arrays.asList("e", "d"), scan(db, Bytes.of("d"), Bytes.of("z"), 10, true));
+        assertEquals(Arrays.asList("a", "b"), scan(db, null, Bytes.of("c"), 2, false));
+        assertTrue(scan(db, Bytes.of("d"), Bytes.of("b"), 10, false).isEmpty());
+
+        // values are visited along with the keys
+        db.scan(Bytes.of("c"), (k, v) -> {
+            assertEquals(Bytes.of("c").length, v.remaining());
+            assertEquals('c', v.get(v.position()));
+            return true;
+        });
+    }
+
+    @Test
+    public void testBatchScan() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("e"), Bytes.of("5"));
+
+        db.startBatch();
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.delete(Bytes.of("c"));
+        db.put(Bytes.of("e"), Bytes.of("6"));
+        db.put(Bytes.of("f"), Bytes.of("7"));
+
+        assertEquals(Arrays.asList("a", "b", "e", "f"), scan(db, null, null, 10, false));
+        assertEquals(Arrays.asList("f", "e", "b", "a"), scan(db, null, null, 10, true));
+        assertEquals(Arrays.asList("a", "b"), scan(db, null, null, 2, false));
+        assertEquals(3, db.scan(Bytes.of("b"), null, 10, false, (k, v) -> true));
+        db.scan(Bytes.of("e"), (k, v) -> {
+            assertEquals('6', v.get(v.position()));
+            return true;
+        });
+        db.rollbackBatch();
+
+        assertEquals(Arrays.asList("a", "c", "e"), scan(db, null, null, 10, false));
+    }
+
+    @Test(expected = DatabaseException.class)
+    public void testBatchNotStarted() {
+        db.commitBatch();
+    }
+
     @Test
     public void testLevelDBFactory() {
         LevelDbFactory factory = new LevelDbFactory(new File(Constants.DEFAULT_DATA_DIR, Constants.DATABASE_DIR));
@@ -104,6 +228,28 @@ public class LeveldbDatabseTest {
         factory.close();
     }
 
+    @Test
+    public void testProfile() {
+        File file = new File(Constants.DEFAULT_DATA_DIR, Constants.DATABASE_DIR + File.separator + "test2");
+        LeveldbDatabase db2 = new LeveldbDatabase(file, DatabaseProfile.of(DatabaseName.ACCOUNT));
+        try {
+            db2.put(key, value);
+            assertArrayEquals(value, db2.get(key));
+        } finally {
+            db2.destroy();
+        }
+    }
+
+    @Test
+    public void testStats() {
+        for (int i = 0; i < 1000; i++) {
+            db.put(Bytes.of(i), Bytes.random(128));
+        }
+
+        assertTrue(db.getStats().contains("Compactions"));
+        assertTrue(db.getApproximateSize() >= 0);
+    }
+
     @Test(expected = DBException.class)
     public void testClose() {
         db.close();
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semux.config.Constants;
+import org.semux.db.LogStoreDatabase.LogStoreFactory;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+public class LogStoreDatabaseTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File file = new File(Constants.DEFAULT_DATA_DIR, Constants.DATABASE_DIR + File.separator + "test-log");
+
+    private LogStoreDatabase db;
+
+    @Before
+    public void setUp() {
+        db = new LogStoreDatabase(file, SEGMENT_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        db.destroy();
+    }
+
+    private void reopen() {
+        db.close();
+        db = new LogStoreDatabase(file, SEGMENT_SIZE);
+    }
+
+    @Test
+    public void testGetAndPut() {
+        assertNull(db.get(Bytes.of("key")));
+        db.put(Bytes.of("key"), Bytes.of("value"));
+        assertArrayEquals(Bytes.of("value"), db.get(Bytes.of("key")));
+        db.delete(Bytes.of("key"));
+        assertNull(db.get(Bytes.of("key")));
+    }
+
+    @Test
+    public void testUpdateBatch() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+
+        List<Pair<byte[], byte[]>> update = new ArrayList<>();
+        update.add(Pair.of(Bytes.of("a"), null));
+        update.add(Pair.of(Bytes.of("b"), Bytes.of("2")));
+        update.add(Pair.of(Bytes.of("c"), Bytes.of("3")));
+        db.updateBatch(update);
+
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+        assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("c")));
+    }
+
+    @Test
+    public void testIterator() {
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator(Bytes.of("a1"));
+        assertTrue(itr.hasNext());
+        assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+        assertTrue(itr.hasNext());
+        Entry<byte[], byte[]> e = itr.next();
+        assertArrayEquals(Bytes.of("c"), e.getKey());
+        assertArrayEquals(Bytes.of("3"), e.getValue());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    private static List<String> scan(Database db, byte[] from, byte[] to, int limit, boolean reverse) {
+        List<String> keys = new ArrayList<>();
+        db.scan(from, to, limit, reverse, (k, v) -> {
+            byte[] bytes = new byte[k.remaining()];
+            k.get(bytes);
+            return keys.add(Bytes.toString(bytes));
+        });
+        return keys;
+    }
+
+    @Test
+    public void testScan() {
+        for (String k : new String[] { "a", "b", "c", "d", "e" }) {
+            db.put(Bytes.of(k), Bytes.of(k));
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), scan(db, null, null, 10, false));
+        assertEquals(Arrays.asList("b", "c"), scan(db, Bytes.of("b"), Bytes.of("d"), 10, false));
+        assertEquals(Arrays.asList("b", "c"), scan(db, Bytes.of("a1"), Bytes.of("c1"), 10, false));
+        assertEquals(Arrays.asList("c", "b"), scan(db, Bytes.of("b"), Bytes.of("d"), 10, true));
+        assertEquals(Arrays.asList("e", "d"), scan(db, null, null, 2, true));
+        assertEquals(Arrays.asList("e", "d"), scan(db, Bytes.of("d"), Bytes.of("z"), 10, true));
+        assertEquals(Arrays.asList("a", "b"), scan(db, null, Bytes.of("c"), 2, false));
+        assertTrue(scan(db, Bytes.of("d"), Bytes.of("b"), 10, false).isEmpty());
+
+        // values are visited along with the keys
+        db.scan(Bytes.of("c"), (k, v) -> {
+            assertEquals(Bytes.of("c").length, v.remaining());
+            assertEquals('c', v.get(v.position()));
+            return true;
+        });
+    }
+
+    @Test
+    public void testBatchScan() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        db.put(Bytes.of("e"), Bytes.of("5"));
+
+        db.startBatch();
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.delete(Bytes.of("c"));
+        db.put(Bytes.of("e"), Bytes.of("6"));
+        db.put(Bytes.of("f"), Bytes.of("7"));
+
+        assertEquals(Arrays.asList("a", "b", "e", "f"), scan(db, null, null, 10, false));
+        assertEquals(Arrays.asList("f", "e", "b", "a"), scan(db, null, null, 10, true));
+        assertEquals(Arrays.asList("a", "b"), scan(db, null, null, 2, false));
+        assertEquals(3, db.scan(Bytes.of("b"), null, 10, false, (k, v) -> true));
+        db.scan(Bytes.of("e"), (k, v) -> {
+            assertEquals('6', v.get(v.position()));
+            return true;
+        });
+        db.rollbackBatch();
+
+        assertEquals(Arrays.asList("a", "c", "e"), scan(db, null, null, 10, false));
+    }
+
+    @Test
+    public void testBatchCommit() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+
+        db.startBatch();
+        db.delete(Bytes.of("a"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        assertNull(db.get(Bytes.of("a")));
+        db.commitBatch();
+
+        reopen();
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testReopen() {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.put(Bytes.of("a"), Bytes.of("3"));
+        db.delete(Bytes.of("b"));
+
+        reopen();
+        assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("a")));
+        assertNull(db.get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testTornWrite() throws IOException {
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        long size = db.getApproximateSize();
+        db.close();
+
+        // corrupt the last byte of the last write
+        try (RandomAccessFile raf = new RandomAccessFile(new File(file, "00000000.seg"), "rw")) {
+            raf.seek(size - 1);
+            raf.write('x');
+        }
+
+        reopen();
+        assertArrayEquals(Bytes.of("1"), db.get(Bytes.of("a")));
+        assertNull(db.get(Bytes.of("b")));
+
+        // new writes are appended after the last valid one
+        db.put(Bytes.of("c"), Bytes.of("3"));
+        reopen();
+        assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("c")));
+    }
+
+    @Test
+    public void testCompaction() {
+        for (int i = 0; i < 1000; i++) {
+            db.put(Bytes.of(i % 10), Bytes.of(i));
+        }
+        db.put(Bytes.of(1000), Bytes.of("x"));
+        db.delete(Bytes.of(1000));
+
+        // overwritten segments have been removed
+        File[] segments = file.listFiles();
+        assertNotNull(segments);
+        assertTrue(segments.length < 5);
+
+        reopen();
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(Bytes.of(990 + i), db.get(Bytes.of(i)));
+        }
+        assertNull(db.get(Bytes.of(1000)));
+    }
+
+    @Test
+    public void testLargeValue() {
+        byte[] value = Bytes.random(SEGMENT_SIZE * 2);
+        db.put(Bytes.of("a"), value);
+        db.put(Bytes.of("b"), Bytes.of("2"));
+
+        reopen();
+        assertArrayEquals(value, db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testLogStoreFactory() {
+        LogStoreFactory factory = new LogStoreFactory(new File(Constants.DEFAULT_DATA_DIR, Constants.DATABASE_DIR));
+        for (DatabaseName name : DatabaseName.values()) {
+            assertNotNull(factory.getDB(name));
+        }
+        factory.close();
+    }
+
+    @Test(expected = DatabaseException.class)
+    public void testClose() {
+        db.close();
+
+        db.get(Bytes.of("key"));
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+public class SnapshotArchiveTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory2 = new TemporaryDatabaseRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private void fill(DatabaseFactory dbFactory) {
+        for (DatabaseName name : DatabaseName.values()) {
+            Database db = dbFactory.getDB(name);
+            for (int i = 0; i < 1000 * (name.ordinal() + 1); i++) {
+                db.put(Bytes.of(name.toString() + i), Bytes.of("value" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testExportAndRestore() throws IOException {
+        fill(temporaryDBFactory);
+        File dir = temporaryFolder.newFolder();
+
+        Map<DatabaseName, SnapshotArchive.Stats> exported = new SnapshotArchive(dir).export(temporaryDBFactory);
+        Map<DatabaseName, SnapshotArchive.Stats> imported = new SnapshotArchive(dir).restore(temporaryDBFactory2);
+
+        for (DatabaseName name : DatabaseName.values()) {
+            assertEquals(1000 * (name.ordinal() + 1), exported.get(name).getEntries());
+            assertEquals(exported.get(name).getEntries(), imported.get(name).getEntries());
+            assertEquals(exported.get(name).getBytes(), imported.get(name).getBytes());
+
+            Database db = temporaryDBFactory.getDB(name);
+            Database db2 = temporaryDBFactory2.getDB(name);
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            ClosableIterator<Entry<byte[], byte[]>> itr2 = db2.iterator();
+            try {
+                while (itr.hasNext()) {
+                    assertTrue(itr2.hasNext());
+                    Entry<byte[], byte[]> e = itr.next();
+                    Entry<byte[], byte[]> e2 = itr2.next();
+                    assertArrayEquals(e.getKey(), e2.getKey());
+                    assertArrayEquals(e.getValue(), e2.getValue());
+                }
+                assertFalse(itr2.hasNext());
+            } finally {
+                itr.close();
+                itr2.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRestoreIntoNonEmpty() throws IOException {
+        fill(temporaryDBFactory);
+        File dir = temporaryFolder.newFolder();
+        new SnapshotArchive(dir).export(temporaryDBFactory);
+
+        temporaryDBFactory2.getDB(DatabaseName.BLOCK).put(Bytes.of("key"), Bytes.of("value"));
+        try {
+            new SnapshotArchive(dir).restore(temporaryDBFactory2);
+            fail("Restored into a non-empty database");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRestoreCorrupted() throws IOException {
+        fill(temporaryDBFactory);
+        File dir = temporaryFolder.newFolder();
+        new SnapshotArchive(dir).export(temporaryDBFactory);
+
+        File file = new File(dir, "account.snapshot");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0xff);
+        }
+
+        try {
+            new SnapshotArchive(dir).restore(temporaryDBFactory2);
+            fail("Restored a corrupted snapshot");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    @Test
+    public void testExportWhileWriting() throws IOException {
+        fill(temporaryDBFactory);
+        File dir = temporaryFolder.newFolder();
+
+        // a block is applied as soon as the snapshots are taken
+        Lock lock = new ReentrantLock() {
+            @Override
+            public void unlock() {
+                super.unlock();
+                for (DatabaseName name : DatabaseName.values()) {
+                    temporaryDBFactory.getDB(name).put(Bytes.of("new"), Bytes.of("value"));
+                }
+            }
+        };
+
+        Map<DatabaseName, SnapshotArchive.Stats> exported = new SnapshotArchive(dir).export(temporaryDBFactory, lock);
+        Map<DatabaseName, SnapshotArchive.Stats> imported = new SnapshotArchive(dir).restore(temporaryDBFactory2);
+
+        for (DatabaseName name : DatabaseName.values()) {
+            assertEquals(1000 * (name.ordinal() + 1), exported.get(name).getEntries());
+            assertEquals(exported.get(name).getEntries(), imported.get(name).getEntries());
+            assertNull(temporaryDBFactory2.getDB(name).get(Bytes.of("new")));
+        }
+    }
+
+    @Test
+    public void testRetryFailedRestore() throws IOException {
+        fill(temporaryDBFactory);
+        File dir = temporaryFolder.newFolder();
+        new SnapshotArchive(dir).export(temporaryDBFactory);
+
+        // truncate one database, while the others are imported
+        File file = new File(dir, "account.snapshot");
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - 8));
+
+        try {
+            new SnapshotArchive(dir).restore(temporaryDBFactory2);
+            fail("Restored a truncated snapshot");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // the partially imported databases are emptied
+        for (DatabaseName name : DatabaseName.values()) {
+            ClosableIterator<Entry<byte[], byte[]>> itr = temporaryDBFactory2.getDB(name).iterator();
+            try {
+                assertFalse(itr.hasNext());
+            } finally {
+                itr.close();
+            }
+        }
+
+        // so the import can be retried
+        new SnapshotArchive(dir).export(temporaryDBFactory);
+        Map<DatabaseName, SnapshotArchive.Stats> imported = new SnapshotArchive(dir).restore(temporaryDBFactory2);
+        for (DatabaseName name : DatabaseName.values()) {
+            assertEquals(1000 * (name.ordinal() + 1), imported.get(name).getEntries());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.net.msg.MessageCode;
+import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.NewHeightMessage;
+
+public class GossipFilterTest {
+
+    @Test
+    public void testAdd() {
+        GossipFilter filter = new GossipFilter();
+
+        assertTrue(filter.add(new NewHeightMessage(1)));
+        assertFalse(filter.add(new NewHeightMessage(1)));
+        assertFalse(filter.add(new NewHeightMessage(1)));
+        assertTrue(filter.add(new NewHeightMessage(2)));
+
+        // same encoding, another type
+        assertTrue(filter.add(new GetBlockMessage(1)));
+
+        assertEquals(4, filter.getReceived(MessageCode.BFT_NEW_HEIGHT));
+        assertEquals(2, filter.getDuplicates(MessageCode.BFT_NEW_HEIGHT));
+        assertEquals(0.5, filter.getDuplicateRatio(MessageCode.BFT_NEW_HEIGHT), 0.0);
+        assertEquals(0.0, filter.getDuplicateRatio(MessageCode.GET_BLOCK), 0.0);
+        assertEquals(0.0, filter.getDuplicateRatio(MessageCode.BFT_VOTE), 0.0);
+        assertEquals(2, filter.getCodes().size());
+    }
+
+    @Test
+    public void testRemove() {
+        GossipFilter filter = new GossipFilter();
+
+        assertTrue(filter.add(new NewHeightMessage(1)));
+        filter.remove(new NewHeightMessage(1));
+        assertTrue(filter.add(new NewHeightMessage(1)));
+        assertFalse(filter.add(new NewHeightMessage(1)));
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.DevnetConfig;
+import org.semux.net.msg.MessageCode;
+
+public class MessageWorkersTest {
+
+    private static final int QUEUE_SIZE = 4;
+
+    private MessageWorkers workers;
+
+    @Before
+    public void setUp() {
+        Config config = spy(new DevnetConfig(Constants.DEFAULT_DATA_DIR));
+        when(config.netWorkerQueueSize()).thenReturn(QUEUE_SIZE);
+        workers = new MessageWorkers(config);
+    }
+
+    @After
+    public void tearDown() {
+        workers.stop();
+    }
+
+    @Test
+    public void testSubmit() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(workers.submit(MessageWorkers.Pool.STORAGE, MessageCode.GET_BLOCK, done::countDown));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        workers.stop();
+        assertEquals(1, workers.getHandled(MessageCode.GET_BLOCK));
+        assertEquals(0, workers.getQueued(MessageCode.GET_BLOCK));
+        assertEquals(0, workers.getRejected(MessageCode.GET_BLOCK));
+        assertTrue(workers.getMaxLatency(MessageCode.GET_BLOCK) >= workers.getAverageLatency(MessageCode.GET_BLOCK));
+    }
+
+    @Test
+    public void testSaturated() throws InterruptedException {
+        // block all storage workers
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        int accepted = 0;
+        while (workers.submit(MessageWorkers.Pool.STORAGE, MessageCode.GET_BLOCK, blocked)) {
+            accepted++;
+        }
+        assertTrue(accepted >= QUEUE_SIZE);
+        assertEquals(1, workers.getRejected(MessageCode.GET_BLOCK));
+        assertTrue(workers.getQueued(MessageCode.GET_BLOCK) >= QUEUE_SIZE);
+
+        // other pools are not affected
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(workers.submit(MessageWorkers.Pool.CONSENSUS, MessageCode.BFT_VOTE, done::countDown));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        workers.stop();
+        assertFalse(workers.submit(MessageWorkers.Pool.STORAGE, MessageCode.GET_BLOCK, blocked));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.DevnetConfig;
+import org.semux.core.state.StateTree;
+import org.semux.db.DatabaseName;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.consensus.StateChunkMessage;
+import org.semux.util.Bytes;
+
+public class SemuxMessageHandlerTest {
+
+    private Config config = new DevnetConfig(Constants.DEFAULT_DATA_DIR);
+
+    private Message newMessage() {
+        Random random = new Random(0);
+        List<StateTree.Leaf> leaves = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] value = new byte[config.netMaxFrameBodySize()];
+            random.nextBytes(value);
+            leaves.add(new StateTree.Leaf(DatabaseName.ACCOUNT, Bytes.of(i), value));
+        }
+        return new StateChunkMessage(1, 8, 0, leaves);
+    }
+
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        Message msg = newMessage();
+
+        SemuxMessageHandler handler = new SemuxMessageHandler(config);
+        List<Object> frames = new ArrayList<>();
+        handler.encode(null, msg, frames);
+        assertTrue(frames.size() > 1);
+
+        SemuxMessageHandler handler2 = new SemuxMessageHandler(config);
+        List<Object> out = new ArrayList<>();
+        for (Object frame : frames) {
+            handler2.decode(null, (Frame) frame, out);
+        }
+        assertEquals(1, out.size());
+        assertArrayEquals(msg.getEncoded(), ((Message) out.get(0)).getEncoded());
+    }
+
+    @Test
+    public void testEncodeOnce() throws Exception {
+        Message msg = newMessage();
+
+        List<Object> frames = new ArrayList<>();
+        new SemuxMessageHandler(config).encode(null, msg, frames);
+        List<byte[]> bodies = msg.getFrameBodies();
+        assertEquals(frames.size(), bodies.size());
+
+        // another channel reuses the frame bodies
+        List<Object> frames2 = new ArrayList<>();
+        new SemuxMessageHandler(config).encode(null, msg, frames2);
+        assertSame(bodies, msg.getFrameBodies());
+        for (int i = 0; i < frames.size(); i++) {
+            assertSame(((Frame) frames.get(i)).getBody(), ((Frame) frames2.get(i)).getBody());
+        }
+    }
+
+    @Test
+    public void testEncodeEmpty() throws Exception {
+        Message msg = new StateChunkMessage(1, 8, 0, Collections.emptyList());
+
+        List<Object> frames = new ArrayList<>();
+        new SemuxMessageHandler(config).encode(null, msg, frames);
+        assertEquals(1, frames.size());
+        assertEquals(((Frame) frames.get(0)).getPacketSize(), ((Frame) frames.get(0)).getBodySize());
+    }
+}
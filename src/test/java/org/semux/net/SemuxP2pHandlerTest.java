@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.semux.core.Amount.Unit.NANO_SEM;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+import org.semux.Kernel;
+import org.semux.Network;
+import org.semux.config.Constants;
+import org.semux.config.DevnetConfig;
+import org.semux.core.PendingManager;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.net.msg.MessageQueue;
+import org.semux.net.msg.p2p.GetTxsMessage;
+import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TxsMessage;
+import org.semux.util.Bytes;
+
+import io.netty.channel.ChannelHandlerContext;
+
+public class SemuxP2pHandlerTest {
+
+    private PendingManager pendingMgr;
+    private MessageQueue msgQueue;
+    private SemuxP2pHandler handler;
+
+    @Before
+    public void setUp() {
+        Kernel kernel = mock(Kernel.class);
+        when(kernel.getConfig()).thenReturn(new DevnetConfig(Constants.DEFAULT_DATA_DIR));
+        pendingMgr = mock(PendingManager.class);
+        when(kernel.getPendingManager()).thenReturn(pendingMgr);
+        when(kernel.getGossipFilter()).thenReturn(new GossipFilter());
+
+        msgQueue = mock(MessageQueue.class);
+        Channel channel = mock(Channel.class);
+        when(channel.getMessageQueue()).thenReturn(msgQueue);
+
+        handler = new SemuxP2pHandler(channel, kernel);
+        Whitebox.setInternalState(handler, "isHandshakeDone", true);
+    }
+
+    @Test
+    public void testGetUnknownTxs() throws InterruptedException {
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+
+        // none of the transactions is known, or the request is invalid
+        handler.channelRead0(ctx, new GetTxsMessage(Collections.singletonList(Bytes.random(32))));
+        handler.channelRead0(ctx, new GetTxsMessage(Collections.emptyList()));
+
+        // the requests are answered anyway, so that they don't block the peer
+        verify(msgQueue, times(2)).sendMessage(
+                argThat(m -> m instanceof TxsMessage && ((TxsMessage) m).getTransactions().isEmpty()));
+    }
+
+    @Test
+    public void testTransactionQueueFull() throws InterruptedException {
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        Transaction tx = new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), NANO_SEM.of(2),
+                NANO_SEM.of(50_000_000L), 0, System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(new Key());
+
+        // the first copy is rejected by the full queue, a later one gets in
+        when(pendingMgr.addTransaction(tx)).thenReturn(false, true);
+        handler.channelRead0(ctx, new TransactionMessage(tx));
+        handler.channelRead0(ctx, new TransactionMessage(tx));
+        handler.channelRead0(ctx, new TransactionMessage(tx));
+
+        verify(pendingMgr, times(2)).addTransaction(tx);
+    }
+}
@@ -106,4 +106,18 @@ public class MessageQueueTest {
         assertTrue(ch.getMessageQueue().isIdle());
         assertTrue(ch.isActive());
     }
+
+    @Test
+    public void testSendResponseBurst() throws InterruptedException {
+        Channel ch = connect();
+
+        int n = server1.getKernel().getConfig().netMaxMessageQueueSize() / 2;
+        for (int i = 0; i < n; i++) {
+            assertTrue(ch.getMessageQueue().sendMessage(new PongMessage()));
+        }
+
+        Thread.sleep(200);
+        assertTrue(ch.getMessageQueue().isIdle());
+        assertTrue(ch.isActive());
+    }
 }
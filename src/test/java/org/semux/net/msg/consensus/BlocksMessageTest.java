@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+
+public class BlocksMessageTest {
+
+    @Test
+    public void testSerialization() {
+        List<Block> blocks = new ArrayList<>();
+        for (long number = 1; number <= 3; number++) {
+            byte[] coinbase = Bytes.random(Key.ADDRESS_LEN);
+            byte[] prevHash = Bytes.random(32);
+            long timestamp = System.currentTimeMillis();
+            byte[] transactionsRoot = MerkleUtil.computeTransactionsRoot(Collections.emptyList());
+            byte[] resultsRoot = MerkleUtil.computeResultsRoot(Collections.emptyList());
+            byte[] stateRoot = Bytes.EMPTY_HASH;
+            byte[] data = {};
+            BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot,
+                    resultsRoot, stateRoot, data);
+            blocks.add(new Block(header, Collections.emptyList(), Collections.emptyList()));
+        }
+
+        BlocksMessage m = new BlocksMessage(blocks);
+        BlocksMessage m2 = new BlocksMessage(m.getEncoded());
+
+        assertThat(m2.getBlocks()).hasSize(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertThat(m2.getBlocks().get(i).getNumber()).isEqualTo(blocks.get(i).getNumber());
+            assertThat(m2.getBlocks().get(i).getHash()).isEqualTo(blocks.get(i).getHash());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.semux.core.Amount.Unit.NANO_SEM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.consensus.Proof;
+import org.semux.consensus.Proposal;
+import org.semux.core.BlockHeader;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+
+public class CompactProposalMessageTest {
+
+    @Test
+    public void testSerialization() {
+        Key key = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            txs.add(new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), NANO_SEM.of(2),
+                    NANO_SEM.of(50_000_000L), i, System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+        }
+
+        long number = 1;
+        BlockHeader header = new BlockHeader(number, Bytes.random(Key.ADDRESS_LEN), Bytes.random(32),
+                System.currentTimeMillis(), MerkleUtil.computeTransactionsRoot(txs), Bytes.EMPTY_HASH,
+                Bytes.EMPTY_HASH, new byte[0]);
+        Proposal proposal = new Proposal(new Proof(number, 0), header, txs).sign(new Key());
+
+        CompactProposalMessage msg = new CompactProposalMessage(new CompactProposalMessage(proposal).getEncoded());
+        assertTrue(msg.validate());
+        assertEquals(number, msg.getHeight());
+        assertEquals(0, msg.getView());
+        assertEquals(txs.size(), msg.getHashes().size());
+        for (int i = 0; i < txs.size(); i++) {
+            assertArrayEquals(txs.get(i).getHash(), msg.getHashes().get(i));
+        }
+        assertTrue(msg.getEncoded().length < new ProposalMessage(proposal).getEncoded().length);
+
+        // restored with the right transactions
+        Proposal restored = msg.toProposal(txs);
+        assertTrue(restored.validate());
+        assertArrayEquals(proposal.toBytes(), restored.toBytes());
+
+        // restored with the wrong transactions
+        assertFalse(msg.toProposal(Arrays.asList(txs.get(1), txs.get(0), txs.get(2))).validate());
+    }
+
+    @Test
+    public void testValidate() {
+        Key key = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            txs.add(new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), NANO_SEM.of(2),
+                    NANO_SEM.of(50_000_000L), i, System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+        }
+        BlockHeader header = new BlockHeader(1, Bytes.random(Key.ADDRESS_LEN), Bytes.random(32),
+                System.currentTimeMillis(), MerkleUtil.computeTransactionsRoot(txs), Bytes.EMPTY_HASH,
+                Bytes.EMPTY_HASH, new byte[0]);
+
+        // the hashes do not match the transactions root
+        Proposal proposal = new Proposal(new Proof(1, 0), header, txs.subList(0, 2)).sign(new Key());
+        assertFalse(new CompactProposalMessage(proposal).validate());
+
+        // the same transaction is listed twice
+        List<Transaction> duplicated = Arrays.asList(txs.get(0), txs.get(0), txs.get(1));
+        header = new BlockHeader(1, Bytes.random(Key.ADDRESS_LEN), Bytes.random(32),
+                System.currentTimeMillis(), MerkleUtil.computeTransactionsRoot(duplicated), Bytes.EMPTY_HASH,
+                Bytes.EMPTY_HASH, new byte[0]);
+        proposal = new Proposal(new Proof(1, 0), header, duplicated).sign(new Key());
+        assertFalse(new CompactProposalMessage(proposal).validate());
+    }
+
+    @Test
+    public void testGetProposalTxs() {
+        byte[] blockHash = Bytes.random(32);
+        GetProposalTxsMessage msg = new GetProposalTxsMessage(
+                new GetProposalTxsMessage(blockHash, Arrays.asList(0, 2)).getEncoded());
+        assertArrayEquals(blockHash, msg.getBlockHash());
+        assertEquals(Arrays.asList(0, 2), msg.getIndices());
+
+        assertTrue(msg.validate(3));
+        assertFalse(msg.validate(2));
+        assertFalse(new GetProposalTxsMessage(blockHash, Collections.emptyList()).validate(3));
+        assertFalse(new GetProposalTxsMessage(blockHash, Collections.singletonList(-1)).validate(3));
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class GetBlocksMessageTest {
+
+    @Test
+    public void testSerialization() {
+        long from = 1;
+        int count = 16;
+
+        GetBlocksMessage m = new GetBlocksMessage(from, count);
+        GetBlocksMessage m2 = new GetBlocksMessage(m.getEncoded());
+
+        assertThat(m2.getFrom()).isEqualTo(from);
+        assertThat(m2.getCount()).isEqualTo(count);
+        assertThat(m2.validate()).isTrue();
+    }
+
+    @Test
+    public void testValidate() {
+        assertThat(new GetBlocksMessage(-1, 1).validate()).isFalse();
+        assertThat(new GetBlocksMessage(1, 0).validate()).isFalse();
+        assertThat(new GetBlocksMessage(1, GetBlocksMessage.MAX_COUNT + 1).validate()).isFalse();
+    }
+}
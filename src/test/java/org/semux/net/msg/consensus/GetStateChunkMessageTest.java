@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class GetStateChunkMessageTest {
+
+    @Test
+    public void testSerialization() {
+        int level = 10;
+        int index = 1023;
+
+        GetStateChunkMessage m = new GetStateChunkMessage(level, index);
+        GetStateChunkMessage m2 = new GetStateChunkMessage(m.getEncoded());
+
+        assertThat(m2.getLevel()).isEqualTo(level);
+        assertThat(m2.getIndex()).isEqualTo(index);
+        assertThat(m2.validate()).isTrue();
+    }
+
+    @Test
+    public void testValidate() {
+        assertThat(new GetStateChunkMessage(GetStateChunkMessage.MIN_LEVEL - 1, 0).validate()).isFalse();
+        assertThat(new GetStateChunkMessage(GetStateChunkMessage.MAX_LEVEL + 1, 0).validate()).isFalse();
+        assertThat(new GetStateChunkMessage(10, -1).validate()).isFalse();
+        assertThat(new GetStateChunkMessage(10, 1024).validate()).isFalse();
+
+        assertThat(new GetStateManifestMessage(GetStateChunkMessage.MIN_LEVEL - 1).validate()).isFalse();
+        assertThat(new GetStateManifestMessage(GetStateChunkMessage.MAX_LEVEL).validate()).isTrue();
+    }
+}
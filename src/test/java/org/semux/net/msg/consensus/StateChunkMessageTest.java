@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.core.state.StateTree;
+import org.semux.db.DatabaseName;
+import org.semux.util.Bytes;
+
+public class StateChunkMessageTest {
+
+    @Test
+    public void testSerialization() {
+        List<StateTree.Leaf> leaves = Arrays.asList(
+                new StateTree.Leaf(DatabaseName.ACCOUNT, Bytes.random(21), Bytes.random(40)),
+                new StateTree.Leaf(DatabaseName.DELEGATE, Bytes.random(20), Bytes.random(60)),
+                new StateTree.Leaf(DatabaseName.VOTE, Bytes.random(40), Bytes.random(8)));
+
+        StateChunkMessage m = new StateChunkMessage(100, 10, 7, leaves);
+        StateChunkMessage m2 = new StateChunkMessage(m.getEncoded());
+
+        assertThat(m2.getNumber()).isEqualTo(100);
+        assertThat(m2.getLevel()).isEqualTo(10);
+        assertThat(m2.getIndex()).isEqualTo(7);
+        assertThat(m2.getLeaves()).hasSize(leaves.size());
+        for (int i = 0; i < leaves.size(); i++) {
+            assertThat(m2.getLeaves().get(i).getDb()).isEqualTo(leaves.get(i).getDb());
+            assertThat(m2.getLeaves().get(i).getKey()).isEqualTo(leaves.get(i).getKey());
+            assertThat(m2.getLeaves().get(i).getValue()).isEqualTo(leaves.get(i).getValue());
+        }
+    }
+}
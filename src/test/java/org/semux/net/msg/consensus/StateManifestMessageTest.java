@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.semux.consensus.ValidatorActivatedFork;
+import org.semux.core.BlockchainImpl.ValidatorStats;
+import org.semux.core.Checkpoint;
+import org.semux.core.state.StateTree;
+import org.semux.util.Bytes;
+
+public class StateManifestMessageTest {
+
+    @Test
+    public void testSerialization() {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            chunks.add(i % 3 == 0 ? Bytes.EMPTY_HASH : Bytes.random(32));
+        }
+        List<String> validators = Arrays.asList("aa", "bb");
+        Map<String, ValidatorStats> stats = new HashMap<>();
+        stats.put("bb", new ValidatorStats(1, 2, 3));
+        stats.put("aa", new ValidatorStats(4, 5, 6));
+        Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> forks = Collections.singletonMap(
+                ValidatorActivatedFork.UNIFORM_DISTRIBUTION,
+                new ValidatorActivatedFork.Activation(ValidatorActivatedFork.UNIFORM_DISTRIBUTION, 10));
+
+        Checkpoint checkpoint = new Checkpoint(100, Bytes.random(32), StateTree.hashLevel(chunks), 8, chunks,
+                validators, stats, forks);
+        assertThat(checkpoint.validate()).isTrue();
+
+        StateManifestMessage m = new StateManifestMessage(checkpoint);
+        Checkpoint checkpoint2 = new StateManifestMessage(m.getEncoded()).getCheckpoint();
+
+        assertThat(checkpoint2.validate()).isTrue();
+        assertThat(checkpoint2.getHash()).isEqualTo(checkpoint.getHash());
+        assertThat(checkpoint2.getNumber()).isEqualTo(100);
+        assertThat(checkpoint2.getBlockHash()).isEqualTo(checkpoint.getBlockHash());
+        assertThat(checkpoint2.getChunks()).hasSize(256);
+        assertThat(checkpoint2.getValidators()).isEqualTo(validators);
+        assertThat(checkpoint2.getValidatorStats().keySet()).containsExactly("aa", "bb");
+        assertThat(checkpoint2.getValidatorStats().get("bb").getTurnsMissed()).isEqualTo(3);
+        assertThat(checkpoint2.getActivatedForks().get(ValidatorActivatedFork.UNIFORM_DISTRIBUTION).activatedAt)
+                .isEqualTo(10);
+    }
+
+    @Test
+    public void testValidate() {
+        List<byte[]> chunks = Collections.nCopies(256, Bytes.random(32));
+
+        // the chunks do not add up to the state root
+        Checkpoint checkpoint = new Checkpoint(100, Bytes.random(32), Bytes.random(32), 8, chunks,
+                Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+        assertThat(checkpoint.validate()).isFalse();
+
+        // the number of chunks does not match the level
+        checkpoint = new Checkpoint(100, Bytes.random(32), StateTree.hashLevel(chunks), 9, chunks,
+                Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+        assertThat(checkpoint.validate()).isFalse();
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.semux.net.msg.p2p.TxInvMessage.MAX_HASHES;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.util.Bytes;
+
+public class TxInvMessageTest {
+
+    @Test
+    public void testCodec() {
+        List<byte[]> hashes = new ArrayList<>();
+        hashes.add(Bytes.random(32));
+        hashes.add(Bytes.random(32));
+
+        TxInvMessage msg = new TxInvMessage(new TxInvMessage(hashes).getEncoded());
+        assertTrue(msg.validate());
+        assertEquals(hashes.size(), msg.getHashes().size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertArrayEquals(hashes.get(i), msg.getHashes().get(i));
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < MAX_HASHES + 1; i++) {
+            hashes.add(Bytes.random(32));
+        }
+
+        assertFalse(new TxInvMessage(new TxInvMessage(hashes).getEncoded()).validate());
+    }
+
+    @Test
+    public void testInvalidHash() {
+        assertFalse(new TxInvMessage(Collections.singletonList(Bytes.random(20))).validate());
+        assertFalse(new TxInvMessage(Collections.emptyList()).validate());
+    }
+}